@@ -0,0 +1,16 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.config;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * This enables the caches of the ticketing system. The "vendors" and "customers" caches sit in front of the
+ * vendor and customer repositories, so account lookups on sign-in and on every start-thread request do not need a
+ * database round-trip. The caches hold immutable account views rather than the managed entities, so a cached
+ * account cannot be changed by the request it was handed to. The caches are bounded and expire their entries, as
+ * set by "spring.cache.caffeine.spec".
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
@@ -0,0 +1,409 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.config;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This component gives every WebSocket session its own bounded queue of outbound messages, so a slow browser tab
+ * neither delays the messages of the other sessions nor makes the server hold an unbounded number of messages for it.
+ *
+ * The broker hands a message to the queue of a session and returns straight away, and a pool of flusher threads
+ * sends the queued messages of each session in order, one session at a time per thread. The pool keeps
+ * "ticketing.websocket.flush-threads" threads ready and starts more when they are all busy, so a session stuck in a
+ * blocking send only holds up its own thread and never the queues of the other sessions. When the queue of a
+ * session is over "ticketing.websocket.session-queue-size" messages or "ticketing.websocket.session-buffer-kb", the
+ * policy depends on the destination of the messages:
+ *
+ * A message for a counts-only topic replaces the queued message for the same topic, as only the latest counts
+ * matter. The oldest queued log message is dropped to make room. A change of the pool is never dropped, as the
+ * client would miss it, so when only changes are left the session is closed, and the client reconnects and loads the
+ * snapshot of the pool again. A session whose current send has taken longer than
+ * "ticketing.websocket.send-time-limit-ms" is closed as well, by a watchdog thread that looks at the sends in
+ * progress ten times per time limit, so a stuck session is closed even when no new message arrives for it.
+ *
+ * The conflated, dropped and closed counts are published as the "ticketing.websocket.outbound.dropped" counter,
+ * tagged by policy, and the messages waiting in all queues as the "ticketing.websocket.outbound.queued" gauge.
+ */
+@Component
+public class ConflatingSessionDecoratorFactory implements WebSocketHandlerDecoratorFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConflatingSessionDecoratorFactory.class);
+
+    private final int queueLimit;
+
+    private final int bufferLimitBytes;
+
+    private final long sendTimeLimitNanos;
+
+    /**
+     * This is the pool of threads sending the queued messages to the sessions.
+     */
+    private final ExecutorService flusher;
+
+    /**
+     * This is the thread closing the sessions whose current send has taken longer than the time limit.
+     */
+    private final ScheduledExecutorService watchdog;
+
+    /**
+     * This holds the queue of every open session, by session ID.
+     */
+    private final Map<String, ConflatingSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * This is the number of messages waiting in the queues of all sessions.
+     */
+    private final AtomicInteger queuedMessages = new AtomicInteger();
+
+    private final Counter conflatedMessages;
+
+    private final Counter droppedMessages;
+
+    private final Counter closedSessions;
+
+    /**
+     * This constructor creates the pool of flusher threads and starts the watchdog.
+     *
+     * @param queueLimit the maximum number of messages queued for a session.
+     * @param bufferLimitKb the maximum size in kilobytes of the messages queued for a session.
+     * @param sendTimeLimitMs the time in milliseconds a single send may take before the session is closed.
+     * @param flushThreads the number of threads kept ready to send the queued messages.
+     * @param meterRegistry the registry the number of dropped and queued messages are published to.
+     */
+    public ConflatingSessionDecoratorFactory(@Value("${ticketing.websocket.session-queue-size:256}") int queueLimit,
+                                             @Value("${ticketing.websocket.session-buffer-kb:512}") int bufferLimitKb,
+                                             @Value("${ticketing.websocket.send-time-limit-ms:10000}")
+                                             long sendTimeLimitMs,
+                                             @Value("${ticketing.websocket.flush-threads:4}") int flushThreads,
+                                             MeterRegistry meterRegistry) {
+        this.queueLimit = queueLimit;
+        this.bufferLimitBytes = bufferLimitKb * 1024;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.flusher = new ThreadPoolExecutor(flushThreads, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), task -> {
+            Thread thread = new Thread(task, "websocket-flusher-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "websocket-send-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkIntervalNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(10), sendTimeLimitNanos / 10);
+        this.watchdog.scheduleWithFixedDelay(this::closeStuckSessions, checkIntervalNanos, checkIntervalNanos,
+                TimeUnit.NANOSECONDS);
+        this.conflatedMessages = droppedCounter(meterRegistry, "conflated",
+                "Queued counts replaced by newer counts for the same topic");
+        this.droppedMessages = droppedCounter(meterRegistry, "dropped-oldest",
+                "Queued log messages dropped to make room for newer messages");
+        this.closedSessions = droppedCounter(meterRegistry, "session-closed",
+                "Sessions closed because their queue was full of pool changes or a send took too long");
+        Gauge.builder("ticketing.websocket.outbound.queued", queuedMessages, AtomicInteger::get)
+                .description("Messages waiting in the outbound queues of all WebSocket sessions")
+                .register(meterRegistry);
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String policy, String description) {
+        return Counter.builder("ticketing.websocket.outbound.dropped")
+                .description(description)
+                .tag("policy", policy)
+                .register(meterRegistry);
+    }
+
+    /**
+     * This decorates the STOMP handler so that every session it sends to has a bounded queue.
+     *
+     * @param handler the handler of the WebSocket endpoint.
+     * @return the decorated handler.
+     */
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                ConflatingSession conflatingSession = new ConflatingSession(session);
+                sessions.put(session.getId(), conflatingSession);
+                super.afterConnectionEstablished(conflatingSession);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                ConflatingSession conflatingSession = sessions.remove(session.getId());
+                if (conflatingSession != null) {
+                    conflatingSession.discard();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * This closes the sessions whose current send has taken longer than the send time limit, on the watchdog thread.
+     */
+    private void closeStuckSessions() {
+        long now = System.nanoTime();
+        for (ConflatingSession session : sessions.values()) {
+            try {
+                session.closeIfStuck(now);
+            } catch (RuntimeException e) {
+                logger.error("Could not check WebSocket session {}", session.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * This stops the flusher threads and the watchdog when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        flusher.shutdownNow();
+    }
+
+    /**
+     * This returns the destination of a STOMP MESSAGE frame.
+     *
+     * @param message the WebSocket message.
+     * @return the destination, or {@code null} if the message is not a MESSAGE frame.
+     */
+    private static String destinationOf(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage textMessage)) {
+            return null;
+        }
+        String frame = textMessage.getPayload();
+        if (!frame.startsWith("MESSAGE\n")) {
+            return null;
+        }
+        int headersEnd = frame.indexOf("\n\n");
+        int start = frame.indexOf("\ndestination:");
+        if (start < 0 || (headersEnd >= 0 && start > headersEnd)) {
+            return null;
+        }
+        start += "\ndestination:".length();
+        int end = frame.indexOf('\n', start);
+        return end < 0 ? frame.substring(start) : frame.substring(start, end);
+    }
+
+    /**
+     * This is a session with a bounded queue of outbound messages.
+     *
+     * The queue is only read and written while holding the monitor of the session, and a single flusher thread at a
+     * time sends its messages, outside the monitor.
+     */
+    private final class ConflatingSession extends WebSocketSessionDecorator {
+
+        /**
+         * This holds the queued messages in the order they are sent, by the topic for counts-only topics, so a newer
+         * count replaces the queued one, and by a key of their own for every other message.
+         */
+        private final Map<Object, WebSocketMessage<?>> pending = new LinkedHashMap<>();
+
+        /**
+         * This holds the keys of the queued log messages, oldest first.
+         */
+        private final Deque<Object> logKeys = new ArrayDeque<>();
+
+        private int pendingBytes;
+
+        private boolean flushing;
+
+        /**
+         * This is the value of {@link System#nanoTime()} when the current send started, or zero if none is running.
+         */
+        private long sendStartNanos;
+
+        private boolean discarded;
+
+        private ConflatingSession(WebSocketSession session) {
+            super(session);
+        }
+
+        /**
+         * This queues a message to be sent by a flusher thread, applying the policy of its destination if the
+         * queue is full.
+         *
+         * @param message the message to send.
+         */
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+            String destination = destinationOf(message);
+            boolean close;
+            boolean startFlush = false;
+            synchronized (this) {
+                if (discarded) {
+                    return;
+                }
+                close = sendStartNanos != 0 && System.nanoTime() - sendStartNanos > sendTimeLimitNanos;
+                if (!close) {
+                    enqueue(message, destination);
+                    close = !trim();
+                }
+                if (close) {
+                    discard();
+                } else if (!flushing) {
+                    flushing = true;
+                    startFlush = true;
+                }
+            }
+            if (close) {
+                closedSessions.increment();
+                logger.warn("Closing WebSocket session {} as it is not keeping up with its messages", getId());
+                closeQuietly();
+            } else if (startFlush) {
+                flusher.execute(this::flush);
+            }
+        }
+
+        /**
+         * This adds a message to the queue, replacing the queued message of a counts-only topic.
+         *
+         * @param message the message to add.
+         * @param destination the destination of the message, or {@code null} if it is not a MESSAGE frame.
+         */
+        private void enqueue(WebSocketMessage<?> message, String destination) {
+            if (destination != null && destination.endsWith("/counts")) {
+                WebSocketMessage<?> replaced = pending.put(destination, message);
+                if (replaced != null) {
+                    pendingBytes -= replaced.getPayloadLength();
+                    conflatedMessages.increment();
+                } else {
+                    queuedMessages.incrementAndGet();
+                }
+            } else {
+                Object key = new Object();
+                pending.put(key, message);
+                if (destination != null && destination.startsWith("/topic/logs")) {
+                    logKeys.add(key);
+                }
+                queuedMessages.incrementAndGet();
+            }
+            pendingBytes += message.getPayloadLength();
+        }
+
+        /**
+         * This drops the oldest log messages until the queue is within its limits.
+         *
+         * @return {@code true} if the queue is within its limits, or {@code false} if it only holds messages that
+         * must not be dropped and the session has to be closed.
+         */
+        private boolean trim() {
+            while (pending.size() > queueLimit || pendingBytes > bufferLimitBytes) {
+                Object oldest = logKeys.poll();
+                if (oldest == null) {
+                    return false;
+                }
+                WebSocketMessage<?> dropped = pending.remove(oldest);
+                pendingBytes -= dropped.getPayloadLength();
+                queuedMessages.decrementAndGet();
+                droppedMessages.increment();
+            }
+            return true;
+        }
+
+        /**
+         * This sends the queued messages in order until the queue is empty, on a flusher thread.
+         */
+        private void flush() {
+            while (true) {
+                WebSocketMessage<?> next;
+                synchronized (this) {
+                    Iterator<Map.Entry<Object, WebSocketMessage<?>>> iterator = pending.entrySet().iterator();
+                    if (discarded || !iterator.hasNext()) {
+                        flushing = false;
+                        sendStartNanos = 0;
+                        return;
+                    }
+                    Map.Entry<Object, WebSocketMessage<?>> entry = iterator.next();
+                    iterator.remove();
+                    if (entry.getKey() == logKeys.peek()) {
+                        logKeys.poll();
+                    }
+                    next = entry.getValue();
+                    pendingBytes -= next.getPayloadLength();
+                    queuedMessages.decrementAndGet();
+                    sendStartNanos = System.nanoTime();
+                }
+                try {
+                    getDelegate().sendMessage(next);
+                } catch (IOException | RuntimeException e) {
+                    logger.debug("Could not send to WebSocket session {}", getId(), e);
+                    synchronized (this) {
+                        discard();
+                        flushing = false;
+                        sendStartNanos = 0;
+                    }
+                    closeQuietly();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * This closes the session if its current send has taken longer than the send time limit. The session is
+         * closed on a flusher thread, as closing it may wait for the send that is stuck.
+         *
+         * @param now the current value of {@link System#nanoTime()}.
+         */
+        private void closeIfStuck(long now) {
+            synchronized (this) {
+                if (discarded || sendStartNanos == 0 || now - sendStartNanos <= sendTimeLimitNanos) {
+                    return;
+                }
+                discard();
+            }
+            closedSessions.increment();
+            logger.warn("Closing WebSocket session {} as a send has taken longer than the time limit", getId());
+            flusher.execute(this::closeQuietly);
+        }
+
+        /**
+         * This empties the queue and stops queueing messages, once the session is closed or about to be closed.
+         */
+        private synchronized void discard() {
+            discarded = true;
+            queuedMessages.addAndGet(-pending.size());
+            pending.clear();
+            logKeys.clear();
+            pendingBytes = 0;
+        }
+
+        private void closeQuietly() {
+            try {
+                getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Could not close WebSocket session {}", getId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.config;
+import com.hkrw2082289.ticketing_system.repository.CustomerRepository;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * This interceptor gives a WebSocket session the customer it belongs to, so that messages sent to the user
+ * destinations, such as "/user/queue/bookings", reach the sessions of that customer only.
+ *
+ * The customer ID is taken from the "customerId" header of the STOMP CONNECT frame, as the REST API also takes it
+ * from the request, and must belong to a signed up customer. A session that connects without the header has no
+ * user and only gets the broadcast topics.
+ */
+@Component
+public class CustomerPrincipalInterceptor implements ChannelInterceptor {
+
+    /**
+     * This is the header of the CONNECT frame holding the customer ID.
+     */
+    public static final String CUSTOMER_ID_HEADER = "customerId";
+
+    private final CustomerRepository customerRepository;
+
+    /**
+     * This constructor is used for injecting the repository the customer IDs are checked against.
+     *
+     * @param customerRepository the repository of the customers.
+     */
+    public CustomerPrincipalInterceptor(CustomerRepository customerRepository) {
+        this.customerRepository = customerRepository;
+    }
+
+    /**
+     * This method sets the user of a session from the customer ID of its CONNECT frame.
+     *
+     * @param message the inbound STOMP message.
+     * @param channel the inbound channel.
+     * @return the message, with the user set if it is a CONNECT frame with a customer ID.
+     * @throws MessageDeliveryException if the customer ID does not belong to a signed up customer, which makes the
+     * broker reject the connection.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) {
+            return message;
+        }
+        String customerId = accessor.getFirstNativeHeader(CUSTOMER_ID_HEADER);
+        if (customerId == null || customerId.isBlank()) {
+            return message;
+        }
+        if (!customerRepository.existsByCustomerId(customerId)) {
+            throw new MessageDeliveryException("Unknown customer: " + customerId);
+        }
+        accessor.setUser(new CustomerPrincipal(customerId));
+        return message;
+    }
+
+    /**
+     * This is the user of a session connected by a customer, named by the customer ID.
+     */
+    private static final class CustomerPrincipal implements Principal {
+
+        private final String customerId;
+
+        private CustomerPrincipal(String customerId) {
+            this.customerId = customerId;
+        }
+
+        @Override
+        public String getName() {
+            return customerId;
+        }
+
+        @Override
+        public String toString() {
+            return "CustomerPrincipal[" + customerId + "]";
+        }
+    }
+}
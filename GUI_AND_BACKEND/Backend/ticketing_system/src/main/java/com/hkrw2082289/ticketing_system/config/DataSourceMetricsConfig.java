@@ -0,0 +1,48 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.config;
+import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class DataSourceMetricsConfig {
+
+    /**
+     * This is the name of the logger slow queries are written to, so they can be routed to their own log file.
+     */
+    public static final String SLOW_QUERY_LOGGER = "com.hkrw2082289.ticketing_system.SlowQuery";
+
+    /**
+     * This wraps the application's data source in a proxy that captures the SQL traffic of the ticketing system.
+     * Every statement slower than the configured threshold is logged together with its bind parameters, and the
+     * statements run by each thread are counted so they can be reported per HTTP request.
+     *
+     * @param environment the environment holding the "ticketing.metrics.slow-query-threshold-ms" setting.
+     * @return a {@link BeanPostProcessor} that wraps every {@link DataSource} bean once.
+     */
+    @Bean
+    public static BeanPostProcessor dataSourceProxyPostProcessor(Environment environment) {
+        long slowQueryThresholdMs = environment.getProperty("ticketing.metrics.slow-query-threshold-ms",
+                Long.class, 200L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .logSlowQueryBySlf4j(slowQueryThresholdMs, TimeUnit.MILLISECONDS,
+                                    SLF4JLogLevel.WARN, SLOW_QUERY_LOGGER)
+                            .countQuery()
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
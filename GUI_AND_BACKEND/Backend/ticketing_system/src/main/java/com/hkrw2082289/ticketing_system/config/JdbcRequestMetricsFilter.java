@@ -0,0 +1,81 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.config;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryCountHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This filter records how much database work each HTTP request of the ticketing system causes.
+ * The statements are counted per thread by the data source proxy set up in {@link DataSourceMetricsConfig},
+ * and they are published as the "ticketing.http.jdbc.statements" distribution and the "ticketing.http.jdbc.time"
+ * timer tagged with the request's URI pattern.
+ *
+ * As the counts are kept per thread, they only cover synchronous requests, whose statements all run on the request
+ * thread. The statements of asynchronous requests, such as the {@code DeferredResult} book and release endpoints,
+ * run on the job, worker and executor threads and are not counted here, so those requests are not recorded at all
+ * rather than recorded as making no statements. Their database work still shows in the repository, Hibernate and
+ * HikariCP metrics.
+ */
+@Component
+public class JdbcRequestMetricsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * This constructor constructs the filter with the registry the per-request metrics are published to.
+     *
+     * @param meterRegistry the registry backing the actuator metrics endpoint.
+     */
+    public JdbcRequestMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * This method clears the statement counts of the current thread, runs the request and then records the
+     * statements executed and the time spent in the database while serving it, unless the request was made
+     * asynchronous.
+     *
+     * @param request the HTTP request.
+     * @param response the HTTP response.
+     * @param filterChain the remaining filter chain.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        QueryCountHolder.clear();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (!request.isAsyncStarted()) {
+                QueryCount queryCount = QueryCountHolder.getGrandTotal();
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+                String method = request.getMethod();
+
+                DistributionSummary.builder("ticketing.http.jdbc.statements")
+                        .description("JDBC statements executed while serving a request")
+                        .tags("uri", uri, "method", method)
+                        .register(meterRegistry)
+                        .record(queryCount.getTotal());
+                Timer.builder("ticketing.http.jdbc.time")
+                        .description("Time spent executing JDBC statements while serving a request")
+                        .tags("uri", uri, "method", method)
+                        .register(meterRegistry)
+                        .record(queryCount.getTime(), TimeUnit.MILLISECONDS);
+            }
+            QueryCountHolder.clear();
+        }
+    }
+}
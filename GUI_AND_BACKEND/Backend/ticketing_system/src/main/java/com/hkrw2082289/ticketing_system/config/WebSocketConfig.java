@@ -1,6 +1,7 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.config;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
 
@@ -8,17 +9,58 @@ import org.springframework.web.socket.config.annotation.*;
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    /**
+     * This is the factory giving every WebSocket session its own bounded queue of outbound messages.
+     */
+    private final ConflatingSessionDecoratorFactory conflatingSessionDecoratorFactory;
+
+    /**
+     * This is the interceptor giving every session the customer named in its CONNECT frame.
+     */
+    private final CustomerPrincipalInterceptor customerPrincipalInterceptor;
+
+    /**
+     * This constructor constructs the configuration with the factory of the bounded session queues and the
+     * interceptor of the customers of the sessions.
+     *
+     * @param conflatingSessionDecoratorFactory the factory giving every session a bounded outbound queue.
+     * @param customerPrincipalInterceptor the interceptor setting the customer of a session.
+     */
+    public WebSocketConfig(ConflatingSessionDecoratorFactory conflatingSessionDecoratorFactory,
+                           CustomerPrincipalInterceptor customerPrincipalInterceptor) {
+        this.conflatingSessionDecoratorFactory = conflatingSessionDecoratorFactory;
+        this.customerPrincipalInterceptor = customerPrincipalInterceptor;
+    }
+
     /**
      * Configures the message broker for the WebSocket messaging system.
      * This is used to Set up a simple message broker and an application destination prefix
-     * for routing messages.
+     * for routing messages. The messages to each client are sent in the order they were published, as the changes
+     * on "/topic/ticketpool" are sequenced and a change arriving out of order would look like a missed change.
+     * The broker only sends a message to the sessions subscribed to its destination, so the changes of the pool are
+     * also published per event and per vendor under "/topic/ticketpool/", and a client subscribes to the narrowest one.
+     * The notifications of a single customer are sent to "/user/queue/bookings", which the broker resolves to the
+     * sessions of that customer.
      *
      * @param config  the {@link MessageBrokerRegistry} used to configure message broker settings.
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
+        config.setUserDestinationPrefix("/user");
+        config.setPreservePublishOrder(true);
+    }
+
+    /**
+     * Configures the channel of the messages coming from the clients, so that a session connected with a
+     * "customerId" header belongs to that customer. See {@link CustomerPrincipalInterceptor}.
+     *
+     * @param registration the {@link ChannelRegistration} of the inbound channel.
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(customerPrincipalInterceptor);
     }
 
     /**
@@ -34,5 +76,16 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("http://localhost:5173")
                 .withSockJS();
     }
-}
 
+    /**
+     * Configures the WebSocket transport so that a slow client cannot hold back the others. Every session gets a
+     * bounded queue of outbound messages, which conflates the counts-only topics, drops the oldest log messages and
+     * closes the session if pool changes pile up. See {@link ConflatingSessionDecoratorFactory}.
+     *
+     * @param registration the {@link WebSocketTransportRegistration} used to configure the transport.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(conflatingSessionDecoratorFactory);
+    }
+}
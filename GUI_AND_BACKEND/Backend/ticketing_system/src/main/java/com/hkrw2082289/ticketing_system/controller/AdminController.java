@@ -1,7 +1,8 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.controller;
-import com.hkrw2082289.ticketing_system.service.CustomerService;
-import com.hkrw2082289.ticketing_system.service.VendorService;
+import com.hkrw2082289.ticketing_system.service.AdminService;
+import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 
@@ -13,31 +14,49 @@ import org.springframework.http.ResponseEntity;
 @RequestMapping("/api/admin")
 public class AdminController {
 
+    private final AdminService adminService;
+
+    /**
+     * This constructor constructs an AdminController with the provided AdminService class.
+     *
+     * @param adminService the service carrying out the admin-level operations.
+     */
+    @Autowired
+    public AdminController(AdminService adminService) {
+        this.adminService = adminService;
+    }
+
     /**
      * This endpoint stops all customer and vendor activities in the system.
      * This method enables a global stop, preventing customers from purchasing tickets
-     * and vendors from releasing tickets.
+     * and vendors from releasing tickets, and wakes up every thread waiting on the ticket pool so it stops at once.
+     * In "graceful" mode the workers finish their current ticket and their jobs are paused until activity is
+     * resumed, while in "immediate" mode all jobs are cancelled.
      *
-     * @return a ResponseEntity containing a confirmation message.
+     * @param mode the stop mode, either "graceful" or "immediate".
+     * @return a ResponseEntity containing a confirmation message with the number of waiting threads drained.
      */
     @PostMapping("/stop-all-activity")
-    public ResponseEntity<String> stopAllActivity() {
-        CustomerService.enableStopAllPurchases();
-        VendorService.enableStopAllRelease();
-        return ResponseEntity.ok("All customer and vendor threads have been stopped.");
+    public ResponseEntity<String> stopAllActivity(@RequestParam(defaultValue = AdminService.MODE_GRACEFUL)
+                                                  String mode) {
+        ResponseFinder message = adminService.stopAllActivity(mode);
+        if (message.isSuccess()) {
+            return ResponseEntity.ok(message.getMessage());
+        } else {
+            return ResponseEntity.badRequest().body(message.getMessage());
+        }
     }
 
     /**
      * This endpoint resumes all customer and vendor activities in the system.
      * This method disables the global stop, allowing customers to purchase tickets
-     * and vendors to release tickets again.
+     * and vendors to release tickets again, and carries on the jobs paused by a graceful stop.
      *
      * @return a ResponseEntity containing a confirmation message.
      */
     @PostMapping("/resume-all-activity")
     public ResponseEntity<String> resumeAllActivity() {
-        CustomerService.disableStopAllPurchases();
-        VendorService.disableStopAllRelease();
-        return ResponseEntity.ok("All customer and vendor threads have been resumed.");
+        ResponseFinder message = adminService.resumeAllActivity();
+        return ResponseEntity.ok(message.getMessage());
     }
 }
@@ -1,12 +1,17 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.controller;
+import com.hkrw2082289.ticketing_system.helper.Deadline;
 import com.hkrw2082289.ticketing_system.service.CustomerService;
+import com.hkrw2082289.ticketing_system.service.IdempotencyService;
 import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * This Controller class is for managing customer-related operations such as sign up, sign in, and starting/stopping
@@ -20,6 +25,9 @@ public class CustomerController {
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     /**
      * This endpoint is for customer sign-up.
      *
@@ -70,13 +78,21 @@ public class CustomerController {
      *
      * @param customerId the ID of the customer who wants to start a thread for purchasing tickets.
      * @param payload additional data required to start the thread such as event name and no. of tickets to book.
+     * @param idempotencyKey the optional "Idempotency-Key" header, which makes a retry of the request return the
+     *                       result of the first request with the key instead of starting the work again.
+     * @param requestTimeoutMs the optional "X-Request-Timeout" header, the time in milliseconds the caller is
+     *                         willing to wait, after which the work of the request is abandoned.
      * @return a ResponseEntity containing a success or error message based on the operation's result.
      */
     @PostMapping("/{customerId}/start-thread")
     public ResponseEntity<String> startCustomerThread(
             @PathVariable String customerId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(value = "X-Request-Timeout", required = false) Long requestTimeoutMs,
             @RequestBody Map<String, Object> payload) {
-        ResponseFinder message = customerService.startCustomerThread(customerId,payload);
+        ResponseFinder message = idempotencyService.execute("customer-start-thread", customerId, idempotencyKey,
+                payload, () -> customerService.startCustomerThread(customerId, payload,
+                        Deadline.afterMillis(requestTimeoutMs)));
         if (message.isSuccess()) {
             return ResponseEntity.ok(message.getMessage());
         } else {
@@ -85,6 +101,31 @@ public class CustomerController {
     }
 
 
+    /**
+     * This endpoint is for booking tickets of a specific event for a customer asynchronously.
+     *
+     * This method books the tickets without holding a request thread while it waits for tickets to become
+     * available, and responds once the tickets have been booked or the request has timed out.
+     *
+     * @param customerId the ID of the customer who wants to book tickets.
+     * @param payload the event name and no. of tickets to book, and optionally the time in milliseconds to wait.
+     * @param idempotencyKey the optional "Idempotency-Key" header, which makes a retry of the request return the
+     *                       result of the first request with the key instead of starting the work again.
+     * @param requestTimeoutMs the optional "X-Request-Timeout" header, the time in milliseconds the caller is
+     *                         willing to wait, after which the work of the request is abandoned.
+     * @return a deferred ResponseEntity containing a success or error message based on the operation's result.
+     */
+    @PostMapping("/{customerId}/book")
+    public DeferredResult<ResponseEntity<String>> bookTickets(
+            @PathVariable String customerId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(value = "X-Request-Timeout", required = false) Long requestTimeoutMs,
+            @RequestBody Map<String, Object> payload) {
+        Deadline deadline = Deadline.afterMillis(requestTimeoutMs);
+        return toDeferredResult(idempotencyService.executeAsync("customer-book", customerId, idempotencyKey,
+                payload, () -> customerService.bookTicketsAsync(customerId, payload, deadline)), deadline);
+    }
+
     /**
      * This endpoint for stopping all threads for a specific customer ID.
      *
@@ -103,5 +144,31 @@ public class CustomerController {
             return ResponseEntity.badRequest().body(message.getMessage());
         }
     }
-}
 
+    /**
+     * This turns the future result of an asynchronous request into the deferred result of the endpoint. If the
+     * request times out in the web server or the connection of the caller fails, the deadline of the request is
+     * cancelled, so the pool stops waiting to book tickets nobody will be told about.
+     *
+     * @param response the future result of the request.
+     * @param deadline the deadline of the request.
+     * @return the deferred ResponseEntity containing a success or error message based on the result.
+     */
+    private DeferredResult<ResponseEntity<String>> toDeferredResult(CompletableFuture<ResponseFinder> response,
+                                                                    Deadline deadline) {
+        DeferredResult<ResponseEntity<String>> result = new DeferredResult<>();
+        result.onTimeout(deadline::cancel);
+        result.onError(error -> deadline.cancel());
+        response.whenComplete((message, error) -> {
+            if (error != null) {
+                result.setErrorResult(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else if (message.isSuccess()) {
+                result.setResult(ResponseEntity.ok(message.getMessage()));
+            } else {
+                result.setResult(ResponseEntity.badRequest().body(message.getMessage()));
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.controller;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob.JobState;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob.JobType;
+import com.hkrw2082289.ticketing_system.service.JobService;
+import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * This controller class is for querying and cancelling the ticket release and ticket purchase jobs started by
+ * vendors and customers.
+ * This provides endpoints for listing jobs, viewing the state and progress of a job, and cancelling a job by its ID.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final JobService jobService;
+
+    /**
+     * This constructor constructs a JobController with the provided JobService class.
+     *
+     * @param jobService the service holding the job registry.
+     */
+    @Autowired
+    public JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * This endpoint is used to list the jobs of the system, optionally filtered by type, owner and state.
+     *
+     * @param type the kind of jobs to list, either TICKET_RELEASE or TICKET_PURCHASE.
+     * @param ownerId the vendor ID or customer ID to list jobs for.
+     * @param state the state of the jobs to list.
+     * @return a ResponseEntity containing the matching jobs ordered by job ID.
+     */
+    @GetMapping
+    public ResponseEntity<List<WorkerJob>> listJobs(@RequestParam(required = false) JobType type,
+                                                    @RequestParam(required = false) String ownerId,
+                                                    @RequestParam(required = false) JobState state) {
+        return ResponseEntity.ok(jobService.listJobs(type, ownerId, state));
+    }
+
+    /**
+     * This endpoint is used to view the state and progress of a job.
+     *
+     * @param jobId the ID of the job.
+     * @return a ResponseEntity containing the job, or an error message if no such job exists.
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable long jobId) {
+        ResponseFinder response = jobService.findJob(jobId);
+        if (response.isSuccess()) {
+            return ResponseEntity.ok(response.getData());
+        } else {
+            return ResponseEntity.badRequest().body(response.getMessage());
+        }
+    }
+
+    /**
+     * This endpoint is used to cancel a job, interrupting its worker if it is running.
+     *
+     * @param jobId the ID of the job.
+     * @return a ResponseEntity containing a success or error message based on the operation's result.
+     */
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<String> cancelJob(@PathVariable long jobId) {
+        ResponseFinder message = jobService.cancelJob(jobId);
+        if (message.isSuccess()) {
+            return ResponseEntity.ok(message.getMessage());
+        } else {
+            return ResponseEntity.badRequest().body(message.getMessage());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.controller;
+import com.hkrw2082289.ticketing_system.utils.RateLimitExceededException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * This controller advice turns rate limit rejections raised while handling a request into HTTP 429 responses.
+ */
+@RestControllerAdvice
+public class RateLimitExceptionHandler {
+
+    /**
+     * This method builds the response for a request rejected by a rate limit, telling the client when to retry
+     * with the "Retry-After" header.
+     *
+     * @param e the rejection.
+     * @return a ResponseEntity with status 429 containing the error message.
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<String> handleRateLimitExceeded(RateLimitExceededException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+}
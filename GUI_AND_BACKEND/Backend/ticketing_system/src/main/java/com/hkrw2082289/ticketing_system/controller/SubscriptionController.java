@@ -0,0 +1,82 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.controller;
+import com.hkrw2082289.ticketing_system.helper.AvailabilitySubscription;
+import com.hkrw2082289.ticketing_system.service.AvailabilitySubscriptionService;
+import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This controller handles the availability subscriptions of the customers, through which a customer registers
+ * interest in a sold-out event, optionally with a number of tickets to book automatically when it is restocked,
+ * without keeping a thread waiting on the pool.
+ */
+@RestController
+@RequestMapping("/api/customers/{customerId}/subscriptions")
+public class SubscriptionController {
+
+    private final AvailabilitySubscriptionService subscriptionService;
+
+    /**
+     * This constructor is used for injecting the service managing the subscriptions.
+     *
+     * @param subscriptionService the service managing the availability subscriptions.
+     */
+    @Autowired
+    public SubscriptionController(AvailabilitySubscriptionService subscriptionService) {
+        this.subscriptionService = subscriptionService;
+    }
+
+    /**
+     * This endpoint registers the interest of a customer in an event. The customer is notified on
+     * "/user/queue/bookings" when tickets are restocked, and the tickets are booked first if an auto-book quantity
+     * is given.
+     *
+     * @param customerId the ID of the customer.
+     * @param payload the event name, and optionally "autoBookQuantity" and "timeoutMs".
+     * @return a ResponseEntity containing a success message with the subscription ID, or an error message.
+     */
+    @PostMapping
+    public ResponseEntity<String> subscribe(@PathVariable String customerId,
+                                            @RequestBody Map<String, Object> payload) {
+        ResponseFinder message = subscriptionService.subscribe(customerId, payload);
+        if (message.isSuccess()) {
+            return ResponseEntity.ok(message.getMessage());
+        } else {
+            return ResponseEntity.badRequest().body(message.getMessage());
+        }
+    }
+
+    /**
+     * This endpoint lists the subscriptions of a customer, both waiting and recently finished.
+     *
+     * @param customerId the ID of the customer.
+     * @return a ResponseEntity containing the subscriptions ordered by subscription ID.
+     */
+    @GetMapping
+    public ResponseEntity<List<AvailabilitySubscription>> listSubscriptions(@PathVariable String customerId) {
+        return ResponseEntity.ok(subscriptionService.listSubscriptions(customerId));
+    }
+
+    /**
+     * This endpoint cancels a waiting subscription of a customer.
+     *
+     * @param customerId the ID of the customer.
+     * @param subscriptionId the ID of the subscription.
+     * @return a ResponseEntity containing a success or error message based on the operation's result.
+     */
+    @PostMapping("/{subscriptionId}/cancel")
+    public ResponseEntity<String> cancelSubscription(@PathVariable String customerId,
+                                                     @PathVariable long subscriptionId) {
+        ResponseFinder message = subscriptionService.cancelSubscription(customerId, subscriptionId);
+        if (message.isSuccess()) {
+            return ResponseEntity.ok(message.getMessage());
+        } else {
+            return ResponseEntity.badRequest().body(message.getMessage());
+        }
+    }
+}
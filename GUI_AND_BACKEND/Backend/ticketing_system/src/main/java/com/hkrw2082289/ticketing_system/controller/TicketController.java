@@ -1,7 +1,7 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.controller;
 import com.hkrw2082289.ticketing_system.model.TicketEntity;
-import com.hkrw2082289.ticketing_system.repository.TicketRepository;
+import com.hkrw2082289.ticketing_system.repository.TicketStore;
 import com.hkrw2082289.ticketing_system.service.TicketService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -22,27 +22,27 @@ public class TicketController {
     @Autowired
     private TicketService ticketService;
 
-    private final TicketRepository ticketRepository;
+    private final TicketStore ticketStore;
 
     /**
-     * This constructor is used to initialize the TicketController with the TicketRepository.
+     * This constructor is used to initialize the TicketController with the TicketStore.
      *
-     * @param ticketRepository the TicketRepository to be used for data access.
+     * @param ticketStore the TicketStore to be used for data access.
      */
-    public TicketController(TicketRepository ticketRepository) {
-        this.ticketRepository = ticketRepository;
+    public TicketController(TicketStore ticketStore) {
+        this.ticketStore = ticketStore;
     }
 
     /**
      * This endpoint is used to retrieve all tickets from the database. This is used by the websockets in the frontend
      * to show the tickets in a table.
-     * This method fetches all ticket records from the ticket repository.
+     * This method fetches all ticket records from the ticket store.
      *
      * @return a list of all TicketEntity objects.
      */
     @GetMapping("all")
     public List<TicketEntity> getAllTickets() {
-        return ticketRepository.findAll();
+        return ticketStore.findAll();
     }
 
     /**
@@ -1,9 +1,14 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.controller;
+import com.hkrw2082289.ticketing_system.service.PoolCountsStreamService;
+import com.hkrw2082289.ticketing_system.service.PoolOutboxService;
 import com.hkrw2082289.ticketing_system.service.TicketPoolService;
+import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * This controller class is for retrieving ticket pool data related to tickets.
@@ -15,14 +20,84 @@ public class TicketPoolController {
 
     private final TicketPoolService ticketPool;
 
+    private final PoolOutboxService poolOutboxService;
+
+    private final PoolCountsStreamService poolCountsStreamService;
+
     /**
      * This constructor constructs a TicketPoolController with the provided TicketPoolService class.
      *
      * @param ticketPool the service used for ticket pool data retrieval.
+     * @param poolOutboxService the outbox the changes of the pool are replayed from.
+     * @param poolCountsStreamService the service streaming the counts of the events.
      */
     @Autowired
-    public TicketPoolController(TicketPoolService ticketPool) {
+    public TicketPoolController(TicketPoolService ticketPool, PoolOutboxService poolOutboxService,
+                                PoolCountsStreamService poolCountsStreamService) {
         this.ticketPool = ticketPool;
+        this.poolOutboxService = poolOutboxService;
+        this.poolCountsStreamService = poolCountsStreamService;
+    }
+
+    /**
+     * This endpoint is used to get a snapshot of the ticket pool, with the sequence number of the last change on
+     * "/topic/ticketpool" it includes. Clients load the snapshot when they connect and whenever they detect a gap in
+     * the sequence numbers of the changes, and then apply the changes that follow it. Clients of the per-event and
+     * per-vendor topics can limit the snapshot to the tickets of their event or vendor, and clients of
+     * "/topic/ticketpool/compact" can ask for the snapshot in the same compact format.
+     *
+     * @param eventName the name of the event to limit the snapshot to, if given.
+     * @param vendorId the ID of the vendor to limit the snapshot to, if given.
+     * @param format the format of the snapshot, either "json" or "compact".
+     * @return a ResponseEntity containing the sequence number and the tickets in the pool, or an error message if
+     * the format is unknown.
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<?> viewSnapshot(@RequestParam(required = false) String eventName,
+                                          @RequestParam(required = false) String vendorId,
+                                          @RequestParam(defaultValue = "json") String format) {
+        if (!"json".equals(format) && !"compact".equals(format)) {
+            return ResponseEntity.badRequest().body("Error: Unknown snapshot format '" + format +
+                    "', use 'json' or 'compact'.");
+        }
+        return ResponseEntity.ok(ticketPool.snapshot(eventName, vendorId, "compact".equals(format)));
+    }
+
+    /**
+     * This endpoint is used to replay the changes of the ticket pool after a sequence number from the outbox, in the
+     * same form as on "/topic/ticketpool". A client that detects a gap, or an external consumer reading the changes
+     * in batches, can catch up from the last sequence number it has instead of loading the whole snapshot, as long
+     * as the changes it missed are still in the outbox.
+     *
+     * @param afterSeq the sequence number of the last change the caller has.
+     * @param limit the largest number of changes to return.
+     * @return a ResponseEntity containing the changes in order, or an error message if the outbox is not used.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> viewChanges(@RequestParam(defaultValue = "0") long afterSeq,
+                                         @RequestParam(defaultValue = "500") int limit) {
+        ResponseFinder message = poolOutboxService.readChanges(afterSeq, limit);
+        if (message.isSuccess()) {
+            return ResponseEntity.ok(message.getData());
+        } else {
+            return ResponseEntity.badRequest().body(message.getMessage());
+        }
+    }
+
+    /**
+     * This endpoint is used to stream the counts of available and booked tickets of every event as Server-Sent
+     * Events, for dashboards and scripts without a STOMP client. A "counts" event holding the sequence number and
+     * the counts of the events is sent at most once every interval, and only when the counts changed.
+     *
+     * @return a ResponseEntity containing the stream, or a 503 status if the largest number of streams are open.
+     */
+    @GetMapping("/counts/stream")
+    public ResponseEntity<SseEmitter> streamCounts() {
+        SseEmitter emitter = poolCountsStreamService.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
     }
 
     /**
@@ -1,12 +1,17 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.controller;
+import com.hkrw2082289.ticketing_system.helper.Deadline;
 import com.hkrw2082289.ticketing_system.service.VendorService;
+import com.hkrw2082289.ticketing_system.service.IdempotencyService;
 import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * This controller class for managing vendor-related operations such as sign up, sign in, and starting/stopping vendor
@@ -20,6 +25,9 @@ public class VendorController {
     @Autowired
     private VendorService vendorService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     /**
      * This endpoint is for vendor sign-up.
      *
@@ -71,13 +79,21 @@ public class VendorController {
      * @param vendorId the ID of the vendor who wants to start a thread.
      * @param payload additional data required to start the thread such as event name,price,time duration, date, and
      *               ticket batch size.
+     * @param idempotencyKey the optional "Idempotency-Key" header, which makes a retry of the request return the
+     *                       result of the first request with the key instead of starting the work again.
+     * @param requestTimeoutMs the optional "X-Request-Timeout" header, the time in milliseconds the caller is
+     *                         willing to wait, after which the work of the request is abandoned.
      * @return a ResponseEntity containing a success or error message based on the operation's result.
      */
     @PostMapping("/{vendorId}/start-thread")
     public ResponseEntity<String> startVendorThread(
             @PathVariable String vendorId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(value = "X-Request-Timeout", required = false) Long requestTimeoutMs,
             @RequestBody Map<String, Object> payload) {
-        ResponseFinder message = vendorService.startVendorThread(vendorId,payload);
+        ResponseFinder message = idempotencyService.execute("vendor-start-thread", vendorId, idempotencyKey,
+                payload, () -> vendorService.startVendorThread(vendorId, payload,
+                        Deadline.afterMillis(requestTimeoutMs)));
         if (message.isSuccess()) {
             return ResponseEntity.ok(message.getMessage());
         } else {
@@ -85,6 +101,32 @@ public class VendorController {
         }
     }
 
+    /**
+     * This endpoint is for releasing a batch of tickets for a specific vendor asynchronously.
+     *
+     * This method adds the tickets to the shared ticket pool without holding a request thread while the pool is
+     * full, and responds once all tickets have been added or the request has timed out.
+     *
+     * @param vendorId the ID of the vendor who wants to release tickets.
+     * @param payload the event name, price, time duration, date and ticket batch size, and optionally the time in
+     *                milliseconds to wait.
+     * @param idempotencyKey the optional "Idempotency-Key" header, which makes a retry of the request return the
+     *                       result of the first request with the key instead of starting the work again.
+     * @param requestTimeoutMs the optional "X-Request-Timeout" header, the time in milliseconds the caller is
+     *                         willing to wait, after which the work of the request is abandoned.
+     * @return a deferred ResponseEntity containing a success or error message based on the operation's result.
+     */
+    @PostMapping("/{vendorId}/release")
+    public DeferredResult<ResponseEntity<String>> releaseTickets(
+            @PathVariable String vendorId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestHeader(value = "X-Request-Timeout", required = false) Long requestTimeoutMs,
+            @RequestBody Map<String, Object> payload) {
+        Deadline deadline = Deadline.afterMillis(requestTimeoutMs);
+        return toDeferredResult(idempotencyService.executeAsync("vendor-release", vendorId, idempotencyKey,
+                payload, () -> vendorService.releaseTicketsAsync(vendorId, payload, deadline)), deadline);
+    }
+
     /**
      * This endpoint is for stopping all ticket release threads for a specific vendor.
      *
@@ -103,5 +145,31 @@ public class VendorController {
             return ResponseEntity.badRequest().body(message.getMessage());
         }
     }
-}
 
+    /**
+     * This turns the future result of an asynchronous request into the deferred result of the endpoint. If the
+     * request times out in the web server or the connection of the caller fails, the deadline of the request is
+     * cancelled, so the pool stops waiting to add tickets nobody will be told about.
+     *
+     * @param response the future result of the request.
+     * @param deadline the deadline of the request.
+     * @return the deferred ResponseEntity containing a success or error message based on the result.
+     */
+    private DeferredResult<ResponseEntity<String>> toDeferredResult(CompletableFuture<ResponseFinder> response,
+                                                                    Deadline deadline) {
+        DeferredResult<ResponseEntity<String>> result = new DeferredResult<>();
+        result.onTimeout(deadline::cancel);
+        result.onError(error -> deadline.cancel());
+        response.whenComplete((message, error) -> {
+            if (error != null) {
+                result.setErrorResult(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else if (message.isSuccess()) {
+                result.setResult(ResponseEntity.ok(message.getMessage()));
+            } else {
+                result.setResult(ResponseEntity.badRequest().body(message.getMessage()));
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,162 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This is a helper class that tracks the interest of a customer in an event that has no tickets available, from the
+ * moment it is registered until tickets are restocked, it runs out or it is cancelled.
+ *
+ * A subscription holds no thread while it waits. It waits in the queue of its event in the ticket pool, and when
+ * tickets are added for the event it either books up to its auto-book quantity of them for the customer, or, if the
+ * quantity is zero, only tells the customer that tickets are available again.
+ */
+public class AvailabilitySubscription {
+
+    /**
+     * This is the state of a subscription. A subscription is finished once it reaches any state other than WAITING.
+     * A subscription is fulfilled when it booked tickets, notified when it told the customer that tickets are
+     * available, and expired when its deadline passed before tickets were restocked.
+     */
+    public enum SubscriptionState {
+        WAITING,
+        FULFILLED,
+        NOTIFIED,
+        CANCELLED,
+        EXPIRED,
+        STOPPED,
+        FAILED
+    }
+
+    /**
+     * This is the unique identifier of the subscription.
+     */
+    private final long subscriptionId;
+
+    private final String customerId;
+
+    private final String eventName;
+
+    /**
+     * This is the number of tickets booked when tickets are restocked, or 0 to only notify the customer.
+     */
+    private final int autoBookQuantity;
+
+    private volatile SubscriptionState state = SubscriptionState.WAITING;
+
+    private volatile List<Long> bookedTicketIds = Collections.emptyList();
+
+    /**
+     * This is the reason the subscription failed, if it did.
+     */
+    private volatile String failureReason;
+
+    private final Date createdAt = new Date();
+
+    private volatile Date finishedAt;
+
+    /**
+     * This is the deadline of the subscription, which is cancelled to cancel the subscription.
+     */
+    private final Deadline deadline;
+
+    /**
+     * This constructor constructs a new waiting subscription.
+     *
+     * @param subscriptionId the unique identifier of the subscription.
+     * @param customerId the ID of the customer who registered the interest.
+     * @param eventName the name of the event.
+     * @param autoBookQuantity the number of tickets to book when tickets are restocked, or 0 to only notify.
+     * @param deadline the deadline after which the subscription expires.
+     */
+    public AvailabilitySubscription(long subscriptionId, String customerId, String eventName, int autoBookQuantity,
+                                    Deadline deadline) {
+        this.subscriptionId = subscriptionId;
+        this.customerId = customerId;
+        this.eventName = eventName;
+        this.autoBookQuantity = autoBookQuantity;
+        this.deadline = deadline;
+    }
+
+    /**
+     * This marks the subscription as finished with the given state, unless it has already finished.
+     *
+     * @param finalState the state the subscription finished with.
+     * @param ticketIds the IDs of the tickets booked by the subscription.
+     * @param reason the reason the subscription failed, or {@code null}.
+     * @return {@code true} if the state was changed, {@code false} if the subscription had already finished.
+     */
+    public synchronized boolean markFinished(SubscriptionState finalState, List<Long> ticketIds, String reason) {
+        if (isFinished()) {
+            return false;
+        }
+        state = finalState;
+        bookedTicketIds = ticketIds;
+        failureReason = reason;
+        finishedAt = new Date();
+        return true;
+    }
+
+    /**
+     * This checks if the subscription has finished.
+     *
+     * @return {@code true} if the subscription is no longer waiting, otherwise {@code false}.
+     */
+    @JsonIgnore
+    public boolean isFinished() {
+        return state != SubscriptionState.WAITING;
+    }
+
+    public long getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public int getAutoBookQuantity() {
+        return autoBookQuantity;
+    }
+
+    public SubscriptionState getState() {
+        return state;
+    }
+
+    public List<Long> getBookedTicketIds() {
+        return bookedTicketIds;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * This returns the time the subscription expires at, if it is limited in time.
+     *
+     * @return the expiry time, or {@code null} if the subscription does not expire.
+     */
+    public Date getExpiresAt() {
+        return deadline.getExpiresAt();
+    }
+
+    @JsonIgnore
+    public Deadline getDeadline() {
+        return deadline;
+    }
+}
@@ -0,0 +1,157 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This is a helper class for a notification pushed to a single customer on "/user/queue/bookings", so a customer
+ * learns about their own bookings without polling the reports of booked tickets or watching the global log.
+ *
+ * A notification is sent when tickets are booked for the customer, holding the IDs of the tickets, when a ticket
+ * purchase job of the customer finishes, holding the job ID, the state the job finished in and the number of
+ * tickets it booked, and when an availability subscription of the customer finishes, holding the subscription ID,
+ * the state it finished in and the IDs of the tickets it booked, if any. Only the fields a notification needs are
+ * sent, the others are left out of the message.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingNotification {
+
+    /**
+     * This is the type of notification for tickets of an event booked for the customer.
+     */
+    public static final String TICKETS_BOOKED = "ticketsBooked";
+
+    /**
+     * This is the type of notification for a ticket purchase job of the customer that has finished.
+     */
+    public static final String JOB_FINISHED = "jobFinished";
+
+    /**
+     * This is the type of notification for an availability subscription of the customer that has finished, either
+     * because tickets of its event were restocked or because it ran out or was stopped.
+     */
+    public static final String SUBSCRIPTION_FINISHED = "subscriptionFinished";
+
+    private final String type;
+
+    private final String eventName;
+
+    private List<Long> ticketIds;
+
+    /**
+     * This is the sequence number of the change of the pool that booked the tickets.
+     */
+    private Long seq;
+
+    private Long jobId;
+
+    private String jobState;
+
+    private Integer booked;
+
+    private Integer requested;
+
+    private Long subscriptionId;
+
+    private String subscriptionState;
+
+    private Date finishedAt;
+
+    private BookingNotification(String type, String eventName) {
+        this.type = type;
+        this.eventName = eventName;
+    }
+
+    /**
+     * This creates the notification for tickets of an event booked for the customer.
+     *
+     * @param seq the sequence number of the change of the pool that booked the tickets.
+     * @param eventName the name of the event of the tickets.
+     * @param ticketIds the IDs of the booked tickets.
+     * @return the notification.
+     */
+    public static BookingNotification ticketsBooked(long seq, String eventName, List<Long> ticketIds) {
+        BookingNotification notification = new BookingNotification(TICKETS_BOOKED, eventName);
+        notification.seq = seq;
+        notification.ticketIds = ticketIds;
+        return notification;
+    }
+
+    /**
+     * This creates the notification for a ticket purchase job of the customer that has finished.
+     *
+     * @param job the finished job.
+     * @return the notification.
+     */
+    public static BookingNotification jobFinished(WorkerJob job) {
+        BookingNotification notification = new BookingNotification(JOB_FINISHED, job.getEventName());
+        notification.jobId = job.getJobId();
+        notification.jobState = job.getState().name();
+        notification.booked = job.getCompleted();
+        notification.requested = job.getRequested();
+        notification.finishedAt = job.getFinishedAt();
+        return notification;
+    }
+
+    /**
+     * This creates the notification for an availability subscription of the customer that has finished.
+     *
+     * @param subscription the finished subscription.
+     * @return the notification.
+     */
+    public static BookingNotification subscriptionFinished(AvailabilitySubscription subscription) {
+        BookingNotification notification = new BookingNotification(SUBSCRIPTION_FINISHED,
+                subscription.getEventName());
+        notification.subscriptionId = subscription.getSubscriptionId();
+        notification.subscriptionState = subscription.getState().name();
+        notification.ticketIds = subscription.getBookedTicketIds();
+        notification.finishedAt = subscription.getFinishedAt();
+        return notification;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public List<Long> getTicketIds() {
+        return ticketIds;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public String getJobState() {
+        return jobState;
+    }
+
+    public Integer getBooked() {
+        return booked;
+    }
+
+    public Integer getRequested() {
+        return requested;
+    }
+
+    public Long getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public String getSubscriptionState() {
+        return subscriptionState;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+}
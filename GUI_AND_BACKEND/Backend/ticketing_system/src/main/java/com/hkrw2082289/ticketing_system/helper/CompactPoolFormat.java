@@ -0,0 +1,201 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * This is a helper class for the compact format of the ticket pool, which clients can ask for instead of the
+ * default JSON format on "/topic/ticketpool/compact" and from "/api/ticket-pool/snapshot?format=compact".
+ *
+ * The compact format is still JSON, but columnar: a message holds one array per field, with a value for every change
+ * or ticket, instead of one object per change or ticket that repeats every field name. A column whose values are all
+ * {@code null} is left out, and the type of a change and the status of a ticket are sent as a single letter, "A" for
+ * added or "Available", "B" for booked or "Booked" and "R" for removed. The ticket IDs of a change are sent as
+ * ranges, a flat array of pairs holding the first ID of a run of consecutive IDs and the length of the run, so the
+ * 50 tickets of a release are sent as "[1,50]". The field "v" holds the version of the format.
+ *
+ * The messages are written straight to the JSON output column by column, without building them as maps first.
+ */
+public final class CompactPoolFormat {
+
+    /**
+     * This is the version of the compact format, sent as the field "v".
+     */
+    public static final int VERSION = 1;
+
+    private static final List<Column<PoolDelta>> DELTA_COLUMNS = List.of(
+            new Column<>("seq", PoolDelta::getSeq),
+            new Column<>("fromSeq", PoolDelta::getFromSeq),
+            new Column<>("type", delta -> typeCode(delta.getType())),
+            new Column<>("ids", delta -> TicketIdRanges.toRanges(delta.getTicketIds())),
+            new Column<>("event", PoolDelta::getEventName),
+            new Column<>("price", PoolDelta::getPrice),
+            new Column<>("duration", PoolDelta::getTimeDuration),
+            new Column<>("date", PoolDelta::getDate),
+            new Column<>("vendor", PoolDelta::getVendorId),
+            new Column<>("customer", PoolDelta::getCustomerId));
+
+    private static final List<Column<TicketEntity>> TICKET_COLUMNS = List.of(
+            new Column<>("ticketId", TicketEntity::getTicketId),
+            new Column<>("event", TicketEntity::getEventName),
+            new Column<>("price", TicketEntity::getPrice),
+            new Column<>("duration", TicketEntity::getTimeDuration),
+            new Column<>("date", TicketEntity::getDate),
+            new Column<>("vendor", TicketEntity::getVendorId),
+            new Column<>("status", ticket -> statusCode(ticket.getTicketStatus())),
+            new Column<>("customer", TicketEntity::getCustomerId));
+
+    private CompactPoolFormat() {
+    }
+
+    /**
+     * This encodes the changes of one tick in the compact format.
+     *
+     * @param deltas the changes, in order.
+     * @return the message, which is written in the compact format when serialized by Jackson.
+     */
+    public static JsonSerializable encodeDeltas(List<PoolDelta> deltas) {
+        return new ColumnarMessage<>(null, deltas, DELTA_COLUMNS);
+    }
+
+    /**
+     * This encodes a snapshot of the ticket pool in the compact format.
+     *
+     * @param seq the sequence number of the last change included in the snapshot.
+     * @param tickets the tickets in the pool.
+     * @return the message, which is written in the compact format when serialized by Jackson.
+     */
+    public static JsonSerializable encodeSnapshot(long seq, List<TicketEntity> tickets) {
+        return new ColumnarMessage<>(seq, tickets, TICKET_COLUMNS);
+    }
+
+    private static String typeCode(String type) {
+        return switch (type) {
+            case PoolDelta.TICKET_ADDED -> "A";
+            case PoolDelta.TICKET_BOOKED -> "B";
+            case PoolDelta.TICKET_REMOVED -> "R";
+            default -> type;
+        };
+    }
+
+    private static String statusCode(String status) {
+        if ("Available".equals(status)) {
+            return "A";
+        }
+        return "Booked".equals(status) ? "B" : status;
+    }
+
+    /**
+     * This is a field of the changes or tickets, written as one array in the compact format.
+     *
+     * @param <T> the type of the changes or tickets.
+     */
+    private static final class Column<T> {
+
+        private final String name;
+
+        private final Function<T, ?> value;
+
+        private Column(String name, Function<T, ?> value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    /**
+     * This is a message in the compact format, holding the rows it is written from.
+     *
+     * @param <T> the type of the rows.
+     */
+    private static final class ColumnarMessage<T> extends JsonSerializable.Base {
+
+        private final Long seq;
+
+        private final List<T> rows;
+
+        private final List<Column<T>> columns;
+
+        private ColumnarMessage(Long seq, List<T> rows, List<Column<T>> columns) {
+            this.seq = seq;
+            this.rows = rows;
+            this.columns = columns;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            gen.writeNumberField("v", VERSION);
+            if (seq != null) {
+                gen.writeNumberField("seq", seq);
+            }
+            Object[] values = new Object[rows.size()];
+            for (Column<T> column : columns) {
+                if (!readValues(column, values)) {
+                    continue;
+                }
+                gen.writeArrayFieldStart(column.name);
+                for (Object value : values) {
+                    writeValue(value, gen, serializers);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+                throws IOException {
+            serialize(gen, serializers);
+        }
+
+        /**
+         * This reads the values of a column for every row once, so a column that is costly to compute, such as the
+         * ranges of the ticket IDs, is not computed again when it is written.
+         *
+         * @param column the column to read.
+         * @param values the array the values are read into, with one element per row.
+         * @return {@code true} if any of the values is not {@code null}, otherwise {@code false}.
+         */
+        private boolean readValues(Column<T> column, Object[] values) {
+            boolean hasValues = false;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = column.value.apply(rows.get(i));
+                hasValues |= values[i] != null;
+            }
+            return hasValues;
+        }
+
+        /**
+         * This writes a single value, leaving the types that are not written directly, such as dates, to Jackson
+         * so they are written in the same way as in the default format.
+         */
+        private static void writeValue(Object value, JsonGenerator gen, SerializerProvider serializers)
+                throws IOException {
+            if (value == null) {
+                gen.writeNull();
+            } else if (value instanceof String text) {
+                gen.writeString(text);
+            } else if (value instanceof Long number) {
+                gen.writeNumber(number);
+            } else if (value instanceof BigDecimal number) {
+                gen.writeNumber(number);
+            } else if (value instanceof List<?> list) {
+                gen.writeStartArray();
+                for (Object element : list) {
+                    writeValue(element, gen, serializers);
+                }
+                gen.writeEndArray();
+            } else {
+                serializers.defaultSerializeValue(value, gen);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+
+/**
+ * This is a helper class for the account details of a customer, read from the customers table without loading
+ * the {@link com.hkrw2082289.ticketing_system.model.Customer} entity.
+ *
+ * This class is immutable, so it can be kept in the "customers" cache and handed to any number of requests
+ * without one of them changing what the others see, unlike the managed entity.
+ */
+public final class CustomerAccount {
+
+    private final String customerId;
+
+    private final String password;
+
+    /**
+     * This constructor creates the account details of a customer.
+     *
+     * @param customerId the unique identifier of the customer.
+     * @param password the password of the customer.
+     */
+    public CustomerAccount(String customerId, String password) {
+        this.customerId = customerId;
+        this.password = password;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+}
@@ -0,0 +1,175 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is a helper class that carries the deadline of a request from the REST API endpoint down to every wait in
+ * the ticket pool, so work is not carried on for a caller that has already given up.
+ *
+ * A deadline expires when its time runs out or when it is cancelled, which happens when the caller of an
+ * asynchronous request disconnects or the request times out in the web server. Waits that are not threads, such as
+ * the waiters of the non-blocking pool API, register a listener to be told about the cancellation straight away.
+ * A deadline without a time limit never runs out but can still be cancelled.
+ */
+public final class Deadline {
+
+    /**
+     * This is the value of {@link System#nanoTime()} at which the deadline runs out, or {@link Long#MAX_VALUE} if
+     * there is no time limit.
+     */
+    private final long deadlineNanos;
+
+    /**
+     * This is the wall clock time at which the deadline runs out, or {@code null} if there is no time limit. This is
+     * used to carry the deadline of a queued purchase request across a restart.
+     */
+    private final Date expiresAt;
+
+    private final List<Runnable> cancelListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean cancelled;
+
+    private Deadline(long deadlineNanos, Date expiresAt) {
+        this.deadlineNanos = deadlineNanos;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * This creates a deadline without a time limit.
+     *
+     * @return the new deadline.
+     */
+    public static Deadline none() {
+        return new Deadline(Long.MAX_VALUE, null);
+    }
+
+    /**
+     * This creates a deadline that runs out after the given time.
+     *
+     * @param timeoutMs the time in milliseconds until the deadline runs out, or {@code null} for no time limit.
+     * @return the new deadline.
+     */
+    public static Deadline afterMillis(Long timeoutMs) {
+        if (timeoutMs == null) {
+            return none();
+        }
+        long timeout = Math.max(0, timeoutMs);
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout),
+                new Date(System.currentTimeMillis() + timeout));
+    }
+
+    /**
+     * This creates a deadline that runs out at the given wall clock time.
+     *
+     * @param expiresAt the time the deadline runs out, or {@code null} for no time limit.
+     * @return the new deadline.
+     */
+    public static Deadline at(Date expiresAt) {
+        return expiresAt == null ? none() : afterMillis(expiresAt.getTime() - System.currentTimeMillis());
+    }
+
+    /**
+     * This creates a deadline that runs out after the given time or at this deadline, whichever comes first, and
+     * that is cancelled together with this deadline.
+     *
+     * @param timeoutMs the time in milliseconds until the new deadline runs out, or {@code null} for no other limit.
+     * @return the new deadline.
+     */
+    public Deadline withTimeout(Long timeoutMs) {
+        Deadline limit = afterMillis(timeoutMs);
+        boolean limitFirst = limit.hasTimeLimit() && (!hasTimeLimit() || limit.deadlineNanos - deadlineNanos < 0);
+        Deadline child = limitFirst ? limit : new Deadline(deadlineNanos, expiresAt);
+        onCancel(child::cancel);
+        return child;
+    }
+
+    /**
+     * This checks if the deadline has a time limit.
+     *
+     * @return {@code true} if the deadline runs out at some point, otherwise {@code false}.
+     */
+    public boolean hasTimeLimit() {
+        return expiresAt != null;
+    }
+
+    /**
+     * This returns the time left until the deadline runs out.
+     *
+     * @return the time left in nanoseconds, which is zero once the deadline has expired, or {@link Long#MAX_VALUE}
+     * if there is no time limit and the deadline has not been cancelled.
+     */
+    public long remainingNanos() {
+        if (cancelled) {
+            return 0;
+        }
+        return hasTimeLimit() ? Math.max(0, deadlineNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * This returns the time left until the deadline runs out, in milliseconds.
+     *
+     * @return the time left in milliseconds, or {@link Long#MAX_VALUE} if there is no time limit.
+     */
+    public long remainingMillis() {
+        long remaining = remainingNanos();
+        return remaining == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(remaining);
+    }
+
+    /**
+     * This checks if the deadline has run out or has been cancelled.
+     *
+     * @return {@code true} if the work of the request should be abandoned, otherwise {@code false}.
+     */
+    public boolean isExpired() {
+        return remainingNanos() == 0;
+    }
+
+    /**
+     * This checks if the deadline has been cancelled because the caller has gone away.
+     *
+     * @return {@code true} if the deadline has been cancelled, otherwise {@code false}.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * This cancels the deadline, which expires it straight away and tells the registered listeners.
+     */
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        for (Runnable listener : cancelListeners) {
+            // A listener registered while cancelling may also be run by onCancel, so whoever removes it runs it.
+            if (cancelListeners.remove(listener)) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * This registers a listener that is run when the deadline is cancelled, or straight away if it already is.
+     *
+     * @param listener the listener to run.
+     */
+    public void onCancel(Runnable listener) {
+        cancelListeners.add(listener);
+        if (cancelled && cancelListeners.remove(listener)) {
+            listener.run();
+        }
+    }
+
+    /**
+     * This returns the wall clock time the deadline runs out.
+     *
+     * @return the time the deadline runs out, or {@code null} if there is no time limit.
+     */
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,40 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+import com.hkrw2082289.ticketing_system.utils.RateLimitExceededException;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This is a helper interface for workers whose work is split into steps, such as a vendor releasing one ticket or a
+ * customer booking one ticket, so the steps can be paced by a scheduler instead of the worker sleeping between them.
+ *
+ * A worker can still be run as a plain {@link Runnable}, which runs all of its steps back to back without pacing.
+ */
+public interface PacedWorker extends Runnable {
+
+    /**
+     * This performs the next step of the worker.
+     *
+     * @return {@code true} if the worker has more steps to perform, {@code false} if it has finished, was stopped
+     * or was interrupted.
+     * @throws RateLimitExceededException if the step was rejected by a rate limit and should be retried later.
+     */
+    boolean step();
+
+    /**
+     * This runs all remaining steps of the worker back to back, waiting before retrying a step that was rejected by
+     * a rate limit.
+     */
+    @Override
+    default void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (!step()) {
+                    return;
+                }
+            } catch (RateLimitExceededException e) {
+                LockSupport.parkNanos(e.getRetryAfterNanos());
+            }
+        }
+    }
+}
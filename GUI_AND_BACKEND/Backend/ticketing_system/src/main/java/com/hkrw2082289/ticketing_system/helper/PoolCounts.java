@@ -0,0 +1,61 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * This is a helper class for the ticket counts of an event in the pool, or of the tickets of one vendor for an
+ * event, that are published on the counts-only topics for screens that only show how many tickets are left.
+ *
+ * The counts are taken right after the change with the given sequence number, so a client can tell which of two
+ * counts is newer. Only the latest counts of a tick are sent, as each one replaces the ones before it.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PoolCounts {
+
+    private final long seq;
+
+    private final String eventName;
+
+    private final String vendorId;
+
+    private final int available;
+
+    private final int booked;
+
+    /**
+     * This constructor creates the counts of an event or of the tickets of a vendor for an event.
+     *
+     * @param seq the sequence number of the change the counts were taken after.
+     * @param eventName the name of the event.
+     * @param vendorId the ID of the vendor, or {@code null} for the counts of all vendors.
+     * @param available the number of "Available" tickets in the pool.
+     * @param booked the number of "Booked" tickets in the pool, which excludes the archived tickets.
+     */
+    public PoolCounts(long seq, String eventName, String vendorId, int available, int booked) {
+        this.seq = seq;
+        this.eventName = eventName;
+        this.vendorId = vendorId;
+        this.available = available;
+        this.booked = booked;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+
+    public int getBooked() {
+        return booked;
+    }
+}
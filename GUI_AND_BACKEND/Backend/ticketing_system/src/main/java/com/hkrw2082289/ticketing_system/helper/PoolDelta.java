@@ -0,0 +1,217 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This is a helper class for a change of the ticket pool that is published on "/topic/ticketpool", so clients can
+ * keep their copy of the pool up to date without the whole pool being sent on every change.
+ *
+ * Every change has a sequence number one higher than the change before it. A client applies the changes in order,
+ * and when it sees a gap in the sequence numbers it has missed a change, so it loads the snapshot of the pool again
+ * from "/api/ticket-pool/snapshot" and carries on from the sequence number of the snapshot. Only the fields a change
+ * needs are sent, the others are left out of the message. Every change is for the tickets of a single event and
+ * vendor, and names both, so it can also be sent on the topics of that event and that vendor.
+ *
+ * A run of alike changes that follow each other, such as the tickets of one release, may be merged into a single
+ * change that covers the sequence numbers from "fromSeq" to "seq". Every change sets the state of its tickets rather
+ * than adjusting it, so a client may apply a merged change that partly overlaps its snapshot.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PoolDelta {
+
+    /**
+     * This is the type of change for a ticket added to the pool, which carries all fields of the ticket.
+     */
+    public static final String TICKET_ADDED = "ticketAdded";
+
+    /**
+     * This is the type of change for tickets of an event booked by a customer, which carries the IDs of the tickets
+     * and of the customer.
+     */
+    public static final String TICKET_BOOKED = "ticketBooked";
+
+    /**
+     * This is the type of change for tickets taken out of the pool, such as tickets moved to the history table by
+     * the archival job or tickets deleted outside the pool.
+     */
+    public static final String TICKET_REMOVED = "ticketRemoved";
+
+    private final long seq;
+
+    /**
+     * This is the sequence number of the first change merged into this one, or {@code null} if it is a single change.
+     */
+    private Long fromSeq;
+
+    private final String type;
+
+    private final List<Long> ticketIds;
+
+    private String eventName;
+
+    private BigDecimal price;
+
+    private String timeDuration;
+
+    private Date date;
+
+    private String vendorId;
+
+    private String customerId;
+
+    private PoolDelta(long seq, String type, List<Long> ticketIds) {
+        this.seq = seq;
+        this.type = type;
+        this.ticketIds = ticketIds;
+    }
+
+    /**
+     * This creates the change for a ticket added to the pool.
+     *
+     * @param seq the sequence number of the change.
+     * @param ticket the ticket that was added.
+     * @return the change.
+     */
+    public static PoolDelta ticketAdded(long seq, TicketEntity ticket) {
+        PoolDelta delta = new PoolDelta(seq, TICKET_ADDED, List.of(ticket.getTicketId()));
+        delta.eventName = ticket.getEventName();
+        delta.price = ticket.getPrice();
+        delta.timeDuration = ticket.getTimeDuration();
+        delta.date = ticket.getDate();
+        delta.vendorId = ticket.getVendorId();
+        return delta;
+    }
+
+    /**
+     * This creates the change for tickets of an event and vendor booked by a customer.
+     *
+     * @param seq the sequence number of the change.
+     * @param eventName the name of the event of the tickets.
+     * @param vendorId the ID of the vendor who released the tickets.
+     * @param customerId the ID of the customer who booked the tickets.
+     * @param ticketIds the IDs of the booked tickets.
+     * @return the change.
+     */
+    public static PoolDelta ticketBooked(long seq, String eventName, String vendorId, String customerId,
+                                         List<Long> ticketIds) {
+        PoolDelta delta = new PoolDelta(seq, TICKET_BOOKED, ticketIds);
+        delta.eventName = eventName;
+        delta.vendorId = vendorId;
+        delta.customerId = customerId;
+        return delta;
+    }
+
+    /**
+     * This creates the change for tickets of an event and vendor taken out of the pool.
+     *
+     * @param seq the sequence number of the change.
+     * @param eventName the name of the event of the tickets.
+     * @param vendorId the ID of the vendor who released the tickets.
+     * @param ticketIds the IDs of the removed tickets.
+     * @return the change.
+     */
+    public static PoolDelta ticketRemoved(long seq, String eventName, String vendorId, List<Long> ticketIds) {
+        PoolDelta delta = new PoolDelta(seq, TICKET_REMOVED, ticketIds);
+        delta.eventName = eventName;
+        delta.vendorId = vendorId;
+        return delta;
+    }
+
+    /**
+     * This checks if the given change can be merged into this one, which is the case when it directly follows this
+     * change and is of the same type for the same event, customer or ticket fields.
+     *
+     * @param next the change that follows this one.
+     * @return {@code true} if the changes can be merged, otherwise {@code false}.
+     */
+    public boolean canMerge(PoolDelta next) {
+        if (!type.equals(next.type) || next.getFirstSeq() != seq + 1) {
+            return false;
+        }
+        return Objects.equals(eventName, next.eventName)
+                && Objects.equals(price, next.price)
+                && Objects.equals(timeDuration, next.timeDuration)
+                && Objects.equals(date, next.date)
+                && Objects.equals(vendorId, next.vendorId)
+                && Objects.equals(customerId, next.customerId);
+    }
+
+    /**
+     * This merges the given change into a copy of this one. The changes must be mergeable.
+     *
+     * @param next the change that follows this one.
+     * @return the change covering both changes.
+     */
+    public PoolDelta merge(PoolDelta next) {
+        List<Long> mergedIds = new ArrayList<>(ticketIds.size() + next.ticketIds.size());
+        mergedIds.addAll(ticketIds);
+        mergedIds.addAll(next.ticketIds);
+        PoolDelta merged = new PoolDelta(next.seq, type, mergedIds);
+        merged.fromSeq = getFirstSeq();
+        merged.eventName = eventName;
+        merged.price = price;
+        merged.timeDuration = timeDuration;
+        merged.date = date;
+        merged.vendorId = vendorId;
+        merged.customerId = customerId;
+        return merged;
+    }
+
+    /**
+     * This returns the sequence number of the first change covered by this change.
+     *
+     * @return the sequence number of the first merged change, or the sequence number of this change.
+     */
+    @JsonIgnore
+    public long getFirstSeq() {
+        return fromSeq != null ? fromSeq : seq;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public Long getFromSeq() {
+        return fromSeq;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public List<Long> getTicketIds() {
+        return ticketIds;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public String getTimeDuration() {
+        return timeDuration;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+}
@@ -0,0 +1,85 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is a helper class for writing the ticket IDs of a change of the pool as ranges of consecutive IDs, as the
+ * tickets of a release or a booking are mostly consecutive.
+ *
+ * A range is a pair holding the first ID of a run of consecutive IDs and the length of the run, so the 50 tickets of
+ * a release are "[1,50]". This is the form sent in the compact format, and the outbox writes the same ranges as
+ * text, such as "1-50,53".
+ */
+public final class TicketIdRanges {
+
+    private TicketIdRanges() {
+    }
+
+    /**
+     * This turns ticket IDs into ranges of consecutive IDs.
+     *
+     * @param ticketIds the ticket IDs, in order.
+     * @return a flat list of pairs holding the first ID of a range and the number of IDs in it.
+     */
+    public static List<Long> toRanges(List<Long> ticketIds) {
+        List<Long> ranges = new ArrayList<>();
+        int i = 0;
+        while (i < ticketIds.size()) {
+            long first = ticketIds.get(i);
+            int length = 1;
+            while (i + length < ticketIds.size() && ticketIds.get(i + length) == first + length) {
+                length++;
+            }
+            ranges.add(first);
+            ranges.add((long) length);
+            i += length;
+        }
+        return ranges;
+    }
+
+    /**
+     * This turns ticket IDs into ranges of consecutive IDs written as text.
+     *
+     * @param ticketIds the ticket IDs, in order.
+     * @return the ranges, such as "1-50,53".
+     */
+    public static String format(List<Long> ticketIds) {
+        List<Long> ranges = toRanges(ticketIds);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < ranges.size(); i += 2) {
+            long first = ranges.get(i);
+            long length = ranges.get(i + 1);
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            text.append(first);
+            if (length > 1) {
+                text.append('-').append(first + length - 1);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * This reads ticket IDs written as ranges of consecutive IDs in text.
+     *
+     * @param text the ranges, such as "1-50,53".
+     * @return the ticket IDs, in order.
+     */
+    public static List<Long> parse(String text) {
+        List<Long> ticketIds = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return ticketIds;
+        }
+        for (String range : text.split(",")) {
+            int dash = range.indexOf('-');
+            long first = Long.parseLong(dash < 0 ? range : range.substring(0, dash));
+            long last = dash < 0 ? first : Long.parseLong(range.substring(dash + 1));
+            for (long ticketId = first; ticketId <= last; ticketId++) {
+                ticketIds.add(ticketId);
+            }
+        }
+        return ticketIds;
+    }
+}
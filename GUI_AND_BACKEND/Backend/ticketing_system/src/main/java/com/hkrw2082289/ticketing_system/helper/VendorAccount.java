@@ -0,0 +1,35 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+
+/**
+ * This is a helper class for the account details of a vendor, read from the vendors table without loading
+ * the {@link com.hkrw2082289.ticketing_system.model.Vendor} entity.
+ *
+ * This class is immutable, so it can be kept in the "vendors" cache and handed to any number of requests
+ * without one of them changing what the others see, unlike the managed entity.
+ */
+public final class VendorAccount {
+
+    private final String vendorId;
+
+    private final String password;
+
+    /**
+     * This constructor creates the account details of a vendor.
+     *
+     * @param vendorId the unique identifier of the vendor.
+     * @param password the password of the vendor.
+     */
+    public VendorAccount(String vendorId, String password) {
+        this.vendorId = vendorId;
+        this.password = password;
+    }
+
+    public String getVendorId() {
+        return vendorId;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+}
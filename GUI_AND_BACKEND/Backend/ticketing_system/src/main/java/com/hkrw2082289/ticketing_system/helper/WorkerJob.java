@@ -0,0 +1,274 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Date;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This is a helper class that tracks a ticket release request of a vendor or a ticket purchase request of a
+ * customer as a job, from the moment it is accepted until its worker finishes.
+ *
+ * A job holds the number of tickets requested and a progress counter of the tickets added or booked so far, which
+ * the worker updates as it goes, along with the state of the job and the times it was created, started and
+ * finished.
+ */
+public class WorkerJob {
+
+    /**
+     * This is the kind of request a job was created for.
+     */
+    public enum JobType {
+        TICKET_RELEASE,
+        TICKET_PURCHASE
+    }
+
+    /**
+     * This is the state of a job. A job is finished once it reaches any state other than QUEUED, RUNNING or PAUSED.
+     * A job is paused when a global stop by the admin halts its worker, and is queued again when activity resumes.
+     * A job expires when the deadline of its request passes before all tickets were added or booked.
+     */
+    public enum JobState {
+        QUEUED,
+        RUNNING,
+        PAUSED,
+        COMPLETED,
+        STOPPED,
+        CANCELLED,
+        EXPIRED,
+        FAILED
+    }
+
+    /**
+     * This is the unique identifier of the job.
+     */
+    private final long jobId;
+
+    /**
+     * This is the kind of request the job was created for.
+     */
+    private final JobType type;
+
+    /**
+     * This is the vendor ID or customer ID of the user who made the request.
+     */
+    private final String ownerId;
+
+    /**
+     * This is the name of the event the tickets are released or booked for.
+     */
+    private final String eventName;
+
+    /**
+     * This is the number of tickets requested.
+     */
+    private final int requested;
+
+    /**
+     * This is the number of tickets added or booked so far.
+     */
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private volatile JobState state = JobState.QUEUED;
+
+    private final Date createdAt = new Date();
+
+    private volatile Date startedAt;
+
+    private volatile Date finishedAt;
+
+    /**
+     * This is the handle of the worker running the job, used to cancel it.
+     */
+    private volatile Future<?> future;
+
+    /**
+     * This is the worker of the job, kept so a paused job can be resumed where it stopped.
+     */
+    private volatile PacedWorker worker;
+
+    /**
+     * This is the rate the steps of the worker are paced at.
+     */
+    private volatile double rate;
+
+    /**
+     * This is the deadline of the request, after which the worker of the job stops waiting on the pool.
+     */
+    private volatile Deadline deadline = Deadline.none();
+
+    /**
+     * This constructor constructs a new queued job.
+     *
+     * @param jobId the unique identifier of the job.
+     * @param type the kind of request the job is created for.
+     * @param ownerId the vendor ID or customer ID of the user who made the request.
+     * @param eventName the name of the event the tickets are released or booked for.
+     * @param requested the number of tickets requested.
+     */
+    public WorkerJob(long jobId, JobType type, String ownerId, String eventName, int requested) {
+        this.jobId = jobId;
+        this.type = type;
+        this.ownerId = ownerId;
+        this.eventName = eventName;
+        this.requested = requested;
+    }
+
+    /**
+     * This records that tickets were added or booked by the worker of the job.
+     *
+     * @param tickets the number of tickets added or booked.
+     */
+    public void recordProgress(int tickets) {
+        completed.addAndGet(tickets);
+    }
+
+    /**
+     * This marks the job as running.
+     */
+    public synchronized void markStarted() {
+        if (state == JobState.QUEUED) {
+            state = JobState.RUNNING;
+            if (startedAt == null) {
+                startedAt = new Date();
+            }
+        }
+    }
+
+    /**
+     * This marks the job as paused, unless it has already finished.
+     *
+     * @return {@code true} if the job was paused, {@code false} if it had already finished.
+     */
+    public synchronized boolean markPaused() {
+        if (isFinished()) {
+            return false;
+        }
+        state = JobState.PAUSED;
+        return true;
+    }
+
+    /**
+     * This marks a paused job as queued again, so its worker can be resubmitted.
+     *
+     * @return {@code true} if the job was paused and is now queued, otherwise {@code false}.
+     */
+    public synchronized boolean markResumed() {
+        if (state != JobState.PAUSED) {
+            return false;
+        }
+        state = JobState.QUEUED;
+        return true;
+    }
+
+    /**
+     * This marks the job as finished with the given state, unless it has already finished.
+     *
+     * @param finalState the state the job finished with.
+     * @return {@code true} if the state was changed, {@code false} if the job had already finished.
+     */
+    public synchronized boolean markFinished(JobState finalState) {
+        if (isFinished()) {
+            return false;
+        }
+        state = finalState;
+        finishedAt = new Date();
+        return true;
+    }
+
+    /**
+     * This checks if the job has finished.
+     *
+     * @return {@code true} if the job is no longer queued, running or paused, otherwise {@code false}.
+     */
+    @JsonIgnore
+    public boolean isFinished() {
+        return state != JobState.QUEUED && state != JobState.RUNNING && state != JobState.PAUSED;
+    }
+
+    public long getJobId() {
+        return jobId;
+    }
+
+    public JobType getType() {
+        return type;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public JobState getState() {
+        return state;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public Date getStartedAt() {
+        return startedAt;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    @JsonIgnore
+    public Future<?> getFuture() {
+        return future;
+    }
+
+    public void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    @JsonIgnore
+    public PacedWorker getWorker() {
+        return worker;
+    }
+
+    public void setWorker(PacedWorker worker) {
+        this.worker = worker;
+    }
+
+    @JsonIgnore
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    @JsonIgnore
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * This returns the time the deadline of the job passes, which is shown with the job.
+     *
+     * @return the time the deadline passes, or {@code null} if the job has no deadline.
+     */
+    public Date getExpiresAt() {
+        return deadline.getExpiresAt();
+    }
+}
@@ -33,14 +33,16 @@ public class Configuration {
     private Integer totalAvailableTickets = 0;
 
     /**
-     * This is the rate at which tickets are released in to the system by vendors.
+     * This is the rate at which tickets are released in to the system by vendors, read as the interval in
+     * milliseconds between two tickets or as tickets per second depending on "ticketing.pacing.rate-unit".
      * This value must be provided and cannot be null.
      */
     @Column(name = "ticket_release_rate", nullable = false)
     private Double ticketReleaseRate;
 
     /**
-     * This is the rate at which customers retrieve tickets from the system.
+     * This is the rate at which customers retrieve tickets from the system, read as the interval in milliseconds
+     * between two tickets or as tickets per second depending on "ticketing.pacing.rate-unit".
      * This value must be provided and cannot be null.
      */
     @Column(name = "customer_retrieval_rate", nullable = false)
@@ -1,25 +1,31 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.model;
+import com.hkrw2082289.ticketing_system.helper.Deadline;
+import com.hkrw2082289.ticketing_system.helper.PacedWorker;
 import com.hkrw2082289.ticketing_system.helper.PurchaseRequest;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.service.PacingScheduler;
 import com.hkrw2082289.ticketing_system.service.TicketPoolService;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class represents a customer in the ticketing system.
  *
- * This class implements the {@link Runnable} interface to simulate a customer making purchases concurrently.
+ * This class implements the {@link PacedWorker} interface to simulate a customer making purchases concurrently,
+ * one ticket per step.
  * It handles the customer's authentication details, the number of tickets they wish to purchase, and
  * interacts with the {@link TicketPoolService} to book tickets.
  */
 @Data
 @Entity
 @Table(name = "customers")
-public class Customer implements Runnable{
+public class Customer implements PacedWorker {
     private static final Logger logger = LoggerFactory.getLogger(Customer.class);
 
     /**
@@ -66,58 +72,112 @@ public class Customer implements Runnable{
     private TicketPoolService ticketPoolService;
 
     /**
-     * This executes the customer's thread, attempting to book the specified number of tickets for a certain event.
-     * The customer attempts to book tickets until the specified batch size is reached or until
-     * a global stop is enabled or the thread is interrupted.
-     * This class logs details related to each customer thread created to purchase tickets.
+     * This is the ticket purchase job this customer worker runs for, which is updated as tickets are booked.
+     * This value is transient and is not stored in the database.
      */
-    @Override
-    public void run() {
-        logger.info("Thread started for Customer ID: {} with purchase batch size: {} (Thread ID: {})",
-                customerId, purchaseRequest != null ? purchaseRequest.getTicketToBook(): 0,
-                Thread.currentThread().getId());
+    @Transient
+    private WorkerJob job;
 
+    /**
+     * This is the number of tickets booked so far by this customer worker.
+     * This value is transient and is not stored in the database.
+     */
+    @Transient
+    private int ticketsBooked;
+
+    /**
+     * This is set once the first step of this customer worker has been performed.
+     * This value is transient and is not stored in the database.
+     */
+    @Transient
+    private boolean started;
+
+    /**
+     * This performs one step of the customer's ticket purchase, which books the next ticket for the event of the
+     * purchase request. The steps are paced at the customer retrieval rate by the {@link PacingScheduler}, and the
+     * customer books tickets until the specified batch size is reached or until a global stop is enabled or the
+     * worker is interrupted. When the retrieval rate is zero the remaining tickets are booked in bulk instead of one
+     * at a time. A purchase rejected by a rate limit books nothing, and is retried by a later step.
+     * This class logs details related to each customer worker created to purchase tickets.
+     *
+     * @return {@code true} if there are more tickets to book, otherwise {@code false}.
+     */
+    @Override
+    public boolean step() {
         if (ticketPoolService == null) {
             logger.error("TicketPoolService is not set. Cannot book tickets to the pool.");
-            return;
+            return false;
+        }
+        if (!started) {
+            started = true;
+            logger.info("Thread started for Customer ID: {} with purchase batch size: {} (Thread ID: {})",
+                    customerId, purchaseRequest != null ? purchaseRequest.getTicketToBook(): 0,
+                    Thread.currentThread().getId());
+        }
+        String eventName = purchaseRequest.getEventName();
+        int ticketsToBook = purchaseRequest.getTicketToBook();
+        if (ticketsBooked >= ticketsToBook) {
+            logger.info("Thread:{} for customer with ID:{} finished executing",
+                    Thread.currentThread().getId(), customerId);
+            return false;
+        }
+        // Check if global stop flag is enabled.
+        if (adminStopAllPurchases.get()) {
+            logger.info("Global stop enabled. Customer {} thread will terminate. (Thread ID: {})",
+                    customerId, Thread.currentThread().getId());
+            return false;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            logger.info("Thread for Customer ID: {} was interrupted. (Thread ID: {})", customerId,
+                    Thread.currentThread().getId());
+            return false;
         }
-        try{
-            String eventName = purchaseRequest.getEventName();
-            int ticketsToBook = purchaseRequest.getTicketToBook();
-
-            int ticketbooked = 0;
-            for (int i = 0; i < ticketsToBook; i++) {
-                // Check if global stop flag is enabled.
-                if (adminStopAllPurchases.get()) {
-                    logger.info("Global stop enabled. Customer {} thread will terminate. (Thread ID: {})",
-                            customerId, Thread.currentThread().getId());
-                    break;
-                }
 
-                if (Thread.currentThread().isInterrupted()) {
-                    logger.info("Thread for Customer ID: {} was interrupted. (Thread ID: {})", customerId,
-                            Thread.currentThread().getId());
-                    break;
-                }
-                Object[] booked = ticketPoolService.removeTicket(eventName, customerId);
-                if ((boolean)booked[0]) {
-                    ticketbooked++;
-                    logger.info("Successfully booked ticket ID: {} to the pool." +
-                            "Ticket No. of ticked booked in batch:{} ", booked[1],ticketbooked);
-                } else {
-                    logger.warn("Failed to book ticket ID: {} to the pool.", booked[1]);
+        Deadline deadline = job != null ? job.getDeadline() : Deadline.none();
+        if (customerRetrievalRate <= 0) {
+            // Without a retrieval rate there is nothing to pace, so the tickets are booked set-based.
+            List<Long> bookedTicketIds = ticketPoolService.bookTickets(eventName, customerId,
+                    ticketsToBook - ticketsBooked, deadline);
+            ticketsBooked += bookedTicketIds.size();
+            if (job != null) {
+                job.recordProgress(bookedTicketIds.size());
+            }
+            logger.info("Successfully booked ticket IDs: {} to the pool." +
+                    "Ticket No. of ticked booked in batch:{} ", bookedTicketIds, ticketsBooked);
+        } else {
+            Object[] booked = ticketPoolService.removeTicket(eventName, customerId, deadline);
+            if ((boolean)booked[0]) {
+                ticketsBooked++;
+                if (job != null) {
+                    job.recordProgress(1);
                 }
-                Thread.sleep((long) customerRetrievalRate);
+                logger.info("Successfully booked ticket ID: {} to the pool." +
+                        "Ticket No. of ticked booked in batch:{} ", booked[1], ticketsBooked);
+            } else if (!adminStopAllPurchases.get() && !deadline.isExpired()) {
+                logger.warn("Failed to book ticket ID: {} to the pool.", booked[1]);
             }
-            logger.info("Thread:{} for customer with ID:{} finished executing",
-                    Thread.currentThread().getId(), customerId);
         }
-        catch (InterruptedException e) {
+        if (adminStopAllPurchases.get() && ticketsBooked < ticketsToBook) {
+            logger.info("Global stop enabled while waiting. Customer {} thread will terminate. (Thread ID: {})",
+                    customerId, Thread.currentThread().getId());
+            return false;
+        }
+        if (deadline.isExpired() && ticketsBooked < ticketsToBook) {
+            logger.info("Deadline passed while waiting. Customer {} thread will terminate. (Thread ID: {})",
+                    customerId, Thread.currentThread().getId());
+            return false;
+        }
+        if (Thread.currentThread().isInterrupted()) {
             logger.error("Thread for Customer {} was interrupted. (Thread ID: {})", customerId,
                     Thread.currentThread().getId());
-            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (ticketsBooked >= ticketsToBook) {
+            logger.info("Thread completed for Customer ID: {} (Thread ID: {})", customerId,
+                    Thread.currentThread().getId());
+            return false;
         }
-        logger.info("Thread completed for Vendor ID: {} (Thread ID: {})", customerId, Thread.currentThread().getId());
+        return true;
     }
 
     // Methods to manage the adminStopAllPurchases flag
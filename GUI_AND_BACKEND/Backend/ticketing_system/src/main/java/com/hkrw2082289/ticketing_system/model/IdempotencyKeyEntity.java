@@ -0,0 +1,48 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.model;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Date;
+
+/**
+ * This class represents the stored result of a request made with an "Idempotency-Key" header in the Real-time
+ * ticketing system. A retry of the request with the same key gets this result back instead of starting the work
+ * again, also after the application has restarted.
+ *
+ * This class is mapped to the "idempotency_keys" table in the database.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+public class IdempotencyKeyEntity {
+
+    /**
+     * This is the key of the request, made up of the kind of request, the ID of the user and the
+     * "Idempotency-Key" header, so different users and endpoints cannot collide on the same header value.
+     */
+    @Id
+    @Column(name = "idempotency_key", length = 160, nullable = false, updatable = false)
+    private String idempotencyKey;
+
+    /**
+     * This is the fingerprint of the request body, used to reject a key that is reused for a different request.
+     */
+    @Column(name = "fingerprint", length = 64, nullable = false)
+    private String fingerprint;
+
+    /**
+     * This is the response message that was returned for the request.
+     */
+    @Column(name = "response", length = 4000, nullable = false)
+    private String response;
+
+    /**
+     * This is the date and time the request was completed.
+     */
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+}
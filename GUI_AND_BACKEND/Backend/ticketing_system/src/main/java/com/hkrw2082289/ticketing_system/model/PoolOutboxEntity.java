@@ -0,0 +1,99 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.model;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * This class represents a change of the ticket pool in the outbox of the Real-time ticketing system. A change is
+ * written in the same transaction as the tickets it changes, so only committed changes are ever sent to the
+ * frontend, and a change is not lost if the application stops before it was sent. The outbox relay reads the
+ * changes in order and sends them on, and they can be read again from the outbox to replay them.
+ *
+ * The change is kept compact: its type is a single letter, "A" for added, "B" for booked and "R" for removed, and
+ * its ticket IDs are held as ranges of consecutive IDs, such as "1-50,53". Only a ticket added to the pool carries
+ * the price, time duration and date of the ticket.
+ *
+ * This class is mapped to the "pool_outbox" table in the database.
+ */
+@Entity
+@Table(name = "pool_outbox", indexes = {
+        @Index(name = "idx_pool_outbox_seq", columnList = "seq"),
+        @Index(name = "idx_pool_outbox_created_at", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+public class PoolOutboxEntity {
+
+    /**
+     * This is the unique identifier of the change in the outbox, which follows the order the changes were
+     * committed in. This value is auto-generated by the database.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "outbox_id", nullable = false, updatable = false)
+    private Long outboxId;
+
+    /**
+     * This is the sequence number of the change of the pool, as sent on "/topic/ticketpool".
+     */
+    @Column(name = "seq", nullable = false)
+    private long seq;
+
+    /**
+     * This is the type of the change, "A", "B" or "R".
+     */
+    @Column(name = "change_type", length = 1, nullable = false)
+    private String changeType;
+
+    /**
+     * This is the name of the event of the changed tickets.
+     */
+    @Column(name = "event_name", length = 50, nullable = false)
+    private String eventName;
+
+    /**
+     * This is the identifier of the vendor who released the changed tickets.
+     */
+    @Column(name = "vendor_id", length = 7, nullable = false)
+    private String vendorId;
+
+    /**
+     * This is the identifier of the customer who booked the tickets, for a booking.
+     */
+    @Column(name = "customer_id", length = 7)
+    private String customerId;
+
+    /**
+     * These are the IDs of the changed tickets, as ranges of consecutive IDs.
+     */
+    @Lob
+    @Column(name = "ticket_ids", nullable = false)
+    private String ticketIds;
+
+    /**
+     * This is the price of the ticket, for a ticket added to the pool.
+     */
+    @Column(name = "price")
+    private BigDecimal price;
+
+    /**
+     * This is the time duration of the event, for a ticket added to the pool.
+     */
+    @Column(name = "time_duration", length = 50)
+    private String timeDuration;
+
+    /**
+     * This is the date of the event, for a ticket added to the pool.
+     */
+    @Column(name = "date")
+    private Date date;
+
+    /**
+     * This is the date and time the change was written, after which it is removed once the retention time passed.
+     */
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+}
@@ -0,0 +1,88 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.model;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Date;
+
+/**
+ * This class represents a ticket purchase request of a customer in the durable purchase queue of the Real-time
+ * ticketing system. It holds the number of tickets the customer still has to book, so a purchase request that was
+ * only partially filled when the application stopped is carried on when the application starts again.
+ *
+ * This class is mapped to the "purchase_queue" table in the database.
+ */
+@Entity
+@Table(name = "purchase_queue", indexes = {
+        @Index(name = "idx_purchase_queue_status", columnList = "status")
+})
+@Data
+@NoArgsConstructor
+public class PurchaseQueueEntity {
+
+    /**
+     * This is the unique identifier of the queued purchase request.
+     * This value is auto-generated by the database.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "queue_id", nullable = false, updatable = false)
+    private Long queueId;
+
+    /**
+     * This is the identifier of the customer who made the purchase request.
+     */
+    @Column(name = "customer_id", length = 7, nullable = false)
+    private String customerId;
+
+    /**
+     * This is the name of the event the tickets are booked for.
+     */
+    @Column(name = "event_name", length = 50, nullable = false)
+    private String eventName;
+
+    /**
+     * This is the number of tickets the customer requested.
+     */
+    @Column(name = "requested", nullable = false)
+    private int requested;
+
+    /**
+     * This is the number of tickets the customer still has to book.
+     */
+    @Column(name = "remaining", nullable = false)
+    private int remaining;
+
+    /**
+     * This is the customer retrieval rate the purchase request was started with, which is used again when it is
+     * resumed.
+     */
+    @Column(name = "retrieval_rate", nullable = false)
+    private double retrievalRate;
+
+    /**
+     * This is the time the deadline of the purchase request passes, after which it is no longer worked on, or
+     * {@code null} if the request has no deadline.
+     */
+    @Column(name = "deadline_at")
+    private Date deadlineAt;
+
+    /**
+     * This is the status of the purchase request, which is "Pending" until it is completed, cancelled, expired,
+     * failed or stopped.
+     */
+    @Column(name = "status", length = 20, nullable = false)
+    private String status;
+
+    /**
+     * This is the date and time the purchase request was made.
+     */
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    /**
+     * This is the date and time the remaining count or status was last written.
+     */
+    @Column(name = "updated_at", nullable = false)
+    private Date updatedAt;
+}
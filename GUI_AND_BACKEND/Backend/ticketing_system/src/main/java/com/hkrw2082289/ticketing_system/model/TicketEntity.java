@@ -16,7 +16,9 @@ import java.util.List;
  * This class is mapped to the "ticketpool" table in the database, and it supports batch generation of tickets.
  */
 @Entity
-@Table(name = "ticketpool")
+@Table(name = "ticketpool", indexes = {
+        @Index(name = "idx_ticketpool_status_date", columnList = "ticket_status, date")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,79 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.model;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * This class represents an archived ticket in the Real-time ticketing system. Booked tickets for events whose date
+ * has already passed are moved out of the "ticketpool" table into this table by the archival job, so the hot table
+ * only holds live inventory.
+ *
+ * This class is mapped to the "ticket_history" table in the database and keeps the original ticket ID of the ticket.
+ */
+@Entity
+@Table(name = "ticket_history", indexes = {
+        @Index(name = "idx_ticket_history_customer", columnList = "customer_id"),
+        @Index(name = "idx_ticket_history_event", columnList = "event_name")
+})
+@Data
+@NoArgsConstructor
+public class TicketHistoryEntity {
+
+    /**
+     * This is the identifier the ticket had in the "ticketpool" table before it was archived.
+     */
+    @Id
+    @Column(name = "ticket_id", nullable = false, updatable = false)
+    private Long ticketId;
+
+    /**
+     * This is the name of the event associated with the archived ticket.
+     */
+    @Column(name = "event_name", length = 50, nullable = false)
+    private String eventName;
+
+    /**
+     * This is the price the archived ticket was sold for.
+     */
+    @Column(name = "price", nullable = false)
+    private BigDecimal price;
+
+    /**
+     * This is the duration of the event associated with the archived ticket.
+     */
+    @Column(name = "time_duration", length = 50, nullable = false)
+    private String timeDuration;
+
+    /**
+     * This is the date of the event associated with the archived ticket.
+     */
+    @Column(name = "date", nullable = false)
+    private Date date;
+
+    /**
+     * This is identifier of the vendor who released the archived ticket.
+     */
+    @Column(name = "vendor_id", length = 7, nullable = false)
+    private String vendorId;
+
+    /**
+     * This is the status the ticket had when it was archived, which is always "Booked".
+     */
+    @Column(name = "ticket_status", length = 50, nullable = false)
+    private String ticketStatus;
+
+    /**
+     * This is the identifier of the customer who booked the archived ticket.
+     */
+    @Column(name = "customer_id", length = 7)
+    private String customerId;
+
+    /**
+     * This is the date and time the ticket was moved into the archive.
+     */
+    @Column(name = "archived_at", nullable = false)
+    private Date archivedAt;
+}
@@ -1,5 +1,9 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.model;
+import com.hkrw2082289.ticketing_system.helper.Deadline;
+import com.hkrw2082289.ticketing_system.helper.PacedWorker;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.service.PacingScheduler;
 import com.hkrw2082289.ticketing_system.service.TicketPoolService;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -12,15 +16,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * This class represents a vendor in the ticketing system.
  *
- * This class implements the {@link Runnable} interface to simulate a vendor adding tickets to the ticket
- * pool concurrently.
+ * This class implements the {@link PacedWorker} interface to simulate a vendor adding tickets to the ticket
+ * pool concurrently, one ticket per step.
  * It handles the vendor's authentication details, ticket batch management,
  * and interacts with the {@link TicketPoolService} to add tickets to the shared pool of tickets.
  */
 @Data
 @Entity
 @Table(name = "vendors")
-public class Vendor implements Runnable{
+public class Vendor implements PacedWorker {
     private static final Logger logger = LoggerFactory.getLogger(Vendor.class);
 
     /**
@@ -66,54 +70,91 @@ public class Vendor implements Runnable{
     private TicketPoolService ticketPoolService;
 
     /**
-     * This executes the vendor's thread, which releases tickets to the ticket pool.
-     * The vendor releases tickets until the batch size is reached or until
-     * a global stop is enabled or the thread is interrupted.
-     * This class logs details related to each vendor thread created to add tickets.
+     * This is the ticket release job this vendor worker runs for, which is updated as tickets are added.
+     * This value is transient and is not stored in the database.
+     */
+    @Transient
+    private WorkerJob job;
+
+    /**
+     * This is the index in the ticket batch of the next ticket to release.
+     * This value is transient and is not stored in the database.
+     */
+    @Transient
+    private int nextTicketIndex;
+
+    /**
+     * This performs one step of the vendor's ticket release, which releases the next ticket of the batch to the
+     * ticket pool. The steps are paced at the ticket release rate by the {@link PacingScheduler}, and the vendor
+     * releases tickets until the batch size is reached or until a global stop is enabled or the worker is
+     * interrupted. A release rejected by a rate limit leaves the ticket to be released by a later step.
+     * This class logs details related to each vendor worker created to add tickets.
+     *
+     * @return {@code true} if there are more tickets to release, otherwise {@code false}.
      */
     @Override
-    public void run() {
-        logger.info("Thread started for Vendor ID: {} with ticket batch size: {} (Thread ID: {})",
-                vendorId, ticketBatch != null ? ticketBatch.size() : 0, Thread.currentThread().getId());
+    public boolean step() {
         if (ticketPoolService == null) {
             logger.error("TicketPoolService is not set. Cannot add tickets to the pool.");
-            return;
+            return false;
         }
-        int ticketaddedcount =0;
-        try {
-            for (TicketEntity ticket : ticketBatch) {
-                // Check if global stop flag is enabled
-                if (adminStopAllRelease.get()) {
-                    logger.info("Global stop enabled. Vendor {} thread will terminate. (Thread ID: {})",
-                            vendorId, Thread.currentThread().getId());
-                    break;
-                }
-                if (Thread.currentThread().isInterrupted()) {
-                    logger.info("Thread for Vendor ID: {} was interrupted. (Thread ID: {})",
-                            vendorId, Thread.currentThread().getId());
-                    break;
-                }
-                logger.info("Processing ticket with event name: {} for Vendor: {}", ticket.getEventName(), vendorId);
-                boolean added = ticketPoolService.addTicket(ticket);
-
-                if (added) {
-                    ticketaddedcount++;
-                    logger.info("Successfully added ticket ID: {} of event: {} to the pool." +
-                            " Ticket number in the batch: {}", ticket.getTicketId(),
-                            ticket.getEventName(),ticketaddedcount);
-                } else {
-                    logger.warn("Failed to add ticket ID: {} to the pool." +
-                            " The ticket generated has a duplicate ticket ID.", ticket.getTicketId());
-                }
-                Thread.sleep((long) ticketReleaseRate);
-            }
+        if (nextTicketIndex == 0) {
+            logger.info("Thread started for Vendor ID: {} with ticket batch size: {} (Thread ID: {})",
+                    vendorId, ticketBatch != null ? ticketBatch.size() : 0, Thread.currentThread().getId());
+        }
+        if (ticketBatch == null || nextTicketIndex >= ticketBatch.size()) {
             logger.info("Thread:{} for vendor with ID:{} finished executing", Thread.currentThread().getId(), vendorId);
-        } catch (InterruptedException e) {
+            return false;
+        }
+        // Check if global stop flag is enabled
+        if (adminStopAllRelease.get()) {
+            logger.info("Global stop enabled. Vendor {} thread will terminate. (Thread ID: {})",
+                    vendorId, Thread.currentThread().getId());
+            return false;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            logger.info("Thread for Vendor ID: {} was interrupted. (Thread ID: {})",
+                    vendorId, Thread.currentThread().getId());
+            return false;
+        }
+        TicketEntity ticket = ticketBatch.get(nextTicketIndex);
+        logger.info("Processing ticket with event name: {} for Vendor: {}", ticket.getEventName(), vendorId);
+        Deadline deadline = job != null ? job.getDeadline() : Deadline.none();
+        boolean added = ticketPoolService.addTicket(ticket, deadline);
+        if (!added && adminStopAllRelease.get()) {
+            // The vendor was woken up by a global stop while waiting, so the ticket is added again on resume.
+            logger.info("Global stop enabled while waiting. Vendor {} thread will terminate. (Thread ID: {})",
+                    vendorId, Thread.currentThread().getId());
+            return false;
+        }
+        if (!added && deadline.isExpired()) {
+            logger.info("Deadline passed while waiting. Vendor {} thread will terminate. (Thread ID: {})",
+                    vendorId, Thread.currentThread().getId());
+            return false;
+        }
+        nextTicketIndex++;
+
+        if (added) {
+            if (job != null) {
+                job.recordProgress(1);
+            }
+            logger.info("Successfully added ticket ID: {} of event: {} to the pool." +
+                    " Ticket number in the batch: {}", ticket.getTicketId(),
+                    ticket.getEventName(), nextTicketIndex);
+        } else if (Thread.currentThread().isInterrupted()) {
             logger.error("Thread for Vendor {} was interrupted. (Thread ID: {})", vendorId,
                     Thread.currentThread().getId());
-            Thread.currentThread().interrupt();
+            return false;
+        } else {
+            logger.warn("Failed to add ticket ID: {} to the pool." +
+                    " The ticket generated has a duplicate ticket ID.", ticket.getTicketId());
+        }
+        if (nextTicketIndex >= ticketBatch.size()) {
+            logger.info("Thread completed for Vendor ID: {} (Thread ID: {})", vendorId,
+                    Thread.currentThread().getId());
+            return false;
         }
-        logger.info("Thread completed for Vendor ID: {} (Thread ID: {})", vendorId, Thread.currentThread().getId());
+        return true;
     }
 
     // Methods to manage the adminStopAllRelease flag
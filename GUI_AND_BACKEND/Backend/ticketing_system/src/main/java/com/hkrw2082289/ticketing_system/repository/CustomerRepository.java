@@ -1,6 +1,8 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.helper.CustomerAccount;
 import com.hkrw2082289.ticketing_system.model.Customer;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -23,13 +25,13 @@ public interface CustomerRepository extends JpaRepository<Customer, String> {
     boolean existsByCustomerId(String customerId);
 
     /**
-     * This finds a {@link Customer} by their customer ID and password.
+     * This finds the account details of a customer by their customer ID. The details are read into an immutable
+     * {@link CustomerAccount} rather than the managed entity, and found accounts are kept in the "customers" cache, so
+     * repeated lookups of the same account do not hit the database and no caller can change a cached entry.
      *
      * @param customerId the unique identifier of the customer.
-     * @param password the password associated with the customer.
-     * @return the {@link Customer} with the specified customer ID and password,
-     *         or {@code null} if no such customer exists.
+     * @return the account of the customer with the specified customer ID, or {@code null} if no such customer exists.
      */
-    Customer findByCustomerIdAndPassword(String customerId, String password);
+    @Cacheable(cacheNames = "customers", key = "#p0", unless = "#result == null")
+    CustomerAccount findAccountByCustomerId(String customerId);
 }
-
@@ -0,0 +1,298 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import com.hkrw2082289.ticketing_system.model.TicketHistoryEntity;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * This {@link TicketStore} keeps the ticket pool in memory and makes it durable with an append-only log file, so a
+ * single node can run the ticket pool without any database server. This is selected with
+ * "ticketing.store.type=file", and the log file is set with "ticketing.store.file.path".
+ *
+ * Every change is appended to the log as a small binary record: an add record when a ticket is saved, a booking
+ * record when a ticket is booked, and an archive record when a ticket is archived. On start-up the log is replayed
+ * to rebuild the pool and is then compacted, so it only holds one add record per ticket.
+ *
+ * A change is only made in memory once its record has been written, and a record that could not be written is cut
+ * from the log again, so the store in memory always matches what a replay of the log would rebuild.
+ */
+@Component
+@ConditionalOnProperty(name = "ticketing.store.type", havingValue = "file")
+public class FileTicketStore extends InMemoryTicketStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileTicketStore.class);
+
+    private static final byte ADD_RECORD = 'A';
+
+    private static final byte BOOK_RECORD = 'B';
+
+    private static final byte ARCHIVE_RECORD = 'H';
+
+    private final Path logPath;
+
+    /**
+     * This is used to force every record to the storage device before the change is confirmed to the pool.
+     */
+    private final boolean fsync;
+
+    private FileOutputStream logFile;
+
+    private DataOutputStream log;
+
+    /**
+     * This constructor constructs the store for the given log file.
+     *
+     * @param logPath the path of the log file, which is created if it does not exist.
+     * @param fsync {@code true} to force every record to the storage device, {@code false} to leave it to the OS.
+     */
+    public FileTicketStore(@Value("${ticketing.store.file.path:data/ticketpool.log}") String logPath,
+                           @Value("${ticketing.store.file.fsync:false}") boolean fsync) {
+        this.logPath = Paths.get(logPath);
+        this.fsync = fsync;
+    }
+
+    /**
+     * This replays the log file into memory, compacts it and opens it for appending.
+     *
+     * @throws IOException if the log file cannot be read or written.
+     */
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (logPath.getParent() != null) {
+            Files.createDirectories(logPath.getParent());
+        }
+        if (Files.exists(logPath)) {
+            replay(Files.readAllBytes(logPath));
+        }
+        compact();
+        logFile = new FileOutputStream(logPath.toFile(), true);
+        log = new DataOutputStream(new BufferedOutputStream(logFile));
+        logger.info("Ticket store log {} opened with {} live and {} archived tickets",
+                logPath, liveTickets().size(), archivedTickets().size());
+    }
+
+    /**
+     * This forces the log file to the storage device, even when "fsync" is not set.
+     */
+    @Override
+    public synchronized void flush() {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.flush();
+            logFile.getFD().sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not flush ticket store log " + logPath, e);
+        }
+    }
+
+    /**
+     * This closes the log file.
+     *
+     * @throws IOException if the log file cannot be closed.
+     */
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    @Override
+    public synchronized TicketEntity save(TicketEntity ticket) {
+        ticket.setTicketId(nextTicketId());
+        append(out -> writeAddRecord(out, ticket));
+        restoreTicket(copyOf(ticket));
+        return ticket;
+    }
+
+    @Override
+    public synchronized List<TicketEntity> saveAll(List<TicketEntity> tickets) {
+        for (TicketEntity ticket : tickets) {
+            ticket.setTicketId(nextTicketId());
+        }
+        append(out -> {
+            for (TicketEntity ticket : tickets) {
+                writeAddRecord(out, ticket);
+            }
+        });
+        for (TicketEntity ticket : tickets) {
+            restoreTicket(copyOf(ticket));
+        }
+        return new ArrayList<>(tickets);
+    }
+
+    @Override
+    public synchronized boolean bookIfAvailable(Long ticketId, String customerId) {
+        Optional<TicketEntity> ticket = findById(ticketId);
+        if (ticket.isEmpty() || !"Available".equals(ticket.get().getTicketStatus())) {
+            return false;
+        }
+        append(out -> {
+            out.writeByte(BOOK_RECORD);
+            out.writeLong(ticketId);
+            out.writeUTF(customerId);
+        });
+        return super.bookIfAvailable(ticketId, customerId);
+    }
+
+    @Override
+    public synchronized int archive(Collection<Long> ticketIds, Date archivedAt) {
+        List<Long> liveTicketIds = ticketIds.stream()
+                .filter(ticketId -> findById(ticketId).isPresent())
+                .collect(Collectors.toList());
+        if (liveTicketIds.isEmpty()) {
+            return 0;
+        }
+        append(out -> {
+            for (Long ticketId : liveTicketIds) {
+                writeArchiveRecord(out, ticketId, archivedAt);
+            }
+        });
+        return super.archive(liveTicketIds, archivedAt);
+    }
+
+    /**
+     * This rebuilds the store from the records of the log file. A record cut short by a crash ends the replay,
+     * and is dropped by the compaction that follows.
+     *
+     * @param bytes the contents of the log file.
+     * @throws IOException if a record cannot be decoded.
+     */
+    private void replay(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        try {
+            while (in.available() > 0) {
+                byte type = in.readByte();
+                long ticketId = in.readLong();
+                if (type == ADD_RECORD) {
+                    restoreTicket(new TicketEntity(ticketId, in.readUTF(), new BigDecimal(in.readUTF()),
+                            in.readUTF(), new Date(in.readLong()), in.readUTF(), in.readUTF(),
+                            in.readBoolean() ? in.readUTF() : null));
+                } else if (type == BOOK_RECORD) {
+                    super.bookIfAvailable(ticketId, in.readUTF());
+                } else if (type == ARCHIVE_RECORD) {
+                    super.archive(List.of(ticketId), new Date(in.readLong()));
+                } else {
+                    throw new IOException("Unknown record type " + type + " in ticket store log " + logPath);
+                }
+            }
+        } catch (EOFException e) {
+            logger.warn("Ticket store log {} ends with an incomplete record, which is dropped", logPath);
+        }
+    }
+
+    /**
+     * This rewrites the log file so it holds a single add record for every ticket, followed by an archive record
+     * for every archived ticket. The new log is written next to the old one and then moved over it.
+     *
+     * @throws IOException if the log file cannot be written.
+     */
+    private void compact() throws IOException {
+        Path compactedPath = logPath.resolveSibling(logPath.getFileName() + ".compact");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(compactedPath.toFile())))) {
+            for (TicketEntity ticket : liveTickets()) {
+                writeAddRecord(out, ticket);
+            }
+            for (TicketHistoryEntity archivedTicket : archivedTickets()) {
+                writeAddRecord(out, new TicketEntity(archivedTicket.getTicketId(), archivedTicket.getEventName(),
+                        archivedTicket.getPrice(), archivedTicket.getTimeDuration(), archivedTicket.getDate(),
+                        archivedTicket.getVendorId(), archivedTicket.getTicketStatus(),
+                        archivedTicket.getCustomerId()));
+                writeArchiveRecord(out, archivedTicket.getTicketId(), archivedTicket.getArchivedAt());
+            }
+        }
+        Files.move(compactedPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * This appends records to the log file and flushes them, forcing them to the storage device when "fsync" is set.
+     * If the records cannot be written, whatever part of them was written is cut from the log again, so the next
+     * record starts where the last complete one ended.
+     *
+     * @param writer the writer of the records.
+     * @throws UncheckedIOException if the records cannot be written, in which case the change must not be made.
+     */
+    private void append(RecordWriter writer) {
+        long length = -1;
+        try {
+            // Every append ends with a flush, so the file ends with the last complete record.
+            length = logFile.getChannel().size();
+            writer.write(log);
+            log.flush();
+            if (fsync) {
+                logFile.getFD().sync();
+            }
+        } catch (IOException e) {
+            discardPartialRecords(length);
+            throw new UncheckedIOException("Could not append to ticket store log " + logPath, e);
+        }
+    }
+
+    /**
+     * This drops the part of the records of a failed append that is still buffered or was written to the log file.
+     *
+     * @param length the length of the log file before the append, or -1 if it is not known.
+     */
+    private void discardPartialRecords(long length) {
+        log = new DataOutputStream(new BufferedOutputStream(logFile));
+        if (length < 0) {
+            return;
+        }
+        try {
+            logFile.getChannel().truncate(length);
+        } catch (IOException e) {
+            logger.error("Could not cut a partial record from ticket store log {}", logPath, e);
+        }
+    }
+
+    private static void writeAddRecord(DataOutputStream out, TicketEntity ticket) throws IOException {
+        out.writeByte(ADD_RECORD);
+        out.writeLong(ticket.getTicketId());
+        out.writeUTF(ticket.getEventName());
+        out.writeUTF(ticket.getPrice().toPlainString());
+        out.writeUTF(ticket.getTimeDuration());
+        out.writeLong(ticket.getDate().getTime());
+        out.writeUTF(ticket.getVendorId());
+        out.writeUTF(ticket.getTicketStatus());
+        out.writeBoolean(ticket.getCustomerId() != null);
+        if (ticket.getCustomerId() != null) {
+            out.writeUTF(ticket.getCustomerId());
+        }
+    }
+
+    private static void writeArchiveRecord(DataOutputStream out, Long ticketId, Date archivedAt) throws IOException {
+        out.writeByte(ARCHIVE_RECORD);
+        out.writeLong(ticketId);
+        out.writeLong(archivedAt.getTime());
+    }
+
+    /**
+     * This is a writer of a single log record.
+     */
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
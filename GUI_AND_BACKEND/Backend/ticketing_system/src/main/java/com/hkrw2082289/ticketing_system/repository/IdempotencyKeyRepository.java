@@ -0,0 +1,33 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.model.IdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+
+/**
+ * This Repository interface is for managing {@link IdempotencyKeyEntity} entities, the stored results of requests
+ * made with an "Idempotency-Key" header.
+ *
+ * This interface extends {@link JpaRepository}, providing standard CRUD operations and the removal of expired keys.
+ *
+ * This is Annotated with {@link Repository} to indicate that it is a Spring-managed component
+ * and to enable exception translation for database access errors.
+ */
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, String> {
+
+    /**
+     * This deletes the stored results of the requests completed before the given time, in a single statement.
+     *
+     * @param cutoff the time before which stored results are deleted.
+     * @return the number of deleted rows.
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyKeyEntity k WHERE k.createdAt < :cutoff")
+    int deleteCompletedBefore(@Param("cutoff") Date cutoff);
+}
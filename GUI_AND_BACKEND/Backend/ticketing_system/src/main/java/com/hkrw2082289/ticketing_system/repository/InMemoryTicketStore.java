@@ -0,0 +1,190 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import com.hkrw2082289.ticketing_system.model.TicketHistoryEntity;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * This {@link TicketStore} keeps the ticket pool in memory only, so nothing is persisted across restarts.
+ * This is meant for tests and benchmarks that need to isolate the pool engine from database latency, and is
+ * selected with "ticketing.store.type=memory".
+ *
+ * The store hands out copies of its tickets, so changes the pool makes to its own ticket objects never leak into
+ * the store without going through one of the store methods.
+ */
+@Component
+@ConditionalOnProperty(name = "ticketing.store.type", havingValue = "memory")
+public class InMemoryTicketStore implements TicketStore {
+
+    /**
+     * This holds the tickets of the live pool, ordered by ticket ID.
+     */
+    private final NavigableMap<Long, TicketEntity> tickets = new ConcurrentSkipListMap<>();
+
+    /**
+     * This holds the archived tickets, ordered by ticket ID.
+     */
+    private final NavigableMap<Long, TicketHistoryEntity> archivedTickets = new ConcurrentSkipListMap<>();
+
+    /**
+     * This is used to assign ticket IDs to new tickets.
+     */
+    private final AtomicLong lastTicketId = new AtomicLong();
+
+    @Override
+    public List<TicketEntity> findAll() {
+        return tickets.values().stream().map(InMemoryTicketStore::copyOf).collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<TicketEntity> findById(Long ticketId) {
+        return Optional.ofNullable(tickets.get(ticketId)).map(InMemoryTicketStore::copyOf);
+    }
+
+    @Override
+    public synchronized TicketEntity save(TicketEntity ticket) {
+        ticket.setTicketId(nextTicketId());
+        tickets.put(ticket.getTicketId(), copyOf(ticket));
+        return ticket;
+    }
+
+    @Override
+    public synchronized boolean bookIfAvailable(Long ticketId, String customerId) {
+        TicketEntity ticket = tickets.get(ticketId);
+        if (ticket == null || !"Available".equals(ticket.getTicketStatus())) {
+            return false;
+        }
+        ticket.setTicketStatus("Booked");
+        ticket.setCustomerId(customerId);
+        return true;
+    }
+
+    @Override
+    public synchronized List<Long> bookAvailableForEvent(String eventName, String customerId, int quantity) {
+        List<Long> ticketIds = tickets.values().stream()
+                .filter(t -> "Available".equals(t.getTicketStatus()) && eventName.equals(t.getEventName()))
+                .limit(quantity)
+                .map(TicketEntity::getTicketId)
+                .collect(Collectors.toList());
+        ticketIds.forEach(ticketId -> bookIfAvailable(ticketId, customerId));
+        return ticketIds;
+    }
+
+    @Override
+    public long countAvailable() {
+        return tickets.values().stream().filter(t -> "Available".equals(t.getTicketStatus())).count();
+    }
+
+    @Override
+    public List<Long> findBookedTicketIdsBefore(Date cutoff, int limit) {
+        return tickets.values().stream()
+                .filter(t -> "Booked".equals(t.getTicketStatus()) && t.getDate().before(cutoff))
+                .limit(limit)
+                .map(TicketEntity::getTicketId)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized int archive(Collection<Long> ticketIds, Date archivedAt) {
+        int archived = 0;
+        for (Long ticketId : ticketIds) {
+            TicketEntity ticket = tickets.remove(ticketId);
+            if (ticket != null) {
+                archivedTickets.put(ticketId, toHistory(ticket, archivedAt));
+                archived++;
+            }
+        }
+        return archived;
+    }
+
+    @Override
+    public Map<String, Long> countArchivedByEvent() {
+        return archivedTickets.values().stream()
+                .collect(Collectors.groupingBy(TicketHistoryEntity::getEventName, Collectors.counting()));
+    }
+
+    @Override
+    public Map<String, Long> countArchivedByEventForCustomer(String customerId) {
+        return archivedTickets.values().stream()
+                .filter(t -> customerId.equals(t.getCustomerId()))
+                .collect(Collectors.groupingBy(TicketHistoryEntity::getEventName, Collectors.counting()));
+    }
+
+    /**
+     * This assigns the next ticket ID. This is used by stores that extend this class to write a new ticket to
+     * durable storage before it is added to the store.
+     *
+     * @return the ticket ID.
+     */
+    protected long nextTicketId() {
+        return lastTicketId.incrementAndGet();
+    }
+
+    /**
+     * This restores a ticket read back from durable storage, keeping its ticket ID. This is used by stores that
+     * extend this class to rebuild their state on start-up.
+     *
+     * @param ticket the ticket to restore.
+     */
+    protected void restoreTicket(TicketEntity ticket) {
+        tickets.put(ticket.getTicketId(), ticket);
+        lastTicketId.accumulateAndGet(ticket.getTicketId(), Math::max);
+    }
+
+    /**
+     * This returns the tickets of the live pool held by this store, without copying them.
+     *
+     * @return the live tickets, ordered by ticket ID.
+     */
+    protected Collection<TicketEntity> liveTickets() {
+        return tickets.values();
+    }
+
+    /**
+     * This returns the archived tickets held by this store.
+     *
+     * @return the archived tickets, ordered by ticket ID.
+     */
+    protected Collection<TicketHistoryEntity> archivedTickets() {
+        return archivedTickets.values();
+    }
+
+    /**
+     * This creates a copy of a ticket.
+     *
+     * @param ticket the ticket to copy.
+     * @return a new {@link TicketEntity} holding the same values.
+     */
+    protected static TicketEntity copyOf(TicketEntity ticket) {
+        return new TicketEntity(ticket.getTicketId(), ticket.getEventName(), ticket.getPrice(),
+                ticket.getTimeDuration(), ticket.getDate(), ticket.getVendorId(), ticket.getTicketStatus(),
+                ticket.getCustomerId());
+    }
+
+    /**
+     * This creates the archived form of a ticket.
+     *
+     * @param ticket the ticket to archive.
+     * @param archivedAt the date and time to record as the archive time.
+     * @return a new {@link TicketHistoryEntity} holding the values of the ticket.
+     */
+    private static TicketHistoryEntity toHistory(TicketEntity ticket, Date archivedAt) {
+        TicketHistoryEntity archivedTicket = new TicketHistoryEntity();
+        archivedTicket.setTicketId(ticket.getTicketId());
+        archivedTicket.setEventName(ticket.getEventName());
+        archivedTicket.setPrice(ticket.getPrice());
+        archivedTicket.setTimeDuration(ticket.getTimeDuration());
+        archivedTicket.setDate(ticket.getDate());
+        archivedTicket.setVendorId(ticket.getVendorId());
+        archivedTicket.setTicketStatus(ticket.getTicketStatus());
+        archivedTicket.setCustomerId(ticket.getCustomerId());
+        archivedTicket.setArchivedAt(archivedAt);
+        return archivedTicket;
+    }
+}
@@ -0,0 +1,201 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * This {@link TicketStore} keeps the ticket pool in the "ticketpool" and "ticket_history" tables with plain JDBC
+ * statements, skipping the JPA persistence context entirely. This is selected with "ticketing.store.type=jdbc".
+ */
+@Component
+@ConditionalOnProperty(name = "ticketing.store.type", havingValue = "jdbc")
+public class JdbcTicketStore implements TicketStore {
+
+    private static final String TICKET_COLUMNS =
+            "ticket_id, event_name, price, time_duration, date, vendor_id, ticket_status, customer_id";
+
+    /**
+     * This maps a row of the "ticketpool" table to a {@link TicketEntity}.
+     */
+    private static final RowMapper<TicketEntity> TICKET_ROW_MAPPER = (rs, rowNum) -> new TicketEntity(
+            rs.getLong("ticket_id"),
+            rs.getString("event_name"),
+            rs.getBigDecimal("price"),
+            rs.getString("time_duration"),
+            rs.getTimestamp("date"),
+            rs.getString("vendor_id"),
+            rs.getString("ticket_status"),
+            rs.getString("customer_id"));
+
+    private static final String INSERT_TICKET = "INSERT INTO ticketpool (event_name, price, time_duration, date, " +
+            "vendor_id, ticket_status, customer_id) VALUES (:eventName, :price, :timeDuration, :date, :vendorId, " +
+            ":ticketStatus, :customerId)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * This constructor constructs the store with the JDBC template of the application's data source.
+     *
+     * @param jdbcTemplate the named parameter JDBC template used to run the statements.
+     * @param transactionManager the transaction manager used to archive tickets atomically.
+     */
+    public JdbcTicketStore(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public List<TicketEntity> findAll() {
+        return jdbcTemplate.query("SELECT " + TICKET_COLUMNS + " FROM ticketpool ORDER BY ticket_id",
+                TICKET_ROW_MAPPER);
+    }
+
+    @Override
+    public Optional<TicketEntity> findById(Long ticketId) {
+        List<TicketEntity> tickets = jdbcTemplate.query(
+                "SELECT " + TICKET_COLUMNS + " FROM ticketpool WHERE ticket_id = :ticketId",
+                new MapSqlParameterSource("ticketId", ticketId), TICKET_ROW_MAPPER);
+        return tickets.stream().findFirst();
+    }
+
+    @Override
+    public TicketEntity save(TicketEntity ticket) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(INSERT_TICKET, insertParameters(ticket), keyHolder, new String[]{"ticket_id"});
+        ticket.setTicketId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        return ticket;
+    }
+
+    @Override
+    public List<TicketEntity> saveAll(List<TicketEntity> tickets) {
+        if (tickets.isEmpty()) {
+            return tickets;
+        }
+        SqlParameterSource[] batch = tickets.stream()
+                .map(JdbcTicketStore::insertParameters)
+                .toArray(SqlParameterSource[]::new);
+        return transactionTemplate.execute(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(INSERT_TICKET, batch, keyHolder, new String[]{"ticket_id"});
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            if (keys.size() != tickets.size()) {
+                throw new IllegalStateException("Expected " + tickets.size() + " generated ticket IDs but got " +
+                        keys.size());
+            }
+            for (int i = 0; i < tickets.size(); i++) {
+                tickets.get(i).setTicketId(((Number) keys.get(i).values().iterator().next()).longValue());
+            }
+            return tickets;
+        });
+    }
+
+    /**
+     * This builds the parameters of the insert of a new ticket.
+     *
+     * @param ticket the ticket to insert.
+     * @return the parameters.
+     */
+    private static MapSqlParameterSource insertParameters(TicketEntity ticket) {
+        return new MapSqlParameterSource()
+                .addValue("eventName", ticket.getEventName())
+                .addValue("price", ticket.getPrice())
+                .addValue("timeDuration", ticket.getTimeDuration())
+                .addValue("date", new Timestamp(ticket.getDate().getTime()))
+                .addValue("vendorId", ticket.getVendorId())
+                .addValue("ticketStatus", ticket.getTicketStatus())
+                .addValue("customerId", ticket.getCustomerId());
+    }
+
+    @Override
+    public boolean bookIfAvailable(Long ticketId, String customerId) {
+        return jdbcTemplate.update("UPDATE ticketpool SET ticket_status = 'Booked', customer_id = :customerId " +
+                        "WHERE ticket_id = :ticketId AND ticket_status = 'Available'",
+                new MapSqlParameterSource("ticketId", ticketId).addValue("customerId", customerId)) == 1;
+    }
+
+    @Override
+    public List<Long> bookAvailableForEvent(String eventName, String customerId, int quantity) {
+        List<Long> ticketIds = transactionTemplate.execute(status -> {
+            List<Long> lockedIds = jdbcTemplate.queryForList("SELECT ticket_id FROM ticketpool " +
+                            "WHERE event_name = :eventName AND ticket_status = 'Available' " +
+                            "ORDER BY ticket_id LIMIT :quantity FOR UPDATE",
+                    new MapSqlParameterSource("eventName", eventName).addValue("quantity", quantity), Long.class);
+            if (!lockedIds.isEmpty()) {
+                jdbcTemplate.update("UPDATE ticketpool SET ticket_status = 'Booked', customer_id = :customerId " +
+                                "WHERE ticket_id IN (:ticketIds) AND ticket_status = 'Available'",
+                        new MapSqlParameterSource("ticketIds", lockedIds).addValue("customerId", customerId));
+            }
+            return lockedIds;
+        });
+        return ticketIds == null ? Collections.emptyList() : ticketIds;
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+
+    @Override
+    public long countAvailable() {
+        Long count = jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM ticketpool WHERE ticket_status = 'Available'", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public List<Long> findBookedTicketIdsBefore(Date cutoff, int limit) {
+        return jdbcTemplate.queryForList("SELECT ticket_id FROM ticketpool WHERE ticket_status = 'Booked' " +
+                        "AND date < :cutoff ORDER BY ticket_id LIMIT :limit",
+                new MapSqlParameterSource("cutoff", new Timestamp(cutoff.getTime())).addValue("limit", limit),
+                Long.class);
+    }
+
+    @Override
+    public int archive(Collection<Long> ticketIds, Date archivedAt) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("ticketIds", ticketIds)
+                .addValue("archivedAt", new Timestamp(archivedAt.getTime()));
+        Integer archived = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("INSERT INTO ticket_history (" + TICKET_COLUMNS + ", archived_at) " +
+                    "SELECT " + TICKET_COLUMNS + ", :archivedAt FROM ticketpool " +
+                    "WHERE ticket_id IN (:ticketIds)", parameters);
+            return jdbcTemplate.update("DELETE FROM ticketpool WHERE ticket_id IN (:ticketIds)", parameters);
+        });
+        return archived == null ? 0 : archived;
+    }
+
+    @Override
+    public Map<String, Long> countArchivedByEvent() {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT event_name, COUNT(*) AS total FROM ticket_history GROUP BY event_name",
+                rs -> {
+                    counts.put(rs.getString("event_name"), rs.getLong("total"));
+                });
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> countArchivedByEventForCustomer(String customerId) {
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT event_name, COUNT(*) AS total FROM ticket_history " +
+                        "WHERE customer_id = :customerId GROUP BY event_name",
+                new MapSqlParameterSource("customerId", customerId),
+                rs -> {
+                    counts.put(rs.getString("event_name"), rs.getLong("total"));
+                });
+        return counts;
+    }
+}
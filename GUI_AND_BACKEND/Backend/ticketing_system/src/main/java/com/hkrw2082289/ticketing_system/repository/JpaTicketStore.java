@@ -0,0 +1,125 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * This is the default {@link TicketStore}, which keeps the ticket pool in the "ticketpool" and "ticket_history"
+ * tables through the Spring Data JPA repositories.
+ */
+@Component
+@ConditionalOnProperty(name = "ticketing.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaTicketStore implements TicketStore {
+
+    private final TicketRepository ticketRepository;
+
+    private final TicketHistoryRepository ticketHistoryRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * This constructor constructs the store with the repositories of the two ticket tables.
+     *
+     * @param ticketRepository the repository of the "ticketpool" table.
+     * @param ticketHistoryRepository the repository of the "ticket_history" table.
+     * @param transactionManager the transaction manager used to archive tickets atomically.
+     */
+    public JpaTicketStore(TicketRepository ticketRepository,
+                          TicketHistoryRepository ticketHistoryRepository,
+                          PlatformTransactionManager transactionManager) {
+        this.ticketRepository = ticketRepository;
+        this.ticketHistoryRepository = ticketHistoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public List<TicketEntity> findAll() {
+        return ticketRepository.findAll();
+    }
+
+    @Override
+    public Optional<TicketEntity> findById(Long ticketId) {
+        return ticketRepository.findById(ticketId);
+    }
+
+    @Override
+    public TicketEntity save(TicketEntity ticket) {
+        return ticketRepository.save(ticket);
+    }
+
+    @Override
+    public List<TicketEntity> saveAll(List<TicketEntity> tickets) {
+        return ticketRepository.saveAll(tickets);
+    }
+
+    @Override
+    public boolean bookIfAvailable(Long ticketId, String customerId) {
+        return ticketRepository.bookIfAvailable(ticketId, customerId) == 1;
+    }
+
+    @Override
+    public List<Long> bookAvailableForEvent(String eventName, String customerId, int quantity) {
+        List<Long> ticketIds = transactionTemplate.execute(status -> {
+            List<Long> lockedIds = ticketRepository.findAvailableTicketIdsForUpdate(eventName, quantity);
+            if (!lockedIds.isEmpty()) {
+                ticketRepository.bookAllIfAvailable(lockedIds, customerId);
+            }
+            return lockedIds;
+        });
+        return ticketIds == null ? Collections.emptyList() : ticketIds;
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+
+    @Override
+    public long countAvailable() {
+        return ticketRepository.countByTicketStatus("Available");
+    }
+
+    @Override
+    public List<Long> findBookedTicketIdsBefore(Date cutoff, int limit) {
+        return ticketRepository.findBookedTicketIdsBefore(cutoff, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public int archive(Collection<Long> ticketIds, Date archivedAt) {
+        Integer archived = transactionTemplate.execute(status -> {
+            ticketHistoryRepository.copyFromTicketPool(ticketIds, archivedAt);
+            return ticketRepository.deleteByTicketIds(ticketIds);
+        });
+        return archived == null ? 0 : archived;
+    }
+
+    @Override
+    public Map<String, Long> countArchivedByEvent() {
+        return toCountMap(ticketHistoryRepository.countGroupedByEvent());
+    }
+
+    @Override
+    public Map<String, Long> countArchivedByEventForCustomer(String customerId) {
+        return toCountMap(ticketHistoryRepository.countGroupedByEventForCustomer(customerId));
+    }
+
+    /**
+     * This converts the rows of a grouped count query into a map of event names to counts.
+     *
+     * @param rows the rows holding the event name and the count.
+     * @return a map of event names to counts.
+     */
+    private Map<String, Long> toCountMap(List<Object[]> rows) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+}
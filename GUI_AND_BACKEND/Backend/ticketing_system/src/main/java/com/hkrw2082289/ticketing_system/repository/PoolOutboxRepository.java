@@ -0,0 +1,75 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.model.PoolOutboxEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This Repository interface is for managing {@link PoolOutboxEntity} entities, the changes of the ticket pool in
+ * the outbox.
+ *
+ * This interface extends {@link JpaRepository}, providing standard CRUD operations and the reads of the outbox in
+ * the order the changes were committed, for the relay and for replaying changes.
+ *
+ * This is Annotated with {@link Repository} to indicate that it is a Spring-managed component
+ * and to enable exception translation for database access errors.
+ */
+@Repository
+public interface PoolOutboxRepository extends JpaRepository<PoolOutboxEntity, Long> {
+
+    /**
+     * This finds the changes written after the given change, in the order they were committed.
+     *
+     * @param outboxId the outbox ID of the last change already read.
+     * @param pageable the largest number of changes to read.
+     * @return the changes ordered by outbox ID.
+     */
+    List<PoolOutboxEntity> findByOutboxIdGreaterThanOrderByOutboxIdAsc(long outboxId, Pageable pageable);
+
+    /**
+     * This finds the changes with a sequence number above the given one, in order, for replaying the changes a
+     * client has missed.
+     *
+     * @param seq the sequence number of the last change the client has.
+     * @param pageable the largest number of changes to read.
+     * @return the changes ordered by sequence number.
+     */
+    List<PoolOutboxEntity> findBySeqGreaterThanOrderBySeqAsc(long seq, Pageable pageable);
+
+    /**
+     * This finds the outbox ID of the last change written.
+     *
+     * @return the highest outbox ID, or {@code null} if the outbox is empty.
+     */
+    @Query("SELECT MAX(o.outboxId) FROM PoolOutboxEntity o")
+    Long findMaxOutboxId();
+
+    /**
+     * This finds the highest sequence number in the outbox, from which the sequence numbers carry on after a
+     * restart.
+     *
+     * @return the highest sequence number, or {@code null} if the outbox is empty.
+     */
+    @Query("SELECT MAX(o.seq) FROM PoolOutboxEntity o")
+    Long findMaxSeq();
+
+    /**
+     * This removes the changes written before the given time, keeping the changes from the given sequence number on.
+     *
+     * @param cutoff the time before which changes are removed.
+     * @param keepFromSeq the lowest sequence number that is kept whatever its age.
+     * @return the number of changes removed.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PoolOutboxEntity o WHERE o.createdAt < :cutoff AND o.seq < :keepFromSeq")
+    int deleteCreatedBefore(@Param("cutoff") Date cutoff, @Param("keepFromSeq") long keepFromSeq);
+}
@@ -0,0 +1,29 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.model.PurchaseQueueEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * This Repository interface is for managing {@link PurchaseQueueEntity} entities, the queued purchase requests of
+ * customers.
+ *
+ * This interface extends {@link JpaRepository}, providing standard CRUD operations and the lookup of the purchase
+ * requests that still have tickets to book.
+ *
+ * This is Annotated with {@link Repository} to indicate that it is a Spring-managed component
+ * and to enable exception translation for database access errors.
+ */
+@Repository
+public interface PurchaseQueueRepository extends JpaRepository<PurchaseQueueEntity, Long> {
+
+    /**
+     * This finds the queued purchase requests with the given status, oldest first.
+     *
+     * @param status the status of the purchase requests.
+     * @return the matching purchase requests ordered by queue ID.
+     */
+    List<PurchaseQueueEntity> findByStatusOrderByQueueIdAsc(String status);
+}
@@ -0,0 +1,58 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.model.TicketHistoryEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This Repository interface is for managing {@link TicketHistoryEntity} entities, the archived booked tickets.
+ *
+ * This interface extends {@link JpaRepository}, providing standard CRUD operations and the set-based
+ * statements used by the archival job to copy tickets out of the "ticketpool" table.
+ *
+ * This is Annotated with {@link Repository} to indicate that it is a Spring-managed component
+ * and to enable exception translation for database access errors.
+ */
+@Repository
+public interface TicketHistoryRepository extends JpaRepository<TicketHistoryEntity, Long> {
+
+    /**
+     * This copies the given tickets from the "ticketpool" table into the "ticket_history" table in a single
+     * statement. This must be called inside a transaction together with the delete from the "ticketpool" table.
+     *
+     * @param ticketIds the IDs of the tickets to copy.
+     * @param archivedAt the date and time to record as the archive time.
+     * @return the number of rows copied.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO ticket_history (ticket_id, event_name, price, time_duration, date, vendor_id, " +
+            "ticket_status, customer_id, archived_at) " +
+            "SELECT ticket_id, event_name, price, time_duration, date, vendor_id, ticket_status, customer_id, " +
+            ":archivedAt FROM ticketpool WHERE ticket_id IN (:ticketIds)", nativeQuery = true)
+    int copyFromTicketPool(@Param("ticketIds") Collection<Long> ticketIds, @Param("archivedAt") Date archivedAt);
+
+    /**
+     * This counts the archived tickets grouped by event.
+     *
+     * @return a list of rows, each holding the event name and the archived ticket count.
+     */
+    @Query("SELECT t.eventName, COUNT(t) FROM TicketHistoryEntity t GROUP BY t.eventName")
+    List<Object[]> countGroupedByEvent();
+
+    /**
+     * This counts the archived tickets of a specific customer grouped by event.
+     *
+     * @param customerId the ID of the customer.
+     * @return a list of rows, each holding the event name and the archived ticket count.
+     */
+    @Query("SELECT t.eventName, COUNT(t) FROM TicketHistoryEntity t WHERE t.customerId = :customerId " +
+            "GROUP BY t.eventName")
+    List<Object[]> countGroupedByEventForCustomer(@Param("customerId") String customerId);
+}
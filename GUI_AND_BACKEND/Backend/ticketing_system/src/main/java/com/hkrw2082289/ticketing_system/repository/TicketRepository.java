@@ -1,8 +1,17 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.repository;
 import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 
 /**
  * This Repository interface for managing {@link TicketEntity} entities.
@@ -14,5 +23,78 @@ import org.springframework.stereotype.Repository;
  * and to enable exception translation for database access errors.
  */
 @Repository
-public interface TicketRepository extends JpaRepository<TicketEntity, String> {
-}
\ No newline at end of file
+public interface TicketRepository extends JpaRepository<TicketEntity, Long> {
+
+    /**
+     * This counts the tickets with the given ticket status.
+     *
+     * @param ticketStatus the ticket status to count, such as "Available".
+     * @return the number of tickets with the status.
+     */
+    long countByTicketStatus(String ticketStatus);
+
+    /**
+     * This finds the IDs of booked tickets for events dated before the given cutoff, oldest ticket first.
+     * This is used by the archival job to pick the next chunk of tickets to move to the archive.
+     *
+     * @param cutoff the event date before which booked tickets are archived.
+     * @param pageable the page holding the chunk size.
+     * @return the IDs of the tickets in the chunk.
+     */
+    @Query("SELECT t.ticketId FROM TicketEntity t WHERE t.ticketStatus = 'Booked' AND t.date < :cutoff " +
+            "ORDER BY t.ticketId")
+    List<Long> findBookedTicketIdsBefore(@Param("cutoff") Date cutoff, Pageable pageable);
+
+    /**
+     * This deletes the given tickets from the "ticketpool" table in a single statement.
+     *
+     * @param ticketIds the IDs of the tickets to delete.
+     * @return the number of rows deleted.
+     */
+    @Modifying
+    @Query("DELETE FROM TicketEntity t WHERE t.ticketId IN :ticketIds")
+    int deleteByTicketIds(@Param("ticketIds") Collection<Long> ticketIds);
+
+    /**
+     * This books a single ticket for a customer with a conditional update, without loading the entity.
+     * The update only matches while the ticket is still "Available", so the affected row count tells the caller
+     * whether the booking succeeded.
+     *
+     * @param ticketId the ID of the ticket to book.
+     * @param customerId the ID of the customer booking the ticket.
+     * @return {@code 1} if the ticket was booked, {@code 0} if it was no longer available.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE TicketEntity t SET t.ticketStatus = 'Booked', t.customerId = :customerId " +
+            "WHERE t.ticketId = :ticketId AND t.ticketStatus = 'Available'")
+    int bookIfAvailable(@Param("ticketId") Long ticketId, @Param("customerId") String customerId);
+
+    /**
+     * This finds up to the given quantity of available tickets of an event, taking the tickets with the lowest
+     * ticket IDs first, and locks their rows until the end of the transaction so they can be booked by their IDs.
+     * This must be called within a transaction.
+     *
+     * @param eventName the name of the event.
+     * @param quantity the maximum number of tickets to find.
+     * @return the IDs of the locked tickets, in ascending order.
+     */
+    @Query(value = "SELECT ticket_id FROM ticketpool WHERE event_name = :eventName AND ticket_status = 'Available' " +
+            "ORDER BY ticket_id LIMIT :quantity FOR UPDATE", nativeQuery = true)
+    List<Long> findAvailableTicketIdsForUpdate(@Param("eventName") String eventName,
+                                               @Param("quantity") int quantity);
+
+    /**
+     * This books the given tickets for a customer in a single statement, skipping any that are no longer
+     * available.
+     *
+     * @param ticketIds the IDs of the tickets to book.
+     * @param customerId the ID of the customer booking the tickets.
+     * @return the number of tickets booked.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE TicketEntity t SET t.ticketStatus = 'Booked', t.customerId = :customerId " +
+            "WHERE t.ticketId IN :ticketIds AND t.ticketStatus = 'Available'")
+    int bookAllIfAvailable(@Param("ticketIds") Collection<Long> ticketIds, @Param("customerId") String customerId);
+}
@@ -0,0 +1,139 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * This interface is the storage SPI of the ticket pool. The {@code TicketPoolService} keeps the live pool in memory
+ * and uses a {@link TicketStore} to persist every change to it, so the pool engine does not depend on a specific
+ * database.
+ *
+ * The implementation in use is chosen with the "ticketing.store.type" property:
+ * "jpa" (the default, backed by {@link TicketRepository}), "jdbc" (plain JDBC against the same data source),
+ * "memory" (nothing is persisted) and "file" (an embedded append-only log file).
+ */
+public interface TicketStore {
+
+    /**
+     * This loads every ticket of the live pool, which is used to fill the pool on start-up.
+     *
+     * @return all tickets in the store that are not archived.
+     */
+    List<TicketEntity> findAll();
+
+    /**
+     * This finds a single ticket of the live pool.
+     *
+     * @param ticketId the ID of the ticket.
+     * @return the ticket, or an empty {@link Optional} if it does not exist.
+     */
+    Optional<TicketEntity> findById(Long ticketId);
+
+    /**
+     * This stores a new ticket and assigns its ticket ID.
+     *
+     * @param ticket the ticket to store.
+     * @return the stored ticket, holding the assigned ticket ID.
+     */
+    TicketEntity save(TicketEntity ticket);
+
+    /**
+     * This stores the new tickets of a release together and assigns their ticket IDs, in one round trip where the
+     * store supports it. Stores that cannot write several tickets at once save them one by one.
+     *
+     * @param tickets the tickets to store.
+     * @return the stored tickets, holding the assigned ticket IDs, in the order they were given.
+     */
+    default List<TicketEntity> saveAll(List<TicketEntity> tickets) {
+        List<TicketEntity> savedTickets = new ArrayList<>(tickets.size());
+        for (TicketEntity ticket : tickets) {
+            savedTickets.add(save(ticket));
+        }
+        return savedTickets;
+    }
+
+    /**
+     * This books a single ticket for a customer, but only while the ticket is still "Available".
+     *
+     * @param ticketId the ID of the ticket to book.
+     * @param customerId the ID of the customer booking the ticket.
+     * @return {@code true} if the ticket was booked, {@code false} if it was no longer available.
+     */
+    boolean bookIfAvailable(Long ticketId, String customerId);
+
+    /**
+     * This books up to the given quantity of available tickets of an event for a customer, taking the tickets
+     * with the lowest ticket IDs first. The IDs of the tickets actually booked are returned, as the tickets that are
+     * available in the store may not be the ones the pool holds as available.
+     *
+     * @param eventName the name of the event.
+     * @param customerId the ID of the customer booking the tickets.
+     * @param quantity the maximum number of tickets to book.
+     * @return the IDs of the tickets booked, in ascending order.
+     */
+    List<Long> bookAvailableForEvent(String eventName, String customerId, int quantity);
+
+    /**
+     * This counts the tickets with ticket status set to "Available".
+     *
+     * @return the count of available tickets.
+     */
+    long countAvailable();
+
+    /**
+     * This finds the IDs of booked tickets for events dated before the given cutoff, oldest ticket first.
+     *
+     * @param cutoff the event date before which booked tickets are archived.
+     * @param limit the maximum number of IDs to return.
+     * @return the IDs of the booked tickets.
+     */
+    List<Long> findBookedTicketIdsBefore(Date cutoff, int limit);
+
+    /**
+     * This moves the given tickets from the live pool to the archive in one atomic step.
+     *
+     * @param ticketIds the IDs of the tickets to archive.
+     * @param archivedAt the date and time to record as the archive time.
+     * @return the number of tickets archived.
+     */
+    int archive(Collection<Long> ticketIds, Date archivedAt);
+
+    /**
+     * This counts the archived tickets grouped by event.
+     *
+     * @return a map of event names to archived ticket counts.
+     */
+    Map<String, Long> countArchivedByEvent();
+
+    /**
+     * This counts the archived tickets of a specific customer grouped by event.
+     *
+     * @param customerId the ID of the customer.
+     * @return a map of event names to archived ticket counts for the customer.
+     */
+    Map<String, Long> countArchivedByEventForCustomer(String customerId);
+
+    /**
+     * This checks if the writes of the store take part in the database transaction they are made in, so other rows
+     * such as the outbox of the pool changes can be committed together with them. Stores that keep the pool outside
+     * the database do not.
+     *
+     * @return {@code true} if the writes join the current database transaction, otherwise {@code false}.
+     */
+    default boolean isTransactional() {
+        return false;
+    }
+
+    /**
+     * This forces every write made so far to durable storage, which is done before the application shuts down.
+     * Stores that make every write durable as it happens have nothing to do.
+     */
+    default void flush() {
+    }
+}
@@ -1,6 +1,8 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.repository;
+import com.hkrw2082289.ticketing_system.helper.VendorAccount;
 import com.hkrw2082289.ticketing_system.model.Vendor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -25,12 +27,13 @@ public interface VendorRepository extends JpaRepository<Vendor, String> {
     boolean existsByVendorId(String vendorId);
 
     /**
-     * This finds a {@link Vendor} by their vendor ID and password.
+     * This finds the account details of a vendor by their vendor ID. The details are read into an immutable
+     * {@link VendorAccount} rather than the managed entity, and found accounts are kept in the "vendors" cache, so
+     * repeated lookups of the same account do not hit the database and no caller can change a cached entry.
      *
      * @param vendorId the unique identifier of the vendor.
-     * @param password the password associated with the vendor.
-     * @return the {@link Vendor} with the specified vendor ID and password,
-     *         or {@code null} if no such vendor exists.
+     * @return the account of the vendor with the specified vendor ID, or {@code null} if no such vendor exists.
      */
-    Vendor findByVendorIdAndPassword(String vendorId, String password);
-}
\ No newline at end of file
+    @Cacheable(cacheNames = "vendors", key = "#p0", unless = "#result == null")
+    VendorAccount findAccountByVendorId(String vendorId);
+}
@@ -0,0 +1,97 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This service class carries out the admin-level operations that stop and resume all ticket releases and ticket
+ * purchases of the ticketing system.
+ *
+ * A stop enables the global stop flags and then wakes up every vendor and customer thread waiting on the ticket
+ * pool, so the stop takes effect straight away instead of when the inventory next changes. In graceful mode the
+ * workers finish the database write they are in the middle of and their jobs are paused, to be carried on when
+ * activity is resumed. In immediate mode all jobs are cancelled as well, interrupting the workers wherever they are.
+ */
+@Service
+public class AdminService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminService.class);
+
+    /**
+     * This is the stop mode that lets in-flight writes finish and pauses the jobs.
+     */
+    public static final String MODE_GRACEFUL = "graceful";
+
+    /**
+     * This is the stop mode that cancels all jobs, interrupting their workers.
+     */
+    public static final String MODE_IMMEDIATE = "immediate";
+
+    private final TicketPoolService ticketPoolService;
+
+    private final JobService jobService;
+
+    /**
+     * This is the time in milliseconds a graceful stop waits for the workers to leave the ticket pool.
+     */
+    @Value("${ticketing.admin.drain-timeout-ms:5000}")
+    private long drainTimeoutMs;
+
+    /**
+     * This constructor is used for injecting the ticket pool whose waiters are drained and the job registry.
+     *
+     * @param ticketPoolService the service managing the ticket pool.
+     * @param jobService the service holding the job registry.
+     */
+    public AdminService(TicketPoolService ticketPoolService, JobService jobService) {
+        this.ticketPoolService = ticketPoolService;
+        this.jobService = jobService;
+    }
+
+    /**
+     * This method stops all ticket releases and ticket purchases and drains the threads waiting on the ticket pool.
+     *
+     * @param mode either "graceful" or "immediate".
+     * @return a {@link ResponseFinder} reporting the number of waiting threads drained, or an error if the mode is
+     * unknown.
+     */
+    public ResponseFinder stopAllActivity(String mode) {
+        boolean immediate = MODE_IMMEDIATE.equalsIgnoreCase(mode);
+        if (!immediate && !MODE_GRACEFUL.equalsIgnoreCase(mode)) {
+            return new ResponseFinder(false, "Error: Unknown stop mode '" + mode + "', use 'graceful' or 'immediate'.");
+        }
+        CustomerService.enableStopAllPurchases();
+        VendorService.enableStopAllRelease();
+
+        int drained = ticketPoolService.drainWaiters();
+        int cancelled = immediate ? jobService.cancelAllJobs() : 0;
+        if (immediate) {
+            logger.info("Immediate stop drained {} waiting threads and cancelled {} jobs", drained, cancelled);
+            return new ResponseFinder(true, String.format("All customer and vendor threads have been stopped." +
+                    " Drained %d waiting threads and cancelled %d jobs.", drained, cancelled), drained);
+        }
+
+        boolean settled = jobService.awaitActiveJobs(drainTimeoutMs);
+        logger.info("Graceful stop drained {} waiting threads, workers settled: {}", drained, settled);
+        return new ResponseFinder(true, String.format("All customer and vendor threads have been stopped." +
+                " Drained %d waiting threads.%s", drained,
+                settled ? "" : " Some workers are still finishing their current ticket."), drained);
+    }
+
+    /**
+     * This method resumes all ticket releases and ticket purchases, carrying on the jobs paused by a graceful stop.
+     *
+     * @return a {@link ResponseFinder} reporting the number of jobs resumed.
+     */
+    public ResponseFinder resumeAllActivity() {
+        CustomerService.disableStopAllPurchases();
+        VendorService.disableStopAllRelease();
+        int resumed = jobService.resumePausedJobs();
+        logger.info("Resumed all activity and {} paused jobs", resumed);
+        return new ResponseFinder(true, String.format("All customer and vendor threads have been resumed." +
+                " Resumed %d paused jobs.", resumed), resumed);
+    }
+}
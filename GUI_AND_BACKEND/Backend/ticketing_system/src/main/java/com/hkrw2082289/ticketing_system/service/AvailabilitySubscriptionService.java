@@ -0,0 +1,217 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.helper.AvailabilitySubscription;
+import com.hkrw2082289.ticketing_system.helper.AvailabilitySubscription.SubscriptionState;
+import com.hkrw2082289.ticketing_system.helper.BookingNotification;
+import com.hkrw2082289.ticketing_system.helper.Deadline;
+import com.hkrw2082289.ticketing_system.model.Customer;
+import com.hkrw2082289.ticketing_system.repository.CustomerRepository;
+import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * This service class is the registry of the availability subscriptions of the customers, through which a customer
+ * registers interest in an event that has no tickets available instead of keeping a customer thread waiting on the
+ * pool.
+ *
+ * Every subscription waits in the queue of its event in the {@link TicketPoolService}, which holds no thread, so a
+ * waiting subscription only costs the bytes of its entry. When tickets of the event are added, the subscription
+ * books up to its auto-book quantity of them for the customer, or only tells the customer they are available again
+ * if it has no auto-book quantity. Either way the customer is notified on "/user/queue/bookings" when it finishes.
+ *
+ * Subscriptions are kept in memory, like jobs, and are removed once they have been finished for the retention time
+ * of the jobs.
+ */
+@Service
+public class AvailabilitySubscriptionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilitySubscriptionService.class);
+
+    /**
+     * This holds the subscriptions that are waiting or finished within the retention time, by subscription ID.
+     */
+    private final Map<Long, AvailabilitySubscription> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * This is used to assign subscription IDs to new subscriptions.
+     */
+    private final AtomicLong lastSubscriptionId = new AtomicLong();
+
+    private final TicketPoolService ticketPoolService;
+
+    private final PoolEventPublisher poolEventPublisher;
+
+    private final CustomerRepository customerRepository;
+
+    /**
+     * This is the longest time in milliseconds a subscription waits for tickets before it expires.
+     */
+    @Value("${ticketing.subscriptions.timeout-ms:86400000}")
+    private long subscriptionTimeoutMs;
+
+    /**
+     * This is the largest number of waiting subscriptions a customer may have.
+     */
+    @Value("${ticketing.subscriptions.max-per-customer:20}")
+    private int maxPerCustomer;
+
+    /**
+     * This is the time in milliseconds a finished subscription is kept in the registry before it is removed.
+     */
+    @Value("${ticketing.jobs.retention-ms:600000}")
+    private long retentionMs;
+
+    /**
+     * This constructor is used for injecting the ticket pool the subscriptions wait on, the publisher notifying the
+     * customers and the repository the customers are checked against.
+     *
+     * @param ticketPoolService the service managing the ticket pool.
+     * @param poolEventPublisher the publisher notifying customers when their subscriptions finish.
+     * @param customerRepository the repository of the customers.
+     */
+    public AvailabilitySubscriptionService(TicketPoolService ticketPoolService, PoolEventPublisher poolEventPublisher,
+                                           CustomerRepository customerRepository) {
+        this.ticketPoolService = ticketPoolService;
+        this.poolEventPublisher = poolEventPublisher;
+        this.customerRepository = customerRepository;
+    }
+
+    /**
+     * This method registers the interest of a customer in an event.
+     *
+     * @param customerId the ID of the customer.
+     * @param payload a map containing the event name, and optionally "autoBookQuantity", the number of tickets to
+     *                book when tickets are restocked, and "timeoutMs", the time in milliseconds the subscription
+     *                waits for tickets.
+     * @return a {@link ResponseFinder} indicating success or failure, whose data is the new subscription.
+     */
+    public ResponseFinder subscribe(String customerId, Map<String, Object> payload) {
+        if (customerRepository.findAccountByCustomerId(customerId) == null) {
+            return new ResponseFinder(false, "Error: Customer ID " + customerId + " does not exist in the database.");
+        }
+        Object eventName = payload.get("eventName");
+        if (!(eventName instanceof String) || ((String) eventName).isBlank()) {
+            return new ResponseFinder(false, "Error: Event name is required to subscribe to an event.");
+        }
+        Object quantity = payload.getOrDefault("autoBookQuantity", 0);
+        if (!(quantity instanceof Integer) || (int) quantity < 0) {
+            return new ResponseFinder(false, "Error: Auto-book quantity must be a whole number of 0 or more.");
+        }
+        if (Customer.isAdminStopAllPurchases()) {
+            return new ResponseFinder(false, String.format("Error: System has been stopped by Admin. Sorry, your" +
+                    " subscription to '%s' has been denied", eventName));
+        }
+        long waiting = subscriptions.values().stream()
+                .filter(subscription -> customerId.equals(subscription.getCustomerId()) && !subscription.isFinished())
+                .count();
+        if (waiting >= maxPerCustomer) {
+            return new ResponseFinder(false, String.format("Error: Customer ID %s already has %d subscriptions" +
+                    " waiting, which is the most allowed.", customerId, waiting));
+        }
+
+        Object requestedTimeoutMs = payload.get("timeoutMs");
+        long timeoutMs = requestedTimeoutMs instanceof Number
+                ? Math.min(((Number) requestedTimeoutMs).longValue(), subscriptionTimeoutMs) : subscriptionTimeoutMs;
+        AvailabilitySubscription subscription = new AvailabilitySubscription(lastSubscriptionId.incrementAndGet(),
+                customerId, (String) eventName, (int) quantity, Deadline.afterMillis(timeoutMs));
+        subscriptions.put(subscription.getSubscriptionId(), subscription);
+        ticketPoolService.awaitTicketsAsync(subscription.getEventName(), customerId, subscription.getAutoBookQuantity(),
+                subscription.getDeadline()).whenComplete((ticketIds, error) -> finish(subscription, ticketIds, error));
+        logger.info("Customer {} subscribed to event: {} with subscription {}", customerId, eventName,
+                subscription.getSubscriptionId());
+        return new ResponseFinder(true, String.format("Success: Subscribed to event '%s' for customer ID: %s." +
+                " Subscription ID: %d.", eventName, customerId, subscription.getSubscriptionId()), subscription);
+    }
+
+    /**
+     * This records the state a subscription finished with and notifies the customer.
+     *
+     * @param subscription the subscription.
+     * @param ticketIds the IDs of the booked tickets, or {@code null} if the wait ended with an error.
+     * @param error {@code null} if tickets became available, or the exception that ended the wait.
+     */
+    private void finish(AvailabilitySubscription subscription, List<Long> ticketIds, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        boolean finished;
+        if (cause == null) {
+            finished = subscription.markFinished(subscription.getAutoBookQuantity() > 0 ? SubscriptionState.FULFILLED
+                    : SubscriptionState.NOTIFIED, ticketIds, null);
+        } else if (cause instanceof TimeoutException) {
+            finished = subscription.markFinished(subscription.getDeadline().isCancelled()
+                    ? SubscriptionState.CANCELLED : SubscriptionState.EXPIRED, Collections.emptyList(), null);
+        } else if (cause instanceof CancellationException) {
+            finished = subscription.markFinished(SubscriptionState.STOPPED, Collections.emptyList(),
+                    cause.getMessage());
+        } else {
+            finished = subscription.markFinished(SubscriptionState.FAILED, Collections.emptyList(),
+                    cause.getMessage());
+            logger.warn("Subscription {} of {} failed: {}", subscription.getSubscriptionId(),
+                    subscription.getCustomerId(), cause.getMessage());
+        }
+        if (finished) {
+            poolEventPublisher.postNotification(subscription.getCustomerId(),
+                    () -> BookingNotification.subscriptionFinished(subscription));
+        }
+    }
+
+    /**
+     * This method lists the subscriptions of a customer.
+     *
+     * @param customerId the ID of the customer.
+     * @return the subscriptions of the customer ordered by subscription ID.
+     */
+    public List<AvailabilitySubscription> listSubscriptions(String customerId) {
+        return subscriptions.values().stream()
+                .filter(subscription -> customerId.equals(subscription.getCustomerId()))
+                .sorted(Comparator.comparingLong(AvailabilitySubscription::getSubscriptionId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * This method cancels a waiting subscription of a customer, taking it out of the queue of its event.
+     *
+     * @param customerId the ID of the customer.
+     * @param subscriptionId the ID of the subscription.
+     * @return a {@link ResponseFinder} indicating success, or failure if the customer has no such subscription or it
+     * has already finished.
+     */
+    public ResponseFinder cancelSubscription(String customerId, long subscriptionId) {
+        AvailabilitySubscription subscription = subscriptions.get(subscriptionId);
+        if (subscription == null || !customerId.equals(subscription.getCustomerId())) {
+            return new ResponseFinder(false, "Error: No subscription found with subscription ID: " + subscriptionId +
+                    " for customer ID: " + customerId);
+        }
+        if (subscription.isFinished()) {
+            return new ResponseFinder(false, "Error: Subscription " + subscriptionId + " has already finished as " +
+                    subscription.getState());
+        }
+        subscription.getDeadline().cancel();
+        return new ResponseFinder(true, "Success: Cancelled subscription " + subscriptionId + " to event '" +
+                subscription.getEventName() + "' for customer ID: " + customerId);
+    }
+
+    /**
+     * This scheduled method removes finished subscriptions that have been kept for longer than the retention time.
+     */
+    @Scheduled(fixedDelayString = "${ticketing.jobs.prune-interval-ms:60000}")
+    public void pruneFinishedSubscriptions() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        subscriptions.values().removeIf(subscription -> subscription.isFinished()
+                && subscription.getFinishedAt().getTime() < cutoff);
+    }
+}
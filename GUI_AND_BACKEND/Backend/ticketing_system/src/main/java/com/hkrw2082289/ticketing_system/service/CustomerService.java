@@ -1,14 +1,29 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.helper.CustomerAccount;
+import com.hkrw2082289.ticketing_system.helper.Deadline;
 import com.hkrw2082289.ticketing_system.helper.PurchaseRequest;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob.JobType;
 import com.hkrw2082289.ticketing_system.model.Customer;
+import com.hkrw2082289.ticketing_system.model.PurchaseQueueEntity;
 import com.hkrw2082289.ticketing_system.repository.CustomerRepository;
+import com.hkrw2082289.ticketing_system.utils.RateLimitExceededException;
 import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -18,16 +33,19 @@ import java.util.concurrent.locks.ReentrantLock;
 @Service
 public class CustomerService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CustomerService.class);
+
     @Autowired
     private CustomerRepository customerRepository;
 
-    /**
-     * Used to Map threads with customer IDs from which they were created.
-     */
-    private final Map<String, List<Thread>> customerThreads = new ConcurrentHashMap<>();
-
     private final TicketPoolService ticketPoolService;
 
+    private final JobService jobService;
+
+    private final RateLimitService rateLimitService;
+
+    private final PurchaseQueueService purchaseQueueService;
+
     private static final String CUSTOMER_ID_REGEX = "^[a-zA-Z]{4}\\d{3}$";
 
     @Autowired
@@ -36,13 +54,26 @@ public class CustomerService {
     // Lock instance for controlling access for methods to maintain data integrity.
     private static final ReentrantLock customerLock = new ReentrantLock();
 
+    /**
+     * This is the longest time in milliseconds an asynchronous ticket purchase request may wait for tickets.
+     */
+    @Value("${ticketing.async.timeout-ms:30000}")
+    private long asyncTimeoutMs;
+
     /**
      * Constructor for injecting the TicketPoolService dependency as it is needed to making purchases of tickets.
      *
      * @param ticketPoolService the service responsible for managing ticket pools.
+     * @param jobService the service keeping track of ticket purchase jobs.
+     * @param rateLimitService the service enforcing the rate limits on ticket purchases.
+     * @param purchaseQueueService the service keeping purchase requests in the durable purchase queue.
      */
-    public CustomerService(TicketPoolService ticketPoolService) {
+    public CustomerService(TicketPoolService ticketPoolService, JobService jobService,
+                           RateLimitService rateLimitService, PurchaseQueueService purchaseQueueService) {
         this.ticketPoolService = ticketPoolService;
+        this.jobService = jobService;
+        this.rateLimitService = rateLimitService;
+        this.purchaseQueueService = purchaseQueueService;
     }
 
     /**
@@ -52,6 +83,7 @@ public class CustomerService {
      * @param password   the customer's password.
      * @return a {@link ResponseFinder} object indicating success or failure of the sign-up process.
      */
+    @CacheEvict(cacheNames = "customers", key = "#customerId")
     public ResponseFinder signUpCustomer(String customerId, String password) {
         customerLock.lock();
         try {
@@ -89,8 +121,8 @@ public class CustomerService {
     public ResponseFinder signInCustomer(String customerId, String password) {
         customerLock.lock();
         try {
-            Customer customer = customerRepository.findByCustomerIdAndPassword(customerId, password);
-            if (customer != null) {
+            CustomerAccount customer = customerRepository.findAccountByCustomerId(customerId);
+            if (customer != null && customer.getPassword().equals(password)) {
                 return new ResponseFinder(true,
                         String.format("Success: Sign-in successful," +
                                 " Customer ID: '%s'.", customer.getCustomerId()), customer);
@@ -104,64 +136,188 @@ public class CustomerService {
     }
 
     /**
-     * This method starts a new thread for handling a customer's ticket purchase request.
+     * This method starts a ticket purchase job for handling a customer's ticket purchase request. The customer
+     * worker of the job runs on the customer lane of the {@link WorkerExecutorService}, and the job ID is returned as
+     * the data of the response so the progress of the job can be queried. The purchase request is written to the
+     * durable purchase queue first, so it is carried on after a restart if it is not filled by then.
      *
      * @param customerId the unique identifier for the customer.
      * @param payload    a map containing the purchase details, such as event name and ticket quantity.
+     * @param deadline   the deadline of the request, which can be narrowed by an optional "timeoutMs" in the payload,
+     *                   after which the job stops waiting on the pool and expires.
      * @return a {@link ResponseFinder} object indicating success or failure the Ticket purchase request.
+     * @throws RateLimitExceededException if the customer cannot book tickets right now because of a rate limit.
      */
-    public ResponseFinder startCustomerThread(String customerId, Map<String, Object> payload) {
-        Optional<Customer> optionalCustomer = customerRepository.findById(customerId);
-
-        if (optionalCustomer.isEmpty()) {
+    public ResponseFinder startCustomerThread(String customerId, Map<String, Object> payload, Deadline deadline) {
+        if (customerRepository.findAccountByCustomerId(customerId) == null) {
             return new ResponseFinder(false,"Error: Customer ID " + customerId +
                     " does not exist in the database.");
         }
 
         String eventName = (String) payload.get("eventName");
         int ticketToBook = (int) payload.get("ticketToBook");
+        rateLimitService.checkPurchase(customerId, eventName);
 
-        PurchaseRequest purchaseRequest = new PurchaseRequest(customerId,ticketToBook,eventName);
         double customerRetrievalRate = configurationService.viewConfiguration().getCustomerRetrievalRate();
-        Customer customer = new Customer();
-        customer.setCustomerId(customerId);
-        customer.setPurchaseRequest(purchaseRequest);
-        customer.setCustomerRetrievalRate(customerRetrievalRate);
-        customer.setTicketPoolService(ticketPoolService);
-
-        Thread customerThread = new Thread(customer);
-        customerThreads.computeIfAbsent(customerId, k -> new ArrayList<>()).add(customerThread);
-        customerThread.start();
 
         if(isAdminStopAllPurchases()) {
+            // A job started now would be paused straight away and resumed later, so the request is denied instead.
             return new ResponseFinder(false, String.format("Error: System has been stopped by Admin." +
                     " Sorry, your ticket purchase request for '%s' has been denied",eventName));
         }
-        else{
-            return new ResponseFinder(true,
-                    String.format("Success: Thread started for CustomerID: %s with event '%s' and " +
-                            "purchase request batch size %d. ", customerId, eventName,ticketToBook));
+        if (!jobService.isAcceptingJobs()) {
+            return new ResponseFinder(false, String.format("Error: System is shutting down." +
+                    " Sorry, your ticket purchase request for '%s' has been denied", eventName));
+        }
+        Deadline jobDeadline = deadline.withTimeout(requestedTimeoutMs(payload));
+        if (jobDeadline.isExpired()) {
+            return new ResponseFinder(false, String.format("Error: The deadline of your ticket purchase request" +
+                    " for '%s' has already passed.", eventName));
+        }
+        PurchaseQueueEntity entry = purchaseQueueService.enqueue(customerId, eventName, ticketToBook,
+                customerRetrievalRate, jobDeadline.getExpiresAt());
+        WorkerJob job = startPurchaseJob(entry, jobDeadline);
+        return new ResponseFinder(true,
+                String.format("Success: Thread started for CustomerID: %s with event '%s' and " +
+                        "purchase request batch size %d. Job ID: %d.", customerId, eventName, ticketToBook,
+                        job.getJobId()), job.getJobId());
+    }
+
+    /**
+     * This method books tickets for a customer without holding a request thread, for the asynchronous REST API
+     * endpoint. The booking is made through the non-blocking API of the {@link TicketPoolService}, so a request
+     * waiting for tickets of a sold out event waits in a queue instead of a thread, and the returned future is
+     * completed once tickets have been booked or the request has timed out. Unlike a ticket purchase job, a single
+     * booking books the tickets available when it goes ahead, which may be fewer than requested.
+     *
+     * @param customerId the unique identifier for the customer.
+     * @param payload    a map containing the event name and ticket quantity, and optionally "timeoutMs", the time
+     *                   in milliseconds the request may wait for tickets.
+     * @param deadline   the deadline of the request, which is cancelled if the caller goes away.
+     * @return a future completed with a {@link ResponseFinder} indicating success or failure of the booking, whose
+     * data is the list of booked ticket IDs.
+     * @throws RateLimitExceededException if the customer cannot book tickets right now because of a rate limit.
+     */
+    public CompletableFuture<ResponseFinder> bookTicketsAsync(String customerId, Map<String, Object> payload,
+                                                              Deadline deadline) {
+        if (customerRepository.findAccountByCustomerId(customerId) == null) {
+            return CompletableFuture.completedFuture(new ResponseFinder(false, "Error: Customer ID " + customerId +
+                    " does not exist in the database."));
         }
+        String eventName = (String) payload.get("eventName");
+        int ticketToBook = (int) payload.get("ticketToBook");
+        if (isAdminStopAllPurchases()) {
+            return CompletableFuture.completedFuture(new ResponseFinder(false, String.format("Error: System has" +
+                    " been stopped by Admin. Sorry, your ticket purchase request for '%s' has been denied",
+                    eventName)));
+        }
+        rateLimitService.checkPurchase(customerId, eventName);
+
+        Long requestedTimeoutMs = requestedTimeoutMs(payload);
+        long timeoutMs = Math.min(Math.min(asyncTimeoutMs, deadline.remainingMillis()),
+                requestedTimeoutMs != null ? requestedTimeoutMs : asyncTimeoutMs);
+        Deadline bookingDeadline = deadline.withTimeout(timeoutMs);
+        return ticketPoolService.bookTicketsAsync(eventName, customerId, ticketToBook, bookingDeadline)
+                .handle((bookedTicketIds, error) -> {
+                    if (error == null) {
+                        return new ResponseFinder(!bookedTicketIds.isEmpty(), String.format("%s: Booked %d tickets" +
+                                " for event '%s' by customer ID: %s. Ticket IDs: %s",
+                                bookedTicketIds.isEmpty() ? "Error" : "Success", bookedTicketIds.size(), eventName,
+                                customerId, bookedTicketIds), bookedTicketIds);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof TimeoutException && bookingDeadline.isCancelled()) {
+                        return new ResponseFinder(false, String.format("Error: Your ticket purchase request for" +
+                                " '%s' was abandoned.", eventName));
+                    }
+                    if (cause instanceof TimeoutException) {
+                        return new ResponseFinder(false, String.format("Error: No tickets for event '%s' became" +
+                                " available within %d ms.", eventName, timeoutMs));
+                    }
+                    if (cause instanceof CancellationException) {
+                        return new ResponseFinder(false, String.format("Error: System has been stopped by Admin." +
+                                " Sorry, your ticket purchase request for '%s' has been denied", eventName));
+                    }
+                    throw new CompletionException(cause);
+                });
     }
 
     /**
-     * This method is used stop all ticket purchasing threads associated with a given customer ID.
+     * This method resumes the purchase requests left in the durable purchase queue when the application starts,
+     * booking the tickets each of them has left at the retrieval rate it was started with. A purchase request whose
+     * deadline passed while the application was stopped is marked as expired instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeQueuedPurchases() {
+        List<PurchaseQueueEntity> pending = purchaseQueueService.findPendingPurchases();
+        for (PurchaseQueueEntity entry : pending) {
+            Deadline deadline = Deadline.at(entry.getDeadlineAt());
+            if (deadline.isExpired()) {
+                purchaseQueueService.markExpired(entry);
+                logger.info("Queued purchase request {} of customer {} for event '{}' expired with {} of {} tickets" +
+                        " left", entry.getQueueId(), entry.getCustomerId(), entry.getEventName(),
+                        entry.getRemaining(), entry.getRequested());
+                continue;
+            }
+            WorkerJob job = startPurchaseJob(entry, deadline);
+            logger.info("Resumed queued purchase request {} of customer {} for event '{}' with {} of {} tickets" +
+                    " left as job {}", entry.getQueueId(), entry.getCustomerId(), entry.getEventName(),
+                    entry.getRemaining(), entry.getRequested(), job.getJobId());
+        }
+    }
+
+    /**
+     * This starts the job booking the remaining tickets of a queued purchase request, and links the job to the
+     * queue row so its progress is written back.
+     *
+     * @param entry the queue row of the purchase request.
+     * @param deadline the deadline of the purchase request.
+     * @return the started job.
+     */
+    private WorkerJob startPurchaseJob(PurchaseQueueEntity entry, Deadline deadline) {
+        PurchaseRequest purchaseRequest = new PurchaseRequest(entry.getCustomerId(), entry.getRemaining(),
+                entry.getEventName());
+        Customer customer = new Customer();
+        customer.setCustomerId(entry.getCustomerId());
+        customer.setPurchaseRequest(purchaseRequest);
+        customer.setCustomerRetrievalRate(entry.getRetrievalRate());
+        customer.setTicketPoolService(ticketPoolService);
+
+        WorkerJob job = jobService.createJob(JobType.TICKET_PURCHASE, entry.getCustomerId(), entry.getEventName(),
+                entry.getRemaining());
+        job.setDeadline(deadline);
+        customer.setJob(job);
+        purchaseQueueService.track(entry, job);
+        jobService.submitJob(job, customer, entry.getRetrievalRate());
+        return job;
+    }
+
+    /**
+     * This reads the optional "timeoutMs" of a request body, the time in milliseconds the caller is willing to wait.
+     *
+     * @param payload the body of the request.
+     * @return the time in milliseconds, or {@code null} if the body does not set one.
+     */
+    private static Long requestedTimeoutMs(Map<String, Object> payload) {
+        Object timeoutMs = payload.get("timeoutMs");
+        return timeoutMs instanceof Number ? ((Number) timeoutMs).longValue() : null;
+    }
+
+    /**
+     * This method is used stop all ticket purchase jobs associated with a given customer ID.
      *
      * @param customerId the unique identifier for the customer.
      * @return a {@link ResponseFinder} object indicating success or failure of stopping the purchase request for
      * tickets.
      */
     public ResponseFinder stopAllThreadsOfCustomer(String customerId){
-        List<Thread> threads = customerThreads.get(customerId);
+        int cancelled = jobService.cancelJobsOfOwner(JobType.TICKET_PURCHASE, customerId);
 
-        if (threads == null || threads.isEmpty()) {
+        if (cancelled == 0) {
             return new ResponseFinder(false,
                     "Error: No active threads found for vendor ID: " + customerId);
         }
-        for (Thread thread : threads) {
-            thread.interrupt();
-        }
-        customerThreads.remove(customerId);
         return new ResponseFinder(true,
                 "Success: All threads for customer ID: " + customerId + " have been interrupted.");
     }
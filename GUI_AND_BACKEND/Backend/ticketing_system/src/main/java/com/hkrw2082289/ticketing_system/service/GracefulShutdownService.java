@@ -0,0 +1,160 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob.JobState;
+import com.hkrw2082289.ticketing_system.repository.TicketStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This service class shuts down the ticket release and ticket purchase jobs of the ticketing system in an orderly
+ * way when the application stops, so a restart under load neither loses nor duplicates bookings.
+ *
+ * It runs as a {@link SmartLifecycle} that is stopped before the web server starts its graceful shutdown, while the
+ * job registry and the database are still available. Shutting down goes through these stages:
+ * <ol>
+ *     <li>New ticket release and ticket purchase requests are denied.</li>
+ *     <li>The running jobs are given up to "ticketing.shutdown.drain-timeout-ms" to finish by themselves.</li>
+ *     <li>The jobs still running are halted the same way as a graceful stop by the admin: waiting threads are woken
+ *     up, every worker finishes the ticket it is writing and its job is paused, which takes up to
+ *     "ticketing.shutdown.halt-timeout-ms".</li>
+ *     <li>The progress of the purchase requests is written to the durable purchase queue, where the unfinished ones
+ *     stay pending to be resumed when the application starts again.</li>
+ *     <li>Workers that did not halt in time are cancelled, and the ticket store is flushed to durable storage.</li>
+ * </ol>
+ * Every booking is a single conditional update in the database, so a worker that is halted or cancelled either
+ * booked its ticket or did not, and the pool reloads the bookings from the database when the application starts.
+ */
+@Service
+public class GracefulShutdownService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(GracefulShutdownService.class);
+
+    /**
+     * This is the phase of the service, which is higher than the phase of the graceful shutdown of the web server so
+     * the jobs are drained first.
+     */
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 512;
+
+    private final JobService jobService;
+
+    private final TicketPoolService ticketPoolService;
+
+    private final TicketStore ticketStore;
+
+    private final PurchaseQueueService purchaseQueueService;
+
+    private final IdempotencyService idempotencyService;
+
+    private volatile boolean running;
+
+    /**
+     * This is the time in milliseconds the running jobs are given to finish by themselves.
+     */
+    @Value("${ticketing.shutdown.drain-timeout-ms:10000}")
+    private long drainTimeoutMs;
+
+    /**
+     * This is the time in milliseconds halted workers are given to finish the ticket they are writing.
+     */
+    @Value("${ticketing.shutdown.halt-timeout-ms:2000}")
+    private long haltTimeoutMs;
+
+    /**
+     * This constructor is used for injecting the job registry, the ticket pool and the ticket store.
+     *
+     * @param jobService the service holding the job registry.
+     * @param ticketPoolService the service managing the ticket pool.
+     * @param ticketStore the store the ticket pool is persisted in.
+     * @param purchaseQueueService the service keeping purchase requests in the durable purchase queue.
+     * @param idempotencyService the service storing the results of requests made with an idempotency key.
+     */
+    public GracefulShutdownService(JobService jobService, TicketPoolService ticketPoolService,
+                                   TicketStore ticketStore, PurchaseQueueService purchaseQueueService,
+                                   IdempotencyService idempotencyService) {
+        this.jobService = jobService;
+        this.ticketPoolService = ticketPoolService;
+        this.ticketStore = ticketStore;
+        this.purchaseQueueService = purchaseQueueService;
+        this.idempotencyService = idempotencyService;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * This drains the jobs, halts the ones that did not finish in time, writes the purchase queue and the
+     * idempotency keys and flushes the ticket store.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        jobService.stopAcceptingJobs();
+        int activeJobs = jobService.countActiveJobs();
+        if (activeJobs > 0) {
+            logger.info("Shutting down, waiting up to {} ms for {} active jobs to finish", drainTimeoutMs, activeJobs);
+        }
+        boolean drained = jobService.awaitActiveJobs(drainTimeoutMs);
+        if (!drained) {
+            haltActiveJobs();
+        }
+
+        for (WorkerJob job : jobService.listJobs(null, null, JobState.PAUSED)) {
+            logger.info("Job {} of {} for event '{}' halted at shutdown with {} of {} tickets done", job.getJobId(),
+                    job.getOwnerId(), job.getEventName(), job.getCompleted(), job.getRequested());
+        }
+        // The queue is written and detached before stuck jobs are cancelled, so their rows stay pending.
+        purchaseQueueService.flush();
+        purchaseQueueService.stopTracking();
+        idempotencyService.flush();
+        if (!drained) {
+            cancelStuckJobs();
+        }
+        ticketStore.flush();
+        logger.info("Ticket jobs shut down");
+    }
+
+    /**
+     * This halts the jobs that are still running, waiting up to the halt timeout for their workers to finish their
+     * current ticket.
+     */
+    private void haltActiveJobs() {
+        int activeJobs = jobService.countActiveJobs();
+        CustomerService.enableStopAllPurchases();
+        VendorService.enableStopAllRelease();
+        int drained = ticketPoolService.drainWaiters();
+        logger.info("Halting {} active jobs at shutdown, woke up {} waiting threads", activeJobs, drained);
+        jobService.awaitActiveJobs(haltTimeoutMs);
+    }
+
+    /**
+     * This cancels the jobs whose worker did not halt within the halt timeout.
+     */
+    private void cancelStuckJobs() {
+        List<WorkerJob> stuckJobs = new ArrayList<>(jobService.listJobs(null, null, JobState.RUNNING));
+        stuckJobs.addAll(jobService.listJobs(null, null, JobState.QUEUED));
+        for (WorkerJob job : stuckJobs) {
+            jobService.cancelJob(job.getJobId());
+            logger.warn("Job {} of {} did not halt in time and was cancelled at shutdown", job.getJobId(),
+                    job.getOwnerId());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
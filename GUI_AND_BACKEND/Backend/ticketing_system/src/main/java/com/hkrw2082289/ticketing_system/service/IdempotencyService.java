@@ -0,0 +1,285 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hkrw2082289.ticketing_system.model.IdempotencyKeyEntity;
+import com.hkrw2082289.ticketing_system.repository.IdempotencyKeyRepository;
+import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * This service class makes the start-thread, booking and release requests safe to retry. A client that sends the
+ * same "Idempotency-Key" header again, for example after its request timed out, gets the response of the first
+ * request back instead of starting another vendor or customer job.
+ *
+ * The results are kept in a bounded cache of futures keyed by the kind of request, the ID of the user and the
+ * header value. The first request with a key puts its future in the cache and does the work, and duplicates that
+ * arrive while it is still running wait on the same future, so a storm of retries does the work only once. The
+ * successful results are also written to the "idempotency_keys" table by a scheduled flush, in a single batch, so a
+ * retry that arrives after a restart or after its key has left the cache still gets the original result.
+ *
+ * Only successful results are kept. A request that was denied or failed did no work, so a retry of it is carried
+ * out again. This includes the duplicates waiting on a request that fails: the failure may belong to the first
+ * caller only, such as its deadline passing or its connection going away, so each waiting duplicate carries out
+ * the request again with its own action and deadline instead of being handed that failure. Results are kept for
+ * "ticketing.idempotency.ttl-hours" and are then forgotten.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    /**
+     * This is the longest "Idempotency-Key" header value that is accepted.
+     */
+    public static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration ttl;
+
+    /**
+     * This holds the result of every recent request with a key, by key, which is completed once the request is done.
+     */
+    private final Cache<String, CompletableFuture<StoredResult>> results;
+
+    /**
+     * This holds the successful results that have not been written to the database yet.
+     */
+    private final Queue<IdempotencyKeyEntity> unflushedResults = new ConcurrentLinkedQueue<>();
+
+    private final Counter replays;
+
+    /**
+     * This constructor creates the cache of results.
+     *
+     * @param idempotencyKeyRepository the repository of the stored results.
+     * @param transactionManager the transaction manager of the data source.
+     * @param cacheSize the maximum number of results kept in memory.
+     * @param ttlHours the number of hours a result is kept.
+     * @param meterRegistry the registry the number of replayed results is published to.
+     */
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${ticketing.idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${ticketing.idempotency.ttl-hours:24}") long ttlHours,
+                              MeterRegistry meterRegistry) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.results = Caffeine.newBuilder().maximumSize(cacheSize).expireAfterWrite(ttl).build();
+        this.replays = Counter.builder("ticketing.idempotency.replays")
+                .description("Requests answered with the stored result of an earlier request with the same key")
+                .register(meterRegistry);
+    }
+
+    /**
+     * This method carries out a request at most once for its "Idempotency-Key" header. Without a key the request is
+     * simply carried out.
+     *
+     * @param scope the kind of request, such as "customer-start-thread".
+     * @param ownerId the ID of the vendor or customer making the request.
+     * @param key the value of the "Idempotency-Key" header, or {@code null} if there is none.
+     * @param request the body of the request, used to detect a key that is reused for a different request.
+     * @param action the work of the request.
+     * @return a ResponseFinder with the result of the request, or the result of the first request with the key.
+     */
+    public ResponseFinder execute(String scope, String ownerId, String key, Map<String, Object> request,
+                                  Supplier<ResponseFinder> action) {
+        try {
+            return executeAsync(scope, ownerId, key, request,
+                    () -> CompletableFuture.completedFuture(action.get())).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * This method carries out an asynchronous request at most once for its "Idempotency-Key" header. Without a key
+     * the request is simply carried out.
+     *
+     * @param scope the kind of request, such as "customer-book".
+     * @param ownerId the ID of the vendor or customer making the request.
+     * @param key the value of the "Idempotency-Key" header, or {@code null} if there is none.
+     * @param request the body of the request, used to detect a key that is reused for a different request.
+     * @param action the work of the request.
+     * @return a future completed with the result of the request, or the result of the first request with the key if
+     * it succeeded.
+     */
+    public CompletableFuture<ResponseFinder> executeAsync(String scope, String ownerId, String key,
+                                                          Map<String, Object> request,
+                                                          Supplier<CompletableFuture<ResponseFinder>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return CompletableFuture.completedFuture(new ResponseFinder(false,
+                    "Error: Idempotency-Key must not be longer than " + MAX_KEY_LENGTH + " characters."));
+        }
+        String cacheKey = scope + ":" + ownerId + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        CompletableFuture<StoredResult> claim = new CompletableFuture<>();
+        CompletableFuture<StoredResult> existing = results.asMap().putIfAbsent(cacheKey, claim);
+        if (existing != null) {
+            return existing.handle((result, error) -> error == null && result.success ? result : null)
+                    .thenCompose(result -> result != null
+                            ? CompletableFuture.completedFuture(replay(result, fingerprint, key))
+                            : executeAsync(scope, ownerId, key, request, action));
+        }
+        StoredResult stored = findStoredResult(cacheKey);
+        if (stored != null) {
+            claim.complete(stored);
+            return CompletableFuture.completedFuture(replay(stored, fingerprint, key));
+        }
+
+        CompletableFuture<ResponseFinder> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            results.asMap().remove(cacheKey, claim);
+            claim.completeExceptionally(e);
+            throw e;
+        }
+        return response.whenComplete((result, error) -> {
+            if (error != null) {
+                results.asMap().remove(cacheKey, claim);
+                claim.completeExceptionally(error);
+                return;
+            }
+            StoredResult completed = new StoredResult(fingerprint, result.isSuccess(), result.getMessage());
+            if (result.isSuccess()) {
+                IdempotencyKeyEntity entity = new IdempotencyKeyEntity();
+                entity.setIdempotencyKey(cacheKey);
+                entity.setFingerprint(fingerprint);
+                entity.setResponse(result.getMessage());
+                entity.setCreatedAt(new Date());
+                unflushedResults.add(entity);
+            } else {
+                results.asMap().remove(cacheKey, claim);
+            }
+            claim.complete(completed);
+        });
+    }
+
+    /**
+     * This scheduled method writes the successful results completed since the previous flush to the database, in a
+     * single transaction.
+     */
+    @Scheduled(fixedDelayString = "${ticketing.idempotency.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<IdempotencyKeyEntity> batch = new ArrayList<>();
+        for (IdempotencyKeyEntity entity; (entity = unflushedResults.poll()) != null; ) {
+            batch.add(entity);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.saveAll(batch));
+            logger.debug("Wrote {} idempotency keys", batch.size());
+        } catch (RuntimeException e) {
+            logger.error("Could not write {} idempotency keys", batch.size(), e);
+        }
+    }
+
+    /**
+     * This scheduled method deletes the stored results that are older than the time results are kept.
+     */
+    @Scheduled(fixedDelayString = "${ticketing.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpiredKeys() {
+        Date cutoff = new Date(System.currentTimeMillis() - ttl.toMillis());
+        Integer deleted = transactionTemplate.execute(status ->
+                idempotencyKeyRepository.deleteCompletedBefore(cutoff));
+        if (deleted != null && deleted > 0) {
+            logger.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    /**
+     * This looks up the stored result of a key that is not in the cache.
+     *
+     * @param cacheKey the key of the request.
+     * @return the stored result, or {@code null} if there is none or it has expired.
+     */
+    private StoredResult findStoredResult(String cacheKey) {
+        return idempotencyKeyRepository.findById(cacheKey)
+                .filter(entity -> entity.getCreatedAt().getTime() > System.currentTimeMillis() - ttl.toMillis())
+                .map(entity -> new StoredResult(entity.getFingerprint(), true, entity.getResponse()))
+                .orElse(null);
+    }
+
+    /**
+     * This turns the result of the first request with a key into the response of a duplicate.
+     *
+     * @param result the result of the first request.
+     * @param fingerprint the fingerprint of the body of the duplicate.
+     * @param key the value of the "Idempotency-Key" header.
+     * @return the response of the first request, or an error if the key was used for a different request.
+     */
+    private ResponseFinder replay(StoredResult result, String fingerprint, String key) {
+        if (!result.fingerprint.equals(fingerprint)) {
+            return new ResponseFinder(false,
+                    "Error: Idempotency-Key '" + key + "' was already used for a different request.");
+        }
+        replays.increment();
+        return new ResponseFinder(result.success, result.message);
+    }
+
+    /**
+     * This computes a fingerprint of a request body that does not depend on the order of its fields.
+     *
+     * @param request the body of the request.
+     * @return the SHA-256 hash of the body as a hexadecimal string.
+     */
+    private static String fingerprint(Map<String, Object> request) {
+        String canonical = request == null ? "" : new TreeMap<>(request).toString();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * This is the result of a request with a key, together with the fingerprint of its body.
+     */
+    private static final class StoredResult {
+
+        private final String fingerprint;
+
+        private final boolean success;
+
+        private final String message;
+
+        private StoredResult(String fingerprint, boolean success, String message) {
+            this.fingerprint = fingerprint;
+            this.success = success;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.helper.BookingNotification;
+import com.hkrw2082289.ticketing_system.helper.PacedWorker;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob.JobState;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob.JobType;
+import com.hkrw2082289.ticketing_system.model.Customer;
+import com.hkrw2082289.ticketing_system.model.Vendor;
+import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * This service class is the registry of the ticket release and ticket purchase jobs of the ticketing system.
+ *
+ * Every start-thread request becomes a {@link WorkerJob} with its own job ID, whose worker is paced by the
+ * {@link PacingScheduler} on the matching lane of the {@link WorkerExecutorService}. The registry keeps the state
+ * and progress of each job so it can be queried and cancelled by job ID, and removes finished jobs once they have
+ * been kept for the configured retention time.
+ *
+ * A job whose worker is halted by a global stop by the admin is paused rather than finished, keeping its worker so
+ * it carries on from where it stopped when activity is resumed.
+ */
+@Service
+public class JobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobService.class);
+
+    /**
+     * This holds the jobs that are running or finished within the retention time, by job ID.
+     */
+    private final Map<Long, WorkerJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * This is used to assign job IDs to new jobs.
+     */
+    private final AtomicLong lastJobId = new AtomicLong();
+
+    private final WorkerExecutorService workerExecutorService;
+
+    private final PacingScheduler pacingScheduler;
+
+    private final PoolEventPublisher poolEventPublisher;
+
+    /**
+     * This is cleared when the application starts shutting down, after which no new jobs are accepted.
+     */
+    private volatile boolean acceptingJobs = true;
+
+    /**
+     * This is the time in milliseconds a finished job is kept in the registry before it is removed.
+     */
+    @Value("${ticketing.jobs.retention-ms:600000}")
+    private long retentionMs;
+
+    /**
+     * This constructor is used for injecting the executor service the jobs are run on and the scheduler pacing them.
+     *
+     * @param workerExecutorService the service running vendor and customer workers.
+     * @param pacingScheduler the scheduler pacing the steps of the workers.
+     * @param poolEventPublisher the publisher notifying customers when their ticket purchase jobs finish.
+     */
+    public JobService(WorkerExecutorService workerExecutorService, PacingScheduler pacingScheduler,
+                      PoolEventPublisher poolEventPublisher) {
+        this.workerExecutorService = workerExecutorService;
+        this.pacingScheduler = pacingScheduler;
+        this.poolEventPublisher = poolEventPublisher;
+    }
+
+    /**
+     * This method registers a new queued job. The worker of the job should be given the job to report its
+     * progress, and then be started with {@link #submitJob(WorkerJob, PacedWorker, double)}.
+     *
+     * @param type the kind of request the job is created for.
+     * @param ownerId the vendor ID or customer ID of the user who made the request.
+     * @param eventName the name of the event the tickets are released or booked for.
+     * @param requested the number of tickets requested.
+     * @return the new job.
+     */
+    public WorkerJob createJob(JobType type, String ownerId, String eventName, int requested) {
+        WorkerJob job = new WorkerJob(lastJobId.incrementAndGet(), type, ownerId, eventName, requested);
+        jobs.put(job.getJobId(), job);
+        return job;
+    }
+
+    /**
+     * This method starts the worker of a job, pacing its steps at the given rate on the vendor lane for ticket
+     * releases or on the customer lane for ticket purchases, and keeps the state of the job up to date as the worker
+     * starts and finishes.
+     *
+     * @param job the job the worker belongs to.
+     * @param worker the vendor or customer worker.
+     * @param rate the ticket release rate or customer retrieval rate the steps are paced at.
+     */
+    public void submitJob(WorkerJob job, PacedWorker worker, double rate) {
+        job.setWorker(worker);
+        job.setRate(rate);
+        PacedWorker trackedWorker = () -> {
+            job.markStarted();
+            return !job.isFinished() && !job.getDeadline().isExpired() && worker.step();
+        };
+        Future<?> future = pacingScheduler.start(trackedWorker, rate,
+                job.getType() == JobType.TICKET_RELEASE
+                        ? workerExecutorService::submitVendorTask
+                        : workerExecutorService::submitCustomerTask,
+                error -> finishJob(job, error));
+        job.setFuture(future);
+        if (job.getState() == JobState.CANCELLED) {
+            // The job was cancelled before its handle was set, so cancel the worker now.
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * This records the state a job finished with. A job that booked or added all requested tickets is completed, a
+     * job whose worker was cancelled stays cancelled, a job whose worker failed is failed, a job whose deadline passed
+     * is expired, a job whose worker was halted by a global stop by the admin is paused, and a job whose worker
+     * stopped early for any other reason is stopped.
+     *
+     * @param job the job whose worker has finished.
+     * @param error {@code null} if the worker finished by itself, or the exception that failed or cancelled it.
+     */
+    private void finishJob(WorkerJob job, Throwable error) {
+        if (error instanceof CancellationException) {
+            markFinished(job, JobState.CANCELLED);
+        } else if (error != null) {
+            markFinished(job, JobState.FAILED);
+            logger.error("Job {} of {} failed", job.getJobId(), job.getOwnerId(), error);
+        } else if (job.getCompleted() >= job.getRequested()) {
+            markFinished(job, JobState.COMPLETED);
+        } else if (job.getDeadline().isExpired()) {
+            markFinished(job, JobState.EXPIRED);
+            logger.info("Job {} of {} expired with {} of {} tickets done", job.getJobId(), job.getOwnerId(),
+                    job.getCompleted(), job.getRequested());
+        } else if (isStoppedByAdmin(job.getType()) && job.markPaused()) {
+            if (!isStoppedByAdmin(job.getType())) {
+                // Activity was resumed while the job was being paused, so it would never be resumed otherwise.
+                resume(job);
+            }
+        } else {
+            markFinished(job, JobState.STOPPED);
+        }
+    }
+
+    /**
+     * This records the final state of a job, and notifies the customer when a ticket purchase job finishes.
+     *
+     * @param job the job.
+     * @param finalState the state the job finished in.
+     * @return {@code true} if the job finished now, {@code false} if it had already finished.
+     */
+    private boolean markFinished(WorkerJob job, JobState finalState) {
+        if (!job.markFinished(finalState)) {
+            return false;
+        }
+        if (job.getType() == JobType.TICKET_PURCHASE) {
+            poolEventPublisher.postNotification(job.getOwnerId(), () -> BookingNotification.jobFinished(job));
+        }
+        return true;
+    }
+
+    /**
+     * This checks if the admin has stopped all jobs of a kind.
+     *
+     * @param type the kind of job.
+     * @return {@code true} if the global stop for the kind of job is enabled, otherwise {@code false}.
+     */
+    private boolean isStoppedByAdmin(JobType type) {
+        return type == JobType.TICKET_RELEASE ? Vendor.isAdminStopAllRelease() : Customer.isAdminStopAllPurchases();
+    }
+
+    /**
+     * This method resubmits the workers of all paused jobs, after the admin has resumed all activity. Each worker
+     * carries on from the ticket it stopped at.
+     *
+     * @return the number of jobs resumed.
+     */
+    public int resumePausedJobs() {
+        int resumed = 0;
+        for (WorkerJob job : listJobs(null, null, JobState.PAUSED)) {
+            if (!isStoppedByAdmin(job.getType()) && resume(job)) {
+                resumed++;
+            }
+        }
+        return resumed;
+    }
+
+    /**
+     * This queues a paused job again and resubmits its worker.
+     *
+     * @param job the paused job.
+     * @return {@code true} if the job was resumed, {@code false} if it was no longer paused.
+     */
+    private boolean resume(WorkerJob job) {
+        if (!job.markResumed()) {
+            return false;
+        }
+        logger.info("Resuming job {} of {} after {} of {} tickets", job.getJobId(), job.getOwnerId(),
+                job.getCompleted(), job.getRequested());
+        submitJob(job, job.getWorker(), job.getRate());
+        return true;
+    }
+
+    /**
+     * This method counts the jobs whose worker is still queued or running, which is used to wait for workers to
+     * leave the ticket pool after a global stop.
+     *
+     * @return the number of queued and running jobs.
+     */
+    public int countActiveJobs() {
+        return (int) jobs.values().stream()
+                .filter(job -> job.getState() == JobState.QUEUED || job.getState() == JobState.RUNNING)
+                .count();
+    }
+
+    /**
+     * This method waits until no job is queued or running any more, or the timeout has passed.
+     *
+     * @param timeoutMs the maximum time to wait in milliseconds.
+     * @return {@code true} if no job is queued or running, {@code false} if the timeout passed first or the thread
+     * was interrupted.
+     */
+    public boolean awaitActiveJobs(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (countActiveJobs() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method stops the registry from accepting new jobs, which is done when the application shuts down.
+     */
+    public void stopAcceptingJobs() {
+        acceptingJobs = false;
+    }
+
+    /**
+     * This method checks if new jobs are accepted.
+     *
+     * @return {@code false} once the application has started shutting down, otherwise {@code true}.
+     */
+    public boolean isAcceptingJobs() {
+        return acceptingJobs;
+    }
+
+    /**
+     * This method retrieves a job by its job ID.
+     *
+     * @param jobId the ID of the job.
+     * @return a {@link ResponseFinder} holding the job, or an error if no such job exists.
+     */
+    public ResponseFinder findJob(long jobId) {
+        WorkerJob job = jobs.get(jobId);
+        if (job == null) {
+            return new ResponseFinder(false, "Error: No job found with job ID: " + jobId);
+        }
+        return new ResponseFinder(true, "Success: Job found with job ID: " + jobId, job);
+    }
+
+    /**
+     * This method lists the jobs in the registry, optionally filtered by type, owner and state.
+     *
+     * @param type the kind of job to list, or {@code null} for all kinds.
+     * @param ownerId the vendor ID or customer ID to list jobs for, or {@code null} for all users.
+     * @param state the state of the jobs to list, or {@code null} for all states.
+     * @return the matching jobs ordered by job ID.
+     */
+    public List<WorkerJob> listJobs(JobType type, String ownerId, JobState state) {
+        return jobs.values().stream()
+                .filter(job -> type == null || job.getType() == type)
+                .filter(job -> ownerId == null || ownerId.equals(job.getOwnerId()))
+                .filter(job -> state == null || job.getState() == state)
+                .sorted(Comparator.comparingLong(WorkerJob::getJobId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * This method cancels a job, interrupting its worker if it is running.
+     *
+     * @param jobId the ID of the job.
+     * @return a {@link ResponseFinder} indicating success or failure of cancelling the job.
+     */
+    public ResponseFinder cancelJob(long jobId) {
+        WorkerJob job = jobs.get(jobId);
+        if (job == null) {
+            return new ResponseFinder(false, "Error: No job found with job ID: " + jobId);
+        }
+        if (!cancel(job)) {
+            return new ResponseFinder(false, String.format("Error: Job %d has already finished with state %s.",
+                    jobId, job.getState()));
+        }
+        return new ResponseFinder(true, "Success: Job " + jobId + " has been cancelled.", job);
+    }
+
+    /**
+     * This method cancels all unfinished jobs of a kind that belong to a vendor or customer.
+     *
+     * @param type the kind of jobs to cancel.
+     * @param ownerId the vendor ID or customer ID whose jobs are cancelled.
+     * @return the number of jobs cancelled.
+     */
+    public int cancelJobsOfOwner(JobType type, String ownerId) {
+        int cancelled = 0;
+        for (WorkerJob job : jobs.values()) {
+            if (job.getType() == type && ownerId.equals(job.getOwnerId()) && cancel(job)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * This method cancels all unfinished jobs, including paused ones, interrupting the workers that are running.
+     *
+     * @return the number of jobs cancelled.
+     */
+    public int cancelAllJobs() {
+        int cancelled = 0;
+        for (WorkerJob job : jobs.values()) {
+            if (cancel(job)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * This marks a job as cancelled and interrupts its worker.
+     *
+     * @param job the job to cancel.
+     * @return {@code true} if the job was cancelled, {@code false} if it had already finished.
+     */
+    private boolean cancel(WorkerJob job) {
+        if (!markFinished(job, JobState.CANCELLED)) {
+            return false;
+        }
+        Future<?> future = job.getFuture();
+        if (future != null) {
+            future.cancel(true);
+        }
+        return true;
+    }
+
+    /**
+     * This scheduled method removes finished jobs that have been kept for longer than the retention time.
+     */
+    @Scheduled(fixedDelayString = "${ticketing.jobs.prune-interval-ms:60000}")
+    public void pruneFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        int sizeBefore = jobs.size();
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().getTime() < cutoff);
+        int removed = sizeBefore - jobs.size();
+        if (removed > 0) {
+            logger.debug("Removed {} finished jobs from the job registry", removed);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.helper.PacedWorker;
+import com.hkrw2082289.ticketing_system.utils.RateLimitExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * This service class paces the steps of vendor and customer workers at their ticket release rate and customer
+ * retrieval rate, replacing the {@code Thread.sleep} calls the workers used to make between tickets.
+ *
+ * Every paced worker has its own token bucket, refilled lazily from the absolute time its run started: the n-th
+ * step becomes due exactly n intervals after the start, so the pacing does not drift no matter how long each step
+ * takes. When a step is due the worker is handed to its lane of the {@link WorkerExecutorService}, which performs
+ * every step that is due, and a small scheduler thread pool waits for the next deadline. Between steps a worker
+ * holds no thread at all, so thousands of paced workers only cost the threads of the scheduler.
+ *
+ * Deadlines are kept in nanoseconds, so fractional millisecond rates are honoured instead of being truncated.
+ * Steps that fall due faster than the scheduler can wake up are performed together in a single wake-up, within the
+ * catch-up window set by "ticketing.pacing.catch-up-window-us". Steps missed for longer than that window, for
+ * example while a worker was waiting for tickets, are dropped rather than performed in a burst. A step rejected by
+ * a rate limit is not counted, and is retried once the limit has a token again.
+ */
+@Service
+public class PacingScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PacingScheduler.class);
+
+    /**
+     * This is the scheduler waiting for the next deadline of every paced worker.
+     */
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * This is how the configured rates are interpreted, either as the interval in milliseconds between two steps
+     * ("interval-ms") or as the number of steps per second ("per-second").
+     */
+    private final String rateUnit;
+
+    /**
+     * This is the time in nanoseconds within which missed steps are still performed to catch up.
+     */
+    private final long catchUpWindowNanos;
+
+    /**
+     * This is the number of paced workers that have not finished yet.
+     */
+    private final AtomicInteger activeRuns = new AtomicInteger();
+
+    /**
+     * This constructor creates the scheduler thread pool.
+     *
+     * @param threads the number of scheduler threads.
+     * @param rateUnit the unit of the configured rates, either "interval-ms" or "per-second".
+     * @param catchUpWindowMicros the time in microseconds within which missed steps are still performed.
+     * @param meterRegistry the registry the pacing metrics are published to.
+     */
+    public PacingScheduler(@Value("${ticketing.pacing.threads:2}") int threads,
+                           @Value("${ticketing.pacing.rate-unit:interval-ms}") String rateUnit,
+                           @Value("${ticketing.pacing.catch-up-window-us:1000}") long catchUpWindowMicros,
+                           MeterRegistry meterRegistry) {
+        if (!"interval-ms".equals(rateUnit) && !"per-second".equals(rateUnit)) {
+            throw new IllegalArgumentException("ticketing.pacing.rate-unit must be 'interval-ms' or 'per-second', " +
+                    "but was '" + rateUnit + "'");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(threads, task -> {
+            Thread thread = new Thread(task, "pacing-scheduler-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.rateUnit = rateUnit;
+        this.catchUpWindowNanos = TimeUnit.MICROSECONDS.toNanos(catchUpWindowMicros);
+        Gauge.builder("ticketing.pacing.workers", activeRuns, AtomicInteger::get)
+                .description("Paced vendor and customer workers that have not finished yet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * This method starts pacing a worker. The first step is performed straight away and every following step as
+     * soon as it is due at the given rate.
+     *
+     * @param worker the worker to pace.
+     * @param rate the ticket release rate or customer retrieval rate, in the configured rate unit. A rate of zero
+     *             or less performs the steps back to back without pacing.
+     * @param lane the lane of the {@link WorkerExecutorService} the steps are performed on.
+     * @param onFinish the callback run when the worker has finished, given {@code null} when the worker finished
+     *                 by itself, or the exception that failed or cancelled it.
+     * @return a {@link Future} that completes when the worker has finished, and that cancels the worker,
+     * interrupting a running step, when it is cancelled.
+     */
+    public Future<Void> start(PacedWorker worker, double rate, Function<Runnable, Future<?>> lane,
+                              Consumer<Throwable> onFinish) {
+        PacedRun run = new PacedRun(worker, toIntervalNanos(rate), lane);
+        activeRuns.incrementAndGet();
+        run.completion.whenComplete((result, error) -> {
+            activeRuns.decrementAndGet();
+            onFinish.accept(error);
+        });
+        run.begin();
+        return run;
+    }
+
+    /**
+     * This converts a configured rate into the interval in nanoseconds between two steps.
+     *
+     * @param rate the rate in the configured rate unit.
+     * @return the interval in nanoseconds, or zero if the steps are not paced.
+     */
+    long toIntervalNanos(double rate) {
+        if (rate <= 0) {
+            return 0;
+        }
+        double intervalNanos = "per-second".equals(rateUnit) ? 1_000_000_000d / rate : rate * 1_000_000d;
+        return Math.max(1, Math.round(intervalNanos));
+    }
+
+    /**
+     * This stops the scheduler when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        logger.info("Pacing scheduler stopped with {} paced workers unfinished", activeRuns.get());
+    }
+
+    /**
+     * This is a single paced worker together with its token bucket.
+     *
+     * The bucket fields are only used by the step that is running, and the steps of a run never overlap because
+     * each one schedules the next, so they need no synchronization.
+     */
+    private final class PacedRun implements Future<Void> {
+
+        private final PacedWorker worker;
+
+        private final long intervalNanos;
+
+        private final Function<Runnable, Future<?>> lane;
+
+        /**
+         * This is the number of due steps that may be performed together in one wake-up.
+         */
+        private final long maxBurst;
+
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        /**
+         * This is the scheduled wake-up or the running step, whichever comes next for this run.
+         */
+        private volatile Future<?> pending;
+
+        private volatile boolean cancelled;
+
+        /**
+         * This is the time the run started, from which all deadlines are measured.
+         */
+        private long originNanos;
+
+        /**
+         * This is the number of steps performed or dropped so far.
+         */
+        private long stepsTaken;
+
+        private PacedRun(PacedWorker worker, long intervalNanos, Function<Runnable, Future<?>> lane) {
+            this.worker = worker;
+            this.intervalNanos = intervalNanos;
+            this.lane = lane;
+            this.maxBurst = intervalNanos > 0 ? Math.max(1, catchUpWindowNanos / intervalNanos) : Long.MAX_VALUE;
+        }
+
+        private void begin() {
+            originNanos = System.nanoTime();
+            submitStep();
+        }
+
+        /**
+         * This hands the run to its lane to perform the steps that are due.
+         */
+        private void submitStep() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                pending = lane.apply(this::performDueSteps);
+            } catch (RejectedExecutionException e) {
+                completion.completeExceptionally(e);
+                return;
+            }
+            if (cancelled) {
+                pending.cancel(true);
+            }
+        }
+
+        /**
+         * This performs every step that is due, then schedules a wake-up for the deadline of the next step.
+         */
+        private void performDueSteps() {
+            try {
+                long dueSteps = Long.MAX_VALUE;
+                if (intervalNanos > 0) {
+                    long earnedSteps = (System.nanoTime() - originNanos) / intervalNanos + 1;
+                    if (earnedSteps - stepsTaken > maxBurst) {
+                        // The worker fell behind, so drop the missed steps instead of performing them in a burst.
+                        stepsTaken = earnedSteps - maxBurst;
+                    }
+                    dueSteps = earnedSteps - stepsTaken;
+                }
+                boolean more = true;
+                long retryAfterNanos = -1;
+                while (more && dueSteps-- > 0 && !cancelled) {
+                    try {
+                        more = worker.step();
+                    } catch (RateLimitExceededException e) {
+                        retryAfterNanos = e.getRetryAfterNanos();
+                        break;
+                    }
+                    stepsTaken++;
+                }
+                if (!more || cancelled || Thread.currentThread().isInterrupted()) {
+                    completion.complete(null);
+                    return;
+                }
+                long delayNanos = retryAfterNanos >= 0 ? retryAfterNanos
+                        : originNanos + stepsTaken * intervalNanos - System.nanoTime();
+                if (delayNanos <= 0) {
+                    submitStep();
+                } else {
+                    pending = scheduler.schedule(this::submitStep, delayNanos, TimeUnit.NANOSECONDS);
+                    if (cancelled) {
+                        pending.cancel(false);
+                    }
+                }
+            } catch (RuntimeException e) {
+                completion.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (completion.isDone()) {
+                return false;
+            }
+            cancelled = true;
+            Future<?> current = pending;
+            if (current != null) {
+                current.cancel(mayInterruptIfRunning);
+            }
+            return completion.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return completion.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return completion.isDone();
+        }
+
+        @Override
+        public Void get() throws InterruptedException, ExecutionException {
+            return completion.get();
+        }
+
+        @Override
+        public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+                TimeoutException {
+            return completion.get(timeout, unit);
+        }
+    }
+}
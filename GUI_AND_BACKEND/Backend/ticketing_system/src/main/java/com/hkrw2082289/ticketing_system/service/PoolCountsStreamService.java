@@ -0,0 +1,347 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This service class streams the counts of available and booked tickets of every event as Server-Sent Events, for
+ * dashboards and scripts that only need the counts and have no STOMP client.
+ *
+ * Every "ticketing.sse.interval-ms" a single thread takes the counts the pool keeps up to date with each change, and
+ * if they changed since the last interval, serializes them once as a "counts" event with the sequence number of the
+ * pool as its ID. The counts are conflated: a listener is only ever sent the latest counts, however many changes
+ * were made in between, and a listener that is still being written to is skipped until its write has finished. A
+ * listener with nothing new to send is sent a comment every "ticketing.sse.heartbeat-ms", so closed connections are
+ * noticed.
+ *
+ * The listeners hold no thread while they wait, as their requests are asynchronous. The events are written by a
+ * pool of writer threads, so the thread taking the counts never waits on a slow connection. The writes block, so
+ * the pool keeps "ticketing.sse.writer-threads" threads ready and starts more when they are all busy, and a
+ * listener holds at most one writer thread at a time. A write to a dead connection can block its thread until the
+ * container's write timeout, but never holds up the writes to the other listeners.
+ *
+ * Every interval the stream thread also looks at the writes in progress, and a listener whose write has taken
+ * longer than "ticketing.sse.send-time-limit-ms" is dropped at once and its stream is completed with a
+ * {@link TimeoutException}, even if no new counts are sent to it. At most "ticketing.sse.max-listeners" listeners
+ * are accepted.
+ *
+ * It runs as a {@link SmartLifecycle} that is stopped before the web server starts its graceful shutdown, so the
+ * open streams are closed instead of holding up the shutdown.
+ */
+@Service
+public class PoolCountsStreamService implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolCountsStreamService.class);
+
+    /**
+     * This is the phase of the service, which is higher than the phase of the graceful shutdown of the web server so
+     * the streams are closed first.
+     */
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 512;
+
+    private final TicketPoolService ticketPoolService;
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxListeners;
+
+    private final long timeoutMs;
+
+    private final long heartbeatNanos;
+
+    private final long sendTimeLimitNanos;
+
+    /**
+     * This holds the open streams.
+     */
+    private final Set<Listener> listeners = ConcurrentHashMap.newKeySet();
+
+    /**
+     * This is the thread taking the counts of the pool every interval.
+     */
+    private final ScheduledExecutorService stream;
+
+    /**
+     * These are the threads writing the events to the listeners, which grow past the threads kept ready while
+     * writes are blocked.
+     */
+    private final ExecutorService writers;
+
+    /**
+     * This is the sequence number of the pool the latest counts were taken at. This is only read and written by the
+     * stream thread.
+     */
+    private long latestSeq = -1;
+
+    /**
+     * This is the latest counts, serialized once for all listeners. This is only read and written by the stream
+     * thread.
+     */
+    private String latestCounts;
+
+    private final Counter droppedListeners;
+
+    private volatile boolean running;
+
+    /**
+     * This constructor starts the stream thread and the writer threads.
+     *
+     * @param ticketPoolService the service managing the ticket pool, which keeps the counts of the events.
+     * @param objectMapper the mapper the counts are serialized with.
+     * @param intervalMs the time in milliseconds between two looks at the counts.
+     * @param heartbeatMs the time in milliseconds after which a listener with nothing new is sent a comment.
+     * @param sendTimeLimitMs the time in milliseconds a single write may take before the listener is dropped.
+     * @param timeoutMs the time in milliseconds after which a stream is closed, and the client reconnects.
+     * @param maxListeners the largest number of open streams.
+     * @param writerThreads the number of threads kept ready to write the events.
+     * @param meterRegistry the registry the number of listeners and dropped listeners are published to.
+     */
+    public PoolCountsStreamService(TicketPoolService ticketPoolService,
+                                   ObjectMapper objectMapper,
+                                   @Value("${ticketing.sse.interval-ms:1000}") long intervalMs,
+                                   @Value("${ticketing.sse.heartbeat-ms:15000}") long heartbeatMs,
+                                   @Value("${ticketing.sse.send-time-limit-ms:10000}") long sendTimeLimitMs,
+                                   @Value("${ticketing.sse.timeout-ms:3600000}") long timeoutMs,
+                                   @Value("${ticketing.sse.max-listeners:10000}") int maxListeners,
+                                   @Value("${ticketing.sse.writer-threads:2}") int writerThreads,
+                                   MeterRegistry meterRegistry) {
+        this.ticketPoolService = ticketPoolService;
+        this.objectMapper = objectMapper;
+        this.maxListeners = maxListeners;
+        this.timeoutMs = timeoutMs;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMs);
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+        this.droppedListeners = Counter.builder("ticketing.sse.dropped")
+                .description("Counts streams closed because a write took too long")
+                .register(meterRegistry);
+        Gauge.builder("ticketing.sse.listeners", listeners, Set::size)
+                .description("Open counts streams")
+                .register(meterRegistry);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writers = new ThreadPoolExecutor(Math.max(1, writerThreads), Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), task -> {
+            Thread thread = new Thread(task, "pool-counts-writer-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.stream = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "pool-counts-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, intervalMs);
+        this.stream.scheduleWithFixedDelay(this::publishCounts, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method opens a counts stream. The listener is sent the current counts at the next interval, and the
+     * latest counts whenever they change after that.
+     *
+     * @return the emitter of the stream, or {@code null} if the largest number of streams are already open.
+     */
+    public SseEmitter subscribe() {
+        if (!running || listeners.size() >= maxListeners) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Listener listener = new Listener(emitter);
+        emitter.onCompletion(() -> listeners.remove(listener));
+        emitter.onTimeout(() -> listeners.remove(listener));
+        emitter.onError(e -> listeners.remove(listener));
+        listeners.add(listener);
+        return emitter;
+    }
+
+    /**
+     * This takes the counts of the pool, serializes them if they changed, and writes them to every listener that
+     * does not have them yet. The other listeners are sent a heartbeat once it is due, and the listeners whose write
+     * has taken longer than the send time limit are dropped.
+     */
+    private void publishCounts() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, Object> snapshot = ticketPoolService.eventCountsSnapshot();
+            long seq = (Long) snapshot.get("seq");
+            if (latestCounts == null || seq != latestSeq) {
+                latestCounts = objectMapper.writeValueAsString(snapshot);
+                latestSeq = seq;
+            }
+            long now = System.nanoTime();
+            for (Listener listener : listeners) {
+                if (listener.writing.get()) {
+                    if (now - listener.writeStartedAt > sendTimeLimitNanos) {
+                        drop(listener);
+                    }
+                } else if (listener.sentSeq != latestSeq) {
+                    write(listener, latestSeq, latestCounts, now);
+                } else if (now - listener.lastWriteAt >= heartbeatNanos) {
+                    write(listener, latestSeq, null, now);
+                }
+            }
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.error("Could not stream the counts of the pool", e);
+        }
+    }
+
+    /**
+     * This hands a write to a listener to the writer threads, unless the listener is still being written to.
+     *
+     * @param listener the listener to write to.
+     * @param seq the sequence number of the counts.
+     * @param counts the serialized counts, or {@code null} for a heartbeat.
+     * @param now the current time in nanoseconds.
+     */
+    private void write(Listener listener, long seq, String counts, long now) {
+        if (!listener.writing.compareAndSet(false, true)) {
+            return;
+        }
+        listener.writeStartedAt = now;
+        try {
+            writers.execute(() -> {
+                try {
+                    listener.emitter.send(counts == null ? SseEmitter.event().comment("heartbeat")
+                            : SseEmitter.event().id(Long.toString(seq)).name("counts").data(counts));
+                    listener.sentSeq = seq;
+                    listener.lastWriteAt = System.nanoTime();
+                } catch (IOException | IllegalStateException e) {
+                    // The client has gone, and the container closes the stream itself.
+                    listeners.remove(listener);
+                    return;
+                } finally {
+                    listener.writing.set(false);
+                }
+                if (!listeners.contains(listener)) {
+                    close(listener.emitter);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            listener.writing.set(false);
+        }
+    }
+
+    /**
+     * This drops a listener whose write has taken longer than the send time limit, and completes its stream with an
+     * error on a writer thread, as completing it waits for the write in progress.
+     *
+     * @param listener the listener to drop.
+     */
+    private void drop(Listener listener) {
+        if (!listeners.remove(listener)) {
+            return;
+        }
+        droppedListeners.increment();
+        logger.warn("Closing a counts stream as a write has taken longer than the time limit");
+        try {
+            writers.execute(() -> {
+                try {
+                    listener.emitter.completeWithError(new TimeoutException("The write to the stream timed out"));
+                } catch (IllegalStateException e) {
+                    // The stream was closed after an error on the connection.
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The service is stopping and closes the streams itself.
+        }
+    }
+
+    /**
+     * This closes a stream, unless the container has closed it already.
+     *
+     * @param emitter the emitter of the stream.
+     */
+    private static void close(SseEmitter emitter) {
+        try {
+            emitter.complete();
+        } catch (IllegalStateException e) {
+            // The stream was closed after an error on the connection.
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * This stops taking the counts and closes the open streams.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        stream.shutdownNow();
+        writers.shutdown();
+        for (Listener listener : listeners) {
+            close(listener.emitter);
+        }
+        logger.info("Counts streams stopped, {} streams were closed", listeners.size());
+        listeners.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * This is an open counts stream.
+     */
+    private static final class Listener {
+
+        private final SseEmitter emitter;
+
+        /**
+         * This is set while a write to the listener is handed to or running on a writer thread.
+         */
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        /**
+         * This is the time in nanoseconds the last write was handed to a writer thread.
+         */
+        private volatile long writeStartedAt;
+
+        /**
+         * This is the time in nanoseconds the last write finished.
+         */
+        private volatile long lastWriteAt = System.nanoTime();
+
+        /**
+         * This is the sequence number of the counts last sent to the listener.
+         */
+        private volatile long sentSeq = -1;
+
+        private Listener(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
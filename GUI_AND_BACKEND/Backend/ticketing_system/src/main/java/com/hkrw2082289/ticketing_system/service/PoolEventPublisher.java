@@ -0,0 +1,590 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkrw2082289.ticketing_system.helper.BookingNotification;
+import com.hkrw2082289.ticketing_system.helper.CompactPoolFormat;
+import com.hkrw2082289.ticketing_system.helper.PoolCounts;
+import com.hkrw2082289.ticketing_system.helper.PoolDelta;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * This service class sends the changes of the ticket pool and the log messages to the frontend, away from the lock
+ * of the ticket pool.
+ *
+ * The ticket pool only adds its events to a lock-free queue while it holds its lock, which takes no longer however
+ * slow the message broker or the serialization is. A single publisher thread takes the queued events every
+ * "ticketing.broadcast.tick-ms" and sends at most one message per topic: the changes of the pool on
+ * "/topic/ticketpool" as a list, with runs of alike changes merged into one, and the log messages on "/topic/logs"
+ * as a list of lines. Clients therefore get at most one message per topic per tick, however busy the pool is.
+ *
+ * Events are taken from the queue in the order they were added, which is the order of their sequence numbers as
+ * they are added with the ticket lock held, so the changes are still sent in order.
+ *
+ * Besides the topic of the whole pool, the changes are sent on a topic per event and a topic per vendor, so a
+ * screen that only shows one event or one vendor only gets the bytes it needs from the broker:
+ *
+ * "/topic/ticketpool/event/{eventName}" and "/topic/ticketpool/vendor/{vendorId}" get the changes of the event or
+ * vendor, and "/topic/ticketpool/event/{eventName}/counts" and "/topic/ticketpool/vendor/{vendorId}/counts" get only
+ * the latest ticket counts, the latter as a list with the counts of each event of the vendor that changed. The event
+ * names and vendor IDs are encoded as URI path segments. These topics carry the sequence numbers of the whole pool,
+ * so a gap in them is expected. Nothing is serialized or sent for a topic that has no subscribers.
+ *
+ * The changes of the whole pool are also sent on "/topic/ticketpool/compact" in the columnar format of
+ * {@link CompactPoolFormat}, for clients that ask for it. The size and serialization time of every message of the
+ * two formats are published as the "ticketing.broadcast.bytes" summary and the "ticketing.broadcast.serialization"
+ * timer, tagged by format, so the formats can be compared on the real traffic.
+ *
+ * The log messages are kept short for busy sales. The ticket pool reports what it does as a {@link LogActivity},
+ * which costs no more than queuing a small object, and the publisher thread adds them up and sends one summary line
+ * per activity and event every second on "/topic/logs", such as "1,240 tickets booked for event: X in the last
+ * second". The line of every single ticket is only built when a client subscribes to "/topic/logs/verbose". The
+ * log lines wait in a ring buffer of "ticketing.logs.buffer-size" lines, which drops the oldest line when it is
+ * full rather than holding up the ticket pool, and the dropped lines are counted as "ticketing.logs.dropped".
+ *
+ * A customer connected with a "customerId" header also gets their own {@link BookingNotification}s on
+ * "/user/queue/bookings", one list per tick, for the tickets booked for them and for their ticket purchase jobs and
+ * availability subscriptions as they finish, so they need not poll the reports of booked tickets. They are only
+ * built for connected customers.
+ */
+@Service
+public class PoolEventPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolEventPublisher.class);
+
+    /**
+     * This is the format of the time stamp put in front of every log message.
+     */
+    private static final DateTimeFormatter LOG_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    /**
+     * This is the prefix of the per-event and per-vendor topics.
+     */
+    private static final String TOPIC_PREFIX = "/topic/ticketpool/";
+
+    /**
+     * This is the topic of the changes of the whole pool in the default JSON format.
+     */
+    private static final String POOL_TOPIC = "/topic/ticketpool";
+
+    /**
+     * This is the topic of the changes of the whole pool in the compact format.
+     */
+    private static final String COMPACT_POOL_TOPIC = "/topic/ticketpool/compact";
+
+    /**
+     * This is the topic of the log messages and the summaries of the activities of the pool.
+     */
+    private static final String LOG_TOPIC = "/topic/logs";
+
+    /**
+     * This is the topic of the log line of every single activity, which is only built when it has subscribers.
+     */
+    private static final String VERBOSE_LOG_TOPIC = "/topic/logs/verbose";
+
+    /**
+     * This is the user destination of the notifications of a customer, which a client subscribes to as
+     * "/user/queue/bookings".
+     */
+    private static final String BOOKING_QUEUE = "/queue/bookings";
+
+    /**
+     * This is the time in milliseconds the activities are added up over before their summaries are sent, which the
+     * summary lines call "the last second".
+     */
+    private static final long SUMMARY_INTERVAL_MS = 1000;
+
+    /**
+     * This is an activity of the ticket pool that is sent as a summary line every second, with the format of the
+     * line taking the number of tickets or waits and the name of the event.
+     */
+    public enum LogActivity {
+        TICKETS_ADDED("%,d tickets added for event: %s"),
+        TICKETS_BOOKED("%,d tickets booked for event: %s"),
+        WAITING_TO_ADD("%,d waits for room in the pool to add tickets for event: %s"),
+        WAITING_TO_BOOK("%,d waits for tickets to become available for event: %s"),
+        NONE_AVAILABLE("%,d bookings found no tickets available for event: %s");
+
+        private final String summaryFormat;
+
+        LogActivity(String summaryFormat) {
+            this.summaryFormat = summaryFormat;
+        }
+    }
+
+    /**
+     * These are the headers of every message, which are serialized to JSON here rather than by the template.
+     */
+    private static final Map<String, Object> JSON_HEADERS =
+            Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON);
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final TopicSubscriptionRegistry subscriptionRegistry;
+
+    private final SimpUserRegistry userRegistry;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * This holds the events that have not been sent yet, either a {@link PoolDelta}, a {@link PoolCounts}, an
+     * {@link Activity} or a {@link UserNotification}.
+     */
+    private final Queue<Object> pendingEvents = new ConcurrentLinkedQueue<>();
+
+    /**
+     * This is the ring buffer of the log lines that have not been sent yet.
+     */
+    private final BlockingQueue<LogLine> pendingLogLines;
+
+    /**
+     * This holds the number of tickets or waits of every activity by event name since the last summary. It is only
+     * used by the publisher thread.
+     */
+    private final Map<LogActivity, Map<String, Long>> activityTotals = new EnumMap<>(LogActivity.class);
+
+    private long summaryStartMillis = System.currentTimeMillis();
+
+    private final ScheduledExecutorService publisher;
+
+    private final Counter postedEvents;
+
+    private final Counter sentMessages;
+
+    private final Counter droppedLogLines;
+
+    /**
+     * This constructor starts the publisher thread.
+     *
+     * @param messagingTemplate the messaging template for frontend communication.
+     * @param subscriptionRegistry the registry of the destinations that have subscribers.
+     * @param userRegistry the registry of the users connected over WebSocket.
+     * @param objectMapper the object mapper serializing the messages, as used by the REST API endpoints.
+     * @param tickMs the time in milliseconds between two sends of the queued events.
+     * @param logBufferSize the number of log lines kept until they are sent, before the oldest ones are dropped.
+     * @param meterRegistry the registry the number of queued events and sent messages are published to.
+     */
+    public PoolEventPublisher(SimpMessagingTemplate messagingTemplate,
+                              TopicSubscriptionRegistry subscriptionRegistry,
+                              SimpUserRegistry userRegistry,
+                              ObjectMapper objectMapper,
+                              @Value("${ticketing.broadcast.tick-ms:50}") long tickMs,
+                              @Value("${ticketing.logs.buffer-size:1024}") int logBufferSize,
+                              MeterRegistry meterRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.userRegistry = userRegistry;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.pendingLogLines = new ArrayBlockingQueue<>(Math.max(1, logBufferSize));
+        this.publisher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "pool-event-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tick = Math.max(1, tickMs);
+        this.publisher.scheduleWithFixedDelay(this::publishPending, tick, tick, TimeUnit.MILLISECONDS);
+        this.postedEvents = Counter.builder("ticketing.broadcast.events")
+                .description("Changes of the ticket pool and log messages queued to be sent to the frontend")
+                .register(meterRegistry);
+        this.sentMessages = Counter.builder("ticketing.broadcast.messages")
+                .description("WebSocket messages sent to the frontend, each holding the events of one tick")
+                .register(meterRegistry);
+        this.droppedLogLines = Counter.builder("ticketing.logs.dropped")
+                .description("Log lines dropped because the log buffer was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * This method queues a change of the ticket pool to be sent on "/topic/ticketpool".
+     *
+     * @param delta the change of the pool.
+     */
+    public void postDelta(PoolDelta delta) {
+        pendingEvents.add(delta);
+        postedEvents.increment();
+    }
+
+    /**
+     * This method queues the counts of an event, or of a vendor for an event, to be sent on the counts-only topics.
+     * Only the latest counts of a tick are sent.
+     *
+     * @param counts the counts taken after a change of the pool.
+     */
+    public void postCounts(PoolCounts counts) {
+        pendingEvents.add(counts);
+        postedEvents.increment();
+    }
+
+    /**
+     * This method queues a notification for a customer, such as a finished ticket purchase job, if the customer is
+     * connected. The notification is not built otherwise.
+     *
+     * @param customerId the ID of the customer.
+     * @param notification the function building the notification.
+     */
+    public void postNotification(String customerId, Supplier<BookingNotification> notification) {
+        if (userRegistry.getUser(customerId) != null) {
+            pendingEvents.add(new UserNotification(customerId, notification.get()));
+            postedEvents.increment();
+        }
+    }
+
+    /**
+     * This method queues a log message to be sent on "/topic/logs", stamped with the current date and time. This is
+     * meant for rare messages; the frequent ones are posted as an activity instead.
+     *
+     * @param message the message to be sent.
+     */
+    public void postLog(String message) {
+        bufferLogLine(new LogLine(System.currentTimeMillis(), message, false));
+    }
+
+    /**
+     * This method counts an activity of the ticket pool towards the summary of the current second, and queues its
+     * log line for "/topic/logs/verbose" if any client is subscribed to it. The line is not built otherwise.
+     *
+     * @param activity the activity.
+     * @param eventName the name of the event of the activity.
+     * @param count the number of tickets or waits of the activity.
+     * @param verboseMessage the function building the log line of the activity.
+     */
+    public void postActivity(LogActivity activity, String eventName, int count, Supplier<String> verboseMessage) {
+        if (count > 0) {
+            pendingEvents.add(new Activity(activity, eventName, count));
+            postedEvents.increment();
+        }
+        if (subscriptionRegistry.hasSubscribers(VERBOSE_LOG_TOPIC)) {
+            bufferLogLine(new LogLine(System.currentTimeMillis(), verboseMessage.get(), true));
+        }
+    }
+
+    /**
+     * This adds a log line to the ring buffer, dropping the oldest lines while it is full.
+     *
+     * @param line the log line.
+     */
+    private void bufferLogLine(LogLine line) {
+        while (!pendingLogLines.offer(line)) {
+            if (pendingLogLines.poll() != null) {
+                droppedLogLines.increment();
+            }
+        }
+        postedEvents.increment();
+    }
+
+    /**
+     * This method sends the events queued since the previous tick, one message per topic. A failure is logged and
+     * the events of the tick are dropped, so the ticks that follow still run.
+     */
+    synchronized void publishPending() {
+        try {
+            publishTick();
+        } catch (RuntimeException e) {
+            logger.error("Could not publish the events of the ticket pool", e);
+        }
+    }
+
+    /**
+     * This sends the events queued since the previous tick, one message per topic.
+     */
+    private void publishTick() {
+        List<PoolDelta> deltas = new ArrayList<>();
+        Map<String, PoolCounts> eventCounts = new LinkedHashMap<>();
+        Map<String, Map<String, PoolCounts>> vendorCounts = new LinkedHashMap<>();
+        Map<String, List<BookingNotification>> notifications = new LinkedHashMap<>();
+        for (Object event; (event = pendingEvents.poll()) != null; ) {
+            if (event instanceof PoolDelta delta) {
+                notifyBooked(delta, notifications);
+                int last = deltas.size() - 1;
+                if (last >= 0 && deltas.get(last).canMerge(delta)) {
+                    deltas.set(last, deltas.get(last).merge(delta));
+                } else {
+                    deltas.add(delta);
+                }
+            } else if (event instanceof PoolCounts counts) {
+                if (counts.getVendorId() == null) {
+                    eventCounts.put(counts.getEventName(), counts);
+                } else {
+                    vendorCounts.computeIfAbsent(counts.getVendorId(), v -> new LinkedHashMap<>())
+                            .put(counts.getEventName(), counts);
+                }
+            } else if (event instanceof UserNotification notification) {
+                notifications.computeIfAbsent(notification.customerId, c -> new ArrayList<>())
+                        .add(notification.notification);
+            } else if (event instanceof Activity activity) {
+                activityTotals.computeIfAbsent(activity.activity, a -> new HashMap<>())
+                        .merge(activity.eventName, (long) activity.count, Long::sum);
+            }
+        }
+        List<String> logLines = new ArrayList<>();
+        List<String> verboseLines = new ArrayList<>();
+        for (LogLine line; (line = pendingLogLines.poll()) != null; ) {
+            (line.verbose ? verboseLines : logLines).add(formatLogLine(line.timeMillis, line.message));
+        }
+        long now = System.currentTimeMillis();
+        if (now - summaryStartMillis >= SUMMARY_INTERVAL_MS) {
+            summarizeActivities(now, logLines);
+            summaryStartMillis = now;
+        }
+        send(POOL_TOPIC, deltas);
+        if (!deltas.isEmpty()) {
+            send(COMPACT_POOL_TOPIC, () -> CompactPoolFormat.encodeDeltas(deltas));
+        }
+        sendByEventAndVendor(deltas);
+        eventCounts.forEach((eventName, counts) ->
+                send(TOPIC_PREFIX + "event/" + encode(eventName) + "/counts", counts));
+        vendorCounts.forEach((vendorId, counts) ->
+                send(TOPIC_PREFIX + "vendor/" + encode(vendorId) + "/counts", new ArrayList<>(counts.values())));
+        send(LOG_TOPIC, logLines);
+        send(VERBOSE_LOG_TOPIC, verboseLines);
+        notifications.forEach(this::sendToUser);
+    }
+
+    /**
+     * This adds the notification of a booking to the notifications of the tick, if the customer who booked the
+     * tickets is connected.
+     *
+     * @param delta a change of the pool, which is only notified if it books tickets.
+     * @param notifications the notifications of the tick by customer ID.
+     */
+    private void notifyBooked(PoolDelta delta, Map<String, List<BookingNotification>> notifications) {
+        String customerId = delta.getCustomerId();
+        if (!PoolDelta.TICKET_BOOKED.equals(delta.getType()) || customerId == null
+                || userRegistry.getUser(customerId) == null) {
+            return;
+        }
+        notifications.computeIfAbsent(customerId, c -> new ArrayList<>()).add(
+                BookingNotification.ticketsBooked(delta.getSeq(), delta.getEventName(), delta.getTicketIds()));
+    }
+
+    /**
+     * This adds a summary line for every activity and event since the last summary, and starts a new summary.
+     *
+     * @param now the current time in milliseconds.
+     * @param logLines the log lines of the tick the summary lines are added to.
+     */
+    private void summarizeActivities(long now, List<String> logLines) {
+        activityTotals.forEach((activity, totals) -> totals.forEach((eventName, count) ->
+                logLines.add(formatLogLine(now, String.format(activity.summaryFormat, count, eventName) +
+                        " in the last second"))));
+        activityTotals.clear();
+    }
+
+    /**
+     * This puts the date and time in front of a log message.
+     *
+     * @param timeMillis the time of the message in milliseconds.
+     * @param message the message.
+     * @return the log line.
+     */
+    private static String formatLogLine(long timeMillis, String message) {
+        return "[" + LOG_TIME_FORMAT.format(Instant.ofEpochMilli(timeMillis)) + "] " + message;
+    }
+
+    /**
+     * This sends the changes of a tick on the topics of their events and vendors. Every change is for a single
+     * event and vendor.
+     *
+     * @param deltas the changes of the tick, in order.
+     */
+    private void sendByEventAndVendor(List<PoolDelta> deltas) {
+        Map<String, List<PoolDelta>> byDestination = new HashMap<>();
+        for (PoolDelta delta : deltas) {
+            if (delta.getEventName() != null) {
+                byDestination.computeIfAbsent(TOPIC_PREFIX + "event/" + encode(delta.getEventName()),
+                        d -> new ArrayList<>()).add(delta);
+            }
+            if (delta.getVendorId() != null) {
+                byDestination.computeIfAbsent(TOPIC_PREFIX + "vendor/" + encode(delta.getVendorId()),
+                        d -> new ArrayList<>()).add(delta);
+            }
+        }
+        byDestination.forEach(this::send);
+    }
+
+    /**
+     * This encodes an event name or vendor ID as a segment of a destination.
+     *
+     * @param segment the event name or vendor ID.
+     * @return the encoded segment.
+     */
+    private static String encode(String segment) {
+        return UriUtils.encodePathSegment(segment, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This sends the events of one tick to a topic, if there are any and the topic has subscribers.
+     *
+     * @param destination the topic.
+     * @param payload the events of the tick, or the latest counts.
+     */
+    private void send(String destination, Object payload) {
+        if (payload instanceof List<?> events && events.isEmpty()) {
+            return;
+        }
+        send(destination, () -> payload);
+    }
+
+    /**
+     * This builds and sends a message to a topic, if the topic has subscribers.
+     *
+     * @param destination the topic.
+     * @param payload the function building the message.
+     */
+    private void send(String destination, Supplier<?> payload) {
+        if (!subscriptionRegistry.hasSubscribers(destination)) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            byte[] json = objectMapper.writeValueAsBytes(payload.get());
+            long serializationNanos = System.nanoTime() - start;
+            if (POOL_TOPIC.equals(destination) || COMPACT_POOL_TOPIC.equals(destination)) {
+                recordSerialization(COMPACT_POOL_TOPIC.equals(destination) ? "compact" : "json",
+                        json.length, serializationNanos);
+            }
+            messagingTemplate.convertAndSend(destination, json, JSON_HEADERS);
+            sentMessages.increment();
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.error("Could not send a message to {}", destination, e);
+        }
+    }
+
+    /**
+     * This sends the notifications of a tick to the sessions of a customer.
+     *
+     * @param customerId the ID of the customer.
+     * @param notifications the notifications of the customer, in order.
+     */
+    private void sendToUser(String customerId, List<BookingNotification> notifications) {
+        try {
+            messagingTemplate.convertAndSendToUser(customerId, BOOKING_QUEUE,
+                    objectMapper.writeValueAsBytes(notifications), JSON_HEADERS);
+            sentMessages.increment();
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.error("Could not send the notifications of customer {}", customerId, e);
+        }
+    }
+
+    /**
+     * This records the size and serialization time of a message of the pool topics for its format.
+     *
+     * @param format the format of the message, either "json" or "compact".
+     * @param bytes the size of the message in bytes.
+     * @param serializationNanos the time taken to build and serialize the message, in nanoseconds.
+     */
+    private void recordSerialization(String format, int bytes, long serializationNanos) {
+        DistributionSummary.builder("ticketing.broadcast.bytes")
+                .description("Size of the messages of the ticket pool topics")
+                .baseUnit("bytes")
+                .tag("format", format)
+                .register(meterRegistry)
+                .record(bytes);
+        Timer.builder("ticketing.broadcast.serialization")
+                .description("Time taken to serialize the messages of the ticket pool topics")
+                .tag("format", format)
+                .register(meterRegistry)
+                .record(serializationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * This stops the publisher thread when the application shuts down, after sending the events still queued.
+     */
+    @PreDestroy
+    public void shutdown() {
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publishPending();
+    }
+
+    /**
+     * This is a log message together with the time it was logged, and whether it is only sent on the verbose topic.
+     */
+    private static final class LogLine {
+
+        private final long timeMillis;
+
+        private final String message;
+
+        private final boolean verbose;
+
+        private LogLine(long timeMillis, String message, boolean verbose) {
+            this.timeMillis = timeMillis;
+            this.message = message;
+            this.verbose = verbose;
+        }
+    }
+
+    /**
+     * This is a notification for a single customer that has not been sent yet.
+     */
+    private static final class UserNotification {
+
+        private final String customerId;
+
+        private final BookingNotification notification;
+
+        private UserNotification(String customerId, BookingNotification notification) {
+            this.customerId = customerId;
+            this.notification = notification;
+        }
+    }
+
+    /**
+     * This is an activity of the ticket pool that has not been added to the summary yet.
+     */
+    private static final class Activity {
+
+        private final LogActivity activity;
+
+        private final String eventName;
+
+        private final int count;
+
+        private Activity(LogActivity activity, String eventName, int count) {
+            this.activity = activity;
+            this.eventName = eventName;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.helper.PoolDelta;
+import com.hkrw2082289.ticketing_system.helper.TicketIdRanges;
+import com.hkrw2082289.ticketing_system.model.PoolOutboxEntity;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import com.hkrw2082289.ticketing_system.repository.PoolOutboxRepository;
+import com.hkrw2082289.ticketing_system.repository.TicketStore;
+import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * This service class is the transactional outbox of the changes of the ticket pool, which decouples sending the
+ * changes to the frontend from writing them to the database.
+ *
+ * Every change of the pool is written to the "pool_outbox" table in the same transaction as the tickets it changes,
+ * so a change is only sent once the tickets are committed, and a committed change is still there to be sent after
+ * the application stops. A relay thread then reads the new changes from the outbox in batches of
+ * "ticketing.outbox.batch-size", in the order they were committed, and hands them to the
+ * {@link PoolEventPublisher}. The relay is woken up after each commit, and also reads the outbox every
+ * "ticketing.outbox.poll-interval-ms" to pick up any change it was not woken up for. Sending never happens on the
+ * thread making the booking.
+ *
+ * The outbox keeps the changes for "ticketing.outbox.retention-ms", so a client or an external consumer can replay
+ * the changes after a sequence number from "/api/ticket-pool/changes" instead of loading the whole pool again.
+ *
+ * The outbox is only used with the "jpa" and "jdbc" ticket stores, whose writes can share a transaction with the
+ * outbox, and can be turned off with "ticketing.outbox.enabled=false". Without it the changes are handed to the
+ * publisher straight after the tickets are written.
+ */
+@Service
+public class PoolOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolOutboxService.class);
+
+    private final PoolOutboxRepository outboxRepository;
+
+    private final PoolEventPublisher poolEventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    /**
+     * This is the time in milliseconds the changes are kept in the outbox.
+     */
+    @Value("${ticketing.outbox.retention-ms:86400000}")
+    private long retentionMs;
+
+    /**
+     * This is the relay thread, which is only started when the outbox is enabled.
+     */
+    private final ScheduledExecutorService relay;
+
+    /**
+     * This is the outbox ID of the last change handed to the publisher. This is only written by the relay thread.
+     */
+    private volatile long lastRelayedId;
+
+    /**
+     * This is the outbox ID of the last change committed by this application, which the relay has to catch up to.
+     */
+    private volatile long lastWrittenId;
+
+    /**
+     * This is set when the relay has been woken up and has not started reading yet, so a burst of commits wakes it
+     * up only once.
+     */
+    private volatile boolean relayScheduled;
+
+    private final Counter relayedChanges;
+
+    /**
+     * This constructor sets up the outbox, and starts the relay from the end of the outbox if it is enabled. The
+     * changes already in the outbox were written before the pool was loaded, so they are kept for replay only.
+     *
+     * @param outboxRepository the repository of the outbox.
+     * @param poolEventPublisher the publisher the relay hands the changes to.
+     * @param ticketStore the store of the ticket pool, which must be transactional for the outbox to be used.
+     * @param transactionManager the transaction manager the changes are written to the outbox with.
+     * @param outboxEnabled whether the outbox is used when the ticket store supports it.
+     * @param batchSize the largest number of changes the relay reads at once.
+     * @param pollIntervalMs the time in milliseconds between two reads of the outbox by the relay without commits.
+     * @param meterRegistry the registry the relayed changes and the lag of the relay are published to.
+     */
+    public PoolOutboxService(PoolOutboxRepository outboxRepository,
+                             PoolEventPublisher poolEventPublisher,
+                             TicketStore ticketStore,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${ticketing.outbox.enabled:true}") boolean outboxEnabled,
+                             @Value("${ticketing.outbox.batch-size:500}") int batchSize,
+                             @Value("${ticketing.outbox.poll-interval-ms:1000}") long pollIntervalMs,
+                             MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.poolEventPublisher = poolEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = outboxEnabled && ticketStore.isTransactional();
+        this.batchSize = Math.max(1, batchSize);
+        this.relayedChanges = Counter.builder("ticketing.outbox.relayed")
+                .description("Changes of the ticket pool relayed from the outbox to the publisher")
+                .register(meterRegistry);
+        if (!enabled) {
+            this.relay = null;
+            logger.info("The outbox of the ticket pool is not used with this ticket store");
+            return;
+        }
+        Long lastId = outboxRepository.findMaxOutboxId();
+        this.lastRelayedId = lastId == null ? 0 : lastId;
+        this.lastWrittenId = lastRelayedId;
+        Gauge.builder("ticketing.outbox.lag", this, outbox -> outbox.lastWrittenId - outbox.lastRelayedId)
+                .description("Changes of the ticket pool committed to the outbox but not relayed yet")
+                .register(meterRegistry);
+        this.relay = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "pool-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, pollIntervalMs);
+        this.relay.scheduleWithFixedDelay(this::relayPending, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method checks if the changes of the pool go through the outbox.
+     *
+     * @return {@code true} if the outbox is used, otherwise {@code false}.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * This method finds the sequence number of the last change in the outbox, so the sequence numbers of the pool
+     * carry on from it after a restart and stay unique within the outbox. Pruning always keeps the change with the
+     * highest sequence number, so this does not start again from 0 after every change has passed the retention time.
+     *
+     * @return the highest sequence number in the outbox, or 0 if the outbox is not used or is empty.
+     */
+    public long findLastSequence() {
+        if (!enabled) {
+            return 0;
+        }
+        Long seq = outboxRepository.findMaxSeq();
+        return seq == null ? 0 : seq;
+    }
+
+    /**
+     * This method writes to the ticket store together with the changes of the pool the write causes. With the
+     * outbox, both are committed in one transaction and the relay is woken up to send the changes; without it, the
+     * changes are handed to the publisher once the write has returned. If the write or the outbox fails, nothing is
+     * sent and the exception is thrown on.
+     *
+     * @param write the write to the ticket store.
+     * @param changes the function building the changes of the pool from the result of the write, which may be empty.
+     * @param <T> the type of the result of the write.
+     * @return the result of the write.
+     */
+    public <T> T write(Supplier<T> write, Function<T, List<PoolDelta>> changes) {
+        if (!enabled) {
+            T result = write.get();
+            changes.apply(result).forEach(poolEventPublisher::postDelta);
+            return result;
+        }
+        List<PoolOutboxEntity> written = new ArrayList<>();
+        T result = transactionTemplate.execute(status -> {
+            T writeResult = write.get();
+            List<PoolDelta> deltas = changes.apply(writeResult);
+            if (!deltas.isEmpty()) {
+                Date now = new Date();
+                written.addAll(outboxRepository.saveAll(deltas.stream()
+                        .map(delta -> toEntity(delta, now))
+                        .collect(Collectors.toList())));
+            }
+            return writeResult;
+        });
+        if (!written.isEmpty()) {
+            lastWrittenId = written.get(written.size() - 1).getOutboxId();
+            wakeUpRelay();
+        }
+        return result;
+    }
+
+    /**
+     * This method reads the changes of the pool after a sequence number from the outbox, for a client or an
+     * external consumer to replay the changes it missed.
+     *
+     * @param afterSeq the sequence number of the last change the caller has.
+     * @param limit the largest number of changes to return.
+     * @return a {@link ResponseFinder} holding the changes in order, or an error if the outbox is not used.
+     */
+    public ResponseFinder readChanges(long afterSeq, int limit) {
+        if (!enabled) {
+            return new ResponseFinder(false, "Error: The outbox of the ticket pool is not used with this ticket" +
+                    " store, load the snapshot instead.");
+        }
+        List<PoolDelta> deltas = outboxRepository.findBySeqGreaterThanOrderBySeqAsc(afterSeq,
+                        PageRequest.of(0, Math.max(1, Math.min(limit, batchSize)))).stream()
+                .map(PoolOutboxService::toDelta)
+                .collect(Collectors.toList());
+        return new ResponseFinder(true, "Success: Found " + deltas.size() + " changes after sequence number " +
+                afterSeq, deltas);
+    }
+
+    /**
+     * This wakes up the relay to read the changes just committed, unless it is already about to read.
+     */
+    private void wakeUpRelay() {
+        if (!relayScheduled) {
+            relayScheduled = true;
+            try {
+                relay.execute(this::relayPending);
+            } catch (RejectedExecutionException e) {
+                // The relay is shutting down, and relays what is left in the outbox before it stops.
+                relayScheduled = false;
+            }
+        }
+    }
+
+    /**
+     * This reads the changes committed since the last read in batches and hands them to the publisher, until the
+     * relay has caught up. A change is only counted as relayed once it has been handed over.
+     */
+    private synchronized void relayPending() {
+        relayScheduled = false;
+        try {
+            List<PoolOutboxEntity> batch;
+            do {
+                batch = outboxRepository.findByOutboxIdGreaterThanOrderByOutboxIdAsc(lastRelayedId,
+                        PageRequest.of(0, batchSize));
+                for (PoolOutboxEntity change : batch) {
+                    poolEventPublisher.postDelta(toDelta(change));
+                    lastRelayedId = change.getOutboxId();
+                }
+                relayedChanges.increment(batch.size());
+            } while (batch.size() == batchSize);
+            if (lastWrittenId < lastRelayedId) {
+                lastWrittenId = lastRelayedId;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Could not relay the changes of the ticket pool after outbox ID {}", lastRelayedId, e);
+        }
+    }
+
+    /**
+     * This scheduled method removes the changes that have been kept in the outbox for longer than the retention
+     * time, except the change with the highest sequence number, which marks where the sequence numbers carry on from.
+     */
+    @Scheduled(fixedDelayString = "${ticketing.outbox.prune-interval-ms:3600000}")
+    public void pruneOutbox() {
+        if (!enabled) {
+            return;
+        }
+        Long lastSeq = outboxRepository.findMaxSeq();
+        if (lastSeq == null) {
+            return;
+        }
+        int removed = outboxRepository.deleteCreatedBefore(new Date(System.currentTimeMillis() - retentionMs),
+                lastSeq);
+        if (removed > 0) {
+            logger.debug("Removed {} changes from the outbox of the ticket pool", removed);
+        }
+    }
+
+    /**
+     * This turns a change of the pool into its compact row in the outbox.
+     *
+     * @param delta the change.
+     * @param createdAt the time the change is written.
+     * @return the row.
+     */
+    private static PoolOutboxEntity toEntity(PoolDelta delta, Date createdAt) {
+        PoolOutboxEntity change = new PoolOutboxEntity();
+        change.setSeq(delta.getSeq());
+        change.setChangeType(PoolDelta.TICKET_ADDED.equals(delta.getType()) ? "A"
+                : PoolDelta.TICKET_BOOKED.equals(delta.getType()) ? "B" : "R");
+        change.setEventName(delta.getEventName());
+        change.setVendorId(delta.getVendorId());
+        change.setCustomerId(delta.getCustomerId());
+        change.setTicketIds(TicketIdRanges.format(delta.getTicketIds()));
+        change.setPrice(delta.getPrice());
+        change.setTimeDuration(delta.getTimeDuration());
+        change.setDate(delta.getDate());
+        change.setCreatedAt(createdAt);
+        return change;
+    }
+
+    /**
+     * This turns a row of the outbox back into the change of the pool it was written from.
+     *
+     * @param change the row.
+     * @return the change.
+     */
+    private static PoolDelta toDelta(PoolOutboxEntity change) {
+        List<Long> ticketIds = TicketIdRanges.parse(change.getTicketIds());
+        switch (change.getChangeType()) {
+            case "A":
+                return PoolDelta.ticketAdded(change.getSeq(), new TicketEntity(ticketIds.get(0),
+                        change.getEventName(), change.getPrice(), change.getTimeDuration(), change.getDate(),
+                        change.getVendorId(), "Available", null));
+            case "B":
+                return PoolDelta.ticketBooked(change.getSeq(), change.getEventName(), change.getVendorId(),
+                        change.getCustomerId(), ticketIds);
+            default:
+                return PoolDelta.ticketRemoved(change.getSeq(), change.getEventName(), change.getVendorId(),
+                        ticketIds);
+        }
+    }
+
+    /**
+     * This stops the relay when the application shuts down, after relaying the changes still in the outbox. It runs
+     * before the publisher is shut down, which depends on this service, so the changes are still sent.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (relay == null) {
+            return;
+        }
+        relay.shutdown();
+        try {
+            relay.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        relayPending();
+    }
+}
@@ -0,0 +1,236 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.model.PurchaseQueueEntity;
+import com.hkrw2082289.ticketing_system.repository.PurchaseQueueRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This service class keeps the ticket purchase requests of customers in the durable "purchase_queue" table, so a
+ * purchase request that is only partially filled is not lost when the application restarts.
+ *
+ * Every purchase request is written as a queue row with the number of tickets still to book before its job starts.
+ * While the job runs, its progress is written back to the row by a scheduled flush, which updates all rows that
+ * changed since the previous flush in a single batch instead of writing once per ticket. When the job finishes the
+ * row gets its final status. The rows that are still "Pending" when the application starts, including the rows of
+ * jobs halted at shutdown, are resumed by the {@link CustomerService} with the tickets they have left.
+ *
+ * The queue is flushed at shutdown by the {@link GracefulShutdownService}. If the application is killed without a
+ * shutdown, the tickets booked since the last flush are still counted as remaining, so the flush interval bounds
+ * how many extra tickets a resumed purchase request may book.
+ */
+@Service
+public class PurchaseQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PurchaseQueueService.class);
+
+    public static final String STATUS_PENDING = "Pending";
+
+    public static final String STATUS_COMPLETED = "Completed";
+
+    public static final String STATUS_CANCELLED = "Cancelled";
+
+    public static final String STATUS_EXPIRED = "Expired";
+
+    public static final String STATUS_FAILED = "Failed";
+
+    public static final String STATUS_STOPPED = "Stopped";
+
+    private final PurchaseQueueRepository purchaseQueueRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * This holds the queue rows whose job is running, by queue ID, until their final status has been written.
+     */
+    private final Map<Long, TrackedPurchase> trackedPurchases = new ConcurrentHashMap<>();
+
+    /**
+     * This constructor is used for injecting the repository of the queue rows and the transaction manager the
+     * batched updates run in.
+     *
+     * @param purchaseQueueRepository the repository of the queue rows.
+     * @param transactionManager the transaction manager of the data source.
+     */
+    public PurchaseQueueService(PurchaseQueueRepository purchaseQueueRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.purchaseQueueRepository = purchaseQueueRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * This method writes a new purchase request to the queue.
+     *
+     * @param customerId the ID of the customer.
+     * @param eventName the name of the event.
+     * @param quantity the number of tickets the customer wants to book.
+     * @param retrievalRate the customer retrieval rate the job is paced at.
+     * @param deadlineAt the time the deadline of the purchase request passes, or {@code null} if it has none.
+     * @return the new queue row.
+     */
+    public PurchaseQueueEntity enqueue(String customerId, String eventName, int quantity, double retrievalRate,
+                                       Date deadlineAt) {
+        Date now = new Date();
+        PurchaseQueueEntity entry = new PurchaseQueueEntity();
+        entry.setCustomerId(customerId);
+        entry.setEventName(eventName);
+        entry.setRequested(quantity);
+        entry.setRemaining(quantity);
+        entry.setRetrievalRate(retrievalRate);
+        entry.setDeadlineAt(deadlineAt);
+        entry.setStatus(STATUS_PENDING);
+        entry.setCreatedAt(now);
+        entry.setUpdatedAt(now);
+        return purchaseQueueRepository.save(entry);
+    }
+
+    /**
+     * This method links a queue row to the job booking its tickets, so the progress of the job is written back to
+     * the row.
+     *
+     * @param entry the queue row.
+     * @param job the job booking the remaining tickets of the row.
+     */
+    public void track(PurchaseQueueEntity entry, WorkerJob job) {
+        trackedPurchases.put(entry.getQueueId(), new TrackedPurchase(job, entry.getRemaining()));
+    }
+
+    /**
+     * This method finds the purchase requests that still have tickets to book and are not being worked on.
+     *
+     * @return the pending queue rows, oldest first.
+     */
+    public List<PurchaseQueueEntity> findPendingPurchases() {
+        List<PurchaseQueueEntity> pending = new ArrayList<>(
+                purchaseQueueRepository.findByStatusOrderByQueueIdAsc(STATUS_PENDING));
+        pending.removeIf(entry -> trackedPurchases.containsKey(entry.getQueueId()));
+        return pending;
+    }
+
+    /**
+     * This method marks a queued purchase request whose deadline passed while the application was stopped as
+     * expired, so it is not resumed.
+     *
+     * @param entry the queue row.
+     */
+    public void markExpired(PurchaseQueueEntity entry) {
+        entry.setStatus(STATUS_EXPIRED);
+        entry.setUpdatedAt(new Date());
+        purchaseQueueRepository.save(entry);
+    }
+
+    /**
+     * This scheduled method writes the progress and final status of the tracked purchase requests that changed since
+     * the previous flush, in a single transaction, and stops tracking the ones whose job has finished.
+     */
+    @Scheduled(fixedDelayString = "${ticketing.purchase-queue.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Map<Long, TrackedPurchase> changed = new HashMap<>();
+        trackedPurchases.forEach((queueId, purchase) -> {
+            if (purchase.remaining() != purchase.flushedRemaining || !STATUS_PENDING.equals(purchase.status())) {
+                changed.put(queueId, purchase);
+            }
+        });
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Date now = new Date();
+                List<PurchaseQueueEntity> entries = purchaseQueueRepository.findAllById(changed.keySet());
+                for (PurchaseQueueEntity entry : entries) {
+                    TrackedPurchase purchase = changed.get(entry.getQueueId());
+                    purchase.pendingStatus = purchase.status();
+                    purchase.pendingRemaining = purchase.remaining();
+                    entry.setRemaining(purchase.pendingRemaining);
+                    entry.setStatus(purchase.pendingStatus);
+                    entry.setUpdatedAt(now);
+                }
+                purchaseQueueRepository.saveAll(entries);
+            });
+        } catch (RuntimeException e) {
+            logger.error("Could not write the progress of {} queued purchase requests", changed.size(), e);
+            return;
+        }
+        changed.forEach((queueId, purchase) -> {
+            purchase.flushedRemaining = purchase.pendingRemaining;
+            if (!STATUS_PENDING.equals(purchase.pendingStatus)) {
+                trackedPurchases.remove(queueId);
+            }
+        });
+        logger.debug("Wrote the progress of {} queued purchase requests", changed.size());
+    }
+
+    /**
+     * This method stops writing the progress of the tracked purchase requests, which is done at shutdown after the
+     * last flush so jobs cancelled afterwards leave their rows pending.
+     */
+    public synchronized void stopTracking() {
+        trackedPurchases.clear();
+    }
+
+    /**
+     * This is a queue row whose job is running, together with the remaining count last written to the row.
+     */
+    private static final class TrackedPurchase {
+
+        private final WorkerJob job;
+
+        /**
+         * This is the remaining count of the row when the job started.
+         */
+        private final int startRemaining;
+
+        private int flushedRemaining;
+
+        private int pendingRemaining;
+
+        private String pendingStatus;
+
+        private TrackedPurchase(WorkerJob job, int startRemaining) {
+            this.job = job;
+            this.startRemaining = startRemaining;
+            this.flushedRemaining = startRemaining;
+        }
+
+        /**
+         * This returns the number of tickets the row has left, from the progress of its job.
+         *
+         * @return the remaining count, which is never negative.
+         */
+        private int remaining() {
+            return Math.max(0, startRemaining - job.getCompleted());
+        }
+
+        /**
+         * This returns the status the row should have for the state of its job. A paused job stays pending, so it is
+         * resumed after a restart.
+         *
+         * @return the status of the row.
+         */
+        private String status() {
+            switch (job.getState()) {
+                case COMPLETED:
+                    return STATUS_COMPLETED;
+                case CANCELLED:
+                    return STATUS_CANCELLED;
+                case EXPIRED:
+                    return STATUS_EXPIRED;
+                case FAILED:
+                    return STATUS_FAILED;
+                case STOPPED:
+                    return STATUS_STOPPED;
+                default:
+                    return STATUS_PENDING;
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hkrw2082289.ticketing_system.utils.RateLimitExceededException;
+import com.hkrw2082289.ticketing_system.utils.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * This service class enforces the rate limits of the ticketing system, which protect the ticket pool and the
+ * database from floods of ticket releases and ticket purchases no matter how many vendors and customers are active.
+ *
+ * Every ticket release and ticket purchase takes a token from up to three {@link TokenBucket}s: the bucket of the
+ * vendor or customer, the bucket of the event and the global bucket shared by all releases and purchases. A limit
+ * whose rate is zero or less is switched off. The per-vendor, per-customer and per-event buckets are created on
+ * first use and dropped after they have been idle for a while, so inactive users do not hold memory.
+ */
+@Service
+public class RateLimitService {
+
+    /**
+     * This is the time a per-vendor, per-customer or per-event bucket is kept after it was last used.
+     */
+    private static final Duration IDLE_BUCKET_EXPIRY = Duration.ofMinutes(10);
+
+    private final TokenBucket globalBucket;
+
+    private final Cache<String, TokenBucket> vendorBuckets;
+
+    private final Cache<String, TokenBucket> customerBuckets;
+
+    private final Cache<String, TokenBucket> eventBuckets;
+
+    private final double vendorPerSecond;
+
+    private final int vendorBurst;
+
+    private final double customerPerSecond;
+
+    private final int customerBurst;
+
+    private final double eventPerSecond;
+
+    private final int eventBurst;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * This constructor creates the global bucket and the caches holding the keyed buckets.
+     *
+     * @param enabled {@code false} to switch off all rate limits.
+     * @param globalPerSecond the rate of the global limit, in releases and purchases per second.
+     * @param globalBurst the number of releases and purchases the global limit lets through in a burst.
+     * @param vendorPerSecond the rate of the limit of each vendor, in tickets released per second.
+     * @param vendorBurst the number of tickets each vendor can release in a burst.
+     * @param customerPerSecond the rate of the limit of each customer, in tickets booked per second.
+     * @param customerBurst the number of tickets each customer can book in a burst.
+     * @param eventPerSecond the rate of the limit of each event, in releases and purchases per second.
+     * @param eventBurst the number of releases and purchases each event lets through in a burst.
+     * @param meterRegistry the registry the rejection counts are published to.
+     */
+    public RateLimitService(@Value("${ticketing.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${ticketing.rate-limit.global.per-second:1000}") double globalPerSecond,
+                            @Value("${ticketing.rate-limit.global.burst:200}") int globalBurst,
+                            @Value("${ticketing.rate-limit.vendor.per-second:100}") double vendorPerSecond,
+                            @Value("${ticketing.rate-limit.vendor.burst:20}") int vendorBurst,
+                            @Value("${ticketing.rate-limit.customer.per-second:100}") double customerPerSecond,
+                            @Value("${ticketing.rate-limit.customer.burst:20}") int customerBurst,
+                            @Value("${ticketing.rate-limit.event.per-second:500}") double eventPerSecond,
+                            @Value("${ticketing.rate-limit.event.burst:100}") int eventBurst,
+                            MeterRegistry meterRegistry) {
+        this.globalBucket = enabled && globalPerSecond > 0 ? new TokenBucket(globalPerSecond, globalBurst) : null;
+        this.vendorPerSecond = enabled ? vendorPerSecond : 0;
+        this.vendorBurst = vendorBurst;
+        this.customerPerSecond = enabled ? customerPerSecond : 0;
+        this.customerBurst = customerBurst;
+        this.eventPerSecond = enabled ? eventPerSecond : 0;
+        this.eventBurst = eventBurst;
+        this.vendorBuckets = Caffeine.newBuilder().expireAfterAccess(IDLE_BUCKET_EXPIRY).build();
+        this.customerBuckets = Caffeine.newBuilder().expireAfterAccess(IDLE_BUCKET_EXPIRY).build();
+        this.eventBuckets = Caffeine.newBuilder().expireAfterAccess(IDLE_BUCKET_EXPIRY).build();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * This method takes the tokens for releasing one ticket to the pool.
+     *
+     * @param vendorId the ID of the vendor releasing the ticket.
+     * @param eventName the name of the event of the ticket.
+     * @throws RateLimitExceededException if one of the limits has no token left.
+     */
+    public void acquireRelease(String vendorId, String eventName) {
+        acquireRelease(vendorId, eventName, 1);
+    }
+
+    /**
+     * This method takes the tokens for releasing up to the given number of tickets to the pool.
+     *
+     * @param vendorId the ID of the vendor releasing the tickets.
+     * @param eventName the name of the event of the tickets.
+     * @param maxTickets the number of tickets the vendor wants to release.
+     * @return the number of tickets the vendor may release now, which is at least one.
+     * @throws RateLimitExceededException if one of the limits has no token left.
+     */
+    public int acquireRelease(String vendorId, String eventName, int maxTickets) {
+        return acquire(maxTickets, new String[]{"vendor", "event", "global"},
+                new TokenBucket[]{vendorBucket(vendorId), eventBucket(eventName), globalBucket});
+    }
+
+    /**
+     * This method takes the tokens for booking up to the given number of tickets from the pool.
+     *
+     * @param customerId the ID of the customer booking the tickets.
+     * @param eventName the name of the event of the tickets.
+     * @param maxTickets the number of tickets the customer wants to book.
+     * @return the number of tickets the customer may book now, which is at least one.
+     * @throws RateLimitExceededException if one of the limits has no token left.
+     */
+    public int acquirePurchase(String customerId, String eventName, int maxTickets) {
+        return acquire(maxTickets, new String[]{"customer", "event", "global"},
+                new TokenBucket[]{customerBucket(customerId), eventBucket(eventName), globalBucket});
+    }
+
+    /**
+     * This method gives back the tokens of tickets a customer was allowed to book but did not book.
+     *
+     * @param customerId the ID of the customer.
+     * @param eventName the name of the event of the tickets.
+     * @param unusedTickets the number of tickets that were not booked.
+     */
+    public void releasePurchase(String customerId, String eventName, int unusedTickets) {
+        release(unusedTickets, new TokenBucket[]{customerBucket(customerId), eventBucket(eventName), globalBucket});
+    }
+
+    /**
+     * This method gives back the tokens of tickets a vendor was allowed to release but did not release.
+     *
+     * @param vendorId the ID of the vendor.
+     * @param eventName the name of the event of the tickets.
+     * @param unusedTickets the number of tickets that were not released.
+     */
+    public void releaseRelease(String vendorId, String eventName, int unusedTickets) {
+        release(unusedTickets, new TokenBucket[]{vendorBucket(vendorId), eventBucket(eventName), globalBucket});
+    }
+
+    /**
+     * This method checks, without taking a token, that a vendor can release a ticket right now. This is used to
+     * reject ticket release requests up front when their worker would only be held back by the limits.
+     *
+     * @param vendorId the ID of the vendor.
+     * @param eventName the name of the event.
+     * @throws RateLimitExceededException if one of the limits has no token left.
+     */
+    public void checkRelease(String vendorId, String eventName) {
+        check(new String[]{"vendor", "event", "global"},
+                new TokenBucket[]{vendorBucket(vendorId), eventBucket(eventName), globalBucket});
+    }
+
+    /**
+     * This method checks, without taking a token, that a customer can book a ticket right now. This is used to
+     * reject ticket purchase requests up front when their worker would only be held back by the limits.
+     *
+     * @param customerId the ID of the customer.
+     * @param eventName the name of the event.
+     * @throws RateLimitExceededException if one of the limits has no token left.
+     */
+    public void checkPurchase(String customerId, String eventName) {
+        check(new String[]{"customer", "event", "global"},
+                new TokenBucket[]{customerBucket(customerId), eventBucket(eventName), globalBucket});
+    }
+
+    /**
+     * This takes up to the given number of tokens from every bucket, most specific bucket first. Every bucket
+     * grants at most what the bucket before it granted, and the surplus of the earlier buckets is given back, so
+     * the tokens taken are the same in every bucket. If any bucket is empty, the tokens already taken are given back.
+     *
+     * @param maxTokens the maximum number of tokens to take.
+     * @param scopes the names of the limits, used in the rejection.
+     * @param buckets the buckets of the limits, which are {@code null} for limits that are switched off.
+     * @return the number of tokens taken from every bucket.
+     * @throws RateLimitExceededException if one of the buckets is empty.
+     */
+    private int acquire(int maxTokens, String[] scopes, TokenBucket[] buckets) {
+        int granted = maxTokens;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] == null) {
+                continue;
+            }
+            int taken = buckets[i].tryAcquireUpTo(granted);
+            int surplus = taken == 0 ? granted : granted - taken;
+            for (int j = 0; j < i; j++) {
+                if (buckets[j] != null) {
+                    buckets[j].release(surplus);
+                }
+            }
+            if (taken == 0) {
+                throw rejected(scopes[i], buckets[i]);
+            }
+            granted = taken;
+        }
+        return granted;
+    }
+
+    /**
+     * This gives back tokens to every bucket.
+     *
+     * @param tokens the number of tokens to give back.
+     * @param buckets the buckets of the limits, which are {@code null} for limits that are switched off.
+     */
+    private static void release(int tokens, TokenBucket[] buckets) {
+        for (TokenBucket bucket : buckets) {
+            if (bucket != null) {
+                bucket.release(tokens);
+            }
+        }
+    }
+
+    /**
+     * This checks that every bucket has a token available.
+     *
+     * @param scopes the names of the limits, used in the rejection.
+     * @param buckets the buckets of the limits, which are {@code null} for limits that are switched off.
+     * @throws RateLimitExceededException if one of the buckets is empty.
+     */
+    private void check(String[] scopes, TokenBucket[] buckets) {
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != null && buckets[i].nanosUntilAvailable() > 0) {
+                throw rejected(scopes[i], buckets[i]);
+            }
+        }
+    }
+
+    /**
+     * This counts a rejection and creates the exception reporting it.
+     *
+     * @param scope the name of the limit that rejected the request.
+     * @param bucket the bucket of the limit.
+     * @return the exception to throw.
+     */
+    private RateLimitExceededException rejected(String scope, TokenBucket bucket) {
+        Counter.builder("ticketing.rate-limit.rejections")
+                .description("Ticket releases and purchases rejected by a rate limit")
+                .tag("scope", scope)
+                .register(meterRegistry)
+                .increment();
+        return new RateLimitExceededException(scope, bucket.nanosUntilAvailable());
+    }
+
+    private TokenBucket vendorBucket(String vendorId) {
+        return vendorPerSecond > 0
+                ? vendorBuckets.get(vendorId, key -> new TokenBucket(vendorPerSecond, vendorBurst)) : null;
+    }
+
+    private TokenBucket customerBucket(String customerId) {
+        return customerPerSecond > 0
+                ? customerBuckets.get(customerId, key -> new TokenBucket(customerPerSecond, customerBurst)) : null;
+    }
+
+    private TokenBucket eventBucket(String eventName) {
+        return eventPerSecond > 0
+                ? eventBuckets.get(eventName, key -> new TokenBucket(eventPerSecond, eventBurst)) : null;
+    }
+}
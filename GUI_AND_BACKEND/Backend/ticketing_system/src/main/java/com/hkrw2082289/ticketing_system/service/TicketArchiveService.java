@@ -0,0 +1,103 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.repository.TicketStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This service class runs the archival job of the ticketing system. The job moves booked tickets for events whose
+ * date has already passed out of the live pool into the archive of the {@link TicketStore} (the "ticket_history"
+ * table for the database stores), so the hot table and the in-memory ticket pool stay sized to the live inventory.
+ *
+ * The job is throttled: it moves at most a configured number of chunks per run and pauses between chunks, so it
+ * never holds long transactions or competes with ticket bookings for database time.
+ */
+@Service
+public class TicketArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TicketArchiveService.class);
+
+    private final TicketStore ticketStore;
+
+    private final TicketPoolService ticketPoolService;
+
+    /**
+     * This is used to switch the archival job on or off.
+     */
+    @Value("${ticketing.archive.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * This is the number of tickets moved to the archive in a single transaction.
+     */
+    @Value("${ticketing.archive.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * This is the pause in milliseconds between two chunks of the same run.
+     */
+    @Value("${ticketing.archive.chunk-pause-ms:200}")
+    private long chunkPauseMs;
+
+    /**
+     * This is the maximum number of chunks moved in a single run of the job.
+     */
+    @Value("${ticketing.archive.max-chunks-per-run:20}")
+    private int maxChunksPerRun;
+
+    /**
+     * This constructor is used for injecting the ticket store and the ticket pool needed to move tickets to the
+     * archive.
+     *
+     * @param ticketStore the store holding the live and the archived tickets.
+     * @param ticketPoolService the service holding the in-memory ticket pool.
+     */
+    public TicketArchiveService(TicketStore ticketStore, TicketPoolService ticketPoolService) {
+        this.ticketStore = ticketStore;
+        this.ticketPoolService = ticketPoolService;
+    }
+
+    /**
+     * This scheduled method moves booked tickets for past event dates to the archive in chunks. Each chunk is
+     * archived through the ticket pool, which writes the archive and its changes of the pool in one transaction and
+     * then evicts the tickets from the in-memory ticket pool.
+     *
+     * @return the number of tickets archived in this run.
+     */
+    @Scheduled(initialDelayString = "${ticketing.archive.initial-delay-ms:60000}",
+            fixedDelayString = "${ticketing.archive.interval-ms:3600000}")
+    public int archiveBookedTickets() {
+        if (!enabled) {
+            return 0;
+        }
+        Date cutoff = java.sql.Date.valueOf(LocalDate.now());
+        int archived = 0;
+        try {
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                List<Long> ticketIds = ticketStore.findBookedTicketIdsBefore(cutoff, chunkSize);
+                if (ticketIds.isEmpty()) {
+                    break;
+                }
+                archived += ticketPoolService.archiveTickets(ticketIds, new Date());
+                if (ticketIds.size() < chunkSize) {
+                    break;
+                }
+                Thread.sleep(chunkPauseMs);
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Archival job was interrupted after archiving {} tickets", archived);
+            Thread.currentThread().interrupt();
+        }
+        if (archived > 0) {
+            logger.info("Archived {} booked tickets for events dated before {}", archived, cutoff);
+        }
+        return archived;
+    }
+}
@@ -1,21 +1,33 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.helper.CompactPoolFormat;
+import com.hkrw2082289.ticketing_system.helper.Deadline;
+import com.hkrw2082289.ticketing_system.helper.PoolCounts;
+import com.hkrw2082289.ticketing_system.helper.PoolDelta;
+import com.hkrw2082289.ticketing_system.model.Customer;
 import com.hkrw2082289.ticketing_system.model.TicketEntity;
-import com.hkrw2082289.ticketing_system.repository.TicketRepository;
+import com.hkrw2082289.ticketing_system.model.Vendor;
+import com.hkrw2082289.ticketing_system.repository.TicketStore;
+import com.hkrw2082289.ticketing_system.service.PoolEventPublisher.LogActivity;
+import com.hkrw2082289.ticketing_system.utils.RateLimitExceededException;
 import com.hkrw2082289.ticketing_system.utils.TicketUtility;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Scope;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +35,13 @@ import org.slf4j.LoggerFactory;
 /**
  * This service class is used to manage the shared ticket pool, including adding and removing tickets,
  * and handling consumer and vendor interactions with the ticket pool in a thread-safe manner.
+ *
+ * Besides the blocking methods used by the vendor and customer workers, which wait on conditions of the ticket
+ * lock, the pool has a non-blocking API for the asynchronous REST API endpoints. A non-blocking call returns a
+ * {@link CompletableFuture} straight away and parks the request as a waiter in a queue instead of a thread. When a
+ * ticket is added or booked, the pool hands the waiters that can now go ahead to the waiter lane of the
+ * {@link WorkerExecutorService}, which retries them, so no thread is held while a request waits. The waiter lane is
+ * kept apart from the vendor and customer lanes, whose threads may all be parked in the blocking methods.
  */
 @Service
 @Scope("singleton")
@@ -33,10 +52,28 @@ public class TicketPoolService {
      */
     private final ConcurrentLinkedQueue<TicketEntity> tickets = new ConcurrentLinkedQueue<>();
 
+    /**
+     * This is the sequence number of the last change of the pool published on "/topic/ticketpool". This is only
+     * read and written with the ticket lock held, so the sequence numbers follow the order of the changes.
+     */
+    private long poolSequence;
+
+    /**
+     * This holds the ticket counts of the pool by event, for the counts-only topics. This is only read and written
+     * with the ticket lock held.
+     */
+    private final Map<String, TicketCounts> countsByEvent = new HashMap<>();
+
+    /**
+     * This holds the ticket counts of the pool by vendor and event, for the counts-only topics of the vendors. This
+     * is only read and written with the ticket lock held.
+     */
+    private final Map<String, Map<String, TicketCounts>> countsByVendor = new HashMap<>();
+
     /**
      * This Lock is for synchronizing ticket-related operations of this Real-time ticketing system.
      */
-    private final Lock ticketLock = new ReentrantLock();
+    private final ReentrantLock ticketLock = new ReentrantLock();
 
     /**
      * This a condition to signal vendors when tickets can be added again in a situation where the ticket pool is fool.
@@ -54,9 +91,21 @@ public class TicketPoolService {
     private final Map<String, Integer> eventUsageCount = new HashMap<>();
 
     /**
-     * This is the Repository interface used to interact with the ticketpool database table.
+     * This holds the non-blocking ticket purchase requests waiting for tickets of an event, by event name, in the
+     * order they started waiting. This is guarded by the ticket lock.
      */
-    private final TicketRepository ticketRepository;
+    private final Map<String, Deque<AsyncWaiter<?>>> asyncBookingWaiters = new HashMap<>();
+
+    /**
+     * This holds the non-blocking ticket release requests waiting for free capacity in the pool, in the order they
+     * started waiting. This is guarded by the ticket lock.
+     */
+    private final Deque<AsyncWaiter<?>> asyncReleaseWaiters = new ArrayDeque<>();
+
+    /**
+     * This is the store used to persist the ticket pool, which is chosen with the "ticketing.store.type" property.
+     */
+    private final TicketStore ticketStore;
 
     /**
      * This is a service class used to fetch configuration details needed for ticket operations.
@@ -70,9 +119,24 @@ public class TicketPoolService {
     private final TicketUtility ticketUtility;
 
     /**
-     * This is the Messaging template for sending updates to the frontend to update the user with latest updates.
+     * This is the publisher sending the changes of the pool and the log messages to the frontend, outside the lock.
+     */
+    private final PoolEventPublisher poolEventPublisher;
+
+    /**
+     * This is the outbox the changes of the pool are written to in the same transaction as the tickets they change.
+     */
+    private final PoolOutboxService poolOutboxService;
+
+    /**
+     * This is the service enforcing the rate limits on ticket releases and ticket purchases.
+     */
+    private final RateLimitService rateLimitService;
+
+    /**
+     * This is the service whose waiter lane retries the non-blocking requests.
      */
-    private final SimpMessagingTemplate messagingTemplate;
+    private final WorkerExecutorService workerExecutorService;
 
     /**
      * This Logger is for logging operations in this service class.
@@ -83,37 +147,54 @@ public class TicketPoolService {
      * This constructor constructs a TicketPoolService with necessary dependencies and initializes the
      * ticket pool from the database.
      *
-     * @param ticketRepository the repository for ticket data to be stored and retrieved.
+     * @param ticketStore the store for ticket data to be stored and retrieved, including archived tickets.
      * @param configurationService the service for configuration management of the system.
      * @param ticketUtility the utility class for ticket operations like finding the total tickets available in the
      *                     system which are not booked.
-     * @param messagingTemplate the messaging template for frontend communication.
+     * @param poolEventPublisher the publisher sending updates to the frontend.
+     * @param rateLimitService the service enforcing the rate limits on ticket releases and ticket purchases.
+     * @param workerExecutorService the service whose waiter lane retries the non-blocking requests.
+     * @param poolOutboxService the outbox the changes of the pool are written to together with the tickets.
      */
     @Autowired
-    public TicketPoolService(TicketRepository ticketRepository,
+    public TicketPoolService(TicketStore ticketStore,
                              ConfigurationService configurationService,
                              TicketUtility ticketUtility,
-                             SimpMessagingTemplate messagingTemplate) {
-        this.ticketRepository = ticketRepository;
+                             PoolEventPublisher poolEventPublisher,
+                             RateLimitService rateLimitService,
+                             WorkerExecutorService workerExecutorService,
+                             PoolOutboxService poolOutboxService) {
+        this.ticketStore = ticketStore;
         this.configurationService = configurationService;
         this.ticketUtility = ticketUtility;
-        this.messagingTemplate = messagingTemplate;
+        this.poolEventPublisher = poolEventPublisher;
+        this.rateLimitService = rateLimitService;
+        this.workerExecutorService = workerExecutorService;
+        this.poolOutboxService = poolOutboxService;
         loadTicketsFromDatabase();
     }
 
     /**
-     * This method sends a log message to the frontend via WebSocket, including the current date and time.
+     * This method queues a log message to be sent to the frontend via WebSocket, including the current date and
+     * time, by the publisher thread.
      *
      * @param message the message to be sent.
      */
     private void sendLogMessage(String message) {
-        // Get the current date and time.
-        LocalDateTime now = LocalDateTime.now();
-        // Format the date and time.
-        String formattedDateTime = now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        // Message with date and time added.
-        String messageWithTimestamp = "[" + formattedDateTime + "] " + message;
-        messagingTemplate.convertAndSend("/topic/logs", messageWithTimestamp);
+        poolEventPublisher.postLog(message);
+    }
+
+    /**
+     * This method reports an activity of the ticket pool, which is sent to the frontend in a summary line every
+     * second. Its own log message is only built if a client asked for the verbose log.
+     *
+     * @param activity the activity.
+     * @param eventName the name of the event of the activity.
+     * @param count the number of tickets or waits of the activity.
+     * @param message the function building the log message of the activity.
+     */
+    private void sendActivity(LogActivity activity, String eventName, int count, Supplier<String> message) {
+        poolEventPublisher.postActivity(activity, eventName, count, message);
     }
 
     /**
@@ -131,8 +212,37 @@ public class TicketPoolService {
     private void loadTicketsFromDatabase() {
         ticketLock.lock();
         try {
-            List<TicketEntity> dbTickets = ticketRepository.findAll();
+            List<TicketEntity> dbTickets = ticketStore.findAll();
             tickets.addAll(dbTickets);
+            dbTickets.forEach(ticket -> adjustCounts(ticket, ticket.getTicketStatus(), 1));
+            poolSequence = poolOutboxService.findLastSequence();
+        } finally {
+            ticketLock.unlock();
+        }
+    }
+
+    /**
+     * This method moves tickets to the archive of the ticket store for the archival job and removes them from the
+     * pool. The archive and the changes removing the tickets are written in the same transaction, so the outbox
+     * never misses the removal of an archived ticket, and the tickets are only removed from the pool once both are
+     * committed.
+     *
+     * @param ticketIds the IDs of the tickets to archive.
+     * @param archivedAt the time the tickets are archived at.
+     * @return the number of tickets archived.
+     */
+    public int archiveTickets(Collection<Long> ticketIds, Date archivedAt) {
+        Set<Long> archivedIds = new HashSet<>(ticketIds);
+        ticketLock.lock();
+        try {
+            List<TicketEntity> evictedTickets = tickets.stream()
+                    .filter(ticket -> archivedIds.contains(ticket.getTicketId()))
+                    .collect(Collectors.toList());
+            int archived = writeChanges(() -> ticketStore.archive(ticketIds, archivedAt),
+                    count -> removedChanges(evictedTickets));
+            tickets.removeIf(ticket -> archivedIds.contains(ticket.getTicketId()));
+            countRemoved(evictedTickets);
+            return archived;
         } finally {
             ticketLock.unlock();
         }
@@ -141,32 +251,36 @@ public class TicketPoolService {
     /**
      * This method is used to add a ticket to the shared pool in a thread-safe manner, waiting if the shared ticket
      * pool is full. When a ticket is added to the ticket pool it signals consumer waiting for the specific event so
-     * they can resume purchasing of tickets.
+     * they can resume purchasing of tickets. The release is checked against the rate limits before the ticket is
+     * written to the database.
      *
      * @param ticket the ticket to be added.
-     * @return {@code true} if the ticket was added successfully, {@code false} otherwise.
+     * @param deadline the deadline of the request, after which the vendor stops waiting for capacity.
+     * @return {@code true} if the ticket was added successfully, {@code false} otherwise, including when a global
+     * stop by the admin or the deadline ended the wait.
+     * @throws RateLimitExceededException if the release is rejected by a rate limit, in which case nothing is added.
      */
-    public boolean addTicket(TicketEntity ticket) {
+    public boolean addTicket(TicketEntity ticket, Deadline deadline) {
         ticketLock.lock();
         try {
             while (countAvailableTickets() >= getCurrentMaxCapacity()) {
-                sendLogMessage("Waiting to add ticket, pool is full..."+ Thread.currentThread().getId());
+                sendActivity(LogActivity.WAITING_TO_ADD, ticket.getEventName(), 1, () -> "Thread " +
+                        Thread.currentThread().getId() + " waiting to add ticket for event: " +
+                        ticket.getEventName() + ", pool is full...");
                 logger.info("Waiting to add ticket, pool is full...");
-                vendorCondition.await();
+                if (Vendor.isAdminStopAllRelease()) {
+                    logger.info("Thread {} stopped waiting to add ticket because of a global stop",
+                            Thread.currentThread().getId());
+                    return false;
+                }
+                if (deadline.isExpired()) {
+                    logger.info("Thread {} stopped waiting to add ticket because its deadline has passed",
+                            Thread.currentThread().getId());
+                    return false;
+                }
+                awaitUntil(vendorCondition, deadline);
             }
-
-            TicketEntity savedTicket = ticketRepository.save(ticket);
-            tickets.add(savedTicket);
-
-            messagingTemplate.convertAndSend("/topic/ticketpool", tickets);
-            sendLogMessage("Added ticket for event: " + ticket.getEventName()+" with ID: "+ticket.getTicketId());
-
-            logger.info("Added ticket for event: {}", ticket.getEventName());
-            notifyConsumersForEvent(ticket.getEventName());
-            logger.info("Thread {} notified consumers for event: {}",
-                    Thread.currentThread().getId(), ticket.getEventName());
-            cleanupUnusedConditions();
-            return true;
+            return addTicketNow(ticket);
         } catch (InterruptedException e) {
             sendLogMessage("Thread " + Thread.currentThread().getId() +" for vendor: "+ ticket.getVendorId() +
                     " interrupted while adding ticket");
@@ -178,44 +292,126 @@ public class TicketPoolService {
         }
     }
 
+    /**
+     * This adds a ticket to the pool once there is room for it, and wakes up the customers waiting for its event.
+     * This must be called with the ticket lock held.
+     *
+     * @param ticket the ticket to be added.
+     * @return {@code true} as the ticket has been added.
+     * @throws RateLimitExceededException if the release is rejected by a rate limit, in which case nothing is added.
+     */
+    private boolean addTicketNow(TicketEntity ticket) {
+        addTicketsNow(List.of(ticket));
+        return true;
+    }
+
+    /**
+     * This adds tickets of one vendor and event to the pool once there is room for them, writing them to the store
+     * together, and wakes up the customers waiting for their event. Fewer tickets are added if the rate limits only
+     * let some of them through. This must be called with the ticket lock held.
+     *
+     * @param batch the tickets to be added, which are all of the same vendor and event.
+     * @return the number of tickets added from the start of the batch, which is at least one.
+     * @throws RateLimitExceededException if the release is rejected by a rate limit, in which case nothing is added.
+     */
+    private int addTicketsNow(List<TicketEntity> batch) {
+        String eventName = batch.get(0).getEventName();
+        String vendorId = batch.get(0).getVendorId();
+        int permitted = rateLimitService.acquireRelease(vendorId, eventName, batch.size());
+
+        List<TicketEntity> savedTickets;
+        try {
+            savedTickets = writeChanges(() -> ticketStore.saveAll(batch.subList(0, permitted)), this::addedChanges);
+        } catch (RuntimeException e) {
+            // Nothing was added, so the tokens are given back.
+            rateLimitService.releaseRelease(vendorId, eventName, permitted);
+            throw e;
+        }
+        tickets.addAll(savedTickets);
+        countAdded(savedTickets);
+        int added = savedTickets.size();
+        sendActivity(LogActivity.TICKETS_ADDED, eventName, added, () -> added == 1
+                ? "Added ticket for event: " + eventName + " with ID: " + savedTickets.get(0).getTicketId()
+                : "Added " + added + " tickets for event: " + eventName);
+
+        logger.info("Added {} tickets for event: {}", added, eventName);
+        notifyConsumersForEvent(eventName);
+        logger.info("Thread {} notified consumers for event: {}", Thread.currentThread().getId(), eventName);
+        dispatchAsyncWaiters(asyncBookingWaiters.get(eventName), added);
+        cleanupUnusedConditions();
+        return added;
+    }
+
     /**
      * This method books a ticket for a specified event for a customer in a thread-safe manner,
      * waiting if no tickets are available. When a ticket is booked it will signal all vendors to resume adding tickets.
+     * The purchase is checked against the rate limits before the ticket is booked in the database.
      *
      * @param eventName the name of the event.
      * @param customerId the ID of the customer.
-     * @return an array containing the success status and ticket ID, if booked
+     * @param deadline the deadline of the request, after which the customer stops waiting for tickets.
+     * @return an array containing the success status and ticket ID, if booked, where the status is {@code false}
+     * if a global stop by the admin or the deadline ended the wait
+     * @throws RateLimitExceededException if the purchase is rejected by a rate limit, in which case nothing is booked.
      */
-    public Object[] removeTicket(String eventName, String customerId) {
+    public Object[] removeTicket(String eventName, String customerId, Deadline deadline) {
         ticketLock.lock();
         try {
             while (!isTicketAvailable(eventName)) {
-                sendLogMessage("Thread " + Thread.currentThread().getId() + " waiting for " +
-                        "tickets to become available for event: " + eventName);
+                sendActivity(LogActivity.WAITING_TO_BOOK, eventName, 1, () -> "Thread " +
+                        Thread.currentThread().getId() + " waiting for tickets to become available for event: " +
+                        eventName);
                 logger.info("Thread {} waiting for tickets to become available for event: {}",
                         Thread.currentThread().getId(), eventName);
-                waitForSpecificEventTicket(eventName);
+                if (Customer.isAdminStopAllPurchases()) {
+                    logger.info("Thread {} stopped waiting for event: {} because of a global stop",
+                            Thread.currentThread().getId(), eventName);
+                    return new Object[]{false, null};
+                }
+                if (deadline.isExpired()) {
+                    logger.info("Thread {} stopped waiting for event: {} because its deadline has passed",
+                            Thread.currentThread().getId(), eventName);
+                    return new Object[]{false, null};
+                }
+                waitForSpecificEventTicket(eventName, deadline);
+            }
+            rateLimitService.acquirePurchase(customerId, eventName, 1);
+            TicketEntity ticket;
+            try {
+                ticket = findAvailableTicket(eventName);
+                while (ticket != null && !bookIfAvailable(ticket, customerId)) {
+                    // The row was booked outside this pool, so mirror that and try the next available ticket.
+                    logger.warn("Ticket {} for event: {} was no longer available in the database",
+                            ticket.getTicketId(), eventName);
+                    refreshTicket(ticket);
+                    ticket = findAvailableTicket(eventName);
+                }
+            } catch (RuntimeException e) {
+                // Nothing was booked, so the token is given back.
+                rateLimitService.releasePurchase(customerId, eventName, 1);
+                throw e;
             }
-            TicketEntity ticket = findAvailableTicket(eventName);
             if (ticket != null) {
                 ticket.setTicketStatus("Booked");
                 ticket.setCustomerId(customerId);
+                countBooked(List.of(ticket));
 
-                TicketEntity updatedTicket = ticketRepository.save(ticket);
-
-                messagingTemplate.convertAndSend("/topic/ticketpool", tickets);
-                sendLogMessage("Thread " + Thread.currentThread().getId() + " booked ticket " +
-                        updatedTicket.getTicketId() + " for event: " + eventName + " by customer: " + customerId);
+                Long ticketId = ticket.getTicketId();
+                sendActivity(LogActivity.TICKETS_BOOKED, eventName, 1, () -> "Thread " +
+                        Thread.currentThread().getId() + " booked ticket " + ticketId + " for event: " +
+                        eventName + " by customer: " + customerId);
 
                 logger.info("Thread {} booked ticket {} for event: {} by customer: {}",
-                        Thread.currentThread().getId(),  updatedTicket.getTicketId(), eventName, customerId);
+                        Thread.currentThread().getId(),  ticket.getTicketId(), eventName, customerId);
                 vendorCondition.signalAll();
                 logger.info("Thread {} signaled vendors for more capacity", Thread.currentThread().getId());
+                dispatchAsyncWaiters(asyncReleaseWaiters, 1);
                 cleanupUnusedConditions();
                 return new Object[]{true, ticket.getTicketId()};
             }
-            sendLogMessage("Thread " + Thread.currentThread().getId() + " found no tickets available for event: "
-                    + eventName);
+            rateLimitService.releasePurchase(customerId, eventName, 1);
+            sendActivity(LogActivity.NONE_AVAILABLE, eventName, 1, () -> "Thread " +
+                    Thread.currentThread().getId() + " found no tickets available for event: " + eventName);
             logger.info("Thread {} found no tickets available for event: {}",
                     Thread.currentThread().getId(), eventName);
             return new Object[]{false, null};
@@ -229,6 +425,526 @@ public class TicketPoolService {
         }
     }
 
+    /**
+     * This method books up to the given quantity of tickets for a specified event for a customer with a single
+     * set-based update, waiting if no tickets are available. The tickets with the lowest ticket IDs are booked first,
+     * and the pool marks exactly the tickets the store reports as booked. When tickets are booked it will signal all
+     * vendors to resume adding tickets. The number of tickets booked is also capped by the tokens the rate limits
+     * grant.
+     *
+     * @param eventName the name of the event.
+     * @param customerId the ID of the customer.
+     * @param quantity the maximum number of tickets to book.
+     * @param deadline the deadline of the request, after which the customer stops waiting for tickets.
+     * @return the IDs of the booked tickets, which is empty if the thread was interrupted or a global stop by the
+     * admin or the deadline ended the wait.
+     * @throws RateLimitExceededException if the purchase is rejected by a rate limit, in which case nothing is booked.
+     */
+    public List<Long> bookTickets(String eventName, String customerId, int quantity, Deadline deadline) {
+        ticketLock.lock();
+        try {
+            while (!isTicketAvailable(eventName)) {
+                sendActivity(LogActivity.WAITING_TO_BOOK, eventName, 1, () -> "Thread " +
+                        Thread.currentThread().getId() + " waiting for tickets to become available for event: " +
+                        eventName);
+                logger.info("Thread {} waiting for tickets to become available for event: {}",
+                        Thread.currentThread().getId(), eventName);
+                if (Customer.isAdminStopAllPurchases()) {
+                    logger.info("Thread {} stopped waiting for event: {} because of a global stop",
+                            Thread.currentThread().getId(), eventName);
+                    return Collections.emptyList();
+                }
+                if (deadline.isExpired()) {
+                    logger.info("Thread {} stopped waiting for event: {} because its deadline has passed",
+                            Thread.currentThread().getId(), eventName);
+                    return Collections.emptyList();
+                }
+                waitForSpecificEventTicket(eventName, deadline);
+            }
+            return bookTicketsNow(eventName, customerId, quantity);
+        } catch (InterruptedException e) {
+            sendLogMessage("Thread " + Thread.currentThread().getId() + " interrupted while booking tickets");
+            logger.error("Thread {} interrupted while booking tickets", Thread.currentThread().getId());
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        } finally {
+            ticketLock.unlock();
+        }
+    }
+
+    /**
+     * This books up to the given quantity of tickets for an event that has tickets available, and wakes up the
+     * vendors waiting for capacity. This must be called with the ticket lock held.
+     *
+     * @param eventName the name of the event.
+     * @param customerId the ID of the customer.
+     * @param quantity the maximum number of tickets to book.
+     * @return the IDs of the booked tickets.
+     * @throws RateLimitExceededException if the purchase is rejected by a rate limit, in which case nothing is booked.
+     */
+    private List<Long> bookTicketsNow(String eventName, String customerId, int quantity) {
+        int permitted = rateLimitService.acquirePurchase(customerId, eventName, quantity);
+        List<Long> bookedTicketIds = new ArrayList<>();
+        List<TicketEntity> bookedTickets;
+        try {
+            bookedTickets = writeChanges(() -> {
+                bookedTicketIds.addAll(ticketStore.bookAvailableForEvent(eventName, customerId, permitted));
+                Set<Long> bookedIds = new HashSet<>(bookedTicketIds);
+                return tickets.stream()
+                        .filter(t -> bookedIds.contains(t.getTicketId()))
+                        .sorted(Comparator.comparing(TicketEntity::getTicketId))
+                        .collect(Collectors.toList());
+            }, selected -> bookedChanges(selected, customerId));
+        } catch (RuntimeException e) {
+            // The booking was rolled back, so the tokens are given back.
+            rateLimitService.releasePurchase(customerId, eventName, permitted);
+            throw e;
+        }
+        int booked = bookedTicketIds.size();
+        rateLimitService.releasePurchase(customerId, eventName, permitted - booked);
+        if (bookedTickets.size() < booked) {
+            // The store booked tickets the pool does not hold, which are left to the store.
+            logger.warn("{} of the {} tickets booked for event: {} by customer: {} are not in the pool",
+                    booked - bookedTickets.size(), booked, eventName, customerId);
+        }
+        for (TicketEntity ticket : bookedTickets) {
+            ticket.setTicketStatus("Booked");
+            ticket.setCustomerId(customerId);
+        }
+        countBooked(bookedTickets);
+        sendActivity(LogActivity.TICKETS_BOOKED, eventName, booked, () -> "Thread " +
+                Thread.currentThread().getId() + " booked " + booked + " tickets for event: " + eventName +
+                " by customer: " + customerId);
+
+        logger.info("Thread {} booked {} tickets for event: {} by customer: {}",
+                Thread.currentThread().getId(), booked, eventName, customerId);
+        vendorCondition.signalAll();
+        dispatchAsyncWaiters(asyncReleaseWaiters, booked);
+        cleanupUnusedConditions();
+        return bookedTicketIds;
+    }
+
+    /**
+     * This method books up to the given quantity of tickets for an event without blocking the calling thread. If
+     * the event has no tickets available, the request waits in the queue of the event until a ticket is added, and
+     * the booking is then made on the waiter lane of the {@link WorkerExecutorService}.
+     *
+     * @param eventName the name of the event.
+     * @param customerId the ID of the customer.
+     * @param quantity the maximum number of tickets to book.
+     * @param deadline the deadline of the request, after which it stops waiting for tickets.
+     * @return a future completed with the IDs of the booked tickets, or completed exceptionally with a
+     * {@link TimeoutException} if no tickets became available in time or the caller went away, a
+     * {@link CancellationException} if a global stop by the admin ended the wait, or a
+     * {@link RateLimitExceededException} if a rate limit rejected the booking.
+     */
+    public CompletableFuture<List<Long>> bookTicketsAsync(String eventName, String customerId, int quantity,
+                                                          Deadline deadline) {
+        AsyncWaiter<List<Long>> waiter = new AsyncWaiter<>(eventName, Customer::isAdminStopAllPurchases,
+                () -> isTicketAvailable(eventName) ? bookTicketsNow(eventName, customerId, quantity) : null);
+        waiter.start(deadline);
+        return waiter.future;
+    }
+
+    /**
+     * This method waits for tickets of an event to become available without holding a thread, for a customer who
+     * registered interest in a sold-out event. With an auto-book quantity, up to that many tickets are booked as
+     * soon as tickets are available, as with {@link #bookTicketsAsync(String, String, int, Deadline)}. Without one,
+     * the future is only completed, and the next request waiting for the event is handed the ticket instead, so
+     * every customer waiting to be told is told and no ticket is held back from the customers booking it.
+     *
+     * @param eventName the name of the event.
+     * @param customerId the ID of the customer.
+     * @param autoBookQuantity the maximum number of tickets to book, or 0 to only wait for tickets.
+     * @param deadline the deadline of the interest, after which it stops waiting for tickets.
+     * @return a future completed with the IDs of the booked tickets, which is empty without an auto-book quantity,
+     * or completed exceptionally as described for {@link #bookTicketsAsync(String, String, int, Deadline)}.
+     */
+    public CompletableFuture<List<Long>> awaitTicketsAsync(String eventName, String customerId, int autoBookQuantity,
+                                                           Deadline deadline) {
+        if (autoBookQuantity > 0) {
+            return bookTicketsAsync(eventName, customerId, autoBookQuantity, deadline);
+        }
+        AsyncWaiter<List<Long>> waiter = new AsyncWaiter<>(eventName, Customer::isAdminStopAllPurchases,
+                () -> isTicketAvailable(eventName) ? passOnAvailableTicket(eventName) : null);
+        waiter.start(deadline);
+        return waiter.future;
+    }
+
+    /**
+     * This hands the ticket a request that only waited for tickets was handed on to the next request waiting for
+     * the event. This must be called with the ticket lock held.
+     *
+     * @param eventName the name of the event.
+     * @return an empty list, as no tickets were booked.
+     */
+    private List<Long> passOnAvailableTicket(String eventName) {
+        dispatchAsyncWaiters(asyncBookingWaiters.get(eventName), 1);
+        return Collections.emptyList();
+    }
+
+    /**
+     * This method adds a ticket to the pool without blocking the calling thread. If the pool is full, the request
+     * waits in the release queue until a ticket is booked, and the ticket is then added on the waiter lane of the
+     * {@link WorkerExecutorService}.
+     *
+     * @param ticket the ticket to be added.
+     * @param deadline the deadline of the request, after which it stops waiting for free capacity.
+     * @return a future completed with {@code true} once the ticket has been added, or completed exceptionally with a
+     * {@link TimeoutException} if the pool stayed full or the caller went away, a {@link CancellationException} if a
+     * global stop by the admin ended the wait, or a {@link RateLimitExceededException} if a rate limit rejected the
+     * release.
+     */
+    public CompletableFuture<Boolean> addTicketAsync(TicketEntity ticket, Deadline deadline) {
+        AsyncWaiter<Boolean> waiter = new AsyncWaiter<>(null, Vendor::isAdminStopAllRelease,
+                () -> countAvailableTickets() < getCurrentMaxCapacity() ? addTicketNow(ticket) : null);
+        waiter.start(deadline);
+        return waiter.future;
+    }
+
+    /**
+     * This method adds as many tickets of a batch as the pool has room for without blocking the calling thread,
+     * writing them to the store together. If the pool is full, the request waits in the release queue until a
+     * ticket is booked, like {@link #addTicketAsync(TicketEntity, Deadline)}. The caller asks again for the tickets
+     * that were not added.
+     *
+     * @param batch the tickets to be added, which are all of the same vendor and event.
+     * @param deadline the deadline of the request, after which it stops waiting for free capacity.
+     * @return a future completed with the number of tickets added from the start of the batch, which is at least
+     * one, or completed exceptionally in the same cases as {@link #addTicketAsync(TicketEntity, Deadline)}.
+     */
+    public CompletableFuture<Integer> addTicketsAsync(List<TicketEntity> batch, Deadline deadline) {
+        AsyncWaiter<Integer> waiter = new AsyncWaiter<>(null, Vendor::isAdminStopAllRelease, () -> {
+            int room = getCurrentMaxCapacity() - countAvailableTickets();
+            return room > 0 ? addTicketsNow(batch.subList(0, Math.min(room, batch.size()))) : null;
+        });
+        waiter.start(deadline);
+        return waiter.future;
+    }
+
+    /**
+     * This hands up to the given number of waiters at the head of a queue to the waiter lane to be retried. This
+     * must be called with the ticket lock held.
+     *
+     * @param queue the queue of the waiters, which may be {@code null}.
+     * @param count the number of waiters to hand over, which is the number of tickets added or booked.
+     */
+    private void dispatchAsyncWaiters(Deque<AsyncWaiter<?>> queue, int count) {
+        for (int i = 0; i < count && queue != null && !queue.isEmpty(); i++) {
+            queue.pollFirst().dispatch();
+        }
+    }
+
+    /**
+     * This returns the queue a waiter waits in, creating the queue of its event if needed. This must be called with
+     * the ticket lock held.
+     *
+     * @param eventName the name of the event the waiter books tickets for, or {@code null} for a ticket release.
+     * @return the queue of the waiter.
+     */
+    private Deque<AsyncWaiter<?>> asyncWaiterQueue(String eventName) {
+        return eventName == null ? asyncReleaseWaiters
+                : asyncBookingWaiters.computeIfAbsent(eventName, key -> new ArrayDeque<>());
+    }
+
+    /**
+     * This method wakes up every vendor and customer thread waiting on the ticket pool, so the threads check the
+     * global stop flags again and leave the pool instead of staying parked until the inventory changes. The global
+     * stop flags must be enabled before this is called, otherwise the woken threads simply wait again. Non-blocking
+     * requests waiting in the queues of the pool are cancelled.
+     *
+     * @return the number of threads that were waiting and have been woken up.
+     */
+    public int drainWaiters() {
+        ticketLock.lock();
+        try {
+            int drained = ticketLock.getWaitQueueLength(vendorCondition);
+            vendorCondition.signalAll();
+            for (Condition condition : consumerConditions.values()) {
+                drained += ticketLock.getWaitQueueLength(condition);
+                condition.signalAll();
+            }
+            if (Vendor.isAdminStopAllRelease()) {
+                drained += cancelAsyncWaiters(asyncReleaseWaiters);
+            }
+            if (Customer.isAdminStopAllPurchases()) {
+                for (Deque<AsyncWaiter<?>> queue : asyncBookingWaiters.values()) {
+                    drained += cancelAsyncWaiters(queue);
+                }
+                asyncBookingWaiters.clear();
+            }
+            sendLogMessage("Woke up " + drained + " threads waiting on the ticket pool");
+            logger.info("Woke up {} threads waiting on the ticket pool", drained);
+            return drained;
+        } finally {
+            ticketLock.unlock();
+        }
+    }
+
+    /**
+     * This cancels the waiters of a queue and empties it. This must be called with the ticket lock held.
+     *
+     * @param queue the queue of the waiters.
+     * @return the number of waiters cancelled.
+     */
+    private int cancelAsyncWaiters(Deque<AsyncWaiter<?>> queue) {
+        int cancelled = queue.size();
+        while (!queue.isEmpty()) {
+            queue.pollFirst().future.completeExceptionally(
+                    new CancellationException("The ticket pool was stopped by the admin"));
+        }
+        return cancelled;
+    }
+
+    /**
+     * This method reloads the status of a ticket in the pool from the database, after a conditional booking found
+     * that the ticket was changed outside the pool.
+     *
+     * @param ticket the ticket in the pool to refresh.
+     */
+    private void refreshTicket(TicketEntity ticket) {
+        Optional<TicketEntity> storedTicket = ticketStore.findById(ticket.getTicketId());
+        if (storedTicket.isPresent()) {
+            boolean wasAvailable = "Available".equals(ticket.getTicketStatus());
+            ticket.setTicketStatus(storedTicket.get().getTicketStatus());
+            ticket.setCustomerId(storedTicket.get().getCustomerId());
+            if (wasAvailable && "Booked".equals(ticket.getTicketStatus())) {
+                // The ticket was booked outside the pool, so only the change is written here.
+                writeChanges(() -> List.of(ticket), changed -> bookedChanges(changed, ticket.getCustomerId()));
+                countBooked(List.of(ticket));
+            }
+        } else {
+            tickets.remove(ticket);
+            writeChanges(() -> List.of(ticket), this::removedChanges);
+            countRemoved(List.of(ticket));
+        }
+    }
+
+    /**
+     * This books a ticket of the pool in the store if it is still available there, together with the change of the
+     * pool. This must be called with the ticket lock held.
+     *
+     * @param ticket the ticket to book.
+     * @param customerId the ID of the customer.
+     * @return {@code true} if the ticket was booked, {@code false} if it was no longer available in the store.
+     */
+    private boolean bookIfAvailable(TicketEntity ticket, String customerId) {
+        return writeChanges(() -> ticketStore.bookIfAvailable(ticket.getTicketId(), customerId),
+                booked -> booked ? bookedChanges(List.of(ticket), customerId) : Collections.emptyList());
+    }
+
+    /**
+     * This writes to the store together with the changes of the pool the write causes, through the outbox, so the
+     * changes are only published once the write is committed. If the write fails, the sequence numbers taken for
+     * its changes are given back, as none of them were published. This must be called with the ticket lock held.
+     *
+     * @param write the write to the store.
+     * @param changes the function building the changes of the pool from the result of the write.
+     * @param <T> the type of the result of the write.
+     * @return the result of the write.
+     */
+    private <T> T writeChanges(Supplier<T> write, Function<T, List<PoolDelta>> changes) {
+        long sequence = poolSequence;
+        try {
+            return poolOutboxService.write(write, changes);
+        } catch (RuntimeException e) {
+            poolSequence = sequence;
+            throw e;
+        }
+    }
+
+    /**
+     * This builds the changes for tickets added to the pool, one change for each ticket. This and the other methods
+     * building changes must be called with the ticket lock held, so the changes get their sequence numbers in the
+     * order they are made.
+     *
+     * @param addedTickets the tickets that were added.
+     * @return the changes.
+     */
+    private List<PoolDelta> addedChanges(List<TicketEntity> addedTickets) {
+        List<PoolDelta> changes = new ArrayList<>(addedTickets.size());
+        for (TicketEntity ticket : addedTickets) {
+            changes.add(PoolDelta.ticketAdded(++poolSequence, ticket));
+        }
+        return changes;
+    }
+
+    /**
+     * This builds the changes for "Available" tickets booked by a customer, one change for the tickets of each
+     * event and vendor.
+     *
+     * @param bookedTickets the tickets that were booked.
+     * @param customerId the ID of the customer who booked the tickets.
+     * @return the changes.
+     */
+    private List<PoolDelta> bookedChanges(List<TicketEntity> bookedTickets, String customerId) {
+        List<PoolDelta> changes = new ArrayList<>();
+        groupByEventAndVendor(bookedTickets).forEach((key, group) ->
+                changes.add(PoolDelta.ticketBooked(++poolSequence, key.get(0), key.get(1), customerId,
+                        group.stream().map(TicketEntity::getTicketId).collect(Collectors.toList()))));
+        return changes;
+    }
+
+    /**
+     * This builds the changes for tickets taken out of the pool, one change for the tickets of each event and
+     * vendor.
+     *
+     * @param removedTickets the tickets that were removed.
+     * @return the changes.
+     */
+    private List<PoolDelta> removedChanges(List<TicketEntity> removedTickets) {
+        List<PoolDelta> changes = new ArrayList<>();
+        groupByEventAndVendor(removedTickets).forEach((key, group) ->
+                changes.add(PoolDelta.ticketRemoved(++poolSequence, key.get(0), key.get(1),
+                        group.stream().map(TicketEntity::getTicketId).collect(Collectors.toList()))));
+        return changes;
+    }
+
+    /**
+     * This counts tickets added to the pool and publishes the new counts of their events and vendors. This and the
+     * other methods counting changes must be called with the ticket lock held, once the change is committed.
+     *
+     * @param addedTickets the tickets that were added.
+     */
+    private void countAdded(List<TicketEntity> addedTickets) {
+        groupByEventAndVendor(addedTickets).forEach((key, group) -> {
+            group.forEach(ticket -> adjustCounts(ticket, "Available", 1));
+            publishCounts(key.get(0), key.get(1));
+        });
+    }
+
+    /**
+     * This counts "Available" tickets that were booked and publishes the new counts of their events and vendors.
+     *
+     * @param bookedTickets the tickets that were booked.
+     */
+    private void countBooked(List<TicketEntity> bookedTickets) {
+        groupByEventAndVendor(bookedTickets).forEach((key, group) -> {
+            group.forEach(ticket -> {
+                adjustCounts(ticket, "Available", -1);
+                adjustCounts(ticket, "Booked", 1);
+            });
+            publishCounts(key.get(0), key.get(1));
+        });
+    }
+
+    /**
+     * This counts tickets taken out of the pool and publishes the new counts of their events and vendors.
+     *
+     * @param removedTickets the tickets that were removed, with the status they had in the pool.
+     */
+    private void countRemoved(List<TicketEntity> removedTickets) {
+        groupByEventAndVendor(removedTickets).forEach((key, group) -> {
+            group.forEach(ticket -> adjustCounts(ticket, ticket.getTicketStatus(), -1));
+            publishCounts(key.get(0), key.get(1));
+        });
+    }
+
+    /**
+     * This groups tickets by their event name and vendor ID, keeping the order of the tickets.
+     *
+     * @param ticketsToGroup the tickets to group.
+     * @return the tickets by a list holding the event name and the vendor ID.
+     */
+    private static Map<List<String>, List<TicketEntity>> groupByEventAndVendor(List<TicketEntity> ticketsToGroup) {
+        return ticketsToGroup.stream().collect(Collectors.groupingBy(
+                ticket -> Arrays.asList(ticket.getEventName(), ticket.getVendorId()),
+                LinkedHashMap::new, Collectors.toList()));
+    }
+
+    /**
+     * This publishes the current counts of an event and of the tickets of a vendor for the event.
+     *
+     * @param eventName the name of the event.
+     * @param vendorId the ID of the vendor.
+     */
+    private void publishCounts(String eventName, String vendorId) {
+        TicketCounts eventCounts = countsByEvent.get(eventName);
+        poolEventPublisher.postCounts(new PoolCounts(poolSequence, eventName, null,
+                eventCounts.available, eventCounts.booked));
+        TicketCounts vendorCounts = countsByVendor.get(vendorId).get(eventName);
+        poolEventPublisher.postCounts(new PoolCounts(poolSequence, eventName, vendorId,
+                vendorCounts.available, vendorCounts.booked));
+    }
+
+    /**
+     * This adjusts the counts of the event and vendor of a ticket for its status.
+     *
+     * @param ticket the ticket that was added, removed or changed.
+     * @param status the status to count the ticket under.
+     * @param change the number to add to the count, which is negative for a ticket that no longer has the status.
+     */
+    private void adjustCounts(TicketEntity ticket, String status, int change) {
+        TicketCounts eventCounts = countsByEvent.computeIfAbsent(ticket.getEventName(), e -> new TicketCounts());
+        TicketCounts vendorCounts = countsByVendor.computeIfAbsent(ticket.getVendorId(), v -> new HashMap<>())
+                .computeIfAbsent(ticket.getEventName(), e -> new TicketCounts());
+        if ("Available".equals(status)) {
+            eventCounts.available += change;
+            vendorCounts.available += change;
+        } else if ("Booked".equals(status)) {
+            eventCounts.booked += change;
+            vendorCounts.booked += change;
+        }
+    }
+
+    /**
+     * This method takes a snapshot of the pool together with the sequence number of the last change it includes,
+     * which clients load when they connect and whenever they detect a missed change on "/topic/ticketpool". The
+     * snapshot can be limited to the tickets of an event or a vendor, for the clients of the per-event and
+     * per-vendor topics.
+     *
+     * @param eventName the name of the event to limit the snapshot to, or {@code null} for all events.
+     * @param vendorId the ID of the vendor to limit the snapshot to, or {@code null} for all vendors.
+     * @param compact {@code true} for the columnar format of {@link CompactPoolFormat}, otherwise {@code false}.
+     * @return a map holding the sequence number as "seq" and the tickets in the pool as "tickets", or the message of
+     * the compact format holding the sequence number and the columns of the tickets.
+     */
+    public Object snapshot(String eventName, String vendorId, boolean compact) {
+        long seq;
+        List<TicketEntity> snapshotTickets;
+        ticketLock.lock();
+        try {
+            seq = poolSequence;
+            snapshotTickets = tickets.stream()
+                    .filter(ticket -> eventName == null || eventName.equals(ticket.getEventName()))
+                    .filter(ticket -> vendorId == null || vendorId.equals(ticket.getVendorId()))
+                    .collect(Collectors.toList());
+        } finally {
+            ticketLock.unlock();
+        }
+        if (compact) {
+            return CompactPoolFormat.encodeSnapshot(seq, snapshotTickets);
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("seq", seq);
+        snapshot.put("tickets", snapshotTickets);
+        return snapshot;
+    }
+
+    /**
+     * This method takes the counts of available and booked tickets of every event in the pool, together with the
+     * sequence number of the last change they include, for the counts stream. The counts are kept up to date with
+     * every change of the pool, so this copies one entry per event instead of going through the tickets.
+     *
+     * @return a map holding the sequence number as "seq" and the counts of each event, ordered by event name, as
+     * "events".
+     */
+    public Map<String, Object> eventCountsSnapshot() {
+        ticketLock.lock();
+        try {
+            long seq = poolSequence;
+            List<PoolCounts> eventCounts = new ArrayList<>(countsByEvent.size());
+            new TreeMap<>(countsByEvent).forEach((eventName, counts) ->
+                    eventCounts.add(new PoolCounts(seq, eventName, null, counts.available, counts.booked)));
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("seq", seq);
+            snapshot.put("events", eventCounts);
+            return snapshot;
+        } finally {
+            ticketLock.unlock();
+        }
+    }
+
     /**
      * This method checks if a ticket is available for a specific event in a thread-safe manner.
      *
@@ -281,19 +997,36 @@ public class TicketPoolService {
      * This method makes threads to wait for a specific event ticket to become available if there are out of stock.
      *
      * @param eventName the name of the event.
+     * @param deadline the deadline of the request, which bounds the wait.
      * @throws InterruptedException if the thread is interrupted while waiting.
      */
-    private void waitForSpecificEventTicket(String eventName) throws InterruptedException {
+    private void waitForSpecificEventTicket(String eventName, Deadline deadline) throws InterruptedException {
         ticketLock.lock();
         try {
             consumerConditions.putIfAbsent(eventName, ticketLock.newCondition());
             eventUsageCount.put(eventName, eventUsageCount.getOrDefault(eventName, 0) + 1);
-            consumerConditions.get(eventName).await();
+            awaitUntil(consumerConditions.get(eventName), deadline);
         } finally {
             ticketLock.unlock();
         }
     }
 
+    /**
+     * This waits on a condition of the ticket lock until it is signalled or the deadline runs out. This must be
+     * called with the ticket lock held.
+     *
+     * @param condition the condition to wait on.
+     * @param deadline the deadline of the request, which bounds the wait if it has a time limit.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    private void awaitUntil(Condition condition, Deadline deadline) throws InterruptedException {
+        if (deadline.hasTimeLimit()) {
+            condition.awaitNanos(deadline.remainingNanos());
+        } else {
+            condition.await();
+        }
+    }
+
     /**
      * This method notifies consumers threads waiting for a specific event ticket, to wake them up.
      *
@@ -370,37 +1103,210 @@ public class TicketPoolService {
     }
 
     /**
-     * This method counts the booked tickets grouped by event.
+     * This method counts the booked tickets grouped by event, including the tickets moved to the archive.
      *
      * @return a map of event names to booked ticket counts.
      */
     public Map<String, Integer> countBookedTicketsByEvent() {
+        Map<String, Integer> bookedCounts;
         ticketLock.lock();
         try {
-            return tickets.stream()
+            bookedCounts = tickets.stream()
                     .filter(ticket -> "Booked".equals(ticket.getTicketStatus()))
                     .collect(Collectors.groupingBy(TicketEntity::getEventName, Collectors.summingInt(ticket -> 1)));
         } finally {
             ticketLock.unlock();
         }
+        ticketStore.countArchivedByEvent().forEach((eventName, archivedCount) ->
+                bookedCounts.merge(eventName, archivedCount.intValue(), Integer::sum));
+        return bookedCounts;
     }
 
     /**
-     * This method counts the booked tickets for a specific customer grouped by event.
+     * This method counts the booked tickets for a specific customer grouped by event, including the tickets moved
+     * to the archive.
      *
      * @param customerId the ID of the customer.
      * @return a map of event names to booked ticket counts for specific customer ID.
      */
     public Map<String, Long> countBookedTicketsByCustomerId(String customerId) {
+        Map<String, Long> bookedCounts;
         ticketLock.lock();
         try {
-            return tickets.stream()
+            bookedCounts = tickets.stream()
                     .filter(ticket -> "Booked".equals(ticket.getTicketStatus()) &&
                             customerId.equals(ticket.getCustomerId()))
                     .collect(Collectors.groupingBy(TicketEntity::getEventName, Collectors.counting()));
         } finally {
             ticketLock.unlock();
         }
+        ticketStore.countArchivedByEventForCustomer(customerId).forEach((eventName, archivedCount) ->
+                bookedCounts.merge(eventName, archivedCount, Long::sum));
+        return bookedCounts;
     }
-}
 
+    /**
+     * This is a non-blocking request on the ticket pool. Its attempt is only ever run on the waiter lane of the
+     * {@link WorkerExecutorService} with the ticket lock held, and while it cannot go ahead the request waits in a
+     * queue of the pool instead of holding a thread.
+     *
+     * A request is in exactly one of these places: in its queue, handed to the waiter lane, or done. When its
+     * deadline runs out or is cancelled, the request is taken out of its queue if it is there, or marked expired if
+     * it has been handed to the waiter lane, so a request whose caller has already been told it timed out or has gone
+     * away never books or adds a ticket.
+     *
+     * @param <T> the type of the result of the request.
+     */
+    private final class AsyncWaiter<T> {
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        /**
+         * This is the event the request books tickets for, or {@code null} for a ticket release.
+         */
+        private final String eventName;
+
+        private final BooleanSupplier stopped;
+
+        /**
+         * This makes the request, returning {@code null} if it cannot go ahead yet.
+         */
+        private final Supplier<T> attempt;
+
+        private boolean dispatched;
+
+        private boolean expired;
+
+        /**
+         * This is {@code true} once the request has waited in its queue, after which it is only handed to the waiter
+         * lane together with a ticket or capacity that it has to pass on if it does not use it.
+         */
+        private boolean queued;
+
+        private Deadline deadline;
+
+        private AsyncWaiter(String eventName, BooleanSupplier stopped, Supplier<T> attempt) {
+            this.eventName = eventName;
+            this.stopped = stopped;
+            this.attempt = attempt;
+        }
+
+        /**
+         * This schedules the expiry of the request at its deadline, registers it to expire when the deadline is
+         * cancelled, and hands it to the waiter lane for the first attempt.
+         *
+         * @param deadline the deadline of the request.
+         */
+        private void start(Deadline deadline) {
+            this.deadline = deadline;
+            if (deadline.hasTimeLimit()) {
+                CompletableFuture.runAsync(this::expire,
+                        CompletableFuture.delayedExecutor(deadline.remainingMillis(), TimeUnit.MILLISECONDS));
+            }
+            deadline.onCancel(this::expire);
+            ticketLock.lock();
+            try {
+                dispatch();
+            } finally {
+                ticketLock.unlock();
+            }
+        }
+
+        /**
+         * This hands the request to the waiter lane. This must be called with the ticket lock held.
+         */
+        private void dispatch() {
+            dispatched = true;
+            try {
+                workerExecutorService.submitWaiterTask(this::run);
+            } catch (RejectedExecutionException e) {
+                dispatched = false;
+                future.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * This makes an attempt of the request. A new request that cannot go ahead joins the tail of its queue, and
+         * one that was handed a ticket or capacity which was taken before its attempt goes back to the head.
+         */
+        private void run() {
+            ticketLock.lock();
+            try {
+                dispatched = false;
+                if (expired || deadline.isExpired()) {
+                    future.completeExceptionally(timeout());
+                    passOn();
+                } else if (stopped.getAsBoolean()) {
+                    future.completeExceptionally(new CancellationException("The ticket pool was stopped by the admin"));
+                } else {
+                    T result = attempt.get();
+                    if (result == null) {
+                        if (queued) {
+                            asyncWaiterQueue(eventName).addFirst(this);
+                        } else {
+                            asyncWaiterQueue(eventName).addLast(this);
+                            queued = true;
+                        }
+                    } else {
+                        future.complete(result);
+                    }
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                passOn();
+            } finally {
+                ticketLock.unlock();
+            }
+        }
+
+        /**
+         * This passes the ticket or capacity the request was handed on to the next request of its queue, when the
+         * request ends without using it, such as when it timed out or was rejected by a rate limit. This must be
+         * called with the ticket lock held.
+         */
+        private void passOn() {
+            if (queued) {
+                dispatchAsyncWaiters(eventName == null ? asyncReleaseWaiters : asyncBookingWaiters.get(eventName), 1);
+            }
+        }
+
+        /**
+         * This times the request out because its deadline ran out or was cancelled, unless it is already done.
+         */
+        private void expire() {
+            ticketLock.lock();
+            try {
+                if (future.isDone()) {
+                    return;
+                }
+                if (dispatched) {
+                    expired = true;
+                } else if (asyncWaiterQueue(eventName).remove(this)) {
+                    future.completeExceptionally(timeout());
+                }
+            } finally {
+                ticketLock.unlock();
+            }
+        }
+
+        /**
+         * This creates the exception the request is completed with when its deadline ends the wait.
+         *
+         * @return the exception, which tells if the caller went away or the time ran out.
+         */
+        private TimeoutException timeout() {
+            return new TimeoutException(deadline.isCancelled() ? "The caller abandoned the request"
+                    : "The request timed out waiting on the pool");
+        }
+    }
+
+    /**
+     * This is the number of "Available" and "Booked" tickets of an event, or of a vendor for an event, in the pool.
+     */
+    private static final class TicketCounts {
+
+        private int available;
+
+        private int booked;
+    }
+}
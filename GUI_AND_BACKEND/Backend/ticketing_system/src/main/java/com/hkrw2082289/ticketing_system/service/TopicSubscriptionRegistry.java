@@ -0,0 +1,131 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This service class keeps track of the WebSocket destinations that have subscribers, so the publisher of the pool
+ * changes does not build and serialize messages for the per-event and per-vendor topics nobody is listening to.
+ *
+ * The subscriptions are followed through the events the STOMP endpoint publishes when a session subscribes,
+ * unsubscribes or disconnects. A subscription to a pattern such as "/topic/ticketpool/event/*" is matched against
+ * the destinations in the same way as the simple broker matches it.
+ */
+@Service
+public class TopicSubscriptionRegistry {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * This holds the destination of every subscription, by session ID and subscription ID.
+     */
+    private final Map<String, Map<String, String>> sessionSubscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * This holds the number of subscriptions to each exact destination.
+     */
+    private final Map<String, Integer> subscriberCounts = new ConcurrentHashMap<>();
+
+    /**
+     * This holds the number of subscriptions to each destination pattern.
+     */
+    private final Map<String, Integer> patternCounts = new ConcurrentHashMap<>();
+
+    /**
+     * This method records a new subscription.
+     *
+     * @param event the event of the subscription.
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String destination = headers.getDestination();
+        if (headers.getSessionId() == null || headers.getSubscriptionId() == null || destination == null) {
+            return;
+        }
+        String previous = sessionSubscriptions
+                .computeIfAbsent(headers.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(headers.getSubscriptionId(), destination);
+        if (previous != null) {
+            decrement(previous);
+        }
+        countsFor(destination).merge(destination, 1, Integer::sum);
+    }
+
+    /**
+     * This method removes a subscription that was ended by the client.
+     *
+     * @param event the event of the unsubscription.
+     */
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = headers.getSessionId() == null ? null
+                : sessionSubscriptions.get(headers.getSessionId());
+        if (subscriptions == null || headers.getSubscriptionId() == null) {
+            return;
+        }
+        String destination = subscriptions.remove(headers.getSubscriptionId());
+        if (destination != null) {
+            decrement(destination);
+        }
+    }
+
+    /**
+     * This method removes every subscription of a session that has disconnected.
+     *
+     * @param event the event of the disconnection.
+     */
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessionSubscriptions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::decrement);
+        }
+    }
+
+    /**
+     * This method checks if any session is subscribed to a destination, directly or through a pattern.
+     *
+     * @param destination the destination a message is about to be sent to.
+     * @return {@code true} if the message would reach at least one session, otherwise {@code false}.
+     */
+    public boolean hasSubscribers(String destination) {
+        if (subscriberCounts.containsKey(destination)) {
+            return true;
+        }
+        for (String pattern : patternCounts.keySet()) {
+            if (pathMatcher.match(pattern, destination)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This removes one subscription to a destination, and forgets the destination once it has none left.
+     *
+     * @param destination the destination of the subscription.
+     */
+    private void decrement(String destination) {
+        countsFor(destination).computeIfPresent(destination, (d, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * This returns the map holding the number of subscriptions to a destination or to a pattern.
+     *
+     * @param destination the destination or pattern of a subscription.
+     * @return the map of the destinations or of the patterns.
+     */
+    private Map<String, Integer> countsFor(String destination) {
+        return pathMatcher.isPattern(destination) ? patternCounts : subscriberCounts;
+    }
+}
@@ -1,15 +1,26 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.service;
+import com.hkrw2082289.ticketing_system.helper.Deadline;
+import com.hkrw2082289.ticketing_system.helper.VendorAccount;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob.JobType;
 import com.hkrw2082289.ticketing_system.model.TicketEntity;
 import com.hkrw2082289.ticketing_system.model.Vendor;
 import com.hkrw2082289.ticketing_system.repository.VendorRepository;
+import com.hkrw2082289.ticketing_system.utils.RateLimitExceededException;
 import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -29,25 +40,35 @@ public class VendorService {
 
     private static final String VENDOR_ID_REGEX = "^[a-zA-Z]{4}\\d{3}$";
 
-    /**
-     * Used to Map threads with vendor IDs from which they were created.
-     */
-    private final Map<String, List<Thread>> vendorThreads = new ConcurrentHashMap<>();
-
     private final TicketPoolService ticketPoolService;
 
+    private final JobService jobService;
+
+    private final RateLimitService rateLimitService;
+
     // Lock instance for controlling access
     private static final ReentrantLock vendorLock = new ReentrantLock();
 
+    /**
+     * This is the longest time in milliseconds an asynchronous ticket release request may wait for free capacity.
+     */
+    @Value("${ticketing.async.timeout-ms:30000}")
+    private long asyncTimeoutMs;
+
     /**
      * This constructor is used for injecting dependencies like TicketService and TicketPoolService classes.
      *
      * @param ticketService       the service responsible for ticket creation.
      * @param ticketPoolService   the service managing ticket pools.
+     * @param jobService the service keeping track of ticket release jobs.
+     * @param rateLimitService the service enforcing the rate limits on ticket releases.
      */
-    public VendorService(TicketService ticketService, TicketPoolService ticketPoolService) {
+    public VendorService(TicketService ticketService, TicketPoolService ticketPoolService, JobService jobService,
+                         RateLimitService rateLimitService) {
         this.ticketService = ticketService;
         this.ticketPoolService = ticketPoolService;
+        this.jobService = jobService;
+        this.rateLimitService = rateLimitService;
     }
 
     /**
@@ -57,6 +78,7 @@ public class VendorService {
      * @param password the vendor's password.
      * @return a {@link ResponseFinder} object indicating success or failure of the sign-up process for vendors.
      */
+    @CacheEvict(cacheNames = "vendors", key = "#vendorId")
     public ResponseFinder signUpVendor(String vendorId, String password) {
         vendorLock.lock();
         try {
@@ -91,8 +113,8 @@ public class VendorService {
     public ResponseFinder signInVendor(String vendorId, String password) {
         vendorLock.lock();
         try {
-            Vendor vendor = vendorRepository.findByVendorIdAndPassword(vendorId, password);
-            if (vendor != null) {
+            VendorAccount vendor = vendorRepository.findAccountByVendorId(vendorId);
+            if (vendor != null && vendor.getPassword().equals(password)) {
                 return new ResponseFinder(true, String.format("Success: Sign-in successful," +
                         " VendorID found: '%s'.",vendor.getVendorId()), vendor);
             } else {
@@ -104,37 +126,28 @@ public class VendorService {
     }
 
     /**
-     * This method starts a new thread for handling a vendor's ticket release request.
+     * This method starts a ticket release job for handling a vendor's ticket release request. The vendor worker of
+     * the job runs on the vendor lane of the {@link WorkerExecutorService}, and the job ID is returned as the data of
+     * the response so the progress of the job can be queried.
      *
      * @param vendorId the unique identifier for the vendor.
      * @param payload  a map containing details such as event name, price, and ticket batch size.
+     * @param deadline the deadline of the request, which can be narrowed by an optional "timeoutMs" in the payload,
+     *                 after which the job stops waiting on the pool and expires.
      * @return a {@link ResponseFinder} object indicating success or failure of ticket release request.
+     * @throws RateLimitExceededException if the vendor cannot release tickets right now because of a rate limit.
      */
-    public ResponseFinder startVendorThread(String vendorId, Map<String, Object> payload) {
-        Optional<Vendor> optionalVendor = vendorRepository.findById(vendorId);
-
-        if (optionalVendor.isEmpty()) {
+    public ResponseFinder startVendorThread(String vendorId, Map<String, Object> payload, Deadline deadline) {
+        if (vendorRepository.findAccountByVendorId(vendorId) == null) {
             return new ResponseFinder(false,"Error: Vendor ID " + vendorId +
                     " does not exist in the database.");
         }
 
-        Object priceObj = payload.get("price");
-        Double price;
-        if (priceObj instanceof Integer) {
-            price = ((Integer) priceObj).doubleValue();
-        } else if (priceObj instanceof Double) {
-            price = (Double) priceObj;
-        } else {
-            throw new IllegalArgumentException("Invalid price type");
-        }
-
         String eventName = (String) payload.get("event_Name");
-        String timeDuration = (String) payload.get("time_Duration");
-        String date = (String) payload.get("date");
         int batchSize = (Integer) payload.get("batch_Size");
+        rateLimitService.checkRelease(vendorId, eventName);
 
-        List<TicketEntity> ticketBatch = ticketService.createTickets(vendorId, eventName,
-                price, timeDuration, date, batchSize);
+        List<TicketEntity> ticketBatch = createTicketBatch(vendorId, payload);
         Vendor vendor = new Vendor();
         vendor.setVendorId(vendorId);
         double ticketReleaseRate = configurationService.viewConfiguration().getTicketReleaseRate();
@@ -142,40 +155,162 @@ public class VendorService {
         vendor.setTicketBatch(ticketBatch);
         vendor.setTicketPoolService(ticketPoolService);
 
-        Thread vendorThread = new Thread(vendor);
-        vendorThreads.computeIfAbsent(vendorId, k -> new ArrayList<>()).add(vendorThread);
-        vendorThread.start();
-
         if (isAdminStopAllRelease()) {
+            // A job started now would be paused straight away and resumed later, so the request is denied instead.
             return new ResponseFinder(false,
                     String.format("Error: System has been stopped by Admin." +
                             " Sorry, your ticket release request for '%s' has been denied", eventName));
+        }
+        if (!jobService.isAcceptingJobs()) {
+            return new ResponseFinder(false, String.format("Error: System is shutting down." +
+                    " Sorry, your ticket release request for '%s' has been denied", eventName));
+        }
+        Deadline jobDeadline = deadline.withTimeout(requestedTimeoutMs(payload));
+        if (jobDeadline.isExpired()) {
+            return new ResponseFinder(false, String.format("Error: The deadline of your ticket release request" +
+                    " for '%s' has already passed.", eventName));
+        }
+        WorkerJob job = jobService.createJob(JobType.TICKET_RELEASE, vendorId, eventName, batchSize);
+        job.setDeadline(jobDeadline);
+        vendor.setJob(job);
+        jobService.submitJob(job, vendor, ticketReleaseRate);
+        return new ResponseFinder(true,
+                String.format("Success: Thread started for vendor ID: %s with event '%s' and ticket batch size %d." +
+                        " Job ID: %d.", vendorId, eventName, batchSize, job.getJobId()), job.getJobId());
+    }
+
+    /**
+     * This method releases a batch of tickets to the pool without holding a request thread, for the asynchronous
+     * REST API endpoint. The tickets are added through the non-blocking API of the {@link TicketPoolService}, as
+     * many at once as the pool has room for, so they are written to the store in batches, waiting for free capacity
+     * in the pool without a thread. The returned future is completed once every ticket has been added or the request
+     * has timed out.
+     *
+     * @param vendorId the unique identifier for the vendor.
+     * @param payload  a map containing details such as event name, price and ticket batch size, and optionally
+     *                 "timeoutMs", the time in milliseconds the request may wait for free capacity.
+     * @param deadline the deadline of the request, which is cancelled if the caller goes away.
+     * @return a future completed with a {@link ResponseFinder} indicating success or failure of the ticket release,
+     * whose data is the number of tickets added.
+     * @throws RateLimitExceededException if the vendor cannot release tickets right now because of a rate limit.
+     */
+    public CompletableFuture<ResponseFinder> releaseTicketsAsync(String vendorId, Map<String, Object> payload,
+                                                                 Deadline deadline) {
+        if (vendorRepository.findAccountByVendorId(vendorId) == null) {
+            return CompletableFuture.completedFuture(new ResponseFinder(false, "Error: Vendor ID " + vendorId +
+                    " does not exist in the database."));
+        }
+        String eventName = (String) payload.get("event_Name");
+        if (isAdminStopAllRelease()) {
+            return CompletableFuture.completedFuture(new ResponseFinder(false,
+                    String.format("Error: System has been stopped by Admin." +
+                            " Sorry, your ticket release request for '%s' has been denied", eventName)));
+        }
+        rateLimitService.checkRelease(vendorId, eventName);
+
+        List<TicketEntity> ticketBatch = createTicketBatch(vendorId, payload);
+        Long requestedTimeoutMs = requestedTimeoutMs(payload);
+        long timeoutMs = Math.min(Math.min(asyncTimeoutMs, deadline.remainingMillis()),
+                requestedTimeoutMs != null ? requestedTimeoutMs : asyncTimeoutMs);
+        Deadline releaseDeadline = deadline.withTimeout(timeoutMs);
+        AtomicInteger added = new AtomicInteger();
+        return addRemaining(ticketBatch, added, releaseDeadline).handle((result, error) -> {
+            if (error == null) {
+                return new ResponseFinder(true, String.format("Success: Released %d tickets for event '%s'" +
+                        " by vendor ID: %s.", ticketBatch.size(), eventName, vendorId), ticketBatch.size());
+            }
+            int released = added.get();
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (cause instanceof TimeoutException && releaseDeadline.isCancelled()) {
+                return new ResponseFinder(false, String.format("Error: Your ticket release request for '%s' was" +
+                        " abandoned after %d of %d tickets.", eventName, released, ticketBatch.size()), released);
+            }
+            if (cause instanceof TimeoutException) {
+                return new ResponseFinder(false, String.format("Error: The ticket pool stayed full, released" +
+                        " %d of %d tickets for event '%s' within %d ms.", released, ticketBatch.size(), eventName,
+                        timeoutMs), released);
+            }
+            if (cause instanceof CancellationException) {
+                return new ResponseFinder(false, String.format("Error: System has been stopped by Admin." +
+                        " Released %d of %d tickets for event '%s'.", released, ticketBatch.size(), eventName),
+                        released);
+            }
+            throw new CompletionException(cause);
+        });
+    }
+
+    /**
+     * This adds the tickets of a batch that have not been added yet, as many at once as the pool has room for, until
+     * every ticket has been added.
+     *
+     * @param ticketBatch the tickets to release.
+     * @param added the number of tickets of the batch added so far, which is updated as tickets are added.
+     * @param deadline the deadline of the release.
+     * @return a future completed once every ticket has been added, or completed exceptionally when the release stops.
+     */
+    private CompletableFuture<Void> addRemaining(List<TicketEntity> ticketBatch, AtomicInteger added,
+                                                 Deadline deadline) {
+        if (added.get() >= ticketBatch.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return ticketPoolService.addTicketsAsync(ticketBatch.subList(added.get(), ticketBatch.size()), deadline)
+                .thenCompose(count -> {
+                    added.addAndGet(count);
+                    return addRemaining(ticketBatch, added, deadline);
+                });
+    }
+
+    /**
+     * This reads the optional "timeoutMs" of a request body, the time in milliseconds the caller is willing to wait.
+     *
+     * @param payload the body of the request.
+     * @return the time in milliseconds, or {@code null} if the body does not set one.
+     */
+    private static Long requestedTimeoutMs(Map<String, Object> payload) {
+        Object timeoutMs = payload.get("timeoutMs");
+        return timeoutMs instanceof Number ? ((Number) timeoutMs).longValue() : null;
+    }
+
+    /**
+     * This creates the batch of tickets a vendor asked to release.
+     *
+     * @param vendorId the unique identifier for the vendor.
+     * @param payload  a map containing details such as event name, price, time duration, date and ticket batch size.
+     * @return the new tickets, which have not been saved yet.
+     */
+    private List<TicketEntity> createTicketBatch(String vendorId, Map<String, Object> payload) {
+        Object priceObj = payload.get("price");
+        Double price;
+        if (priceObj instanceof Integer) {
+            price = ((Integer) priceObj).doubleValue();
+        } else if (priceObj instanceof Double) {
+            price = (Double) priceObj;
         } else {
-            return new ResponseFinder(true,
-                    String.format("Success: Thread started for vendor ID: %s with event '%s' and ticket batch size %d.",
-                            vendorId, eventName, batchSize));
+            throw new IllegalArgumentException("Invalid price type");
         }
+
+        String eventName = (String) payload.get("event_Name");
+        String timeDuration = (String) payload.get("time_Duration");
+        String date = (String) payload.get("date");
+        int batchSize = (Integer) payload.get("batch_Size");
+        return ticketService.createTickets(vendorId, eventName, price, timeDuration, date, batchSize);
     }
 
     /**
-     * This method stops all ticket releasing threads associated with a given vendor ID.
+     * This method stops all ticket release jobs associated with a given vendor ID.
      *
      * @param vendorId the unique identifier for the vendor.
      * @return a {@link ResponseFinder} object indicating success or failure of the stopping of ticket releases.
      */
     public ResponseFinder stopAllThreadsOfVendor(String vendorId) {
-        List<Thread> threads = vendorThreads.get(vendorId);
+        int cancelled = jobService.cancelJobsOfOwner(JobType.TICKET_RELEASE, vendorId);
 
-        if (threads == null || threads.isEmpty()) {
+        if (cancelled == 0) {
             return new ResponseFinder(false,
                     "Error: No active threads found for vendor ID: " + vendorId);
         }
 
-        for (Thread thread : threads) {
-            thread.interrupt();
-        }
-        vendorThreads.remove(vendorId);
-
         return new ResponseFinder(true,
                 "Success: All threads for vendor ID: " + vendorId + " have been interrupted.");
     }
@@ -0,0 +1,237 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This service class runs the vendor and customer workers of the ticketing system as tasks on managed executors,
+ * instead of creating a new platform thread for every ticket release or purchase request.
+ *
+ * The execution mode is chosen with the "ticketing.workers.mode" property:
+ * "virtual" runs every worker on its own virtual thread, which needs a Java 21 runtime and lets the system hold a
+ * very large number of waiting workers without exhausting OS threads; "platform" runs the workers on bounded pools
+ * of platform threads; and "auto" (the default) uses virtual threads when the runtime supports them and falls back
+ * to the bounded pools otherwise. The virtual thread executor is looked up reflectively, so the application still
+ * builds and runs on Java 17.
+ *
+ * Vendors and customers run in separate lanes. Customers block while waiting for tickets of their event, so with
+ * bounded pools a single shared pool could fill up with waiting customers and leave no thread for the vendors that
+ * would release them.
+ *
+ * The attempts of the non-blocking requests of the ticket pool run in a third lane, a few platform threads of their
+ * own set with "ticketing.workers.waiter-threads". An attempt only holds the ticket lock for as long as it books or
+ * adds tickets and never waits on the pool, so it must not queue behind workers parked in the vendor or customer
+ * lane.
+ */
+@Service
+public class WorkerExecutorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerExecutorService.class);
+
+    /**
+     * This is the executor running vendor workers.
+     */
+    private final ExecutorService vendorExecutor;
+
+    /**
+     * This is the executor running customer workers.
+     */
+    private final ExecutorService customerExecutor;
+
+    /**
+     * This is the executor running the attempts of the non-blocking requests of the ticket pool.
+     */
+    private final ExecutorService waiterExecutor;
+
+    /**
+     * This is the number of vendor worker tasks currently running.
+     */
+    private final AtomicInteger activeVendorWorkers = new AtomicInteger();
+
+    /**
+     * This is the number of customer worker tasks currently running.
+     */
+    private final AtomicInteger activeCustomerWorkers = new AtomicInteger();
+
+    /**
+     * This is {@code true} when the workers run on virtual threads.
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * This constructor creates the vendor and customer executors for the configured execution mode.
+     *
+     * @param mode the execution mode, one of "auto", "virtual" or "platform".
+     * @param vendorPoolSize the number of platform threads running vendor workers in platform mode.
+     * @param customerPoolSize the number of platform threads running customer workers in platform mode.
+     * @param waiterThreads the number of platform threads running the attempts of non-blocking requests.
+     * @param meterRegistry the registry the worker metrics are published to.
+     */
+    public WorkerExecutorService(@Value("${ticketing.workers.mode:auto}") String mode,
+                                 @Value("${ticketing.workers.vendor-pool-size:64}") int vendorPoolSize,
+                                 @Value("${ticketing.workers.customer-pool-size:256}") int customerPoolSize,
+                                 @Value("${ticketing.workers.waiter-threads:2}") int waiterThreads,
+                                 MeterRegistry meterRegistry) {
+        boolean virtualSupported = isVirtualThreadSupported();
+        if ("virtual".equalsIgnoreCase(mode) && !virtualSupported) {
+            throw new IllegalStateException("Virtual thread workers need a Java 21 runtime, but this runtime is Java "
+                    + Runtime.version().feature() + ". Set ticketing.workers.mode to 'platform' or 'auto'.");
+        }
+        this.virtualThreads = virtualSupported && !"platform".equalsIgnoreCase(mode);
+        if (virtualThreads) {
+            vendorExecutor = newVirtualThreadExecutor("vendor-worker-");
+            customerExecutor = newVirtualThreadExecutor("customer-worker-");
+        } else {
+            vendorExecutor = ExecutorServiceMetrics.monitor(meterRegistry,
+                    newPlatformThreadExecutor("vendor-worker-", vendorPoolSize), "ticketing.workers.vendor");
+            customerExecutor = ExecutorServiceMetrics.monitor(meterRegistry,
+                    newPlatformThreadExecutor("customer-worker-", customerPoolSize), "ticketing.workers.customer");
+        }
+        waiterExecutor = ExecutorServiceMetrics.monitor(meterRegistry,
+                newPlatformThreadExecutor("pool-waiter-", waiterThreads), "ticketing.workers.waiter");
+        Gauge.builder("ticketing.workers.active", activeVendorWorkers, AtomicInteger::get)
+                .description("Vendor and customer worker tasks currently running")
+                .tag("type", "vendor")
+                .register(meterRegistry);
+        Gauge.builder("ticketing.workers.active", activeCustomerWorkers, AtomicInteger::get)
+                .description("Vendor and customer worker tasks currently running")
+                .tag("type", "customer")
+                .register(meterRegistry);
+        logger.info("Vendor and customer workers run on {}", virtualThreads ? "virtual threads" :
+                String.format("platform thread pools of %d and %d threads", vendorPoolSize, customerPoolSize));
+    }
+
+    /**
+     * This method submits a vendor worker, or any other task that belongs to the vendor lane.
+     *
+     * @param task the task to run.
+     * @return a {@link Future} that can be used to cancel the task, interrupting it if it is running.
+     */
+    public Future<?> submitVendorTask(Runnable task) {
+        return vendorExecutor.submit(tracked(task, activeVendorWorkers));
+    }
+
+    /**
+     * This method submits a customer worker, or any other task that belongs to the customer lane.
+     *
+     * @param task the task to run.
+     * @return a {@link Future} that can be used to cancel the task, interrupting it if it is running.
+     */
+    public Future<?> submitCustomerTask(Runnable task) {
+        return customerExecutor.submit(tracked(task, activeCustomerWorkers));
+    }
+
+    /**
+     * This method submits an attempt of a non-blocking request of the ticket pool. Attempts never wait on the pool,
+     * so they run on their own threads and are not held up by the workers waiting in the vendor and customer lanes.
+     *
+     * @param task the attempt to run.
+     * @return a {@link Future} of the attempt.
+     */
+    public Future<?> submitWaiterTask(Runnable task) {
+        return waiterExecutor.submit(task);
+    }
+
+    /**
+     * This method checks whether the workers run on virtual threads.
+     *
+     * @return {@code true} for virtual threads, {@code false} for the bounded platform thread pools.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * This method interrupts all running workers and stops the executors when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        List<Runnable> pendingVendors = vendorExecutor.shutdownNow();
+        List<Runnable> pendingCustomers = customerExecutor.shutdownNow();
+        waiterExecutor.shutdownNow();
+        logger.info("Worker executors stopped, {} vendor and {} customer workers never started",
+                pendingVendors.size(), pendingCustomers.size());
+    }
+
+    /**
+     * This wraps a task so the number of running workers of its lane is kept up to date.
+     *
+     * @param task the task to wrap.
+     * @param activeWorkers the counter of running workers of the lane.
+     * @return the wrapped task.
+     */
+    private static Runnable tracked(Runnable task, AtomicInteger activeWorkers) {
+        return () -> {
+            activeWorkers.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                activeWorkers.decrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * This checks whether the running JVM supports virtual threads.
+     *
+     * @return {@code true} on Java 21 or later, {@code false} otherwise.
+     */
+    private static boolean isVirtualThreadSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return Runtime.version().feature() >= 21;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * This creates an executor that starts a new named virtual thread for every task. The Java 21 API is called
+     * reflectively so the class compiles against Java 17.
+     *
+     * @param namePrefix the prefix of the thread names, followed by a counter.
+     * @return the virtual thread per task executor.
+     */
+    private static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+                    ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+
+    /**
+     * This creates a fixed size pool of named daemon platform threads. Tasks submitted while every thread is busy
+     * wait in the pool's queue.
+     *
+     * @param namePrefix the prefix of the thread names, followed by a counter.
+     * @param poolSize the number of threads in the pool.
+     * @return the platform thread pool.
+     */
+    private static ExecutorService newPlatformThreadExecutor(String namePrefix, int poolSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, namePrefix + threadCount.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
@@ -1,6 +1,8 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.utils;
+import com.hkrw2082289.ticketing_system.helper.Deadline;
 import com.hkrw2082289.ticketing_system.service.CustomerService;
+import com.hkrw2082289.ticketing_system.service.WorkerExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,7 +15,8 @@ import java.util.*;
  * and initiating other customer-related processes like purchasing tickets concurrently from the shared pool of tickets.
  *
  * This class provides functionality to simulate a large number of customers performing actions in parallel.
- * It utilizes threads to simulate concurrent customer behavior and logs the results of these actions.
+ * It submits the purchase requests to the customer lane of the {@link WorkerExecutorService} to simulate
+ * concurrent customer behavior and logs the results of these actions.
  */
 @Component
 public class CustomerSimulation {
@@ -21,18 +24,20 @@ public class CustomerSimulation {
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private WorkerExecutorService workerExecutorService;
+
     private static final Logger logger = LoggerFactory.getLogger(CustomerSimulation.class);
 
     /**
-     * This simulates customer interactions by creating and starting threads for each customer.
-     * Each customer signs up and then performs purchasing actions of tickets concurrently in separate threads.
+     * This simulates customer interactions by submitting a task for each customer.
+     * Each customer signs up and then performs purchasing actions of tickets concurrently as separate workers.
      *
      * @param numberOfCustomers the number of customers to simulate.
      */
     public void simulateCustomerThreads(int numberOfCustomers) {
         logger.info("Starting customer simulation with {} customers.", numberOfCustomers);
 
-        List<Thread> customerThreads = new ArrayList<>();
         for (int i = 1; i <= numberOfCustomers; i++) {
             String customerId = "cust" + String.format("%03d", i);
             String password = "password" + i;
@@ -45,13 +50,14 @@ public class CustomerSimulation {
             String customerId = "cust" + String.format("%03d", i);
             Map<String, Object> payload = generatePayload(i,customerId);
 
-            Thread customerThread = new Thread(() -> {
-                ResponseFinder result = customerService.startCustomerThread(customerId, payload);
-                logger.debug("Thread result for {}: {}", customerId, result.getMessage());
+            workerExecutorService.submitCustomerTask(() -> {
+                try {
+                    ResponseFinder result = customerService.startCustomerThread(customerId, payload, Deadline.none());
+                    logger.debug("Thread result for {}: {}", customerId, result.getMessage());
+                } catch (RateLimitExceededException e) {
+                    logger.warn("Thread for {} was not started: {}", customerId, e.getMessage());
+                }
             });
-
-            customerThreads.add(customerThread);
-            customerThread.start();
         }
 
         logger.info("Simulation started. Customer threads are running concurrently.");
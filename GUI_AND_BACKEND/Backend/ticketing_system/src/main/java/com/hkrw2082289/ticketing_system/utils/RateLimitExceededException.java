@@ -0,0 +1,52 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.utils;
+
+import java.io.Serial;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This exception is thrown when a ticket release or ticket purchase is rejected by one of the rate limits of the
+ * ticketing system. It carries the time after which the request can be retried, which paced workers use to
+ * reschedule their step and which REST API endpoints return as the "Retry-After" header of an HTTP 429 response.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * This is the time in nanoseconds after which the request can be retried.
+     */
+    private final long retryAfterNanos;
+
+    /**
+     * This constructor constructs the exception for the rate limit that rejected the request.
+     *
+     * @param scope the rate limit that rejected the request, such as "global" or "vendor".
+     * @param retryAfterNanos the time in nanoseconds after which the request can be retried.
+     */
+    public RateLimitExceededException(String scope, long retryAfterNanos) {
+        super(String.format("Error: The %s rate limit has been reached, please retry in %d ms.", scope,
+                TimeUnit.NANOSECONDS.toMillis(retryAfterNanos) + 1));
+        this.retryAfterNanos = retryAfterNanos;
+    }
+
+    /**
+     * This returns the time after which the request can be retried.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getRetryAfterNanos() {
+        return retryAfterNanos;
+    }
+
+    /**
+     * This returns the time after which the request can be retried, rounded up to whole seconds as needed by the
+     * "Retry-After" header.
+     *
+     * @return the time in seconds, which is at least one.
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterNanos + 999_999_999L) / 1_000_000_000L);
+    }
+}
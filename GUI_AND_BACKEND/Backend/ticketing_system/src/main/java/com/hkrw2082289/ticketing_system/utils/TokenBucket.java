@@ -0,0 +1,90 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is a lock-free token bucket used to rate limit ticket releases and ticket purchases.
+ *
+ * Instead of a token count that a timer tops up, the bucket keeps a single timestamp: the time at which it would be
+ * full again if no more tokens were taken. Taking tokens pushes that time forward by one interval per token, and
+ * time passing refills the bucket by itself, so any number of tokens is refilled in bulk on the next call without
+ * a refill thread. Every operation is a single compare-and-set on that timestamp, so the bucket never blocks.
+ */
+public class TokenBucket {
+
+    /**
+     * This is the time in nanoseconds it takes to refill one token.
+     */
+    private final long intervalNanos;
+
+    /**
+     * This is the time in nanoseconds it takes to refill the whole bucket, which sets how many tokens can be taken
+     * in a burst.
+     */
+    private final long capacityNanos;
+
+    /**
+     * This is the time, on the {@link System#nanoTime()} clock, at which the bucket is full again.
+     */
+    private final AtomicLong fullAtNanos;
+
+    /**
+     * This constructor constructs a full token bucket.
+     *
+     * @param tokensPerSecond the rate at which tokens are refilled.
+     * @param capacity the number of tokens the bucket holds when full.
+     */
+    public TokenBucket(double tokensPerSecond, int capacity) {
+        if (tokensPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("A token bucket needs a positive rate and capacity");
+        }
+        this.intervalNanos = Math.max(1, Math.round(1_000_000_000d / tokensPerSecond));
+        this.capacityNanos = intervalNanos * capacity;
+        this.fullAtNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * This takes up to the given number of tokens from the bucket.
+     *
+     * @param maxTokens the maximum number of tokens to take.
+     * @return the number of tokens taken, which is zero if the bucket is empty.
+     */
+    public int tryAcquireUpTo(int maxTokens) {
+        while (true) {
+            long now = System.nanoTime();
+            long fullAt = fullAtNanos.get();
+            long start = Math.max(fullAt, now);
+            long available = (capacityNanos - (start - now)) / intervalNanos;
+            int taken = (int) Math.min(maxTokens, available);
+            if (taken <= 0) {
+                return 0;
+            }
+            if (fullAtNanos.compareAndSet(fullAt, start + taken * intervalNanos)) {
+                return taken;
+            }
+        }
+    }
+
+    /**
+     * This gives tokens that were taken but not used back to the bucket.
+     *
+     * @param tokens the number of tokens to give back.
+     */
+    public void release(int tokens) {
+        if (tokens > 0) {
+            fullAtNanos.addAndGet(-tokens * intervalNanos);
+        }
+    }
+
+    /**
+     * This returns how long it takes until the next token can be taken, without taking it.
+     *
+     * @return the time in nanoseconds until a token is available, which is zero if one is available now.
+     */
+    public long nanosUntilAvailable() {
+        long now = System.nanoTime();
+        long start = Math.max(fullAtNanos.get(), now);
+        return Math.max(0, start - now + intervalNanos - capacityNanos);
+    }
+}
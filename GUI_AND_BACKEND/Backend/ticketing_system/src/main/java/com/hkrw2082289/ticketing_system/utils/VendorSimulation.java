@@ -1,6 +1,8 @@
 //Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
 package com.hkrw2082289.ticketing_system.utils;
+import com.hkrw2082289.ticketing_system.helper.Deadline;
 import com.hkrw2082289.ticketing_system.service.VendorService;
+import com.hkrw2082289.ticketing_system.service.WorkerExecutorService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -13,7 +15,7 @@ import java.util.*;
  * and adding tickets to events concurrently.
  *
  * This class allows simulating a large number of vendors adding tickets to events, with each vendor running
- * in its own thread to simulate concurrent behavior.
+ * as its own worker on the vendor lane of the {@link WorkerExecutorService} to simulate concurrent behavior.
  */
 @Component
 public class VendorSimulation {
@@ -21,18 +23,20 @@ public class VendorSimulation {
     @Autowired
     private VendorService vendorService;
 
+    @Autowired
+    private WorkerExecutorService workerExecutorService;
+
     private static final Logger logger = LoggerFactory.getLogger(VendorSimulation.class);
 
     /**
-     * This method simulates vendor actions by creating and starting threads for each vendor.
-     * Each vendor signs up and then adds tickets to events concurrently in separate threads.
+     * This method simulates vendor actions by submitting a task for each vendor.
+     * Each vendor signs up and then adds tickets to events concurrently as separate workers.
      *
      * @param numberOfVendors the number of vendors to simulate.
      */
     public void simulateVendorsAddingTickets(int numberOfVendors) {
         logger.info("Starting vendor simulation with {} vendors.", numberOfVendors);
 
-        List<Thread> vendorThreads = new ArrayList<>();
         for (int i = 1; i <= numberOfVendors; i++) {
             String vendorId = "VEND" + String.format("%03d", i);
             String password = "password" + i;
@@ -45,13 +49,14 @@ public class VendorSimulation {
             String vendorId = "VEND" + String.format("%03d", i);
             Map<String, Object> payload = generatePayload(vendorId);
 
-            Thread vendorThread = new Thread(() -> {
-                ResponseFinder result = vendorService.startVendorThread(vendorId, payload);
-                logger.debug("Thread result for {}: {}", vendorId, result.getMessage());
+            workerExecutorService.submitVendorTask(() -> {
+                try {
+                    ResponseFinder result = vendorService.startVendorThread(vendorId, payload, Deadline.none());
+                    logger.debug("Thread result for {}: {}", vendorId, result.getMessage());
+                } catch (RateLimitExceededException e) {
+                    logger.warn("Thread for {} was not started: {}", vendorId, e.getMessage());
+                }
             });
-
-            vendorThreads.add(vendorThread);
-            vendorThread.start();
         }
         logger.info("Simulation started. Vendor threads are running concurrently.");
     }
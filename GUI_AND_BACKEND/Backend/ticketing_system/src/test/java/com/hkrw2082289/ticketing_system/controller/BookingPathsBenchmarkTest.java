@@ -0,0 +1,228 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.controller;
+
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.service.JobService;
+import com.hkrw2082289.ticketing_system.service.TicketPoolService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This test class holds the benchmark comparing the two ways a customer can book tickets under the same load: the
+ * asynchronous "/book" endpoint, which waits for tickets without holding a request thread, and the "/start-thread"
+ * endpoint, which starts a ticket purchase job that waits for tickets on a job thread.
+ *
+ * Each run signs up a number of customers who all ask for one ticket of a sold out event at the same time, and a
+ * vendor releases enough tickets for all of them a while later. The benchmark logs, for each path, how long the
+ * customers waited in all and after the release, the bookings per second once the tickets were released, how long
+ * an unrelated request took while the customers were waiting, and how many threads were held waiting in the
+ * ticket pool. Tomcat is capped at a few request threads so a path that holds them shows up in the latency of the
+ * unrelated request. Each path is run once before it is measured, so both are measured warm.
+ *
+ * Besides logging the measurements, the benchmark checks the bounds the "/book" endpoint is there for: none of its
+ * waiting customers holds a thread in the ticket pool, the unrelated request is answered within
+ * {@value #PROBE_BOUND_MS} ms while they wait, and every customer has their ticket within
+ * {@value #AFTER_RELEASE_BOUND_MS} ms of the release.
+ *
+ * The benchmark is only run when asked for, as its timings depend on the machine:
+ * {@code mvn test -Dtest=BookingPathsBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:booking_bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database-platform=",
+        "ticketing.store.type=jdbc",
+        "ticketing.rate-limit.enabled=false",
+        "server.tomcat.threads.max=8"})
+class BookingPathsBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingPathsBenchmarkTest.class);
+
+    private static final int CUSTOMERS = 100;
+
+    private static final long PROBE_BOUND_MS = 1000;
+
+    private static final long AFTER_RELEASE_BOUND_MS = 5000;
+
+    private static final long RELEASE_AFTER_MS = 1500;
+
+    private static final Pattern JOB_ID = Pattern.compile("Job ID: (\\d+)");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JobService jobService;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    void benchmark() throws Exception {
+        assertEquals(200, post("/api/vendors/signup", "{\"vendorId\":\"vend900\",\"password\":\"pass1234\"}")
+                .statusCode());
+        run("book", "boox", "WarmBook");
+        run("start-thread", "jobx", "WarmJobs");
+        Result book = run("book", "book", "BenchBook");
+        Result jobs = run("start-thread", "jobs", "BenchJobs");
+        logger.info(String.format("%-14s %10s %10s %14s %14s %12s %12s", "path", "p50 ms", "p99 ms",
+                "p99 after rel", "bookings / s", "probe ms", "threads held"));
+        logger.info(book.format("book"));
+        logger.info(jobs.format("start-thread"));
+
+        assertEquals(0, book.waitingThreads(), "customers of /book held threads in the ticket pool");
+        assertTrue(book.probeMillis() < PROBE_BOUND_MS, "probe took " + book.probeMillis() + " ms");
+        assertTrue(book.afterReleaseMs() < AFTER_RELEASE_BOUND_MS, "/book customers took " +
+                book.afterReleaseMs() + " ms after the release");
+        assertTrue(jobs.afterReleaseMs() < AFTER_RELEASE_BOUND_MS, "/start-thread customers took " +
+                jobs.afterReleaseMs() + " ms after the release");
+    }
+
+    /**
+     * This runs the load against one of the booking paths.
+     *
+     * @param path the endpoint of the customers, "book" or "start-thread".
+     * @param prefix the four letters of the customer IDs of this run.
+     * @param eventName the event of this run, so the runs do not share tickets.
+     * @return the measurements of the run.
+     */
+    private Result run(String path, String prefix, String eventName) throws Exception {
+        for (int i = 0; i < CUSTOMERS; i++) {
+            assertEquals(200, post("/api/customers/signup", String.format("{\"customerId\":\"%s%03d\"," +
+                    "\"password\":\"pass1234\"}", prefix, i)).statusCode());
+        }
+        ExecutorService callers = Executors.newFixedThreadPool(CUSTOMERS);
+        try {
+            long start = System.nanoTime();
+            List<CompletableFuture<long[]>> bookings = new ArrayList<>();
+            for (int i = 0; i < CUSTOMERS; i++) {
+                String body = String.format("{\"eventName\":\"%s\",\"ticketToBook\":1,\"timeoutMs\":20000}",
+                        eventName);
+                String uri = String.format("/api/customers/%s%03d/%s", prefix, i, path);
+                bookings.add(CompletableFuture.supplyAsync(() -> book(uri, body, start), callers));
+            }
+            Thread.sleep(RELEASE_AFTER_MS);
+            long waitingThreads = Thread.getAllStackTraces().values().stream()
+                    .filter(stack -> Arrays.stream(stack).anyMatch(frame -> frame.getClassName()
+                            .equals(TicketPoolService.class.getName())))
+                    .count();
+            long probeStart = System.nanoTime();
+            HttpResponse<String> probe = get("/api/jobs?state=RUNNING");
+            long probeMillis = (System.nanoTime() - probeStart) / 1_000_000;
+            assertEquals(200, probe.statusCode());
+
+            long releasedAt = System.nanoTime();
+            HttpResponse<String> release = post("/api/vendors/vend900/release", String.format("{\"price\":10," +
+                    "\"event_Name\":\"%s\",\"time_Duration\":\"2h\",\"date\":\"2027-01-01\",\"batch_Size\":%d," +
+                    "\"timeoutMs\":20000}", eventName, CUSTOMERS));
+            assertEquals(200, release.statusCode(), release.body());
+            long[] latencies = new long[CUSTOMERS];
+            for (int i = 0; i < CUSTOMERS; i++) {
+                long[] booking = bookings.get(i).join();
+                if (booking.length == 1) {
+                    latencies[i] = booking[0];
+                } else {
+                    latencies[i] = awaitJob(booking[1], start);
+                }
+            }
+            long lastDone = Arrays.stream(latencies).max().orElse(0);
+            double afterRelease = lastDone / 1_000_000.0 - (releasedAt - start) / 1_000_000.0;
+            Arrays.sort(latencies);
+            return new Result(latencies, (releasedAt - start) / 1_000_000.0, afterRelease, probeMillis,
+                    waitingThreads);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    /**
+     * This books a ticket through one of the booking paths.
+     *
+     * @return the time in nanoseconds until the ticket was booked for the "/book" endpoint, or the time of the
+     * response and the ID of the started job for the "/start-thread" endpoint.
+     */
+    private long[] book(String uri, String body, long start) {
+        try {
+            HttpResponse<String> response = post(uri, body);
+            long elapsed = System.nanoTime() - start;
+            assertEquals(200, response.statusCode(), response.body());
+            Matcher jobId = JOB_ID.matcher(response.body());
+            return jobId.find() ? new long[]{elapsed, Long.parseLong(jobId.group(1))} : new long[]{elapsed};
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * This waits for a ticket purchase job to finish, reading it from the job registry so the wait does not add
+     * requests to the load.
+     *
+     * @return the time in nanoseconds from the start of the run until the job finished.
+     */
+    private long awaitJob(long jobId, long start) throws InterruptedException {
+        WorkerJob job = (WorkerJob) jobService.findJob(jobId).getData();
+        while (!job.isFinished()) {
+            Thread.sleep(5);
+        }
+        long finishedAt = System.nanoTime();
+        assertEquals(WorkerJob.JobState.COMPLETED, job.getState());
+        assertEquals(1, job.getCompleted());
+        return finishedAt - start;
+    }
+
+    private HttpResponse<String> post(String uri, String body) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + uri))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String uri) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + uri)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * This holds the measurements of one run.
+     *
+     * @param latencies the time in nanoseconds each customer waited for their ticket, sorted.
+     * @param releasedAfterMs the time in milliseconds from the start of the run until the release.
+     * @param afterReleaseMs the time in milliseconds from the release until the last customer had their ticket.
+     * @param probeMillis the time in milliseconds of the unrelated request made while the customers waited.
+     * @param waitingThreads the number of threads waiting in the ticket pool while the customers waited.
+     */
+    private record Result(long[] latencies, double releasedAfterMs, double afterReleaseMs, long probeMillis,
+                          long waitingThreads) {
+
+        String format(String path) {
+            assertTrue(afterReleaseMs > 0);
+            double p50 = latencies[latencies.length / 2] / 1_000_000.0;
+            double p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1] / 1_000_000.0;
+            return String.format("%-14s %10.0f %10.0f %14.0f %14.0f %12d %12d", path, p50, p99,
+                    p99 - releasedAfterMs, latencies.length / (afterReleaseMs / 1000.0), probeMillis,
+                    waitingThreads);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This test class checks the compact format of the ticket pool against the default JSON format, and holds the
+ * benchmark comparing the size and serialization time of both formats.
+ *
+ * The benchmark is only run when asked for, as its timings depend on the machine:
+ * {@code mvn test -Dtest=CompactPoolFormatTest -Dbenchmark=true}.
+ */
+class CompactPoolFormatTest {
+
+    private static final Date DATE = new Date(1_800_000_000_000L);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void writesOneArrayPerFieldAndLeavesOutEmptyColumns() throws Exception {
+        List<PoolDelta> deltas = List.of(
+                PoolDelta.ticketAdded(1, ticket(7L, "Concert", "Available", null)),
+                PoolDelta.ticketBooked(2, "Concert", "vend001", "cust001", List.of(7L)));
+
+        JsonNode message = objectMapper.readTree(objectMapper.writeValueAsString(
+                CompactPoolFormat.encodeDeltas(deltas)));
+
+        assertEquals(CompactPoolFormat.VERSION, message.get("v").asInt());
+        assertEquals("[1,2]", message.get("seq").toString());
+        assertEquals("[\"A\",\"B\"]", message.get("type").toString());
+        assertEquals("[[7,1],[7,1]]", message.get("ids").toString());
+        assertEquals("[\"vend001\",\"vend001\"]", message.get("vendor").toString());
+        assertEquals("[null,\"cust001\"]", message.get("customer").toString());
+        assertFalse(message.has("fromSeq"));
+    }
+
+    @Test
+    void writesMergedTicketIdsAsRanges() throws Exception {
+        PoolDelta merged = PoolDelta.ticketBooked(1, "Concert", "vend001", "cust001", List.of(1L));
+        for (long ticketId = 2; ticketId <= 50; ticketId++) {
+            merged = merged.merge(PoolDelta.ticketBooked(ticketId, "Concert", "vend001", "cust001",
+                    List.of(ticketId)));
+        }
+        merged = merged.merge(PoolDelta.ticketBooked(51, "Concert", "vend001", "cust001", List.of(53L)));
+
+        JsonNode message = objectMapper.readTree(objectMapper.writeValueAsString(
+                CompactPoolFormat.encodeDeltas(List.of(merged))));
+
+        assertEquals("[[1,50,53,1]]", message.get("ids").toString());
+        assertEquals("[1]", message.get("fromSeq").toString());
+    }
+
+    @Test
+    void writesSnapshotWithStatusLetters() throws Exception {
+        List<TicketEntity> tickets = List.of(ticket(1L, "Concert", "Available", null),
+                ticket(2L, "Concert", "Booked", "cust001"));
+
+        JsonNode message = objectMapper.readTree(objectMapper.writeValueAsString(
+                CompactPoolFormat.encodeSnapshot(9, tickets)));
+
+        assertEquals(9, message.get("seq").asLong());
+        assertEquals("[1,2]", message.get("ticketId").toString());
+        assertEquals("[\"A\",\"B\"]", message.get("status").toString());
+        assertEquals(objectMapper.valueToTree(DATE), message.get("date").get(0));
+    }
+
+    @Test
+    void isSmallerThanTheDefaultFormatInEveryBenchmarkCase() throws Exception {
+        for (Map.Entry<String, Supplier<Object[]>> benchmarkCase : cases().entrySet()) {
+            Object[] payloads = benchmarkCase.getValue().get();
+            int json = objectMapper.writeValueAsBytes(payloads[0]).length;
+            int compact = objectMapper.writeValueAsBytes(payloads[1]).length;
+            assertTrue(compact < json, benchmarkCase.getKey() + ": " + compact + " >= " + json);
+        }
+    }
+
+    /**
+     * This prints the size and the serialization time of both formats for every case. The time is the average over
+     * enough serializations to take about a second, after the same number of warm-up runs.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark() throws Exception {
+        System.out.printf("%-24s %18s %18s%n", "case", "json B / us", "compact B / us");
+        for (Map.Entry<String, Supplier<Object[]>> benchmarkCase : cases().entrySet()) {
+            Object[] payloads = benchmarkCase.getValue().get();
+            System.out.printf("%-24s %18s %18s%n", benchmarkCase.getKey(), measure(payloads[0]),
+                    measure(payloads[1]));
+        }
+    }
+
+    private String measure(Object payload) throws Exception {
+        int bytes = objectMapper.writeValueAsBytes(payload).length;
+        long start = System.nanoTime();
+        int runs = 0;
+        while (System.nanoTime() - start < 1_000_000_000L) {
+            objectMapper.writeValueAsBytes(payload);
+            runs++;
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            objectMapper.writeValueAsBytes(payload);
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / runs;
+        return String.format("%d / %.1f", bytes, micros);
+    }
+
+    /**
+     * This builds the cases of the benchmark, each as the payload of the default format and of the compact format.
+     *
+     * @return the cases by name.
+     */
+    private static Map<String, Supplier<Object[]>> cases() {
+        Map<String, Supplier<Object[]>> cases = new LinkedHashMap<>();
+        cases.put("1 ticketAdded", () -> deltaCase(List.of(PoolDelta.ticketAdded(1,
+                ticket(1L, "Concert", "Available", null)))));
+        cases.put("release of 50, merged", () -> {
+            PoolDelta merged = PoolDelta.ticketAdded(1, ticket(1L, "Concert", "Available", null));
+            for (long ticketId = 2; ticketId <= 50; ticketId++) {
+                merged = merged.merge(PoolDelta.ticketAdded(ticketId, ticket(ticketId, "Concert", "Available",
+                        null)));
+            }
+            return deltaCase(List.of(merged));
+        });
+        cases.put("20 mixed changes", () -> {
+            List<PoolDelta> deltas = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                long seq = i + 1;
+                String eventName = "Event" + (i % 4);
+                deltas.add(switch (i % 3) {
+                    case 0 -> PoolDelta.ticketAdded(seq, ticket(seq, eventName, "Available", null));
+                    case 1 -> PoolDelta.ticketBooked(seq, eventName, "vend001", "cust00" + (i % 5),
+                            List.of(seq - 1, seq));
+                    default -> PoolDelta.ticketRemoved(seq, eventName, "vend001", List.of(seq));
+                });
+            }
+            return deltaCase(deltas);
+        });
+        cases.put("snapshot, 10k tickets", () -> {
+            List<TicketEntity> tickets = new ArrayList<>();
+            for (long ticketId = 1; ticketId <= 10_000; ticketId++) {
+                boolean booked = ticketId % 3 == 0;
+                tickets.add(ticket(ticketId, "Event" + (ticketId % 7), booked ? "Booked" : "Available",
+                        booked ? "cust" + (ticketId % 100) : null));
+            }
+            return new Object[]{Map.of("seq", 10_000L, "tickets", tickets),
+                    CompactPoolFormat.encodeSnapshot(10_000, tickets)};
+        });
+        return cases;
+    }
+
+    private static Object[] deltaCase(List<PoolDelta> deltas) {
+        return new Object[]{deltas, CompactPoolFormat.encodeDeltas(deltas)};
+    }
+
+    private static TicketEntity ticket(Long ticketId, String eventName, String status, String customerId) {
+        return new TicketEntity(ticketId, eventName, new BigDecimal("49.99"), "2h", DATE, "vend001", status,
+                customerId);
+    }
+}
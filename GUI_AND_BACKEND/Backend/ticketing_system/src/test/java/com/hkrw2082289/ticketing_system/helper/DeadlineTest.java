@@ -0,0 +1,141 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.helper;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This test class checks the time limits, the cancellation of child deadlines, the cancel listeners and the wall
+ * clock round trip of the {@link Deadline} used by the purchase queue.
+ */
+class DeadlineTest {
+
+    @Test
+    void deadlineWithoutTimeLimitNeverRunsOutUntilCancelled() {
+        Deadline deadline = Deadline.none();
+
+        assertFalse(deadline.hasTimeLimit());
+        assertFalse(deadline.isExpired());
+        assertEquals(Long.MAX_VALUE, deadline.remainingMillis());
+        assertNull(deadline.getExpiresAt());
+
+        deadline.cancel();
+
+        assertTrue(deadline.isExpired());
+        assertTrue(deadline.isCancelled());
+        assertEquals(0, deadline.remainingMillis());
+    }
+
+    @Test
+    void negativeTimeoutHasAlreadyRunOut() {
+        Deadline deadline = Deadline.afterMillis(-10L);
+
+        assertTrue(deadline.hasTimeLimit());
+        assertTrue(deadline.isExpired());
+        assertFalse(deadline.isCancelled());
+    }
+
+    @Test
+    void childTakesTheEarlierOfItsTimeoutAndItsParent() {
+        Deadline parent = Deadline.afterMillis(60_000L);
+
+        Deadline shorter = parent.withTimeout(1_000L);
+        Deadline longer = parent.withTimeout(600_000L);
+        Deadline unlimited = parent.withTimeout(null);
+
+        assertTrue(shorter.remainingMillis() <= 1_000);
+        assertEquals(parent.getExpiresAt(), longer.getExpiresAt());
+        assertEquals(parent.getExpiresAt(), unlimited.getExpiresAt());
+        assertTrue(Deadline.none().withTimeout(1_000L).hasTimeLimit());
+        assertFalse(Deadline.none().withTimeout(null).hasTimeLimit());
+    }
+
+    @Test
+    void cancellingTheParentCancelsEveryChild() {
+        Deadline parent = Deadline.none();
+        Deadline child = parent.withTimeout(60_000L);
+        Deadline grandChild = child.withTimeout(null);
+        AtomicInteger childCancels = new AtomicInteger();
+        child.onCancel(childCancels::incrementAndGet);
+
+        parent.cancel();
+
+        assertTrue(child.isCancelled());
+        assertTrue(grandChild.isCancelled());
+        assertEquals(1, childCancels.get());
+    }
+
+    @Test
+    void cancellingAChildLeavesTheParentRunning() {
+        Deadline parent = Deadline.afterMillis(60_000L);
+        Deadline child = parent.withTimeout(1_000L);
+
+        child.cancel();
+
+        assertTrue(child.isExpired());
+        assertFalse(parent.isCancelled());
+        assertFalse(parent.isExpired());
+    }
+
+    @Test
+    void listenerRunsOnceOnCancelEvenIfCancelledTwice() {
+        Deadline deadline = Deadline.afterMillis(60_000L);
+        AtomicInteger runs = new AtomicInteger();
+        deadline.onCancel(runs::incrementAndGet);
+
+        assertEquals(0, runs.get());
+        deadline.cancel();
+        deadline.cancel();
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void listenerRegisteredAfterCancelRunsStraightAway() {
+        Deadline deadline = Deadline.none();
+        deadline.cancel();
+        AtomicInteger runs = new AtomicInteger();
+
+        deadline.onCancel(runs::incrementAndGet);
+
+        assertEquals(1, runs.get());
+        deadline.cancel();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void listenerRegisteredWhileCancellingRunsOnce() {
+        Deadline deadline = Deadline.none();
+        AtomicInteger runs = new AtomicInteger();
+        deadline.onCancel(() -> deadline.onCancel(runs::incrementAndGet));
+
+        deadline.cancel();
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void atRestoresADeadlineFromItsWallClockTime() {
+        Deadline original = Deadline.afterMillis(30_000L);
+
+        Deadline restored = Deadline.at(original.getExpiresAt());
+
+        assertTrue(restored.hasTimeLimit());
+        assertFalse(restored.isExpired());
+        assertTrue(Math.abs(restored.remainingMillis() - original.remainingMillis()) < 1_000);
+        assertTrue(Math.abs(restored.getExpiresAt().getTime() - original.getExpiresAt().getTime()) < 1_000);
+    }
+
+    @Test
+    void atWithoutTimeHasNoLimitAndInThePastHasRunOut() {
+        assertFalse(Deadline.at(null).hasTimeLimit());
+        assertTrue(Deadline.at(new Date(System.currentTimeMillis() - 5_000)).isExpired());
+    }
+}
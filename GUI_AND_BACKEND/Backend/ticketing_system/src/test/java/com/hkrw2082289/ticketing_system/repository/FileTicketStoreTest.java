@@ -0,0 +1,76 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This test class runs the {@link TicketStore} contract against the file ticket store, and checks that the store
+ * only changes its tickets in memory once the record of the change has been written to its log, so the store
+ * matches what a replay of the log rebuilds.
+ */
+class FileTicketStoreTest extends TicketStoreContractTest {
+
+    @TempDir
+    Path directory;
+
+    @Override
+    TicketStore createStore() throws Exception {
+        return open();
+    }
+
+    @Override
+    void closeStore() throws Exception {
+        ((FileTicketStore) store).close();
+    }
+
+    @Test
+    void failedWritesLeaveTheStoreUnchanged() throws Exception {
+        Long ticketId = store.save(ticket()).getTicketId();
+        closeStore();
+
+        assertThrows(UncheckedIOException.class, () -> store.save(ticket()));
+        assertThrows(UncheckedIOException.class, () -> store.saveAll(List.of(ticket(), ticket())));
+        assertThrows(UncheckedIOException.class, () -> store.bookIfAvailable(ticketId, "cust001"));
+        assertThrows(UncheckedIOException.class, () -> store.archive(List.of(ticketId), new Date()));
+
+        assertEquals(1, store.findAll().size());
+        assertEquals("Available", store.findById(ticketId).orElseThrow().getTicketStatus());
+        assertTrue(store.countArchivedByEvent().isEmpty());
+    }
+
+    @Test
+    void replayRebuildsTheSameStore() throws Exception {
+        List<TicketEntity> saved = store.saveAll(List.of(ticket(), ticket(), ticket()));
+        store.bookIfAvailable(saved.get(0).getTicketId(), "cust001");
+        store.bookIfAvailable(saved.get(1).getTicketId(), "cust002");
+        store.archive(List.of(saved.get(1).getTicketId()), new Date());
+        closeStore();
+
+        store = open();
+        assertEquals(2, store.findAll().size());
+        assertEquals("cust001", store.findById(saved.get(0).getTicketId()).orElseThrow().getCustomerId());
+        assertEquals(Long.valueOf(1), store.countArchivedByEventForCustomer("cust002").get("Concert"));
+        assertEquals(saved.get(2).getTicketId() + 1, store.save(ticket()).getTicketId());
+    }
+
+    private FileTicketStore open() throws Exception {
+        FileTicketStore store = new FileTicketStore(directory.resolve("ticketpool.log").toString(), false);
+        store.open();
+        return store;
+    }
+
+    private static TicketEntity ticket() {
+        return ticket("Concert", FUTURE);
+    }
+}
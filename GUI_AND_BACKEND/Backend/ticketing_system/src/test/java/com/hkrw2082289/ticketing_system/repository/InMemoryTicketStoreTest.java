@@ -0,0 +1,13 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+
+/**
+ * This test class runs the {@link TicketStore} contract against the in-memory ticket store.
+ */
+class InMemoryTicketStoreTest extends TicketStoreContractTest {
+
+    @Override
+    TicketStore createStore() {
+        return new InMemoryTicketStore();
+    }
+}
@@ -0,0 +1,34 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+/**
+ * This test class runs the {@link TicketStore} contract against the JDBC ticket store on an H2 database, whose
+ * tables are created from the entities as they are for the JPA ticket store.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JdbcTicketStoreTest extends TicketStoreContractTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    TicketStore createStore() {
+        NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM ticketpool");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM ticket_history");
+        return new JdbcTicketStore(jdbcTemplate, transactionManager);
+    }
+}
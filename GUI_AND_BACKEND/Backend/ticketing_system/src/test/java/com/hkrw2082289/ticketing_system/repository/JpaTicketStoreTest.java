@@ -0,0 +1,33 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This test class runs the {@link TicketStore} contract against the JPA ticket store on an H2 database. The tests
+ * do not run in a transaction of their own, so every write of the store is committed as it would be in the pool.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaTicketStoreTest extends TicketStoreContractTest {
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private TicketHistoryRepository ticketHistoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    TicketStore createStore() {
+        ticketRepository.deleteAll();
+        ticketHistoryRepository.deleteAll();
+        return new JpaTicketStore(ticketRepository, ticketHistoryRepository, transactionManager);
+    }
+}
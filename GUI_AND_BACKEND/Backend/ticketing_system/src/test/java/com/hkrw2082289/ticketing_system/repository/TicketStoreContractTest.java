@@ -0,0 +1,155 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.repository;
+
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This test class holds the contract every {@link TicketStore} has to keep, so the ticket pool behaves the same
+ * whichever store "ticketing.store.type" selects. Each store has a test class extending this one, which creates an
+ * empty store for every test.
+ */
+abstract class TicketStoreContractTest {
+
+    /**
+     * This is a date in the past, for tickets the archival job archives once they are booked.
+     */
+    static final Date PAST = new Date(1_500_000_000_000L);
+
+    /**
+     * This is a date in the future, for tickets that are never archived.
+     */
+    static final Date FUTURE = new Date(4_000_000_000_000L);
+
+    TicketStore store;
+
+    /**
+     * This creates the store under test, holding no tickets.
+     *
+     * @return the store.
+     */
+    abstract TicketStore createStore() throws Exception;
+
+    /**
+     * This releases the store under test once a test is done.
+     */
+    void closeStore() throws Exception {
+    }
+
+    @BeforeEach
+    void setUpStore() throws Exception {
+        store = createStore();
+    }
+
+    @AfterEach
+    void tearDownStore() throws Exception {
+        closeStore();
+    }
+
+    @Test
+    void saveAllAssignsTicketIdsInOrderAndKeepsTheTickets() {
+        List<TicketEntity> saved = store.saveAll(List.of(ticket("Concert", PAST), ticket("Concert", FUTURE),
+                ticket("Play", FUTURE)));
+        TicketEntity single = store.save(ticket("Play", FUTURE));
+
+        List<Long> ticketIds = saved.stream().map(TicketEntity::getTicketId).collect(Collectors.toList());
+        assertEquals(3, ticketIds.size());
+        assertTrue(ticketIds.get(0) < ticketIds.get(1) && ticketIds.get(1) < ticketIds.get(2));
+        assertTrue(single.getTicketId() > ticketIds.get(2));
+        assertEquals(4, store.findAll().size());
+        assertEquals(4, store.countAvailable());
+
+        TicketEntity found = store.findById(ticketIds.get(2)).orElseThrow();
+        assertEquals("Play", found.getEventName());
+        assertEquals("vend001", found.getVendorId());
+        assertEquals("Available", found.getTicketStatus());
+        assertEquals(0, new BigDecimal("49.99").compareTo(found.getPrice()));
+        assertEquals(FUTURE.getTime(), found.getDate().getTime());
+        assertTrue(store.saveAll(List.of()).isEmpty());
+    }
+
+    @Test
+    void bookIfAvailableBooksATicketOnlyOnce() {
+        Long ticketId = store.save(ticket("Concert", FUTURE)).getTicketId();
+
+        assertTrue(store.bookIfAvailable(ticketId, "cust001"));
+        assertFalse(store.bookIfAvailable(ticketId, "cust002"));
+        assertFalse(store.bookIfAvailable(ticketId + 1000, "cust002"));
+
+        TicketEntity booked = store.findById(ticketId).orElseThrow();
+        assertEquals("Booked", booked.getTicketStatus());
+        assertEquals("cust001", booked.getCustomerId());
+        assertEquals(0, store.countAvailable());
+    }
+
+    @Test
+    void bookAvailableForEventBooksTheOldestAvailableTicketsOfTheEvent() {
+        List<Long> ticketIds = ids(store.saveAll(List.of(ticket("Concert", FUTURE), ticket("Concert", FUTURE),
+                ticket("Play", FUTURE), ticket("Concert", FUTURE), ticket("Concert", FUTURE))));
+        store.bookIfAvailable(ticketIds.get(0), "cust009");
+
+        assertEquals(List.of(ticketIds.get(1), ticketIds.get(3)),
+                store.bookAvailableForEvent("Concert", "cust001", 2));
+        assertEquals(List.of(ticketIds.get(4)), store.bookAvailableForEvent("Concert", "cust002", 5));
+        assertTrue(store.bookAvailableForEvent("Concert", "cust003", 1).isEmpty());
+
+        assertEquals("cust001", store.findById(ticketIds.get(3)).orElseThrow().getCustomerId());
+        assertEquals("Available", store.findById(ticketIds.get(2)).orElseThrow().getTicketStatus());
+        assertEquals(1, store.countAvailable());
+    }
+
+    @Test
+    void findBookedTicketIdsBeforeFindsOnlyBookedTicketsOfPastEventsInOrder() {
+        List<Long> ticketIds = ids(store.saveAll(List.of(ticket("Concert", PAST), ticket("Concert", PAST),
+                ticket("Concert", FUTURE), ticket("Concert", PAST), ticket("Concert", PAST))));
+        for (int i = 0; i < 4; i++) {
+            store.bookIfAvailable(ticketIds.get(i), "cust001");
+        }
+        Date cutoff = new Date(3_000_000_000_000L);
+
+        assertEquals(List.of(ticketIds.get(0), ticketIds.get(1)), store.findBookedTicketIdsBefore(cutoff, 2));
+        assertEquals(List.of(ticketIds.get(0), ticketIds.get(1), ticketIds.get(3)),
+                store.findBookedTicketIdsBefore(cutoff, 10));
+        assertTrue(store.findBookedTicketIdsBefore(PAST, 10).isEmpty());
+    }
+
+    @Test
+    void archiveMovesTicketsFromThePoolToTheHistory() {
+        List<Long> ticketIds = ids(store.saveAll(List.of(ticket("Concert", PAST), ticket("Concert", PAST),
+                ticket("Play", PAST), ticket("Play", FUTURE))));
+        store.bookIfAvailable(ticketIds.get(0), "cust001");
+        store.bookIfAvailable(ticketIds.get(1), "cust002");
+        store.bookIfAvailable(ticketIds.get(2), "cust001");
+
+        assertEquals(3, store.archive(ticketIds.subList(0, 3), new Date()));
+        // Tickets that are no longer in the pool are not archived a second time.
+        assertEquals(0, store.archive(ticketIds.subList(0, 2), new Date()));
+
+        assertEquals(List.of(ticketIds.get(3)), ids(store.findAll()));
+        assertFalse(store.findById(ticketIds.get(0)).isPresent());
+        assertTrue(store.findBookedTicketIdsBefore(FUTURE, 10).isEmpty());
+        assertEquals(Map.of("Concert", 2L, "Play", 1L), store.countArchivedByEvent());
+        assertEquals(Map.of("Concert", 1L, "Play", 1L), store.countArchivedByEventForCustomer("cust001"));
+        assertTrue(store.countArchivedByEventForCustomer("cust003").isEmpty());
+    }
+
+    static TicketEntity ticket(String eventName, Date date) {
+        return new TicketEntity(null, eventName, new BigDecimal("49.99"), "2h", date, "vend001", "Available", null);
+    }
+
+    static List<Long> ids(List<TicketEntity> tickets) {
+        return tickets.stream().map(TicketEntity::getTicketId).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,155 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+
+import com.hkrw2082289.ticketing_system.model.IdempotencyKeyEntity;
+import com.hkrw2082289.ticketing_system.repository.IdempotencyKeyRepository;
+import com.hkrw2082289.ticketing_system.utils.ResponseFinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * This test class checks that the {@link IdempotencyService} carries out a request at most once for its key, replays
+ * the result of the first request to duplicates, rejects a key reused for a different request and carries out a
+ * duplicate of a failed request again. The repository finds no stored results unless a test says otherwise.
+ */
+class IdempotencyServiceTest {
+
+    private static final Map<String, Object> REQUEST = Map.of("eventName", "Concert", "ticketToBook", 2);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final IdempotencyKeyRepository repository = mock(IdempotencyKeyRepository.class);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+        service = new IdempotencyService(repository, mock(PlatformTransactionManager.class), 100, 24,
+                meterRegistry);
+    }
+
+    @Test
+    void replaysTheResultOfTheFirstRequestToADuplicate() {
+        ResponseFinder first = service.execute("customer-book", "cust001", "key-1", REQUEST,
+                () -> succeed("Booked " + calls.incrementAndGet()));
+        ResponseFinder duplicate = service.execute("customer-book", "cust001", "key-1",
+                Map.of("ticketToBook", 2, "eventName", "Concert"), () -> succeed("Booked " + calls.incrementAndGet()));
+
+        assertEquals(1, calls.get());
+        assertTrue(duplicate.isSuccess());
+        assertEquals(first.getMessage(), duplicate.getMessage());
+        assertEquals(1, meterRegistry.get("ticketing.idempotency.replays").counter().count());
+    }
+
+    @Test
+    void keepsTheKeysOfDifferentUsersAndScopesApart() {
+        service.execute("customer-book", "cust001", "key-1", REQUEST, () -> succeed("" + calls.incrementAndGet()));
+        service.execute("customer-book", "cust002", "key-1", REQUEST, () -> succeed("" + calls.incrementAndGet()));
+        service.execute("customer-start-thread", "cust001", "key-1", REQUEST,
+                () -> succeed("" + calls.incrementAndGet()));
+
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void rejectsAKeyReusedForADifferentRequest() {
+        service.execute("customer-book", "cust001", "key-1", REQUEST, () -> succeed("Booked"));
+
+        ResponseFinder reused = service.execute("customer-book", "cust001", "key-1",
+                Map.of("eventName", "Concert", "ticketToBook", 3), () -> succeed("Booked " + calls.incrementAndGet()));
+
+        assertEquals(0, calls.get());
+        assertFalse(reused.isSuccess());
+        assertEquals("Error: Idempotency-Key 'key-1' was already used for a different request.",
+                reused.getMessage());
+    }
+
+    @Test
+    void carriesOutADuplicateOfADeniedOrFailedRequestAgain() {
+        service.execute("customer-book", "cust001", "key-1", REQUEST, () -> new ResponseFinder(false, "Denied"));
+        assertThrows(IllegalStateException.class, () -> service.execute("customer-book", "cust001", "key-2", REQUEST,
+                () -> {
+                    throw new IllegalStateException("Store is down");
+                }));
+
+        ResponseFinder retryOfDenied = service.execute("customer-book", "cust001", "key-1", REQUEST,
+                () -> succeed("Booked " + calls.incrementAndGet()));
+        ResponseFinder retryOfFailed = service.execute("customer-book", "cust001", "key-2", REQUEST,
+                () -> succeed("Booked " + calls.incrementAndGet()));
+
+        assertEquals(2, calls.get());
+        assertEquals("Booked 1", retryOfDenied.getMessage());
+        assertEquals("Booked 2", retryOfFailed.getMessage());
+        assertEquals(0, meterRegistry.get("ticketing.idempotency.replays").counter().count());
+    }
+
+    @Test
+    void duplicatesWaitingOnAFailedRequestCarryItOutThemselves() {
+        CompletableFuture<ResponseFinder> firstResponse = new CompletableFuture<>();
+        CompletableFuture<ResponseFinder> first = service.executeAsync("customer-book", "cust001", "key-1", REQUEST,
+                () -> firstResponse);
+        CompletableFuture<ResponseFinder> duplicate = service.executeAsync("customer-book", "cust001", "key-1",
+                REQUEST, () -> CompletableFuture.completedFuture(succeed("Booked " + calls.incrementAndGet())));
+        assertFalse(duplicate.isDone());
+
+        firstResponse.completeExceptionally(new IllegalStateException("Deadline passed"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals("Booked 1", duplicate.join().getMessage());
+        // The result of the duplicate is now the one replayed for the key.
+        assertEquals("Booked 1", service.execute("customer-book", "cust001", "key-1", REQUEST,
+                () -> succeed("Booked " + calls.incrementAndGet())).getMessage());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void replaysTheFlushedResultAfterARestart() {
+        service.execute("customer-book", "cust001", "key-1", REQUEST, () -> succeed("Booked before the restart"));
+        List<IdempotencyKeyEntity> flushed = new ArrayList<>();
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            invocation.<Iterable<IdempotencyKeyEntity>>getArgument(0).forEach(flushed::add);
+            return flushed;
+        });
+        service.flush();
+        assertEquals(1, flushed.size());
+
+        IdempotencyKeyRepository restartedRepository = mock(IdempotencyKeyRepository.class);
+        when(restartedRepository.findById(flushed.get(0).getIdempotencyKey())).thenReturn(Optional.of(flushed.get(0)));
+        IdempotencyService restarted = new IdempotencyService(restartedRepository,
+                mock(PlatformTransactionManager.class), 100, 24, meterRegistry);
+
+        ResponseFinder replayed = restarted.execute("customer-book", "cust001", "key-1", REQUEST,
+                () -> succeed("Booked " + calls.incrementAndGet()));
+        ResponseFinder reused = restarted.execute("customer-book", "cust001", "key-1",
+                Map.of("eventName", "Concert", "ticketToBook", 3), () -> succeed("Booked " + calls.incrementAndGet()));
+
+        assertEquals(0, calls.get());
+        assertEquals("Booked before the restart", replayed.getMessage());
+        assertFalse(reused.isSuccess());
+    }
+
+    private static ResponseFinder succeed(String message) {
+        return new ResponseFinder(true, message);
+    }
+}
@@ -0,0 +1,209 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+
+import com.hkrw2082289.ticketing_system.helper.Deadline;
+import com.hkrw2082289.ticketing_system.helper.PacedWorker;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob.JobState;
+import com.hkrw2082289.ticketing_system.helper.WorkerJob.JobType;
+import com.hkrw2082289.ticketing_system.model.Customer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * This test class checks the lifecycle of the jobs in the {@link JobService}: the state each job finishes in, how a
+ * job is cancelled, how a job halted by a global stop is paused and carries on after it is resumed, and which jobs
+ * are pruned. The workers are simple paced workers counting steps, run on real executors.
+ */
+class JobServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final PoolEventPublisher publisher = mock(PoolEventPublisher.class);
+
+    private WorkerExecutorService workerExecutorService;
+
+    private PacingScheduler pacingScheduler;
+
+    private JobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        workerExecutorService = new WorkerExecutorService("platform", 2, 2, 1, meterRegistry);
+        pacingScheduler = new PacingScheduler(1, "interval-ms", 1000, meterRegistry);
+        jobService = new JobService(workerExecutorService, pacingScheduler, publisher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Customer.disableStopAllPurchases();
+        pacingScheduler.shutdown();
+        workerExecutorService.shutdown();
+    }
+
+    @Test
+    void finishesEachJobInTheStateItsWorkerEndedIn() throws InterruptedException {
+        WorkerJob completed = submit(JobType.TICKET_PURCHASE, 3, 0, job -> {
+            job.recordProgress(1);
+            return job.getCompleted() < job.getRequested();
+        });
+        WorkerJob stopped = submit(JobType.TICKET_RELEASE, 3, 0, job -> {
+            job.recordProgress(1);
+            return false;
+        });
+        WorkerJob failed = submit(JobType.TICKET_RELEASE, 3, 0, job -> {
+            throw new IllegalStateException("Store is down");
+        });
+
+        assertEquals(JobState.COMPLETED, awaitFinished(completed));
+        assertEquals(3, completed.getCompleted());
+        assertEquals(JobState.STOPPED, awaitFinished(stopped));
+        assertEquals(JobState.FAILED, awaitFinished(failed));
+        assertEquals(List.of(completed), jobService.listJobs(JobType.TICKET_PURCHASE, "owner", null));
+        assertEquals(List.of(stopped, failed), jobService.listJobs(JobType.TICKET_RELEASE, null, null));
+        // Only the customer of the ticket purchase job is told it finished.
+        verify(publisher, times(1)).postNotification(eq("owner"), any());
+    }
+
+    @Test
+    void expiresAJobWhoseDeadlinePasses() throws InterruptedException {
+        WorkerJob job = jobService.createJob(JobType.TICKET_PURCHASE, "owner", "Concert", 3);
+        job.setDeadline(Deadline.afterMillis(50L));
+        jobService.submitJob(job, () -> true, 1);
+
+        assertEquals(JobState.EXPIRED, awaitFinished(job));
+    }
+
+    @Test
+    void cancelsARunningJobOnce() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        WorkerJob job = submit(JobType.TICKET_PURCHASE, 1, 0, ignored -> {
+            running.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return false;
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertTrue(jobService.cancelJob(job.getJobId()).isSuccess());
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(JobState.CANCELLED, awaitFinished(job));
+        assertEquals("Error: Job " + job.getJobId() + " has already finished with state CANCELLED.",
+                jobService.cancelJob(job.getJobId()).getMessage());
+        assertFalse(jobService.findJob(job.getJobId() + 1).isSuccess());
+    }
+
+    @Test
+    void pausesAJobHaltedByAGlobalStopAndCarriesItOnWhenResumed() throws InterruptedException {
+        WorkerJob job = submit(JobType.TICKET_PURCHASE, 500, 1, paused -> {
+            if (Customer.isAdminStopAllPurchases()) {
+                return false;
+            }
+            paused.recordProgress(1);
+            return paused.getCompleted() < paused.getRequested();
+        });
+        while (job.getCompleted() < 10) {
+            Thread.sleep(1);
+        }
+
+        Customer.enableStopAllPurchases();
+        awaitState(job, JobState.PAUSED);
+        int completedWhenPaused = job.getCompleted();
+        assertTrue(completedWhenPaused < 500);
+        assertEquals(0, jobService.resumePausedJobs());
+
+        Customer.disableStopAllPurchases();
+        assertEquals(1, jobService.resumePausedJobs());
+
+        assertEquals(JobState.COMPLETED, awaitFinished(job));
+        assertEquals(500, job.getCompleted());
+    }
+
+    @Test
+    void prunesOnlyTheFinishedJobsPastTheRetentionTime() throws InterruptedException {
+        ReflectionTestUtils.setField(jobService, "retentionMs", 0L);
+        CountDownLatch release = new CountDownLatch(1);
+        WorkerJob finished = submit(JobType.TICKET_RELEASE, 1, 0, job -> false);
+        WorkerJob running = submit(JobType.TICKET_RELEASE, 1, 0, job -> {
+            awaitQuietly(release);
+            return false;
+        });
+        awaitFinished(finished);
+        Thread.sleep(5);
+
+        jobService.pruneFinishedJobs();
+
+        assertFalse(jobService.findJob(finished.getJobId()).isSuccess());
+        assertTrue(jobService.findJob(running.getJobId()).isSuccess());
+        release.countDown();
+    }
+
+    /**
+     * This creates a job and starts a worker for it whose steps are given the job to report progress to.
+     *
+     * @param type the kind of job.
+     * @param requested the number of tickets requested.
+     * @param rate the rate the steps are paced at, or 0 to run them back to back.
+     * @param step the step of the worker.
+     * @return the job.
+     */
+    private WorkerJob submit(JobType type, int requested, double rate, Step step) {
+        WorkerJob job = jobService.createJob(type, "owner", "Concert", requested);
+        PacedWorker worker = () -> step.perform(job);
+        jobService.submitJob(job, worker, rate);
+        return job;
+    }
+
+    private static JobState awaitFinished(WorkerJob job) throws InterruptedException {
+        long giveUpAt = System.currentTimeMillis() + 5000;
+        while (!job.isFinished() && System.currentTimeMillis() < giveUpAt) {
+            Thread.sleep(5);
+        }
+        return job.getState();
+    }
+
+    private static void awaitState(WorkerJob job, JobState state) throws InterruptedException {
+        long giveUpAt = System.currentTimeMillis() + 5000;
+        while (job.getState() != state && System.currentTimeMillis() < giveUpAt) {
+            Thread.sleep(5);
+        }
+        assertEquals(state, job.getState());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * This is a step of a test worker, which is given the job of the worker.
+     */
+    private interface Step {
+
+        boolean perform(WorkerJob job);
+    }
+}
@@ -0,0 +1,135 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+
+import com.hkrw2082289.ticketing_system.helper.PoolDelta;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import com.hkrw2082289.ticketing_system.repository.PoolOutboxRepository;
+import com.hkrw2082289.ticketing_system.repository.TicketStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * This test class checks the outbox of the ticket pool against an H2 database: the relay hands the committed changes
+ * to the publisher in the order they were committed, a failed write leaves nothing in the outbox, and pruning keeps
+ * the change with the highest sequence number. The tests do not run in a transaction of their own, so the relay
+ * sees the changes as soon as they are committed.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PoolOutboxServiceTest {
+
+    @Autowired
+    private PoolOutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<PoolDelta> relayed = new CopyOnWriteArrayList<>();
+
+    private PoolOutboxService outbox;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository.deleteAll();
+        PoolEventPublisher publisher = mock(PoolEventPublisher.class);
+        doAnswer(invocation -> relayed.add(invocation.getArgument(0))).when(publisher).postDelta(any());
+        TicketStore ticketStore = mock(TicketStore.class);
+        when(ticketStore.isTransactional()).thenReturn(true);
+        outbox = new PoolOutboxService(outboxRepository, publisher, ticketStore, transactionManager, true, 2,
+                60_000, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.shutdown();
+    }
+
+    @Test
+    void relaysTheChangesInTheOrderTheyWereCommitted() throws InterruptedException {
+        outbox.write(() -> 1, result -> List.of(PoolDelta.ticketAdded(1, ticket(1L)),
+                PoolDelta.ticketAdded(2, ticket(2L)), PoolDelta.ticketAdded(3, ticket(3L))));
+        outbox.write(() -> 2, result -> List.of(PoolDelta.ticketBooked(4, "Concert", "vend001", "cust001",
+                List.of(1L, 2L))));
+        outbox.write(() -> 3, result -> List.of(PoolDelta.ticketRemoved(5, "Concert", "vend001", List.of(1L, 2L))));
+
+        awaitRelayed(5);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), relayed.stream().map(PoolDelta::getSeq)
+                .collect(Collectors.toList()));
+        assertEquals(PoolDelta.TICKET_BOOKED, relayed.get(3).getType());
+        assertEquals("cust001", relayed.get(3).getCustomerId());
+        assertEquals(List.of(1L, 2L), relayed.get(4).getTicketIds());
+
+        @SuppressWarnings("unchecked")
+        List<PoolDelta> replayed = (List<PoolDelta>) outbox.readChanges(2, 10).getData();
+        // The replay is read in pages of the batch size.
+        assertEquals(List.of(3L, 4L), replayed.stream().map(PoolDelta::getSeq).collect(Collectors.toList()));
+    }
+
+    @Test
+    void writesNothingWhenTheWriteFails() throws InterruptedException {
+        assertThrows(IllegalStateException.class, () -> outbox.write(() -> {
+            throw new IllegalStateException("Store is down");
+        }, result -> List.of(PoolDelta.ticketAdded(1, ticket(1L)))));
+        outbox.write(() -> 1, result -> List.of(PoolDelta.ticketAdded(2, ticket(2L))));
+
+        awaitRelayed(1);
+        assertEquals(1, outboxRepository.count());
+        assertEquals(2, relayed.get(0).getSeq());
+    }
+
+    @Test
+    void pruningKeepsTheChangeWithTheHighestSequenceNumber() throws InterruptedException {
+        outbox.write(() -> 1, result -> List.of(PoolDelta.ticketAdded(1, ticket(1L)),
+                PoolDelta.ticketAdded(2, ticket(2L)), PoolDelta.ticketAdded(3, ticket(3L))));
+
+        ReflectionTestUtils.setField(outbox, "retentionMs", 3_600_000L);
+        outbox.pruneOutbox();
+        assertEquals(3, outboxRepository.count());
+
+        Thread.sleep(10);
+        ReflectionTestUtils.setField(outbox, "retentionMs", 0L);
+        outbox.pruneOutbox();
+        assertEquals(1, outboxRepository.count());
+        assertEquals(3, outbox.findLastSequence());
+    }
+
+    /**
+     * This waits for the relay to hand over the given number of changes.
+     *
+     * @param changes the number of changes to wait for.
+     */
+    private void awaitRelayed(int changes) throws InterruptedException {
+        long giveUpAt = System.currentTimeMillis() + 5000;
+        while (relayed.size() < changes && System.currentTimeMillis() < giveUpAt) {
+            Thread.sleep(10);
+        }
+        assertEquals(changes, relayed.size());
+    }
+
+    private static TicketEntity ticket(Long ticketId) {
+        return new TicketEntity(ticketId, "Concert", new BigDecimal("49.99"), "2h", new Date(1_800_000_000_000L),
+                "vend001", "Available", null);
+    }
+}
@@ -0,0 +1,134 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+
+import com.hkrw2082289.ticketing_system.helper.WorkerJob;
+import com.hkrw2082289.ticketing_system.model.PurchaseQueueEntity;
+import com.hkrw2082289.ticketing_system.repository.PurchaseQueueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This test class checks which purchase requests the durable purchase queue hands back to be resumed after a
+ * restart, and with how many tickets left. A restart is simulated by a new {@link PurchaseQueueService} over the
+ * same H2 database, so only what was flushed to the "purchase_queue" table carries over.
+ */
+@DataJpaTest(properties = "spring.jpa.database-platform=")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PurchaseQueueServiceTest {
+
+    @Autowired
+    private PurchaseQueueRepository purchaseQueueRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private PurchaseQueueService queue;
+
+    @BeforeEach
+    void setUp() {
+        purchaseQueueRepository.deleteAll();
+        queue = new PurchaseQueueService(purchaseQueueRepository, transactionManager);
+    }
+
+    @Test
+    void resumesAPartlyFilledRequestWithTheTicketsItHasLeft() {
+        PurchaseQueueEntity entry = queue.enqueue("cust001", "Concert", 5, 2.0, null);
+        WorkerJob job = track(entry);
+        job.recordProgress(2);
+        queue.flush();
+        queue.stopTracking();
+
+        List<PurchaseQueueEntity> pending = restart().findPendingPurchases();
+
+        assertEquals(1, pending.size());
+        assertEquals(entry.getQueueId(), pending.get(0).getQueueId());
+        assertEquals(3, pending.get(0).getRemaining());
+        assertEquals(5, pending.get(0).getRequested());
+        assertEquals(2.0, pending.get(0).getRetrievalRate());
+    }
+
+    @Test
+    void resumesAResumedRequestFromWhereItsNewJobGotTo() {
+        PurchaseQueueEntity entry = queue.enqueue("cust001", "Concert", 5, 0, null);
+        track(entry).recordProgress(2);
+        queue.flush();
+        queue.stopTracking();
+
+        PurchaseQueueService restarted = restart();
+        PurchaseQueueEntity resumed = restarted.findPendingPurchases().get(0);
+        WorkerJob resumedJob = new WorkerJob(2, WorkerJob.JobType.TICKET_PURCHASE, "cust001", "Concert",
+                resumed.getRemaining());
+        restarted.track(resumed, resumedJob);
+        resumedJob.recordProgress(1);
+        restarted.flush();
+        restarted.stopTracking();
+
+        assertEquals(2, restart().findPendingPurchases().get(0).getRemaining());
+    }
+
+    @Test
+    void doesNotResumeFinishedOrExpiredRequests() {
+        PurchaseQueueEntity completed = queue.enqueue("cust001", "Concert", 2, 0, null);
+        PurchaseQueueEntity stopped = queue.enqueue("cust002", "Concert", 2, 0, null);
+        PurchaseQueueEntity expired = queue.enqueue("cust003", "Concert", 2, 0, null);
+        WorkerJob completedJob = track(completed);
+        completedJob.recordProgress(2);
+        completedJob.markFinished(WorkerJob.JobState.COMPLETED);
+        track(stopped).markFinished(WorkerJob.JobState.STOPPED);
+        queue.flush();
+        queue.markExpired(expired);
+
+        assertTrue(restart().findPendingPurchases().isEmpty());
+        assertEquals(PurchaseQueueService.STATUS_COMPLETED,
+                purchaseQueueRepository.findById(completed.getQueueId()).orElseThrow().getStatus());
+        assertEquals(0, purchaseQueueRepository.findById(completed.getQueueId()).orElseThrow().getRemaining());
+        assertEquals(PurchaseQueueService.STATUS_STOPPED,
+                purchaseQueueRepository.findById(stopped.getQueueId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void keepsTheRowsOfJobsHaltedAtShutdownPending() {
+        PurchaseQueueEntity halted = queue.enqueue("cust001", "Concert", 4, 0, null);
+        PurchaseQueueEntity running = queue.enqueue("cust002", "Concert", 4, 0, null);
+        WorkerJob haltedJob = track(halted);
+        track(running);
+
+        // A running request is not handed out to be resumed a second time.
+        assertTrue(queue.findPendingPurchases().isEmpty());
+
+        haltedJob.recordProgress(1);
+        queue.flush();
+        queue.stopTracking();
+        haltedJob.markFinished(WorkerJob.JobState.CANCELLED);
+        queue.flush();
+
+        List<PurchaseQueueEntity> pending = restart().findPendingPurchases();
+        assertEquals(List.of(halted.getQueueId(), running.getQueueId()), pending.stream()
+                .map(PurchaseQueueEntity::getQueueId).collect(Collectors.toList()));
+        assertEquals(3, pending.get(0).getRemaining());
+        assertEquals(4, pending.get(1).getRemaining());
+    }
+
+    private WorkerJob track(PurchaseQueueEntity entry) {
+        WorkerJob job = new WorkerJob(entry.getQueueId(), WorkerJob.JobType.TICKET_PURCHASE, entry.getCustomerId(),
+                entry.getEventName(), entry.getRemaining());
+        job.markStarted();
+        queue.track(entry, job);
+        return job;
+    }
+
+    private PurchaseQueueService restart() {
+        return new PurchaseQueueService(purchaseQueueRepository, transactionManager);
+    }
+}
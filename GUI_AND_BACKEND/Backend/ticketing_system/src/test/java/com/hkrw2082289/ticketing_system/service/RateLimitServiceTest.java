@@ -0,0 +1,90 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+
+import com.hkrw2082289.ticketing_system.utils.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This test class checks how the {@link RateLimitService} takes tokens from its buckets and gives back the tokens
+ * it did not use. Every bucket refills one token every 1000 seconds, so nothing refills during a test.
+ */
+class RateLimitServiceTest {
+
+    private static final double RATE = 0.001;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * This creates the service with the given bursts and the same slow rate for every bucket.
+     *
+     * @param globalBurst the burst of the global bucket.
+     * @param vendorBurst the burst of each vendor bucket.
+     * @param customerBurst the burst of each customer bucket.
+     * @param eventBurst the burst of each event bucket.
+     * @return the service.
+     */
+    private RateLimitService rateLimitService(int globalBurst, int vendorBurst, int customerBurst, int eventBurst) {
+        return new RateLimitService(true, RATE, globalBurst, RATE, vendorBurst, RATE, customerBurst, RATE,
+                eventBurst, meterRegistry);
+    }
+
+    @Test
+    void grantsWhatTheSmallestBucketAllowsAndGivesTheSurplusBack() {
+        RateLimitService service = rateLimitService(100, 10, 5, 3);
+
+        assertEquals(3, service.acquirePurchase("cust001", "EventA", 5));
+
+        // The customer bucket gave back the 2 tokens the event bucket did not grant.
+        assertEquals(2, service.acquirePurchase("cust001", "EventB", 5));
+    }
+
+    @Test
+    void givesBackTheTokensAlreadyTakenWhenALaterBucketIsEmpty() {
+        RateLimitService service = rateLimitService(100, 10, 5, 3);
+        assertEquals(3, service.acquirePurchase("cust001", "EventA", 3));
+
+        RateLimitExceededException rejection = assertThrows(RateLimitExceededException.class,
+                () -> service.acquirePurchase("cust002", "EventA", 2));
+
+        assertEquals("Error: The event rate limit has been reached, please retry in " +
+                (rejection.getRetryAfterNanos() / 1_000_000 + 1) + " ms.", rejection.getMessage());
+        // The customer bucket got back the 2 tokens it granted before the event bucket rejected them.
+        assertEquals(3, service.acquirePurchase("cust002", "EventB", 5));
+        assertEquals(2, service.acquirePurchase("cust002", "EventC", 5));
+        assertEquals(1, meterRegistry.get("ticketing.rate-limit.rejections").tag("scope", "event").counter()
+                .count());
+    }
+
+    @Test
+    void releasePurchaseGivesTokensBackToEveryBucket() {
+        RateLimitService service = rateLimitService(4, 10, 4, 4);
+        assertEquals(4, service.acquirePurchase("cust001", "EventA", 4));
+
+        service.releasePurchase("cust001", "EventA", 3);
+
+        assertEquals(3, service.acquirePurchase("cust001", "EventA", 4));
+    }
+
+    @Test
+    void releaseReleaseGivesTokensBackToEveryBucket() {
+        RateLimitService service = rateLimitService(4, 4, 10, 4);
+        assertEquals(4, service.acquireRelease("vend001", "EventA", 4));
+        assertThrows(RateLimitExceededException.class, () -> service.acquireRelease("vend001", "EventA"));
+
+        service.releaseRelease("vend001", "EventA", 2);
+
+        assertEquals(2, service.acquireRelease("vend001", "EventA", 4));
+    }
+
+    @Test
+    void grantsEverythingWhenSwitchedOff() {
+        RateLimitService service = new RateLimitService(false, RATE, 1, RATE, 1, RATE, 1, RATE, 1, meterRegistry);
+
+        assertEquals(50, service.acquirePurchase("cust001", "EventA", 50));
+        assertEquals(50, service.acquireRelease("vend001", "EventA", 50));
+    }
+}
@@ -0,0 +1,198 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+
+import com.hkrw2082289.ticketing_system.helper.Deadline;
+import com.hkrw2082289.ticketing_system.helper.PoolDelta;
+import com.hkrw2082289.ticketing_system.model.Configuration;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import com.hkrw2082289.ticketing_system.repository.InMemoryTicketStore;
+import com.hkrw2082289.ticketing_system.repository.PoolOutboxRepository;
+import com.hkrw2082289.ticketing_system.utils.TicketUtility;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * This test class checks the archival job: it archives the booked tickets of past events in chunks of the chunk
+ * size, stops after the chunk limit of a run, evicts the archived tickets from the in-memory pool together with the
+ * changes removing them, and leaves the pool as it was when the archive fails.
+ *
+ * The pool runs on the in-memory ticket store without the outbox, so the changes of the pool go straight to the
+ * publisher, where the test collects them.
+ */
+class TicketArchiveServiceTest {
+
+    private static final Date PAST = new Date(1_500_000_000_000L);
+
+    private static final Date FUTURE = new Date(4_000_000_000_000L);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<PoolDelta> published = new CopyOnWriteArrayList<>();
+
+    private final FailingTicketStore ticketStore = new FailingTicketStore();
+
+    private WorkerExecutorService workerExecutorService;
+
+    private TicketPoolService ticketPoolService;
+
+    private TicketArchiveService archiveService;
+
+    @BeforeEach
+    void setUp() {
+        Configuration configuration = new Configuration();
+        configuration.setMaxTicketCapacity(100);
+        ConfigurationService configurationService = mock(ConfigurationService.class);
+        when(configurationService.viewConfiguration()).thenReturn(configuration);
+        PoolEventPublisher publisher = mock(PoolEventPublisher.class);
+        doAnswer(invocation -> published.add(invocation.getArgument(0))).when(publisher).postDelta(any());
+        PoolOutboxService outbox = new PoolOutboxService(mock(PoolOutboxRepository.class), publisher, ticketStore,
+                mock(PlatformTransactionManager.class), false, 500, 1000, meterRegistry);
+        RateLimitService rateLimitService = new RateLimitService(false, 0, 0, 0, 0, 0, 0, 0, 0, meterRegistry);
+        workerExecutorService = new WorkerExecutorService("platform", 1, 1, 1, meterRegistry);
+        ticketPoolService = new TicketPoolService(ticketStore, configurationService, new TicketUtility(ticketStore),
+                publisher, rateLimitService, workerExecutorService, outbox);
+
+        archiveService = new TicketArchiveService(ticketStore, ticketPoolService);
+        ReflectionTestUtils.setField(archiveService, "enabled", true);
+        ReflectionTestUtils.setField(archiveService, "chunkSize", 2);
+        ReflectionTestUtils.setField(archiveService, "chunkPauseMs", 0L);
+        ReflectionTestUtils.setField(archiveService, "maxChunksPerRun", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workerExecutorService.shutdown();
+    }
+
+    @Test
+    void archivesTheBookedTicketsOfPastEventsInChunksUpToTheChunkLimit() {
+        List<Long> past = book("Concert", release("Concert", PAST, 5));
+        List<Long> upcoming = book("Play", release("Play", FUTURE, 1));
+        release("Opera", PAST, 1);
+        published.clear();
+
+        assertEquals(4, archiveService.archiveBookedTickets());
+        assertEquals(List.of(past.subList(0, 2), past.subList(2, 4)), removedTicketIds());
+        assertEquals(List.of(past.get(4), upcoming.get(0)), bookedTicketIds());
+
+        assertEquals(1, archiveService.archiveBookedTickets());
+        assertEquals(0, archiveService.archiveBookedTickets());
+
+        assertEquals(List.of(upcoming.get(0)), bookedTicketIds());
+        assertEquals(Map.of("Concert", 5L), ticketStore.countArchivedByEvent());
+        // The archived tickets are counted once, from the archive, so they have left the pool.
+        assertEquals(Map.of("Concert", 5, "Play", 1), ticketPoolService.countBookedTicketsByEvent());
+        assertEquals(Map.of("Opera", 1), ticketPoolService.countAvailableTicketsByEvent());
+    }
+
+    @Test
+    void archivesNothingWhenTheJobIsDisabled() {
+        book("Concert", release("Concert", PAST, 2));
+        ReflectionTestUtils.setField(archiveService, "enabled", false);
+
+        assertEquals(0, archiveService.archiveBookedTickets());
+        assertEquals(2, bookedTicketIds().size());
+    }
+
+    @Test
+    void keepsThePoolAsItWasWhenTheArchiveFails() {
+        List<Long> past = book("Concert", release("Concert", PAST, 2));
+        published.clear();
+        ticketStore.failArchive = true;
+
+        assertThrows(IllegalStateException.class, () -> archiveService.archiveBookedTickets());
+
+        assertTrue(removedTicketIds().isEmpty());
+        assertEquals(past, bookedTicketIds());
+        assertEquals(Map.of("Concert", 2), ticketPoolService.countBookedTicketsByEvent());
+
+        ticketStore.failArchive = false;
+        assertEquals(2, archiveService.archiveBookedTickets());
+        assertEquals(List.of(past), removedTicketIds());
+        assertEquals(Map.of("Concert", 2), ticketPoolService.countBookedTicketsByEvent());
+    }
+
+    /**
+     * This adds tickets of an event to the pool.
+     *
+     * @return the IDs of the tickets.
+     */
+    private List<Long> release(String eventName, Date date, int count) {
+        List<Long> ticketIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TicketEntity ticket = new TicketEntity(null, eventName, new BigDecimal("49.99"), "2h", date, "vend001",
+                    "Available", null);
+            assertTrue(ticketPoolService.addTicket(ticket, Deadline.none()));
+            ticketIds.add(ticket.getTicketId());
+        }
+        return ticketIds;
+    }
+
+    private List<Long> book(String eventName, List<Long> ticketIds) {
+        assertEquals(ticketIds, ticketPoolService.bookTickets(eventName, "cust001", ticketIds.size(),
+                Deadline.none()));
+        return ticketIds;
+    }
+
+    /**
+     * This returns the IDs of the booked tickets still in the store.
+     *
+     * @return the ticket IDs in order.
+     */
+    private List<Long> bookedTicketIds() {
+        return ticketStore.findAll().stream()
+                .filter(ticket -> "Booked".equals(ticket.getTicketStatus()))
+                .map(TicketEntity::getTicketId)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * This returns the ticket IDs of the changes removing tickets from the pool that were published.
+     *
+     * @return the ticket IDs of each change, in the order the changes were published.
+     */
+    private List<List<Long>> removedTicketIds() {
+        return published.stream()
+                .filter(delta -> PoolDelta.TICKET_REMOVED.equals(delta.getType()))
+                .map(PoolDelta::getTicketIds)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * This is the in-memory ticket store whose archive can be made to fail.
+     */
+    private static final class FailingTicketStore extends InMemoryTicketStore {
+
+        private volatile boolean failArchive;
+
+        @Override
+        public synchronized int archive(Collection<Long> ticketIds, Date archivedAt) {
+            if (failArchive) {
+                throw new IllegalStateException("Store is down");
+            }
+            return super.archive(ticketIds, archivedAt);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.service;
+
+import com.hkrw2082289.ticketing_system.helper.Deadline;
+import com.hkrw2082289.ticketing_system.model.Configuration;
+import com.hkrw2082289.ticketing_system.model.TicketEntity;
+import com.hkrw2082289.ticketing_system.repository.InMemoryTicketStore;
+import com.hkrw2082289.ticketing_system.repository.PoolOutboxRepository;
+import com.hkrw2082289.ticketing_system.utils.RateLimitExceededException;
+import com.hkrw2082289.ticketing_system.utils.TicketUtility;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * This test class checks how the non-blocking requests of the {@link TicketPoolService} wait for tickets: the
+ * requests of an event are served in the order they arrived, a request that times out, goes away or is rejected by
+ * a rate limit after it was handed a ticket passes the ticket on to the next request, and a request that has timed
+ * out never books a ticket.
+ *
+ * The pool runs on the in-memory ticket store without the outbox, and the waiter lane has a single thread, so a
+ * task submitted to the lane after a request has started only runs once the first attempt of the request is done.
+ */
+class TicketPoolServiceAsyncTest {
+
+    private static final String EVENT = "Concert";
+
+    private final InMemoryTicketStore ticketStore = new InMemoryTicketStore();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WorkerExecutorService workerExecutorService;
+
+    private RateLimitService rateLimitService;
+
+    private TicketPoolService ticketPoolService;
+
+    @BeforeEach
+    void setUp() {
+        Configuration configuration = new Configuration();
+        configuration.setMaxTicketCapacity(100);
+        ConfigurationService configurationService = mock(ConfigurationService.class);
+        when(configurationService.viewConfiguration()).thenReturn(configuration);
+        PoolEventPublisher publisher = mock(PoolEventPublisher.class);
+        PoolOutboxService outbox = new PoolOutboxService(mock(PoolOutboxRepository.class), publisher, ticketStore,
+                mock(PlatformTransactionManager.class), false, 500, 1000, meterRegistry);
+        // Only the customers have a rate limit, of one ticket that is not refilled during a test.
+        rateLimitService = new RateLimitService(true, 0, 0, 0, 0, 0.001, 1, 0, 0, meterRegistry);
+        workerExecutorService = new WorkerExecutorService("platform", 1, 1, 1, meterRegistry);
+        ticketPoolService = new TicketPoolService(ticketStore, configurationService, new TicketUtility(ticketStore),
+                publisher, rateLimitService, workerExecutorService, outbox);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workerExecutorService.shutdown();
+    }
+
+    @Test
+    void servesTheWaitersOfAnEventInTheOrderTheyArrived() throws Exception {
+        CompletableFuture<List<Long>> first = book("cusa001", Deadline.none());
+        CompletableFuture<List<Long>> second = book("cusb001", Deadline.none());
+        CompletableFuture<List<Long>> third = book("cusc001", Deadline.none());
+        awaitWaiterLane();
+
+        Long firstTicket = release();
+        assertEquals(List.of(firstTicket), first.get(5, TimeUnit.SECONDS));
+        Long secondTicket = release();
+        assertEquals(List.of(secondTicket), second.get(5, TimeUnit.SECONDS));
+        awaitWaiterLane();
+        assertFalse(third.isDone());
+    }
+
+    @Test
+    void passesTheTicketOnWhenTheRateLimitRejectsTheWaiterHandedIt() throws Exception {
+        rateLimitService.acquirePurchase("cusa001", "Other", 1);
+        CompletableFuture<List<Long>> limited = book("cusa001", Deadline.none());
+        CompletableFuture<List<Long>> next = book("cusb001", Deadline.none());
+        awaitWaiterLane();
+
+        Long ticketId = release();
+
+        assertEquals(List.of(ticketId), next.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RateLimitExceededException.class, causeOf(limited));
+    }
+
+    @Test
+    void aWaiterThatTimesOutInTheQueueLeavesIt() throws Exception {
+        CompletableFuture<List<Long>> expiring = book("cusa001", Deadline.afterMillis(200L));
+        CompletableFuture<List<Long>> next = book("cusb001", Deadline.none());
+        awaitWaiterLane();
+
+        Throwable timeout = causeOf(expiring);
+        Long ticketId = release();
+
+        assertInstanceOf(TimeoutException.class, timeout);
+        assertEquals("The request timed out waiting on the pool", timeout.getMessage());
+        assertEquals(List.of(ticketId), next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void aWaiterThatExpiresAfterItWasHandedATicketPassesItOn() throws Exception {
+        Deadline abandoned = Deadline.none();
+        CompletableFuture<List<Long>> expiring = book("cusa001", abandoned);
+        CompletableFuture<List<Long>> next = book("cusb001", Deadline.none());
+        awaitWaiterLane();
+
+        // The waiter lane is held up so the first waiter is handed the ticket but has not used it yet when its
+        // caller goes away.
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        workerExecutorService.submitWaiterTask(() -> {
+            blocked.countDown();
+            awaitQuietly(unblock);
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        Long ticketId = release();
+        abandoned.cancel();
+        unblock.countDown();
+
+        Throwable timeout = causeOf(expiring);
+        assertInstanceOf(TimeoutException.class, timeout);
+        assertEquals("The caller abandoned the request", timeout.getMessage());
+        assertEquals(List.of(ticketId), next.get(5, TimeUnit.SECONDS));
+        assertEquals("cusb001", ticketStore.findById(ticketId).orElseThrow().getCustomerId());
+    }
+
+    private CompletableFuture<List<Long>> book(String customerId, Deadline deadline) {
+        return ticketPoolService.bookTicketsAsync(EVENT, customerId, 1, deadline);
+    }
+
+    /**
+     * This adds one ticket of the event to the pool.
+     *
+     * @return the ID of the ticket.
+     */
+    private Long release() {
+        TicketEntity ticket = new TicketEntity(null, EVENT, new BigDecimal("49.99"), "2h",
+                new Date(1_800_000_000_000L), "vend001", "Available", null);
+        assertTrue(ticketPoolService.addTicket(ticket, Deadline.none()));
+        return ticket.getTicketId();
+    }
+
+    /**
+     * This waits until the waiter lane has run every task submitted to it so far.
+     */
+    private void awaitWaiterLane() throws Exception {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        workerExecutorService.submitWaiterTask(() -> done.complete(null));
+        done.get(5, TimeUnit.SECONDS);
+    }
+
+    private static Throwable causeOf(CompletableFuture<?> future) {
+        return assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS)).getCause();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
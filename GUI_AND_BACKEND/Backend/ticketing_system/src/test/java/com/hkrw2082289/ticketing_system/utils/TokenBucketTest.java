@@ -0,0 +1,79 @@
+//Real-Time Ticketing System Backend by Heshan Ratnaweera, Student ID UOW: W2082289 IIT: 20222094.
+package com.hkrw2082289.ticketing_system.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This test class checks the refill, give-back and capacity of the {@link TokenBucket}. The buckets that must not
+ * refill during a test refill one token every 1000 seconds, and the buckets that must refill one every millisecond.
+ */
+class TokenBucketTest {
+
+    private static final double SLOW_RATE = 0.001;
+
+    private static final double FAST_RATE = 1000;
+
+    @Test
+    void startsFullAndGrantsUpToTheCapacity() {
+        TokenBucket bucket = new TokenBucket(SLOW_RATE, 5);
+
+        assertEquals(3, bucket.tryAcquireUpTo(3));
+        assertEquals(2, bucket.tryAcquireUpTo(10));
+        assertEquals(0, bucket.tryAcquireUpTo(1));
+        assertTrue(bucket.nanosUntilAvailable() > 0);
+    }
+
+    @Test
+    void refillsInBulkWithoutGoingOverTheCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(FAST_RATE, 5);
+        assertEquals(5, bucket.tryAcquireUpTo(5));
+
+        Thread.sleep(50);
+
+        assertEquals(0, bucket.nanosUntilAvailable());
+        assertEquals(5, bucket.tryAcquireUpTo(100));
+    }
+
+    @Test
+    void releaseGivesUnusedTokensBack() {
+        TokenBucket bucket = new TokenBucket(SLOW_RATE, 5);
+        assertEquals(5, bucket.tryAcquireUpTo(5));
+
+        bucket.release(3);
+
+        assertEquals(3, bucket.tryAcquireUpTo(5));
+        assertEquals(0, bucket.tryAcquireUpTo(1));
+    }
+
+    @Test
+    void releaseAfterRefillDoesNotGoOverTheCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(FAST_RATE, 5);
+        assertEquals(5, bucket.tryAcquireUpTo(5));
+        Thread.sleep(50);
+
+        bucket.release(5);
+
+        assertEquals(5, bucket.tryAcquireUpTo(100));
+    }
+
+    @Test
+    void releaseOfNothingLeavesTheBucketAsItIs() {
+        TokenBucket bucket = new TokenBucket(SLOW_RATE, 5);
+        assertEquals(4, bucket.tryAcquireUpTo(4));
+
+        bucket.release(0);
+        bucket.release(-2);
+
+        assertEquals(1, bucket.tryAcquireUpTo(5));
+    }
+
+    @Test
+    void rejectsANonPositiveRateOrCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+    }
+}
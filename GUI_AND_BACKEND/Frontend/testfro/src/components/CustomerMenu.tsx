@@ -6,7 +6,7 @@ import ViewBookedTicketsPopup from "./ViewBookedTicketsPopup";
 import PurchaseTicketsPopup from "./PurchaseTicketsPopup";
 import apiClient from "../api";
 import { Client } from "@stomp/stompjs";
-import { connectWebSocket } from "../websocket";
+import { BookingNotification, connectWebSocket } from "../websocket";
 import LogDisplay from "./LogDisplay";
 import TicketTable from "./TicketTable";
 
@@ -118,6 +118,21 @@ const CustomerMenu: React.FC<CustomerMenuProps> = ({
             }
             return prevMessages;
           });
+        },
+        customerId,
+        (notification: BookingNotification) => {
+          //The server pushes the customer's own bookings, so there is no need to poll the booked tickets.
+          if (notification.type === "ticketsBooked") {
+            showNotification(
+              `Booked ${notification.ticketIds?.length} ticket(s) for ${notification.eventName}.`
+            );
+          } else {
+            showNotification(
+              `Purchase job ${notification.jobId} for ${notification.eventName} finished as ` +
+                `${notification.jobState}, ${notification.booked} of ${notification.requested} tickets booked.`,
+              notification.jobState !== "COMPLETED"
+            );
+          }
         }
       );
     }
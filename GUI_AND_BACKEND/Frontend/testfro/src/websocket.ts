@@ -2,52 +2,219 @@
 
 import SockJS from 'sockjs-client';
 import { Client } from '@stomp/stompjs';
+import apiClient from './api';
 
 //This is the URL of the WebSocket server endpoint
 const SOCKET_URL = 'http://localhost:8080/ws';
 
+//This is the shape of a change of the ticket pool published on /topic/ticketpool, in lists of the changes of a tick.
+interface PoolDelta {
+  seq: number; // Sequence number, one higher than the change before it.
+  fromSeq?: number; // Sequence number of the first change, when alike changes were merged into this one.
+  type: 'ticketAdded' | 'ticketBooked' | 'ticketRemoved';
+  ticketIds: number[];
+  eventName?: string;
+  price?: number;
+  timeDuration?: string;
+  date?: string;
+  vendorId?: string;
+  customerId?: string;
+}
+
+//This is the shape of a notification pushed to a single customer on /user/queue/bookings, in lists per tick.
+export interface BookingNotification {
+  type: 'ticketsBooked' | 'jobFinished';
+  eventName?: string;
+  ticketIds?: number[]; // IDs of the tickets booked, for ticketsBooked.
+  seq?: number;
+  jobId?: number; // The fields below are sent for jobFinished.
+  jobState?: string;
+  booked?: number;
+  requested?: number;
+  finishedAt?: string;
+}
+
+//This selects the compact columnar format of the server for the ticket pool, which sends fewer bytes per update.
+const USE_COMPACT_FORMAT = true;
+const POOL_TOPIC = USE_COMPACT_FORMAT ? '/topic/ticketpool/compact' : '/topic/ticketpool';
+
+//This asks the server for the log line of every single ticket, besides the summaries it sends every second.
+const SHOW_VERBOSE_LOGS = false;
+
+const DELTA_TYPES: Record<string, PoolDelta['type']> = { A: 'ticketAdded', B: 'ticketBooked', R: 'ticketRemoved' };
+const TICKET_STATUSES: Record<string, string> = { A: 'Available', B: 'Booked' };
+
+//This expands the ticket ID ranges of the compact format, pairs of a first ID and a count, into ticket IDs.
+const fromRanges = (ranges: number[]) => {
+  const ticketIds: number[] = [];
+  for (let i = 0; i < ranges.length; i += 2) {
+    for (let n = 0; n < ranges[i + 1]; n++) ticketIds.push(ranges[i] + n);
+  }
+  return ticketIds;
+};
+
+//This turns a message of the compact format, one array per field, into the changes it holds.
+const decodeCompactDeltas = (message: any): PoolDelta[] =>
+  message.seq.map((seq: number, i: number) => ({
+    seq,
+    fromSeq: message.fromSeq?.[i] ?? undefined,
+    type: DELTA_TYPES[message.type[i]],
+    ticketIds: fromRanges(message.ids[i]),
+    eventName: message.event?.[i] ?? undefined,
+    price: message.price?.[i] ?? undefined,
+    timeDuration: message.duration?.[i] ?? undefined,
+    date: message.date?.[i] ?? undefined,
+    vendorId: message.vendor?.[i] ?? undefined,
+    customerId: message.customer?.[i] ?? undefined,
+  }));
+
+//This turns a snapshot of the compact format into the tickets it holds.
+const decodeCompactTickets = (snapshot: any) =>
+  snapshot.ticketId.map((ticketId: number, i: number) => ({
+    ticketId,
+    eventName: snapshot.event?.[i] ?? null,
+    price: snapshot.price?.[i] ?? null,
+    timeDuration: snapshot.duration?.[i] ?? null,
+    date: snapshot.date?.[i] ?? null,
+    vendorId: snapshot.vendor?.[i] ?? null,
+    ticketStatus: TICKET_STATUSES[snapshot.status?.[i]] ?? snapshot.status?.[i] ?? null,
+    customerId: snapshot.customer?.[i] ?? null,
+  }));
+
 
 /**
  * Establishes a WebSocket connection using the STOMP protocol.
+ *
+ * The server publishes sequenced changes of the ticket pool instead of the whole pool, so a local copy of the pool
+ * is kept here. It is loaded from the snapshot endpoint on connect, and the changes are applied to it in order. When
+ * a change is missed, which shows as a gap in the sequence numbers, the snapshot is loaded again.
  * 
- * @param onTicketUpdate Callback to handle ticket updates received from the server.
+ * @param onTicketUpdate Callback to handle ticket updates received from the server, called with the whole pool.
  * @param onLogMessage Callback to handle log messages received from the server.
+ * @param customerId ID of the signed in customer, sent on connect so the server can push their own notifications.
+ * @param onBooking Callback to handle the notifications of the customer's bookings and finished purchase jobs.
  * @returns The STOMP client instance, allowing further control (e.g., disconnect).
  */
 export const connectWebSocket = (
   onTicketUpdate: (data: any) => void,
-  onLogMessage: (data: any) => void
+  onLogMessage: (data: any) => void,
+  customerId?: string,
+  onBooking?: (notification: BookingNotification) => void
 ) => {
+  // This is the local copy of the ticket pool by ticket ID, which keeps the order tickets were added in.
+  const pool = new Map<number, any>();
+  let lastSeq = -1; // Sequence number of the last change applied, -1 until the first snapshot is loaded.
+  let resyncing = false;
+  let buffered: PoolDelta[] = []; // Changes received while the snapshot is being loaded.
+
+  // This loads the snapshot of the pool and applies the changes received meanwhile that it does not include.
+  const resync = async () => {
+    if (resyncing) return;
+    resyncing = true;
+    try {
+      const response = await apiClient.get('/ticket-pool/snapshot', {
+        params: { format: USE_COMPACT_FORMAT ? 'compact' : 'json' },
+      });
+      const tickets = USE_COMPACT_FORMAT ? decodeCompactTickets(response.data) : response.data.tickets;
+      pool.clear();
+      tickets.forEach((ticket: any) => pool.set(ticket.ticketId, ticket));
+      lastSeq = response.data.seq;
+    } catch (error) {
+      console.error('Error loading the ticket pool snapshot:', error);
+    } finally {
+      resyncing = false;
+    }
+    const pending = buffered;
+    buffered = [];
+    pending.forEach(applyDelta);
+    onTicketUpdate(Array.from(pool.values()));
+  };
+
+  // This applies a change to the local pool, or loads the snapshot again if changes were missed.
+  const applyDelta = (delta: PoolDelta) => {
+    if (resyncing || lastSeq < 0) {
+      buffered.push(delta);
+      return;
+    }
+    if (delta.seq <= lastSeq) return; // Already included in the snapshot.
+    const firstSeq = delta.fromSeq ?? delta.seq; // A merged change may partly overlap the snapshot, which is harmless.
+    if (firstSeq > lastSeq + 1) {
+      console.warn(`Missed ticket pool changes ${lastSeq + 1} to ${firstSeq - 1}, loading the snapshot again`);
+      buffered.push(delta);
+      resync();
+      return;
+    }
+    lastSeq = delta.seq;
+    delta.ticketIds.forEach((ticketId) => {
+      if (delta.type === 'ticketAdded') {
+        pool.set(ticketId, {
+          ticketId,
+          eventName: delta.eventName,
+          price: delta.price,
+          timeDuration: delta.timeDuration,
+          date: delta.date,
+          vendorId: delta.vendorId,
+          ticketStatus: 'Available',
+          customerId: null,
+        });
+      } else if (delta.type === 'ticketBooked') {
+        const ticket = pool.get(ticketId);
+        if (ticket) pool.set(ticketId, { ...ticket, ticketStatus: 'Booked', customerId: delta.customerId });
+      } else if (delta.type === 'ticketRemoved') {
+        pool.delete(ticketId);
+      }
+    });
+  };
+
    //This Createa a new STOMP client with configuration options.
   const client = new Client({
     brokerURL: SOCKET_URL, // WebSocket broker URL (used when SockJS is not required).
-    connectHeaders: {}, // Custom headers sent during the WebSocket handshake
+    connectHeaders: customerId ? { customerId } : {}, // Custom headers sent during the WebSocket handshake
     debug: (str) => console.log(str), // Debug callback for STOMP messages.
     reconnectDelay: 5000, // Reconnection delay in milliseconds after disconnection.
     webSocketFactory: () => new SockJS(SOCKET_URL), // Use SockJS for compatibility with browsers that lack native WebSocket support
     onConnect: () => {
       console.log('Connected to WebSocket');
 
-      // Subscribe to the /topic/ticketpool for ticket updates
-      client.subscribe('/topic/ticketpool', (message) => {
+      // Subscribe to the ticket pool topic for ticket pool changes, in the selected format
+      client.subscribe(POOL_TOPIC, (message) => {
         try {
-          const ticketData = JSON.parse(message.body);
-          onTicketUpdate(ticketData);  // Callback for ticket update
+          const body = JSON.parse(message.body);
+          const deltas: PoolDelta[] = USE_COMPACT_FORMAT ? decodeCompactDeltas(body) : body;
+          deltas.forEach(applyDelta);
+          if (!resyncing) onTicketUpdate(Array.from(pool.values()));  // Callback for ticket update
         } catch (error) {
           console.error('Error parsing WebSocket message for ticket pool:', error);
         }
       });
 
-      // Subscribe to the /topic/logs for log messages
-      client.subscribe('/topic/logs', (message) => {
+      // Load the pool after subscribing, so no change published in between is missed
+      lastSeq = -1;
+      resync();
+
+      // Subscribe to the customer's own notifications, so the booked tickets need not be polled
+      if (customerId && onBooking) {
+        client.subscribe('/user/queue/bookings', (message) => {
+          try {
+            const notifications: BookingNotification[] = JSON.parse(message.body);
+            notifications.forEach(onBooking);
+          } catch (error) {
+            console.error('Error processing WebSocket message for bookings:', error);
+          }
+        });
+      }
+
+      // Subscribe to the /topic/logs for log messages and per-second summaries, and to the per-ticket lines if asked
+      const logTopics = SHOW_VERBOSE_LOGS ? ['/topic/logs', '/topic/logs/verbose'] : ['/topic/logs'];
+      logTopics.forEach((topic) => client.subscribe(topic, (message) => {
         try {
-          // Assuming the log message is a plain text string                 
-          const logMessage = message.body; 
-          onLogMessage(logMessage);  // Invoke the log message callback
+          // The log messages of a tick arrive together as a list of plain text strings
+          const logMessages: string[] = JSON.parse(message.body);
+          logMessages.forEach(onLogMessage);  // Invoke the log message callback
         } catch (error) {
           console.error('Error processing WebSocket message for logs:', error);
         }
-      });
+      }));
     },
     onDisconnect: () => console.log('Disconnected from WebSocket'), // Callback triggered on disconnection.
     onStompError: (frame) => {